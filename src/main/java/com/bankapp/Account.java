@@ -1,16 +1,40 @@
 package com.bankapp;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Account {
+    private static final List<AccountChangeListener> LISTENERS = new CopyOnWriteArrayList<>();
+    // Versions published inside commitTogether() on this thread, stamped when it ends
+    private static final ThreadLocal<List<Published>> COMMIT_GROUP = new ThreadLocal<>();
+
     private String accountNumber;
     private String customerName;
     private double balance;
     private List<Transaction> transactions;
     private String passwordHash;
     private String pin;
-    private boolean isLocked;
+    private volatile boolean isLocked;
+    // Set by a forced credential reset until the customer chooses a new password and PIN; null otherwise
+    private Boolean credentialResetRequired;
+    // Older history moved to HistoryArchive; null until something is archived
+    private Integer archivedCount;
+    private Double archivedNet;
+    private LocalDateTime archivedThrough;
+    private transient volatile AccountVersion version;
+    // Set while the account is in hot-account mode; credits wait here until folded in
+    private transient volatile HotBalanceCells hotCells;
+    private transient boolean settling;
 
     public Account(String accountNumber, String customerName, String password, String pin) {
         this.accountNumber = accountNumber;
@@ -20,38 +44,157 @@ public class Account {
         this.balance = 0.0;
         this.transactions = new ArrayList<>();
         this.isLocked = false;
+        installVersion();
+    }
+
+    private Account() {
+        // used for detached copies and by Gson
+    }
+
+    /**
+     * New account with an already hashed password, for tools that create
+     * many accounts and cannot afford a PBKDF2 hash for each
+     */
+    static Account withPasswordHash(String accountNumber, String customerName, String passwordHash, String pin) {
+        Account account = new Account();
+        account.accountNumber = accountNumber;
+        account.customerName = customerName;
+        account.passwordHash = passwordHash;
+        account.pin = pin;
+        account.transactions = new ArrayList<>();
+        account.installVersion();
+        return account;
+    }
+
+    /**
+     * Detached copy of a snapshot state; it is not attached to any bank
+     */
+    static Account fromSnapshot(BankSnapshot.AccountState state) {
+        Account copy = new Account();
+        copy.accountNumber = state.getAccountNumber();
+        copy.customerName = state.getCustomerName();
+        copy.balance = state.getBalance();
+        copy.transactions = state.getTransactions();
+        copy.passwordHash = state.getPasswordHash();
+        copy.pin = state.getPin();
+        copy.isLocked = state.isLocked();
+        copy.credentialResetRequired = state.isCredentialResetRequired() ? Boolean.TRUE : null;
+        if (state.getArchivedCount() > 0) {
+            copy.archivedCount = state.getArchivedCount();
+            copy.archivedNet = state.getArchivedNet();
+            copy.archivedThrough = state.getArchivedThrough();
+        }
+        return copy;
+    }
+
+    /**
+     * Empty account on a replication follower, filled in by applyReplicated
+     */
+    static Account replica(String accountNumber) {
+        Account replica = new Account();
+        replica.accountNumber = accountNumber;
+        replica.transactions = new ArrayList<>();
+        return replica;
+    }
+
+    /**
+     * Follower side of replication: takes over the primary's state and
+     * appends the history entries it does not have yet. Entries are numbered
+     * from the start of the full history; tail starts at firstOrdinal.
+     * Returns false, changing nothing, if entries between this account's
+     * history and firstOrdinal are missing.
+     */
+    synchronized boolean applyReplicated(ReplicationRecord record) {
+        int have = getTransactionCount();
+        if (have == 0 && record.archivedCount > 0 && record.firstOrdinal == record.archivedCount) {
+            // New on this follower: the primary's archived entries stay on the primary
+            archivedCount = record.archivedCount;
+            archivedNet = record.archivedNet;
+            archivedThrough = record.archivedThrough;
+            have = record.archivedCount;
+        }
+        if (record.firstOrdinal > have) {
+            return false;
+        }
+        List<Transaction> tail = record.transactions == null ? new ArrayList<>() : record.transactions;
+        for (int i = have - record.firstOrdinal; i < tail.size(); i++) {
+            transactions.add(tail.get(i));
+        }
+        customerName = record.customerName;
+        passwordHash = record.passwordHash;
+        pin = record.pin;
+        balance = record.balance;
+        isLocked = record.locked;
+        credentialResetRequired = record.credentialResetRequired ? Boolean.TRUE : null;
+        publish();
+        return true;
     }
 
     public String getPasswordHash() {
         return passwordHash;
     }
 
-    public void setPasswordHash(String passwordHash) {
+    public synchronized void setPasswordHash(String passwordHash) {
         this.passwordHash = passwordHash;
+        publish();
     }
 
     public String getPin() {
         return pin;
     }
 
-    public void setPin(String pin) {
+    public synchronized void setPin(String pin) {
         this.pin = pin;
+        publish();
     }
 
     public boolean isLocked() {
         return isLocked;
     }
 
-    public void setLocked(boolean locked) {
+    public synchronized void setLocked(boolean locked) {
         isLocked = locked;
+        publish();
     }
 
-    public void lock() {
+    public synchronized void lock() {
         this.isLocked = true;
+        publish();
     }
 
-    public void unlock() {
+    public synchronized void unlock() {
         this.isLocked = false;
+        publish();
+    }
+
+    public boolean isCredentialResetRequired() {
+        return Boolean.TRUE.equals(credentialResetRequired);
+    }
+
+    /**
+     * Locks the account and requires a new password and PIN at the next
+     * login. The current ones are kept: once an admin has verified the
+     * customer and unlocked the account, only someone who knows them can
+     * choose new ones. False if the account was already locked for a reset
+     */
+    synchronized boolean requireCredentialReset() {
+        if (isLocked && isCredentialResetRequired()) {
+            return false;
+        }
+        isLocked = true;
+        credentialResetRequired = Boolean.TRUE;
+        publish();
+        return true;
+    }
+
+    /**
+     * Replaces password and PIN, completing a required reset
+     */
+    synchronized void resetCredentials(String passwordHash, String pin) {
+        this.passwordHash = passwordHash;
+        this.pin = pin;
+        credentialResetRequired = null;
+        publish();
     }
 
     public String getAccountNumber() {
@@ -66,42 +209,335 @@ public class Account {
         return customerName;
     }
 
-    public void setCustomerName(String customerName) {
+    public synchronized void setCustomerName(String customerName) {
         this.customerName = customerName;
+        publish();
     }
 
-    public double getBalance() {
+    public synchronized double getBalance() {
+        settle();
         return balance;
     }
 
-    public void setBalance(double balance) {
+    public synchronized void setBalance(double balance) {
+        settle();
         this.balance = balance;
+        publish();
     }
 
     public List<Transaction> getTransactions() {
+        if (hotCells != null) {
+            settle();
+        }
         return transactions;
     }
 
-    public void setTransactions(List<Transaction> transactions) {
+    /**
+     * Full history size, including archived entries
+     */
+    public synchronized int getTransactionCount() {
+        settle();
+        return getArchivedCount() + (transactions == null ? 0 : transactions.size());
+    }
+
+    public synchronized int getArchivedCount() {
+        return archivedCount == null ? 0 : archivedCount;
+    }
+
+    /**
+     * Sum of the signed amounts of all archived entries
+     */
+    public synchronized double getArchivedNet() {
+        return archivedNet == null ? 0.0 : archivedNet;
+    }
+
+    public synchronized LocalDateTime getArchivedThrough() {
+        return archivedThrough;
+    }
+
+    public synchronized void setTransactions(List<Transaction> transactions) {
+        settle();
         this.transactions = transactions;
+        publish();
     }
 
-    public void addTransaction(Transaction transaction) {
+    public synchronized void addTransaction(Transaction transaction) {
         this.transactions.add(transaction);
+        publish();
+    }
+
+    boolean isHot() {
+        return hotCells != null;
+    }
+
+    /**
+     * Turns hot-account mode on or off. Off folds in the last buffered
+     * credits; a deposit racing with it is refused by the closed cells and
+     * goes through the monitor instead.
+     */
+    synchronized void setHot(boolean hot) {
+        HotBalanceCells cells = hotCells;
+        if (hot && cells == null) {
+            hotCells = new HotBalanceCells();
+        } else if (!hot && cells != null) {
+            cells.close();
+            settle();
+            hotCells = null;
+        }
+    }
+
+    /**
+     * Hot-account deposit: buffers the credit in a striped cell without
+     * taking the monitor. Returns false if the account is not (or no longer)
+     * hot, and the caller should use deposit() instead.
+     */
+    boolean creditHot(double amount) {
+        HotBalanceCells cells = hotCells;
+        if (cells == null || amount <= 0 || !cells.credit(new Transaction("DEPOSIT", amount))) {
+            return false;
+        }
+        AuditService.logDepositSuccess(this.accountNumber, amount);
+        return true;
+    }
+
+    /**
+     * Folds buffered hot-account credits into the balance and history and
+     * publishes one version for all of them. Every read and debit under the
+     * monitor does this first, so they see every completed deposit.
+     */
+    synchronized void settle() {
+        HotBalanceCells cells = hotCells;
+        if (cells == null || settling || !cells.hasPending()) {
+            return;
+        }
+        settling = true;
+        try {
+            List<Transaction> credits = cells.drain();
+            for (Transaction credit : credits) {
+                this.balance += credit.getAmount();
+                this.transactions.add(credit);
+            }
+            if (!credits.isEmpty()) {
+                publish();
+            }
+        } finally {
+            settling = false;
+        }
+    }
+
+    /**
+     * Latest committed version; readers use this instead of taking the monitor
+     */
+    AccountVersion currentVersion() {
+        AccountVersion current = version;
+        if (current == null) {
+            synchronized (this) {
+                if (version == null) {
+                    // Loaded from storage by reflection: the state has existed since before any snapshot
+                    version = new AccountVersion(this, AccountVersion.BASELINE_STAMP);
+                }
+                current = version;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Copy-on-write: installs an immutable version of the current state,
+     * stamped with the global snapshot clock. Callers hold the monitor.
+     */
+    private void publish() {
+        List<Published> group = COMMIT_GROUP.get();
+        if (group != null) {
+            group.add(new Published(this, linkVersion()));
+            return;
+        }
+        AccountVersion next = installVersion();
+        notifyListeners(next);
     }
 
-    public boolean deposit(double amount) {
+    private void notifyListeners(AccountVersion next) {
+        for (AccountChangeListener listener : LISTENERS) {
+            listener.accountChanged(this, next);
+        }
+    }
+
+    private static final class Published {
+        final Account account;
+        final AccountVersion version;
+
+        Published(Account account, AccountVersion version) {
+            this.account = account;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Runs changes to several accounts as one commit: every version they
+     * publish is stamped with the same tick, so a snapshot sees all of them
+     * or none. Until then the versions are pending, and snapshots reading
+     * them wait. Callers hold the monitor of every account involved; the
+     * listeners hear of the changes once they are stamped.
+     */
+    static void commitTogether(Runnable changes) {
+        if (COMMIT_GROUP.get() != null) {
+            changes.run();
+            return;
+        }
+        List<Published> group = new ArrayList<>(2);
+        COMMIT_GROUP.set(group);
+        try {
+            changes.run();
+        } finally {
+            COMMIT_GROUP.remove();
+            // Stamped even if a change failed halfway, so no reader waits forever on a pending version
+            if (!group.isEmpty()) {
+                long stamp = BankSnapshot.nextStamp();
+                for (Published published : group) {
+                    published.version.stamp = stamp;
+                }
+                long oldestActive = BankSnapshot.oldestActiveStamp();
+                for (Published published : group) {
+                    published.version.trim(oldestActive);
+                }
+            }
+        }
+        for (Published published : group) {
+            published.account.notifyListeners(published.version);
+        }
+    }
+
+    private AccountVersion installVersion() {
+        AccountVersion next = linkVersion();
+        next.stamp = BankSnapshot.nextStamp();
+        next.trim(BankSnapshot.oldestActiveStamp());
+        return next;
+    }
+
+    /**
+     * Links a new version, still pending, in front of the chain
+     */
+    private AccountVersion linkVersion() {
+        // The version captures the fields as they are; reading them must not fold in more credits
+        boolean wasSettling = settling;
+        settling = true;
+        AccountVersion previous;
+        AccountVersion next;
+        try {
+            // Never the raw field: an account with no version yet would vanish from older snapshots
+            previous = currentVersion();
+            next = new AccountVersion(this, AccountVersion.PENDING_STAMP);
+        } finally {
+            settling = wasSettling;
+        }
+        next.previous = previous;
+        version = next;
+        return next;
+    }
+
+    /**
+     * Tells listeners about a new account once the bank has accepted it; the
+     * constructor does not, since the number may still turn out to be taken.
+     */
+    synchronized void announce() {
+        AccountVersion current = currentVersion();
+        for (AccountChangeListener listener : LISTENERS) {
+            listener.accountChanged(this, current);
+        }
+    }
+
+    static void addChangeListener(AccountChangeListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    static void removeChangeListener(AccountChangeListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * The in-memory history of an older version: its first count entries,
+     * given how many entries were archived at that version. Entries archived
+     * since then are read back from the archive.
+     */
+    synchronized List<Transaction> copyTransactions(int archivedAtVersion, int count) {
+        int archivedSince = getArchivedCount() - archivedAtVersion;
+        if (archivedSince <= 0) {
+            return new ArrayList<>(transactions.subList(0, Math.min(count, transactions.size())));
+        }
+        List<Transaction> result = HistoryArchive.read(accountNumber, archivedAtVersion,
+                archivedAtVersion + Math.min(archivedSince, count));
+        int hot = Math.min(count - archivedSince, transactions.size());
+        if (hot > 0) {
+            result.addAll(transactions.subList(0, hot));
+        }
+        return result;
+    }
+
+    /**
+     * Moves the oldest entries to the archive tier: those dated before the
+     * cutoff, and any beyond the newest maxHot. Returns the number moved.
+     */
+    synchronized int archiveHistory(LocalDateTime cutoff, int maxHot) throws IOException {
+        settle();
+        if (transactions == null) {
+            return 0;
+        }
+        int forced = transactions.size() - Math.max(0, maxHot);
+        int cold = 0;
+        while (cold < transactions.size() && transactions.get(cold).getDateTime() != null
+                && (cold < forced || transactions.get(cold).getDateTime().isBefore(cutoff))) {
+            cold++;
+        }
+        if (cold == 0) {
+            return 0;
+        }
+
+        List<Transaction> moving = transactions.subList(0, cold);
+        HistoryArchive.append(accountNumber, getArchivedCount(), moving);
+        double net = getArchivedNet();
+        LocalDateTime through = archivedThrough;
+        for (Transaction transaction : moving) {
+            net += transaction.getSignedAmount();
+            if (through == null || transaction.getDateTime().isAfter(through)) {
+                through = transaction.getDateTime();
+            }
+        }
+        this.archivedCount = getArchivedCount() + cold;
+        this.archivedNet = net;
+        this.archivedThrough = through;
+        this.transactions = new ArrayList<>(transactions.subList(cold, transactions.size()));
+        publish();
+        return cold;
+    }
+
+    public synchronized boolean deposit(double amount) {
+        return deposit(amount, null);
+    }
+
+    /**
+     * Deposit booked under the idempotency key of the request that made it
+     */
+    synchronized boolean deposit(double amount, String requestKey) {
+        settle();
         if (amount <= 0) {
             System.out.println("❌ Deposit amount must be greater than 0.");
             return false;
         }
         this.balance += amount;
-        addTransaction(new Transaction("DEPOSIT", amount));
+        addTransaction(new Transaction("DEPOSIT", amount, LocalDateTime.now(), requestKey));
         AuditService.logDepositSuccess(this.accountNumber, amount);
         return true;
     }
 
-    public boolean withdraw(double amount, String pin) {
+    public synchronized boolean withdraw(double amount, String pin) {
+        return withdraw(amount, pin, null);
+    }
+
+    /**
+     * Withdrawal booked under the idempotency key of the request that made it
+     */
+    synchronized boolean withdraw(double amount, String pin, String requestKey) {
+        settle();
         if (!AuthService.verifyPin(pin, this.pin)) {
             System.out.println("❌ Invalid PIN.");
             AuditService.logWrongPin(this.accountNumber);
@@ -122,13 +558,130 @@ public class Account {
         }
 
         this.balance -= amount;
-        addTransaction(new Transaction("WITHDRAW", amount));
+        addTransaction(new Transaction("WITHDRAW", amount, LocalDateTime.now(), requestKey));
         AuditService.logWithdrawSuccess(this.accountNumber, amount);
         return true;
     }
 
-    public void displayTransactions() {
-        if (transactions.isEmpty()) {
+    /**
+     * Posts a system-generated transaction (interest, fees) without PIN checks.
+     * Debits are capped so the balance never goes negative; returns the amount posted.
+     */
+    public synchronized double post(String type, double amount, LocalDateTime dateTime) {
+        return post(type, amount, dateTime, null);
+    }
+
+    synchronized double post(String type, double amount, LocalDateTime dateTime, String requestKey) {
+        settle();
+        if (amount <= 0) {
+            return 0.0;
+        }
+        if (Transaction.isDebitType(type)) {
+            amount = Math.min(amount, this.balance);
+            if (amount <= 0) {
+                return 0.0;
+            }
+            this.balance -= amount;
+        } else {
+            this.balance += amount;
+        }
+        addTransaction(new Transaction(type, amount, dateTime, requestKey));
+        return amount;
+    }
+
+    /**
+     * True if a transaction booked under the key is in the history; archived
+     * entries are searched back to the given time
+     */
+    synchronized boolean hasRequestKey(String requestKey, LocalDateTime since) {
+        settle();
+        for (int i = transactions.size() - 1; i >= 0; i--) {
+            if (requestKey.equals(transactions.get(i).getRequestKey())) {
+                return true;
+            }
+        }
+        if (archivedThrough == null || archivedThrough.isBefore(since)) {
+            return false;
+        }
+        for (Transaction transaction : HistoryArchive.readBetween(accountNumber, getArchivedCount(),
+                since, archivedThrough.plusNanos(1))) {
+            if (requestKey.equals(transaction.getRequestKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Balance as of the given moment: the current balance minus everything
+     * booked after it. History is in booking order, not date order (postings
+     * can be backdated), so the whole in-memory history is scanned; the
+     * archive only when it holds entries dated after the cutoff.
+     */
+    public synchronized double balanceAt(LocalDateTime cutoff) {
+        settle();
+        double result = this.balance;
+        for (Transaction transaction : transactions) {
+            if (transaction.getDateTime().isAfter(cutoff)) {
+                result -= transaction.getSignedAmount();
+            }
+        }
+        if (archivedThrough != null && archivedThrough.isAfter(cutoff)) {
+            for (Transaction transaction : HistoryArchive.readBetween(accountNumber, getArchivedCount(),
+                    cutoff.plusNanos(1), archivedThrough.plusNanos(1))) {
+                result -= transaction.getSignedAmount();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Transactions dated in [from, to), oldest first. The archive is only read
+     * when the range reaches into it.
+     */
+    public synchronized List<Transaction> transactionsBetween(LocalDateTime from, LocalDateTime to) {
+        settle();
+        List<Transaction> result = new ArrayList<>();
+        if (archivedThrough != null && !archivedThrough.isBefore(from)) {
+            result.addAll(HistoryArchive.readBetween(accountNumber, getArchivedCount(), from, to));
+        }
+        // Postings are backdated, so the whole hot history is scanned; the sort restores date order
+        for (Transaction transaction : transactions) {
+            LocalDateTime dateTime = transaction.getDateTime();
+            if (!dateTime.isBefore(from) && dateTime.isBefore(to)) {
+                result.add(transaction);
+            }
+        }
+        result.sort(Comparator.comparing(Transaction::getDateTime));
+        return result;
+    }
+
+    /**
+     * True if a transaction of this type with exactly this timestamp exists.
+     * Postings are backdated, so no date ends the scan early.
+     */
+    public synchronized boolean hasPosting(String type, LocalDateTime dateTime) {
+        settle();
+        for (int i = transactions.size() - 1; i >= 0; i--) {
+            Transaction transaction = transactions.get(i);
+            if (transaction.getType().equals(type) && transaction.getDateTime().equals(dateTime)) {
+                return true;
+            }
+        }
+        if (archivedThrough != null && !dateTime.isAfter(archivedThrough)) {
+            for (Transaction transaction : HistoryArchive.readBetween(accountNumber, getArchivedCount(),
+                    dateTime, dateTime.plusNanos(1))) {
+                if (transaction.getType().equals(type)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public synchronized void displayTransactions() {
+        settle();
+        if (getTransactionCount() == 0) {
             System.out.println("No transactions found for this account.");
             return;
         }
@@ -141,6 +694,14 @@ public class Account {
                 "Type", "Amount", "Date & Time"));
         System.out.println("-".repeat(60));
 
+        if (getArchivedCount() > 0) {
+            try {
+                HistoryArchive.forEach(accountNumber, getArchivedCount(), System.out::println);
+            } catch (UncheckedIOException e) {
+                System.out.println("⚠️  " + getArchivedCount() + " archived transaction(s) unavailable: "
+                        + e.getMessage());
+            }
+        }
         for (Transaction transaction : transactions) {
             System.out.println(transaction);
         }
@@ -148,10 +709,129 @@ public class Account {
     }
 
     @Override
-    public String toString() {
+    public synchronized String toString() {
+        settle();
         return String.format("Account[%s] - %s - Balance: $%.2f - Transactions: %d",
-                accountNumber, customerName, balance, transactions.size());
+                accountNumber, customerName, balance, getTransactionCount());
     }
 
+    /**
+     * Gson adapter that reads and writes the persistent fields directly,
+     * with the names, order and null handling of reflective binding, so
+     * loading and saving need no reflection. A field added to Account must
+     * be added here too.
+     */
+    static final class JsonAdapter extends TypeAdapter<Account> {
+        private final Transaction.JsonAdapter transactionAdapter = new Transaction.JsonAdapter();
+        private final LocalDateTimeAdapter dateTimeAdapter = new LocalDateTimeAdapter();
 
+        @Override
+        public void write(JsonWriter out, Account account) throws IOException {
+            if (account == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("accountNumber").value(account.accountNumber);
+            out.name("customerName").value(account.customerName);
+            out.name("balance").value(account.balance);
+            out.name("transactions");
+            if (account.transactions == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (Transaction transaction : account.transactions) {
+                    transactionAdapter.write(out, transaction);
+                }
+                out.endArray();
+            }
+            out.name("passwordHash").value(account.passwordHash);
+            out.name("pin").value(account.pin);
+            out.name("isLocked").value(account.isLocked);
+            out.name("credentialResetRequired").value(account.credentialResetRequired);
+            out.name("archivedCount").value(account.archivedCount);
+            out.name("archivedNet").value(account.archivedNet);
+            out.name("archivedThrough");
+            dateTimeAdapter.write(out, account.archivedThrough);
+            out.endObject();
+        }
+
+        @Override
+        public Account read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Account account = new Account();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "accountNumber":
+                        account.accountNumber = readString(in);
+                        break;
+                    case "customerName":
+                        account.customerName = readString(in);
+                        break;
+                    case "balance":
+                        account.balance = in.nextDouble();
+                        break;
+                    case "transactions":
+                        account.transactions = readTransactions(in);
+                        break;
+                    case "passwordHash":
+                        account.passwordHash = readString(in);
+                        break;
+                    case "pin":
+                        account.pin = readString(in);
+                        break;
+                    case "isLocked":
+                        account.isLocked = in.peek() == JsonToken.STRING
+                                ? Boolean.parseBoolean(in.nextString()) : in.nextBoolean();
+                        break;
+                    case "credentialResetRequired":
+                        account.credentialResetRequired = in.peek() == JsonToken.STRING
+                                ? Boolean.valueOf(in.nextString()) : Boolean.valueOf(in.nextBoolean());
+                        break;
+                    case "archivedCount":
+                        account.archivedCount = in.nextInt();
+                        break;
+                    case "archivedNet":
+                        account.archivedNet = in.nextDouble();
+                        break;
+                    case "archivedThrough":
+                        account.archivedThrough = dateTimeAdapter.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            // The baseline, taken before anything can change the account, so snapshots older than
+            // its first change still see it as loaded
+            account.version = new AccountVersion(account, AccountVersion.BASELINE_STAMP);
+            return account;
+        }
+
+        private List<Transaction> readTransactions(JsonReader in) throws IOException {
+            List<Transaction> transactions = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                transactions.add(transactionAdapter.read(in));
+            }
+            in.endArray();
+            return transactions;
+        }
+
+        /**
+         * A string field; like Gson, a boolean is accepted and converted
+         */
+        static String readString(JsonReader in) throws IOException {
+            return in.peek() == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString();
+        }
+    }
 }
\ No newline at end of file
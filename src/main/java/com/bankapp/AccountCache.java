@@ -0,0 +1,407 @@
+package com.bankapp;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Bounded working set of accounts over a DiskAccountStore.
+ *
+ * Accounts are kept in LRU order and weighed by their estimated heap size;
+ * when the total exceeds the budget the least recently used ones are dropped.
+ * An account is dirty when its current MVCC version differs from the one last
+ * written; a dirty account is queued for write-back, which the calling thread
+ * does once it has released the cache lock, so other lookups do not wait
+ * for the disk.
+ *
+ * Callers may still hold an evicted Account (a logged-in session, a batch
+ * job), so evicted accounts are remembered through weak references: while
+ * such an object is reachable, lookups return that same instance rather than
+ * a second copy from disk. A change to an evicted account queues it for
+ * write-back too, and a queued account is held strongly until it is written,
+ * so no change is lost when its last user lets go of it.
+ *
+ * Lock order: the cache, then the store, then an account's monitor.
+ */
+public class AccountCache {
+    private final DiskAccountStore store;
+    // Serializes store access, which can happen outside the cache lock
+    private final Object storeLock = new Object();
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> resident = new LinkedHashMap<>(16, 0.75f, true);
+    // The resident instances again, readable without the cache lock; see holds()
+    private final Map<String, Account> residentInstances = new ConcurrentHashMap<>();
+    // Concurrent because the change listener reads them without the cache lock
+    private final Map<String, EvictedAccount> evicted = new ConcurrentHashMap<>();
+    private final Map<String, Account> pendingWriteBack = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Account> collected = new ReferenceQueue<>();
+    private final List<Scan> scans = new CopyOnWriteArrayList<>();
+    private final AccountChangeListener changes = this::accountChanged;
+    private long residentBytes;
+
+    private static final class Entry {
+        final Account account;
+        AccountVersion written;
+        long bytes;
+
+        Entry(Account account, AccountVersion written) {
+            this.account = account;
+            this.written = written;
+        }
+    }
+
+    private static final class EvictedAccount extends WeakReference<Account> {
+        final String accountNumber;
+        volatile AccountVersion written;
+
+        EvictedAccount(Account account, AccountVersion written, ReferenceQueue<Account> queue) {
+            super(account, queue);
+            this.accountNumber = account.getAccountNumber();
+            this.written = written;
+        }
+    }
+
+    public AccountCache(DiskAccountStore store, long maxBytes) {
+        this.store = store;
+        this.maxBytes = maxBytes;
+        Account.addChangeListener(changes);
+    }
+
+    /**
+     * The account, loading it from the store on a miss; null if it does not exist
+     */
+    public Account get(String accountNumber) {
+        Account account = lookup(accountNumber);
+        writeBackPending();
+        return account;
+    }
+
+    private synchronized Account lookup(String accountNumber) {
+        expungeCollected();
+        Entry entry = resident.get(accountNumber);
+        if (entry != null) {
+            BankMetrics.recordCacheHit();
+            reweigh(entry);
+            return entry.account;
+        }
+
+        EvictedAccount reference = evicted.get(accountNumber);
+        Account account = reference == null ? null : reference.get();
+        AccountVersion written;
+        if (account != null) {
+            BankMetrics.recordCacheHit();
+            written = reference.written;
+        } else {
+            BankMetrics.recordCacheMiss();
+            synchronized (storeLock) {
+                account = store.read(accountNumber);
+            }
+            if (account == null) {
+                return null;
+            }
+            written = account.currentVersion();
+        }
+        admit(new Entry(account, written));
+        // Only once it is resident, so holds() sees the instance throughout
+        if (reference != null) {
+            evicted.remove(accountNumber, reference);
+        }
+        return account;
+    }
+
+    /**
+     * Whether this exact instance is the cache's copy of its account, resident
+     * or evicted but still in use. Takes no lock, so change listeners may call it.
+     */
+    public boolean holds(Account account) {
+        String accountNumber = account.getAccountNumber();
+        if (residentInstances.get(accountNumber) == account) {
+            return true;
+        }
+        EvictedAccount reference = evicted.get(accountNumber);
+        return reference != null && reference.get() == account;
+    }
+
+    /**
+     * Read-only access for full scans: a cached instance if there is one,
+     * otherwise a copy read from the store that is not cached, so scans do
+     * not flush the working set.
+     */
+    public synchronized Account peek(String accountNumber) {
+        Entry entry = resident.get(accountNumber);
+        if (entry != null) {
+            return entry.account;
+        }
+        EvictedAccount reference = evicted.get(accountNumber);
+        Account account = reference == null ? null : reference.get();
+        if (account != null) {
+            return account;
+        }
+        synchronized (storeLock) {
+            return store.read(accountNumber);
+        }
+    }
+
+    /**
+     * Records the accounts that change from now until the scan is closed.
+     * They are held in memory, so a point-in-time reader can still find
+     * their older versions after a write-back would have dropped them; see
+     * Bank.forEachState.
+     */
+    public Scan openScan() {
+        Scan scan = new Scan();
+        scans.add(scan);
+        return scan;
+    }
+
+    public final class Scan implements AutoCloseable {
+        private final Map<String, Account> changed = new ConcurrentHashMap<>();
+
+        /**
+         * The instance that changed during the scan, or null if the account has not changed
+         */
+        public Account changed(String accountNumber) {
+            return changed.get(accountNumber);
+        }
+
+        @Override
+        public void close() {
+            scans.remove(this);
+        }
+    }
+
+    /**
+     * Stores a new account; returns false if the number is taken
+     */
+    public boolean create(Account account) throws IOException {
+        synchronized (this) {
+            if (contains(account.getAccountNumber())) {
+                return false;
+            }
+            AccountVersion written = account.currentVersion();
+            synchronized (storeLock) {
+                store.write(account);
+            }
+            admit(new Entry(account, written));
+        }
+        writeBackPending();
+        return true;
+    }
+
+    public synchronized boolean contains(String accountNumber) {
+        if (resident.containsKey(accountNumber)) {
+            return true;
+        }
+        EvictedAccount reference = evicted.get(accountNumber);
+        if (reference != null && reference.get() != null) {
+            return true;
+        }
+        synchronized (storeLock) {
+            return store.contains(accountNumber);
+        }
+    }
+
+    public int size() {
+        synchronized (storeLock) {
+            return store.size();
+        }
+    }
+
+    /**
+     * Every stored account number
+     */
+    public List<String> accountNumbers() {
+        synchronized (storeLock) {
+            List<String> numbers = new ArrayList<>(store.size());
+            store.forEachKey(numbers::add);
+            return numbers;
+        }
+    }
+
+    /**
+     * Accounts currently held in memory
+     */
+    public synchronized List<Account> residentAccounts() {
+        List<Account> accounts = new ArrayList<>(resident.size());
+        for (Entry entry : resident.values()) {
+            accounts.add(entry.account);
+        }
+        return accounts;
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public synchronized int getResidentCount() {
+        return resident.size();
+    }
+
+    public long storeBytes() throws IOException {
+        synchronized (storeLock) {
+            return store.logBytes();
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Writes back every changed account, including evicted ones still in use,
+     * and makes the store durable. Returns the number of accounts written.
+     */
+    public synchronized int flush() throws IOException {
+        expungeCollected();
+        int written = 0;
+        for (Entry entry : resident.values()) {
+            if (writeBack(entry)) {
+                written++;
+            }
+        }
+        for (Account account : pendingWriteBack.values()) {
+            if (pendingWriteBack.remove(account.getAccountNumber(), account)) {
+                try {
+                    writeEvicted(account);
+                } catch (IOException e) {
+                    pendingWriteBack.putIfAbsent(account.getAccountNumber(), account);
+                    throw e;
+                }
+                written++;
+            }
+        }
+        synchronized (storeLock) {
+            store.flush();
+        }
+        return written;
+    }
+
+    public synchronized void close() throws IOException {
+        Account.removeChangeListener(changes);
+        flush();
+        synchronized (storeLock) {
+            store.close();
+        }
+    }
+
+    /**
+     * Records the change for open scans and queues an evicted account for
+     * write-back. Runs under the account's monitor, so it only touches the
+     * concurrent maps.
+     */
+    private void accountChanged(Account account, AccountVersion version) {
+        for (Scan scan : scans) {
+            scan.changed.putIfAbsent(account.getAccountNumber(), account);
+        }
+        EvictedAccount reference = evicted.get(account.getAccountNumber());
+        if (reference != null && reference.get() == account) {
+            pendingWriteBack.put(account.getAccountNumber(), account);
+        }
+    }
+
+    /**
+     * Writes back queued accounts; called without the cache lock. An account
+     * that cannot be written stays queued, and in memory, for the next try.
+     */
+    private void writeBackPending() {
+        if (pendingWriteBack.isEmpty()) {
+            return;
+        }
+        for (Account account : pendingWriteBack.values()) {
+            // Removed before writing, so a change made during the write queues it again
+            if (!pendingWriteBack.remove(account.getAccountNumber(), account)) {
+                continue;
+            }
+            try {
+                writeEvicted(account);
+                BankMetrics.recordCacheWriteBack();
+            } catch (IOException e) {
+                pendingWriteBack.putIfAbsent(account.getAccountNumber(), account);
+                System.err.println("⚠️  Could not write back account " + account.getAccountNumber()
+                        + "; keeping it in memory: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void writeEvicted(Account account) throws IOException {
+        AccountVersion version;
+        synchronized (storeLock) {
+            synchronized (account) {
+                version = account.currentVersion();
+                store.write(account);
+            }
+        }
+        EvictedAccount reference = evicted.get(account.getAccountNumber());
+        if (reference != null && reference.get() == account) {
+            reference.written = version;
+        }
+    }
+
+    private void admit(Entry entry) {
+        entry.bytes = BankMetrics.estimateAccountBytes(entry.account);
+        residentBytes += entry.bytes;
+        resident.put(entry.account.getAccountNumber(), entry);
+        residentInstances.put(entry.account.getAccountNumber(), entry.account);
+        evictOverBudget();
+    }
+
+    /**
+     * Histories grow, so an account's weight is refreshed whenever it is used
+     */
+    private void reweigh(Entry entry) {
+        long bytes = BankMetrics.estimateAccountBytes(entry.account);
+        residentBytes += bytes - entry.bytes;
+        entry.bytes = bytes;
+        evictOverBudget();
+    }
+
+    private void evictOverBudget() {
+        Iterator<Entry> eldest = resident.values().iterator();
+        // The most recently used account always stays, however large it is
+        while (residentBytes > maxBytes && resident.size() > 1) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            residentBytes -= entry.bytes;
+            Account account = entry.account;
+            evicted.put(account.getAccountNumber(), new EvictedAccount(account, entry.written, collected));
+            residentInstances.remove(account.getAccountNumber(), account);
+            // After it is in evicted: a change from now on is queued by the listener, an earlier one is seen here
+            if (account.currentVersion() != entry.written) {
+                pendingWriteBack.put(account.getAccountNumber(), account);
+            }
+            BankMetrics.recordCacheEviction();
+        }
+    }
+
+    private boolean writeBack(Entry entry) throws IOException {
+        AccountVersion current;
+        synchronized (storeLock) {
+            synchronized (entry.account) {
+                current = entry.account.currentVersion();
+                if (current == entry.written) {
+                    return false;
+                }
+                store.write(entry.account);
+            }
+        }
+        entry.written = current;
+        return true;
+    }
+
+    private void expungeCollected() {
+        Object reference;
+        while ((reference = collected.poll()) != null) {
+            EvictedAccount gone = (EvictedAccount) reference;
+            evicted.remove(gone.accountNumber, gone);
+        }
+    }
+
+}
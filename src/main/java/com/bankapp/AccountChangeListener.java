@@ -0,0 +1,15 @@
+package com.bankapp;
+
+/**
+ * Receives every committed account change. Called on the writing thread with
+ * the account monitor held, so implementations must be quick and must not
+ * call back into the Bank.
+ */
+interface AccountChangeListener {
+
+    /**
+     * The account now has the given version; for a new account this is called
+     * once it has been added to the bank.
+     */
+    void accountChanged(Account account, AccountVersion version);
+}
@@ -0,0 +1,139 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the account index Bank used to have (ConcurrentHashMap keyed by
+ * String) with NumericAccountMap: heap bytes per entry and lookup throughput.
+ *
+ * Usage:
+ *   java -cp target/classes:gson.jar com.bankapp.AccountIndexBenchmark
+ *        [--accounts=200000] [--threads=4] [--duration=5] [--seed=42]
+ *
+ * Map keys are copies of the account numbers, as they are after a load from
+ * the data file, and lookups use yet other copies, as they do when a number
+ * is typed in or read from a request.
+ */
+public class AccountIndexBenchmark {
+    private final int accountCount;
+    private final int threadCount;
+    private final int durationSeconds;
+    private final long seed;
+
+    private Account[] accounts;
+    private String[] queries;
+
+    public AccountIndexBenchmark(int accountCount, int threadCount, int durationSeconds, long seed) {
+        this.accountCount = accountCount;
+        this.threadCount = threadCount;
+        this.durationSeconds = durationSeconds;
+        this.seed = seed;
+    }
+
+    public Map<String, Object> run() throws InterruptedException {
+        Random random = new Random(seed);
+        accounts = new Account[accountCount];
+        queries = new String[accountCount];
+        String passwordHash = AuthService.hashPassword("password");
+        for (int i = 0; i < accountCount; i++) {
+            String number = String.format("%010d", (long) (random.nextDouble() * 10000000000L));
+            accounts[i] = Account.withPasswordHash(number, "Customer " + i, passwordHash, "1234");
+            queries[i] = new String(number.toCharArray());
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("accounts", accountCount);
+        report.put("threads", threadCount);
+        report.put("durationSeconds", durationSeconds);
+        report.put("ConcurrentHashMap", measure(new ConcurrentHashMap<>()));
+        report.put("NumericAccountMap", measure(new NumericAccountMap()));
+        return report;
+    }
+
+    private Map<String, Object> measure(Map<String, Account> empty) throws InterruptedException {
+        long before = usedHeap();
+        Map<String, Account> map = empty;
+        for (Account account : accounts) {
+            map.put(new String(account.getAccountNumber().toCharArray()), account);
+        }
+        long after = usedHeap();
+
+        // Warm-up, then the timed run
+        lookups(map, 1);
+        double opsPerSecond = lookups(map, durationSeconds);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("entries", map.size());
+        result.put("bytesPerEntry", map.isEmpty() ? 0 : (after - before) / map.size());
+        result.put("lookupsPerSecond", Math.round(opsPerSecond));
+        return result;
+    }
+
+    private double lookups(Map<String, Account> map, int seconds) throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threadCount);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long start = System.nanoTime();
+        for (int t = 0; t < threadCount; t++) {
+            int offset = t * 7919;
+            Thread worker = new Thread(() -> {
+                long count = 0;
+                int index = offset % queries.length;
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < 1024; i++) {
+                        if (map.get(queries[index]) == null) {
+                            throw new IllegalStateException("missing " + queries[index]);
+                        }
+                        index = (index + 31) % queries.length;
+                    }
+                    count += 1024;
+                }
+                completed.add(count);
+                done.countDown();
+            }, "index-bench-" + t);
+            worker.start();
+        }
+        done.await();
+        return completed.sum() / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int accounts = Integer.parseInt(option(args, "accounts", "200000"));
+        int threads = Integer.parseInt(option(args, "threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int duration = Integer.parseInt(option(args, "duration", "5"));
+        long seed = Long.parseLong(option(args, "seed", "42"));
+
+        System.err.println("Benchmarking account index: " + accounts + " accounts, "
+                + threads + " threads, " + duration + "s per map...");
+        Map<String, Object> report = new AccountIndexBenchmark(accounts, threads, duration, seed).run();
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        System.out.println(gson.toJson(report));
+    }
+}
@@ -32,39 +32,64 @@ public class AccountMigrationHelper {
             return false;
         }
 
-        // Set password
+        String[] credentials = readNewCredentials("Migration");
+        if (credentials == null) {
+            return false;
+        }
+
+        // Update account; a locked account never gets here, and migrating does not unlock one
+        account.resetCredentials(AuthService.hashPassword(credentials[0]), credentials[1]);
+
+        System.out.println("\n✅ Account migration successful!");
+        System.out.println("Your account has been upgraded with password and PIN protection.");
+        System.out.println("=".repeat(60));
+
+        return true;
+    }
+
+    /**
+     * Completes a forced credential reset; the caller has already checked the current password
+     */
+    public static boolean resetCredentials(Account account) {
+        System.out.println("\n⚠️  A new password and PIN are required for account " + account.getAccountNumber() + ".");
+        String[] credentials = readNewCredentials("Reset");
+        if (credentials == null) {
+            return false;
+        }
+        if (AuthService.verify(credentials[0], account.getPasswordHash()).matches()) {
+            System.out.println("❌ The new password must differ from the old one. Reset cancelled.");
+            return false;
+        }
+        account.resetCredentials(AuthService.hashPassword(credentials[0]), credentials[1]);
+        System.out.println("✅ Password and PIN changed.");
+        return true;
+    }
+
+    /**
+     * Prompts for a new password and PIN, each confirmed; null if the input is rejected
+     */
+    private static String[] readNewCredentials(String operation) {
         String password = InputUtil.readString("Create a new password: ");
         String confirmPassword = InputUtil.readString("Confirm password: ");
 
         if (!password.equals(confirmPassword)) {
-            System.out.println("❌ Passwords don't match. Migration cancelled.");
-            return false;
+            System.out.println("❌ Passwords don't match. " + operation + " cancelled.");
+            return null;
         }
 
-        // Set PIN
         String pin = InputUtil.readString("Create a 4-digit PIN: ");
 
         if (!AuthService.isValidPin(pin)) {
-            System.out.println("❌ PIN must be exactly 4 digits. Migration cancelled.");
-            return false;
+            System.out.println("❌ PIN must be exactly 4 digits. " + operation + " cancelled.");
+            return null;
         }
 
         String confirmPin = InputUtil.readString("Confirm PIN: ");
         if (!pin.equals(confirmPin)) {
-            System.out.println("❌ PINs don't match. Migration cancelled.");
-            return false;
+            System.out.println("❌ PINs don't match. " + operation + " cancelled.");
+            return null;
         }
-
-        // Update account
-        account.setPasswordHash(AuthService.hashPassword(password));
-        account.setPin(pin);
-        account.setLocked(false); // Ensure account is not locked
-
-        System.out.println("\n✅ Account migration successful!");
-        System.out.println("Your account has been upgraded with password and PIN protection.");
-        System.out.println("=".repeat(60));
-
-        return true;
+        return new String[]{password, pin};
     }
 
     /**
@@ -91,6 +116,11 @@ public class AccountMigrationHelper {
             return;
         }
 
+        if (account.isLocked()) {
+            System.out.println("❌ Account is locked. Please contact admin.");
+            return;
+        }
+
         if (migrateAccount(account)) {
             bank.saveToFile();
             System.out.println("✅ Account migration saved successfully!");
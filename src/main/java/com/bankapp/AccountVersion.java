@@ -0,0 +1,80 @@
+package com.bankapp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable copy of an account's state at one point on the snapshot clock.
+ * Versions form a newest-first chain that is trimmed as soon as no open
+ * snapshot can still need the older entries.
+ */
+final class AccountVersion {
+    static final long PENDING_STAMP = 0L;
+    static final long BASELINE_STAMP = 1L;
+
+    final String customerName;
+    final String passwordHash;
+    final String pin;
+    final double balance;
+    final boolean locked;
+    final boolean credentialResetRequired;
+    final int transactionCount;
+    final int archivedCount;
+    final double archivedNet;
+    final LocalDateTime archivedThrough;
+
+    volatile long stamp;
+    volatile AccountVersion previous;
+
+    /**
+     * Captures the account's fields; the caller holds the account monitor
+     * (or the account is not yet shared).
+     */
+    AccountVersion(Account account, long stamp) {
+        this.customerName = account.getCustomerName();
+        this.passwordHash = account.getPasswordHash();
+        this.pin = account.getPin();
+        this.balance = account.getBalance();
+        this.locked = account.isLocked();
+        this.credentialResetRequired = account.isCredentialResetRequired();
+        this.transactionCount = account.getTransactions() == null ? 0 : account.getTransactions().size();
+        this.archivedCount = account.getArchivedCount();
+        this.archivedNet = account.getArchivedNet();
+        this.archivedThrough = account.getArchivedThrough();
+        this.stamp = stamp;
+    }
+
+    /**
+     * Newest version visible at the given stamp, or null if the account did not exist yet.
+     * A version is linked into the chain before it is stamped, so a pending one
+     * is about to get a stamp and is waited for rather than skipped.
+     */
+    AccountVersion visibleAt(long snapshotStamp) {
+        AccountVersion candidate = this;
+        while (candidate != null) {
+            long candidateStamp = candidate.stamp;
+            while (candidateStamp == PENDING_STAMP) {
+                Thread.onSpinWait();
+                candidateStamp = candidate.stamp;
+            }
+            if (candidateStamp <= snapshotStamp) {
+                return candidate;
+            }
+            candidate = candidate.previous;
+        }
+        return null;
+    }
+
+    /**
+     * Drops versions older than the newest one every open snapshot can use
+     */
+    void trim(long oldestActiveStamp) {
+        AccountVersion candidate = this;
+        while (candidate != null) {
+            if (candidate.stamp <= oldestActiveStamp) {
+                candidate.previous = null;
+                return;
+            }
+            candidate = candidate.previous;
+        }
+    }
+}
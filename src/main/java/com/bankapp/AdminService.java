@@ -1,9 +1,20 @@
 package com.bankapp;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
 public class AdminService {
     private Bank bank;
     private boolean adminLoggedIn;
     private static final String ADMIN_USER = "ADMIN";
+    private static final DateTimeFormatter HELD_AT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00");
 
     public AdminService(Bank bank) {
         this.bank = bank;
@@ -11,24 +22,29 @@ public class AdminService {
     }
 
     public boolean login(String password) {
-        if (AuthService.authenticateAdmin(password)) {
-            adminLoggedIn = true;
-            AuditService.logAdminLogin(ADMIN_USER);
-            System.out.println("\n✅ Admin login successful!");
-            return true;
-        } else {
-            AuditService.logAdminLoginFailure("Invalid password");
-            System.out.println("\n❌ Invalid admin password!");
-            return false;
-        }
+        return TracingBank.recordAdmin(bank, WorkloadTrace.Operation.ADMIN_LOGIN, () -> {
+            if (AuthService.authenticateAdmin(password)) {
+                adminLoggedIn = true;
+                AuditService.logAdminLogin(ADMIN_USER);
+                System.out.println("\n✅ Admin login successful!");
+                return true;
+            } else {
+                AuditService.logAdminLoginFailure("Invalid password");
+                System.out.println("\n❌ Invalid admin password!");
+                return false;
+            }
+        }, password);
     }
 
     public void logout() {
-        if (adminLoggedIn) {
-            AuditService.logAdminLogout(ADMIN_USER);
-            adminLoggedIn = false;
-            System.out.println("\n✅ Admin logged out successfully.");
-        }
+        TracingBank.recordAdmin(bank, WorkloadTrace.Operation.ADMIN_LOGOUT, () -> {
+            if (adminLoggedIn) {
+                AuditService.logAdminLogout(ADMIN_USER);
+                adminLoggedIn = false;
+                System.out.println("\n✅ Admin logged out successfully.");
+            }
+            return null;
+        });
     }
 
     public void showAdminMenu() {
@@ -63,11 +79,29 @@ public class AdminService {
                     viewAuditLogs();
                     break;
                 case 7:
+                    runEndOfDay();
+                    break;
+                case 8:
+                    generateStatements();
+                    break;
+                case 9:
+                    reviewHeldTransactions();
+                    break;
+                case 10:
+                    showAnalytics();
+                    break;
+                case 11:
+                    runBackup();
+                    break;
+                case 12:
+                    runBulkOperation();
+                    break;
+                case 13:
                     running = false;
                     logout();
                     break;
                 default:
-                    System.out.println("❌ Invalid option. Please choose between 1-7.");
+                    System.out.println("❌ Invalid option. Please choose between 1-13.");
             }
         }
     }
@@ -82,7 +116,13 @@ public class AdminService {
         System.out.println("4. View All Transactions of Any Account");
         System.out.println("5. Lock/Unlock Account");
         System.out.println("6. View Audit Logs");
-        System.out.println("7. Exit Admin Panel");
+        System.out.println("7. Run End-of-Day Processing");
+        System.out.println("8. Generate Monthly Statements");
+        System.out.println("9. Review Held Transactions");
+        System.out.println("10. Analytics");
+        System.out.println("11. Backup");
+        System.out.println("12. Bulk Lock/Unlock/Credential Reset");
+        System.out.println("13. Exit Admin Panel");
         System.out.println("=".repeat(60));
     }
 
@@ -140,12 +180,291 @@ public class AdminService {
         }
     }
 
+    private void runBulkOperation() {
+        System.out.println("\n--- Bulk Operations ---");
+        System.out.println("1. Lock accounts");
+        System.out.println("2. Unlock accounts");
+        System.out.println("3. Force credential reset (locks; after an admin unlock the customer must set a new password and PIN)");
+        System.out.println("4. Back");
+        int choice = InputUtil.readInt("Choose action: ");
+        if (choice < 1 || choice > 3) {
+            if (choice != 4) {
+                System.out.println("❌ Invalid option.");
+            }
+            return;
+        }
+        BulkAdminJob.Action action = BulkAdminJob.Action.values()[choice - 1];
+
+        System.out.println("\nSelect accounts by:");
+        System.out.println("1. Recent wrong-PIN bursts");
+        System.out.println("2. Balance range");
+        System.out.println("3. Account list file (one number per line)");
+        BulkAdminJob job;
+        try {
+            switch (InputUtil.readInt("Choose selection: ")) {
+                case 1: {
+                    int wrongPins = InputUtil.readInt("At least how many wrong PINs: ");
+                    int minutes = InputUtil.readInt("Within the last how many minutes: ");
+                    job = BulkAdminJob.byWrongPins(bank, action, Math.max(1, wrongPins), Math.max(1, minutes));
+                    break;
+                }
+                case 2: {
+                    double min = InputUtil.readDouble("Balance from: $");
+                    double max = InputUtil.readDouble("Balance below: $");
+                    job = BulkAdminJob.byBalance(bank, action, min, max);
+                    break;
+                }
+                case 3:
+                    job = BulkAdminJob.byFile(bank, action, Paths.get(InputUtil.readString("File path: ")));
+                    break;
+                default:
+                    System.out.println("❌ Invalid option.");
+                    return;
+            }
+        } catch (IOException e) {
+            System.out.println("❌ Could not read the selection: " + e.getMessage());
+            return;
+        }
+
+        BulkAdminJob.Preview preview = job.preview();
+        preview.print();
+        if (preview.getChanges() == 0) {
+            return;
+        }
+        String confirm = InputUtil.readString("Type " + action + " to apply to " + preview.getChanges()
+                + " account(s), anything else to cancel: ");
+        if (!confirm.equals(action.name())) {
+            System.out.println("ℹ️  Cancelled; nothing was changed.");
+            return;
+        }
+        job.apply(ADMIN_USER);
+    }
+
+    private void reviewHeldTransactions() {
+        System.out.println("\n--- Held Transactions ---");
+        List<RiskEngine.Hold> holds = bank.getHeldTransactions();
+        if (holds.isEmpty()) {
+            System.out.println("No transactions are held for review.");
+        } else {
+            System.out.println(String.format("%-6s %-12s %-10s %12s  %-19s  %s",
+                    "Ref", "Account", "Type", "Amount", "Held At", "Rule"));
+            for (RiskEngine.Hold hold : holds) {
+                System.out.println(String.format("%-6d %-12s %-10s %12s  %-19s  %s",
+                        hold.getId(), hold.getAccountNumber(), hold.getType(),
+                        "$" + String.format("%.2f", hold.getAmount()),
+                        hold.getHeldAt().format(HELD_AT_FORMAT), hold.getRule()));
+            }
+        }
+
+        System.out.println("\n1. Release a held transaction");
+        System.out.println("2. Decline a held transaction");
+        System.out.println("3. Show risk rules");
+        System.out.println("4. Back");
+        int choice = InputUtil.readInt("Choose option: ");
+
+        if (choice == 1 || choice == 2) {
+            long id = InputUtil.readInt("Enter reference: ");
+            String accountNumber = null;
+            for (RiskEngine.Hold hold : holds) {
+                if (hold.getId() == id) {
+                    accountNumber = hold.getAccountNumber();
+                }
+            }
+            boolean done = choice == 1 ? bank.releaseHold(id) : bank.declineHold(id);
+            if (accountNumber != null && (done || choice == 1)) {
+                AuditService.logRiskHoldReviewed(id, accountNumber, choice == 1, ADMIN_USER);
+                bank.saveToFile();
+            }
+        } else if (choice == 3) {
+            for (RiskEngine.Rule rule : bank.getRiskRules()) {
+                System.out.println("  " + rule);
+            }
+        } else if (choice != 4) {
+            System.out.println("❌ Invalid option.");
+        }
+    }
+
+    private void showAnalytics() {
+        System.out.println("\n--- Analytics ---");
+        BankAnalytics analytics = bank.getAnalytics();
+        System.out.println("Tracking " + analytics.getAccountCount() + " accounts (built in "
+                + analytics.getBuildMillis() + " ms).");
+        System.out.println("\n1. Balance distribution");
+        System.out.println("2. Accounts below a balance");
+        System.out.println("3. Deposits and withdrawals by hour");
+        System.out.println("4. Dormant accounts");
+        System.out.println("5. Back");
+        int choice = InputUtil.readInt("Choose option: ");
+
+        switch (choice) {
+            case 1:
+                showBalanceDistribution(analytics);
+                break;
+            case 2: {
+                double amount = InputUtil.readDouble("Balance below: $");
+                double boundary = BankAnalytics.boundaryAtOrBelow(amount);
+                if (boundary != amount) {
+                    System.out.println("ℹ️  Counting to the nearest bucket boundary, $" + String.format("%.2f", boundary) + ".");
+                }
+                System.out.println("Accounts with a balance below $" + String.format("%.2f", boundary) + ": "
+                        + analytics.countBalanceBelow(amount));
+                break;
+            }
+            case 3: {
+                int hours = InputUtil.readInt("Hours to show (1-" + BankAnalytics.HOURS + "): ");
+                showHourlyActivity(analytics.getHourlyActivity(hours));
+                break;
+            }
+            case 4: {
+                int days = InputUtil.readInt("Days without a transaction: ");
+                System.out.println("Accounts with no transaction in the last " + days + " days: "
+                        + analytics.countDormant(Math.max(0, days)) + " (of which never active: "
+                        + analytics.countNeverActive() + ")");
+                break;
+            }
+            case 5:
+                break;
+            default:
+                System.out.println("❌ Invalid option.");
+        }
+    }
+
+    private void runBackup() {
+        System.out.println("\n--- Backup ---");
+        BackupManager backups = bank.getBackups();
+        System.out.println("1. Full backup");
+        System.out.println("2. Incremental backup");
+        System.out.println("3. List backups");
+        System.out.println("4. Verify a backup");
+        System.out.println("5. Back");
+        int choice = InputUtil.readInt("Choose option: ");
+
+        switch (choice) {
+            case 1:
+            case 2: {
+                System.out.println("ℹ️  Backing up to " + backups.getDirectory() + "; customers can keep banking.");
+                BackupManager.Result result = backups.backup(bank, choice == 2);
+                if (result != null) {
+                    AuditService.logBackup(result.getFile().getFileName().toString(), ADMIN_USER);
+                    System.out.println("✅ " + result);
+                }
+                break;
+            }
+            case 3: {
+                List<Path> files = backups.listBackups();
+                if (files.isEmpty()) {
+                    System.out.println("No backups in " + backups.getDirectory() + ".");
+                }
+                for (Path file : files) {
+                    System.out.println("  " + file.getFileName());
+                }
+                break;
+            }
+            case 4: {
+                String name = InputUtil.readString("Backup file name: ");
+                Path file = backups.getDirectory().resolve(name);
+                List<String> problems = backups.verify(file);
+                if (problems.isEmpty()) {
+                    System.out.println("✅ " + name + " and the backups it builds on are intact.");
+                } else {
+                    System.out.println("❌ " + name + " failed verification:");
+                    problems.forEach(problem -> System.out.println("   " + problem));
+                }
+                break;
+            }
+            case 5:
+                break;
+            default:
+                System.out.println("❌ Invalid option.");
+        }
+    }
+
+    private void showBalanceDistribution(BankAnalytics analytics) {
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println(String.format("%-28s %10s %18s", "Balance", "Accounts", "Total"));
+        System.out.println("=".repeat(60));
+        for (BankAnalytics.BalanceBucket bucket : analytics.getBalanceHistogram()) {
+            if (bucket.getAccounts() == 0) {
+                continue;
+            }
+            String range;
+            if (Double.isInfinite(bucket.getLower())) {
+                range = "below $" + String.format("%,.0f", bucket.getUpper());
+            } else if (Double.isInfinite(bucket.getUpper())) {
+                range = "$" + String.format("%,.0f", bucket.getLower()) + " and above";
+            } else {
+                range = "$" + String.format("%,.0f", bucket.getLower()) + " - $" + String.format("%,.0f", bucket.getUpper());
+            }
+            System.out.println(String.format("%-28s %10d %18s", range, bucket.getAccounts(),
+                    "$" + String.format("%,.2f", bucket.getTotal())));
+        }
+        System.out.println("=".repeat(60));
+    }
+
+    private void showHourlyActivity(List<BankAnalytics.HourActivity> activity) {
+        System.out.println("\n" + "=".repeat(72));
+        System.out.println(String.format("%-17s %9s %16s %12s %16s", "Hour", "Deposits", "Deposited",
+                "Withdrawals", "Withdrawn"));
+        System.out.println("=".repeat(72));
+        for (BankAnalytics.HourActivity hour : activity) {
+            System.out.println(String.format("%-17s %9d %16s %12d %16s", hour.getHour().format(HOUR_FORMAT),
+                    hour.getDeposits(), "$" + String.format("%,.2f", hour.getDepositVolume()),
+                    hour.getWithdrawals(), "$" + String.format("%,.2f", hour.getWithdrawalVolume())));
+        }
+        System.out.println("=".repeat(72));
+    }
+
+    private void runEndOfDay() {
+        System.out.println("\n--- End-of-Day Processing ---");
+        String input = InputUtil.readStringAllowEmpty("Business date (YYYY-MM-DD, blank = yesterday): ");
+        LocalDate businessDate;
+        try {
+            businessDate = input.isEmpty() ? LocalDate.now().minusDays(1) : LocalDate.parse(input);
+        } catch (DateTimeParseException e) {
+            System.out.println("❌ Invalid date: " + input);
+            return;
+        }
+        new EndOfDayJob(bank, businessDate).run();
+    }
+
+    private void generateStatements() {
+        System.out.println("\n--- Monthly Statements ---");
+        String input = InputUtil.readStringAllowEmpty("Month (YYYY-MM, blank = last month): ");
+        YearMonth month;
+        try {
+            month = input.isEmpty() ? YearMonth.now().minusMonths(1) : YearMonth.parse(input);
+        } catch (DateTimeParseException e) {
+            System.out.println("❌ Invalid month: " + input);
+            return;
+        }
+        new StatementGenerator(bank, month).run();
+    }
+
     private void viewAuditLogs() {
         System.out.println("\n--- Audit Logs ---");
-        int limit = InputUtil.readInt("How many recent logs to display? (default 50): ");
-        if (limit <= 0) {
-            limit = 50;
+        AuditVerifier.Position verified = AuditVerifier.lastVerified(Paths.get(AuditService.getLogFile()));
+        if (verified == null) {
+            System.out.println("The audit chain has not been verified yet.");
+        } else {
+            System.out.println("Last verified " + verified.getVerifiedAt().format(HELD_AT_FORMAT) + ": intact through byte "
+                    + verified.getOffset() + " (" + verified.getRecords() + " records, "
+                    + verified.getCheckpoints() + " signed checkpoints)");
+        }
+        System.out.println("\n1. Show recent entries");
+        System.out.println("2. Verify the audit chain");
+        int choice = InputUtil.readInt("Choose option: ");
+
+        if (choice == 1) {
+            int limit = InputUtil.readInt("How many recent logs to display? (default 50): ");
+            if (limit <= 0) {
+                limit = 50;
+            }
+            AuditService.displayAuditLogs(limit);
+        } else if (choice == 2) {
+            AuditService.checkpoint();
+            AuditVerifier.forAuditLog().verify().print();
+        } else {
+            System.out.println("❌ Invalid option.");
         }
-        AuditService.displayAuditLogs(limit);
     }
-}
\ No newline at end of file
+}
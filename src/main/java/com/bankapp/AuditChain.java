@@ -0,0 +1,244 @@
+package com.bankapp;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Hash chain over the audit log, one per log file.
+ *
+ * Every record ends in " chain=" and the SHA-256 of the previous record's
+ * hash followed by the record's text, so editing, inserting or deleting a
+ * line breaks every hash after it. The first record of a log builds on 32
+ * zero bytes.
+ *
+ * Every -Dbankapp.audit.checkpointEvery records (default 1000), and at
+ * most -Dbankapp.audit.checkpointSeconds (default 60) after the last one,
+ * a checkpoint line records how many records came since the previous
+ * checkpoint and the hash of the last one, signed with HMAC-SHA256. The
+ * key is read from -Dbankapp.audit.keyFile (default data/audit.key) and
+ * created if missing. Checkpoints are not part of the chain, so the log
+ * can be verified one checkpoint-to-checkpoint segment at a time.
+ *
+ * Not thread-safe: AuditService calls it under its write lock.
+ */
+final class AuditChain {
+    static final String CHAIN_MARKER = " chain=";
+    static final String CHECKPOINT_ACTION = "ACTION=AUDIT_CHECKPOINT";
+    static final String RECORDS_FIELD = "Records=";
+    static final String HEAD_FIELD = " Head=";
+    static final String MAC_FIELD = " Mac=";
+    static final byte[] GENESIS = new byte[32];
+    static final int CHECKPOINT_EVERY = Math.max(1, Integer.getInteger("bankapp.audit.checkpointEvery", 1000));
+    private static final long CHECKPOINT_NANOS =
+            Math.max(1, Long.getLong("bankapp.audit.checkpointSeconds", 60)) * 1_000_000_000L;
+    private static final int TAIL_CHUNK = 64 * 1024;
+
+    private final MessageDigest sha256 = newDigest();
+    private final Mac mac;
+    private byte[] head = GENESIS;
+    private int sinceCheckpoint;
+    private long lastCheckpointNanos = System.nanoTime();
+
+    private AuditChain(byte[] key) {
+        mac = newMac(key);
+    }
+
+    /**
+     * Chain state for a log file, picked up from the end of the file if it already has records
+     */
+    static AuditChain resume(Path logFile) throws IOException {
+        AuditChain chain = new AuditChain(loadKey());
+        if (Files.exists(logFile)) {
+            chain.readTail(logFile);
+        }
+        return chain;
+    }
+
+    /**
+     * The record's line: text plus its chain hash, which becomes the head
+     */
+    String append(String text) {
+        sha256.update(head);
+        head = sha256.digest(text.getBytes(StandardCharsets.UTF_8));
+        sinceCheckpoint++;
+        return text + CHAIN_MARKER + encode(head);
+    }
+
+    boolean checkpointDue() {
+        return sinceCheckpoint >= CHECKPOINT_EVERY
+                || (sinceCheckpoint > 0 && System.nanoTime() - lastCheckpointNanos >= CHECKPOINT_NANOS);
+    }
+
+    boolean hasUncheckpointedRecords() {
+        return sinceCheckpoint > 0;
+    }
+
+    /**
+     * A signed checkpoint line for the records since the last one
+     */
+    String checkpoint(String timestamp) {
+        String text = "[" + timestamp + "] " + CHECKPOINT_ACTION + " status=SUCCESS details="
+                + RECORDS_FIELD + sinceCheckpoint + HEAD_FIELD + encode(head);
+        sinceCheckpoint = 0;
+        lastCheckpointNanos = System.nanoTime();
+        return text + MAC_FIELD + sign(text);
+    }
+
+    String sign(String text) {
+        return encode(mac.doFinal(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Finds the head and the records since the last checkpoint by reading
+     * the file backwards, one chunk at a time, back to that checkpoint
+     */
+    private void readTail(Path logFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            long end = channel.size();
+            byte[] carry = new byte[0];
+            byte[] lastHead = null;
+            int records = 0;
+            while (end > 0) {
+                int length = (int) Math.min(TAIL_CHUNK, end);
+                ByteBuffer buffer = ByteBuffer.allocate(length + carry.length);
+                channel.read(buffer, end - length);
+                buffer.position(length);
+                buffer.put(carry);
+                byte[] bytes = buffer.array();
+                end -= length;
+                // Whole lines only; the partial first one is carried into the next chunk
+                int lineEnd = bytes.length;
+                for (int i = bytes.length - 1; i >= -1; i--) {
+                    if (i >= 0 && bytes[i] != '\n') {
+                        continue;
+                    }
+                    if (i < 0 && end > 0) {
+                        carry = Arrays.copyOfRange(bytes, 0, lineEnd);
+                        break;
+                    }
+                    String line = new String(bytes, i + 1, lineEnd - i - 1, StandardCharsets.UTF_8).trim();
+                    lineEnd = i;
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    if (isCheckpoint(line)) {
+                        byte[] checkpointHead = decode(field(line, HEAD_FIELD, MAC_FIELD));
+                        head = lastHead != null ? lastHead : checkpointHead != null ? checkpointHead : GENESIS;
+                        sinceCheckpoint = records;
+                        return;
+                    }
+                    int marker = line.lastIndexOf(CHAIN_MARKER);
+                    if (marker >= 0) {
+                        if (lastHead == null) {
+                            lastHead = decode(line.substring(marker + CHAIN_MARKER.length()));
+                        }
+                        records++;
+                    }
+                }
+            }
+            head = lastHead != null ? lastHead : GENESIS;
+            sinceCheckpoint = records;
+        }
+    }
+
+    static boolean isCheckpoint(String line) {
+        int text = line.indexOf("] ");
+        return text >= 0 && line.startsWith(CHECKPOINT_ACTION + " ", text + 2);
+    }
+
+    /**
+     * The text between two markers of a line, or null
+     */
+    static String field(String line, String from, String to) {
+        int start = line.indexOf(from);
+        if (start < 0) {
+            return null;
+        }
+        start += from.length();
+        int end = to == null ? line.length() : line.indexOf(to, start);
+        return end < 0 ? null : line.substring(start, end);
+    }
+
+    static String encode(byte[] hash) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    /**
+     * Null if the text is not a hash
+     */
+    static byte[] decode(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(text.trim());
+            return bytes.length == 32 ? bytes : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static Mac newMac(byte[] key) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static Path keyFile() {
+        return Paths.get(System.getProperty("bankapp.audit.keyFile",
+                Paths.get(FileStorage.DATA_DIRECTORY, "audit.key").toString()));
+    }
+
+    /**
+     * The checkpoint key, created with 32 random bytes if the key file does not exist
+     */
+    static synchronized byte[] loadKey() throws IOException {
+        Path file = keyFile();
+        if (Files.exists(file)) {
+            byte[] key = Base64.getDecoder().decode(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+            if (key.length < 16) {
+                throw new IOException("audit key in " + file + " is too short");
+            }
+            return key;
+        }
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, Base64.getEncoder().encodeToString(key).getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system
+        }
+        return key;
+    }
+}
@@ -1,19 +1,29 @@
 package com.bankapp;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class AuditService {
     private static final String LOG_DIRECTORY = "logs";
     private static final String LOG_FILE = LOG_DIRECTORY + "/audit.log";
     private static final DateTimeFormatter FORMATTER =
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static volatile String logFile = LOG_FILE;
 
     static {
         initializeLogDirectory();
@@ -26,19 +36,144 @@ public class AuditService {
         }
     }
 
+    /**
+     * Redirects audit output, e.g. so load tests don't pollute the real log
+     */
+    public static void setLogFile(String path) {
+        File parent = new File(path).getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        synchronized (WRITE_LOCK) {
+            closeLog();
+            logFile = path;
+        }
+    }
+
+    public static String getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * A line waiting for the writer; written is set under WRITE_LOCK
+     */
+    private static final class PendingLine {
+        final String text;
+        boolean done;
+        boolean written;
+
+        PendingLine(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final Object WRITE_LOCK = new Object();
+    private static final Queue<PendingLine> pending = new ConcurrentLinkedQueue<>();
+    // Chain state and open channel of the current log file; null until the first write to it
+    private static AuditChain chain;
+    private static FileChannel out;
+
+    /**
+     * Queues the line, then whichever writer gets the lock first hashes and
+     * appends everything queued in one write to the open log, so the cost of
+     * a write is shared by every event in the batch. Returns once the line
+     * has been handed to the file system, as before.
+     */
     private static void writeLog(String logEntry) {
+        BankMetrics.auditWriteStarted();
+        String timestamp = LocalDateTime.now().format(FORMATTER);
+        PendingLine line = new PendingLine(String.format("[%s] %s", timestamp, logEntry));
+        pending.add(line);
+        synchronized (WRITE_LOCK) {
+            if (!line.done) {
+                flushPending(false);
+            }
+        }
+        BankMetrics.auditWriteFinished(line.written);
+    }
+
+    /**
+     * Writes the entries together, in order, in a single batch
+     */
+    private static void writeLogs(List<String> logEntries) {
+        if (logEntries.isEmpty()) {
+            return;
+        }
+        String timestamp = LocalDateTime.now().format(FORMATTER);
+        List<PendingLine> lines = new ArrayList<>(logEntries.size());
+        for (String logEntry : logEntries) {
+            BankMetrics.auditWriteStarted();
+            lines.add(new PendingLine(String.format("[%s] %s", timestamp, logEntry)));
+        }
+        pending.addAll(lines);
+        synchronized (WRITE_LOCK) {
+            // A flush that took the last of them took all the ones before it
+            if (!lines.get(lines.size() - 1).done) {
+                flushPending(false);
+            }
+        }
+        for (PendingLine line : lines) {
+            BankMetrics.auditWriteFinished(line.written);
+        }
+    }
+
+    private static void flushPending(boolean forceCheckpoint) {
+        List<PendingLine> batch = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
         try {
-            String timestamp = LocalDateTime.now().format(FORMATTER);
-            String fullEntry = String.format("[%s] %s%n", timestamp, logEntry);
-
-            Files.write(
-                    Paths.get(LOG_FILE),
-                    fullEntry.getBytes(),
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.APPEND
-            );
+            if (chain == null) {
+                chain = AuditChain.resume(Paths.get(logFile));
+                out = FileChannel.open(Paths.get(logFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            PendingLine next;
+            while ((next = pending.poll()) != null) {
+                batch.add(next);
+                text.append(chain.append(next.text)).append(System.lineSeparator());
+                if (chain.checkpointDue()) {
+                    text.append(chain.checkpoint(LocalDateTime.now().format(FORMATTER))).append(System.lineSeparator());
+                }
+            }
+            if (forceCheckpoint && chain.hasUncheckpointedRecords()) {
+                text.append(chain.checkpoint(LocalDateTime.now().format(FORMATTER))).append(System.lineSeparator());
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            for (PendingLine line : batch) {
+                line.written = true;
+            }
         } catch (IOException e) {
             System.err.println("Failed to write audit log: " + e.getMessage());
+            // The hashes of an unwritten batch are gone from the file; pick the chain up from disk again
+            closeLog();
+        } finally {
+            for (PendingLine line : batch) {
+                line.done = true;
+            }
+        }
+    }
+
+    private static void closeLog() {
+        chain = null;
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // nothing left to flush
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * Writes a signed checkpoint for the records since the last one, e.g.
+     * at shutdown, so the end of the log is covered too
+     */
+    public static void checkpoint() {
+        synchronized (WRITE_LOCK) {
+            flushPending(true);
         }
     }
 
@@ -77,6 +212,26 @@ public class AuditService {
                 accountNumber, amount));
     }
 
+    public static void logTransferSuccess(String fromAccount, String toAccount, double amount) {
+        writeLog(String.format("ACTION=TRANSFER account=%s status=SUCCESS details=To=%s Amount=$%.2f",
+                fromAccount, toAccount, amount));
+    }
+
+    public static void logTransferFailure(String fromAccount, String toAccount, String reason) {
+        writeLog(String.format("ACTION=TRANSFER account=%s status=FAILED details=To=%s %s",
+                fromAccount, toAccount, reason));
+    }
+
+    public static void logRiskDecision(String accountNumber, String type, double amount, String rule, String action) {
+        writeLog(String.format("ACTION=RISK_%s account=%s status=FLAGGED details=Type=%s Amount=$%.2f Rule=%s",
+                action, accountNumber, type, amount, rule));
+    }
+
+    public static void logRiskHoldReviewed(long holdId, String accountNumber, boolean released, String adminUser) {
+        writeLog(String.format("ACTION=%s account=%s status=SUCCESS details=Hold=%d by admin=%s",
+                released ? "RISK_RELEASE" : "RISK_DECLINE", accountNumber, holdId, adminUser));
+    }
+
     public static void logAccountLocked(String accountNumber, String adminUser) {
         writeLog(String.format("ACTION=ACCOUNT_LOCK account=%s status=SUCCESS details=Locked by admin=%s",
                 accountNumber, adminUser));
@@ -87,6 +242,27 @@ public class AuditService {
                 accountNumber, adminUser));
     }
 
+    public static void logCredentialReset(String accountNumber) {
+        writeLog(String.format("ACTION=CREDENTIAL_RESET account=%s status=SUCCESS details=New password and PIN set by customer",
+                accountNumber));
+    }
+
+    /**
+     * One accountAction event per changed account and a BULK_ADMIN summary,
+     * written as a single batch
+     */
+    public static void logBulkOperation(String bulkId, String accountAction, String adminUser, String selection,
+                                        int selected, List<String> changedAccounts) {
+        List<String> entries = new ArrayList<>(changedAccounts.size() + 1);
+        for (String accountNumber : changedAccounts) {
+            entries.add(String.format("ACTION=%s account=%s status=SUCCESS details=Bulk=%s by admin=%s",
+                    accountAction, accountNumber, bulkId, adminUser));
+        }
+        entries.add(String.format("ACTION=BULK_ADMIN admin=%s status=SUCCESS details=Bulk=%s Action=%s Selected=%d Changed=%d Selection=%s",
+                adminUser, bulkId, accountAction, selected, changedAccounts.size(), selection));
+        writeLogs(entries);
+    }
+
     public static void logAdminLogin(String adminUser) {
         writeLog(String.format("ACTION=ADMIN_LOGIN admin=%s status=SUCCESS",
                 adminUser));
@@ -102,9 +278,95 @@ public class AuditService {
                 adminUser));
     }
 
+    public static void logEndOfDay(String businessDate, long accounts, double interest, double fees) {
+        writeLog(String.format("ACTION=END_OF_DAY date=%s status=SUCCESS details=Accounts=%d Interest=$%.2f Fees=$%.2f",
+                businessDate, accounts, interest, fees));
+    }
+
+    public static void logBackup(String backup, String adminUser) {
+        writeLog(String.format("ACTION=BACKUP admin=%s status=SUCCESS details=%s",
+                adminUser, backup));
+    }
+
+    public static void logRestore(String backup) {
+        writeLog(String.format("ACTION=RESTORE status=SUCCESS details=%s",
+                backup));
+    }
+
+    /**
+     * How many action events each account has had since the given time.
+     * Reads the log backwards from its end and stops at the first entry
+     * comfortably older than that, so a long log costs only its recent part.
+     */
+    public static Map<String, Integer> countRecentEvents(String action, LocalDateTime since) throws IOException {
+        Map<String, Integer> counts = new HashMap<>();
+        File file = new File(logFile);
+        if (!file.exists()) {
+            return counts;
+        }
+        String marker = "ACTION=" + action + " account=";
+        // Concurrent writers stamp entries before queueing them, so they are only roughly in order
+        LocalDateTime stopBefore = since.minusMinutes(1);
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] block = new byte[64 * 1024];
+            byte[] carry = new byte[0];
+            long position = in.length();
+            while (position > 0) {
+                int read = (int) Math.min(block.length, position);
+                position -= read;
+                in.seek(position);
+                in.readFully(block, 0, read);
+                byte[] data = new byte[read + carry.length];
+                System.arraycopy(block, 0, data, 0, read);
+                System.arraycopy(carry, 0, data, read, carry.length);
+                int end = data.length;
+                for (int i = data.length - 1; i >= 0; i--) {
+                    if (data[i] == '\n') {
+                        if (!countEvent(new String(data, i + 1, end - i - 1, StandardCharsets.UTF_8),
+                                marker, since, stopBefore, counts)) {
+                            return counts;
+                        }
+                        end = i;
+                    }
+                }
+                carry = Arrays.copyOf(data, end);
+            }
+            countEvent(new String(carry, StandardCharsets.UTF_8), marker, since, stopBefore, counts);
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the line if it is a matching event since the given time; false once lines are older than stopBefore
+     */
+    private static boolean countEvent(String line, String marker, LocalDateTime since, LocalDateTime stopBefore,
+                                      Map<String, Integer> counts) {
+        if (line.length() < 21 || line.charAt(0) != '[' || line.charAt(20) != ']') {
+            return true;
+        }
+        LocalDateTime loggedAt;
+        try {
+            loggedAt = LocalDateTime.parse(line.substring(1, 20), FORMATTER);
+        } catch (DateTimeParseException e) {
+            return true;
+        }
+        if (loggedAt.isBefore(stopBefore)) {
+            return false;
+        }
+        int at = line.indexOf(marker);
+        if (at != 22 || loggedAt.isBefore(since)) {
+            return true;
+        }
+        int start = at + marker.length();
+        int end = line.indexOf(' ', start);
+        String accountNumber = line.substring(start, end < 0 ? line.length() : end);
+        counts.merge(accountNumber, 1, Integer::sum);
+        return true;
+    }
+
     public static List<String> readAuditLogs() {
         List<String> logs = new ArrayList<>();
-        File file = new File(LOG_FILE);
+        File file = new File(logFile);
 
         if (!file.exists()) {
             return logs;
@@ -137,7 +399,10 @@ public class AuditService {
 
         int startIndex = Math.max(0, logs.size() - limit);
         for (int i = startIndex; i < logs.size(); i++) {
-            System.out.println(logs.get(i));
+            String log = logs.get(i);
+            // The chain hash is for the verifier, not for reading
+            int chainHash = log.lastIndexOf(AuditChain.CHAIN_MARKER);
+            System.out.println(chainHash >= 0 ? log.substring(0, chainHash) : log);
         }
 
         System.out.println("=".repeat(80));
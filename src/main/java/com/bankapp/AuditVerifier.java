@@ -0,0 +1,533 @@
+package com.bankapp;
+
+import javax.crypto.Mac;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks the audit log's hash chain and signed checkpoints (see AuditChain).
+ *
+ * The file is cut into byte ranges, one or more per core. Each worker
+ * starts at the first checkpoint in its range, takes that checkpoint's
+ * hash as the start of the chain and verifies every segment up to and
+ * including the first checkpoint past its range, so segments are checked
+ * in parallel without any worker needing another's result.
+ *
+ * The last clean result is kept next to the log (audit.log.verified) and
+ * shown in the admin panel; the next run also checks that the checkpoint
+ * it ended at is still there, so truncating the log behind it shows up.
+ */
+public class AuditVerifier {
+    private static final int MAX_LISTED_ISSUES = 200;
+    private static final long MIN_RANGE_BYTES = 1024 * 1024;
+    private static final int BUFFER_BYTES = 1024 * 1024;
+    // "[yyyy-MM-dd HH:mm:ss] " before the action
+    private static final int TEXT_OFFSET = 22;
+    private static final byte[] CHECKPOINT_PREFIX =
+            (AuditChain.CHECKPOINT_ACTION + " ").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CHAIN_MARKER = AuditChain.CHAIN_MARKER.getBytes(StandardCharsets.UTF_8);
+    private static final int HASH_CHARS = 43;
+
+    private final Path logFile;
+    private final int parallelism;
+
+    /**
+     * Where the last clean verification ended: the end of the last signed checkpoint
+     */
+    public static final class Position {
+        String logFile;
+        long offset;
+        long records;
+        long checkpoints;
+        String head;
+        LocalDateTime verifiedAt;
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getCheckpoints() {
+            return checkpoints;
+        }
+
+        public LocalDateTime getVerifiedAt() {
+            return verifiedAt;
+        }
+    }
+
+    /**
+     * Result of a verification run; partial reports from workers are merged
+     */
+    public static class Report {
+        long records;
+        long checkpoints;
+        long legacyLines;
+        long unsignedRecords;
+        long bytes;
+        long errorCount;
+        double seconds;
+        // End of the last checkpoint whose signature, count and hash all checked out
+        long signedThrough = -1;
+        String signedHead;
+        boolean anchorFound;
+        Position previous;
+        final List<String> errors = new ArrayList<>();
+
+        void error(long offset, String message) {
+            errorCount++;
+            if (errors.size() < MAX_LISTED_ISSUES) {
+                errors.add("byte " + offset + ": " + message);
+            }
+        }
+
+        void merge(Report other) {
+            records += other.records;
+            checkpoints += other.checkpoints;
+            legacyLines += other.legacyLines;
+            unsignedRecords += other.unsignedRecords;
+            errorCount += other.errorCount;
+            anchorFound |= other.anchorFound;
+            if (other.signedThrough > signedThrough) {
+                signedThrough = other.signedThrough;
+                signedHead = other.signedHead;
+            }
+            for (String issue : other.errors) {
+                if (errors.size() < MAX_LISTED_ISSUES) {
+                    errors.add(issue);
+                }
+            }
+        }
+
+        public boolean isClean() {
+            return errorCount == 0;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("clean", isClean());
+            map.put("records", records);
+            map.put("checkpoints", checkpoints);
+            map.put("unsignedRecords", unsignedRecords);
+            map.put("legacyLines", legacyLines);
+            map.put("signedThroughByte", signedThrough);
+            map.put("errorCount", errorCount);
+            map.put("bytes", bytes);
+            map.put("seconds", Math.round(seconds * 1000.0) / 1000.0);
+            map.put("errors", errors);
+            return map;
+        }
+
+        public void print() {
+            System.out.println("\n" + "=".repeat(70));
+            System.out.println("Audit Log Verification");
+            System.out.println("=".repeat(70));
+            System.out.println("Records: " + records + "   Signed checkpoints: " + checkpoints);
+            if (legacyLines > 0) {
+                System.out.println("ℹ️  " + legacyLines + " line(s) from before chaining was enabled are not covered.");
+            }
+            if (unsignedRecords > 0) {
+                System.out.println("ℹ️  " + unsignedRecords + " record(s) after the last checkpoint are chained but not signed yet.");
+            }
+            System.out.println(String.format("Scanned %.1f MB in %.3fs", bytes / 1048576.0, seconds));
+            for (String issue : errors) {
+                System.out.println("❌ " + issue);
+            }
+            if (errorCount > errors.size()) {
+                System.out.println("(only the first " + MAX_LISTED_ISSUES + " issues are listed)");
+            }
+            System.out.println(isClean() ? "✅ Audit log is intact." : "❌ Audit log has been altered or damaged.");
+            System.out.println("=".repeat(70));
+        }
+    }
+
+    public AuditVerifier(Path logFile) {
+        this(logFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    public AuditVerifier(Path logFile, int parallelism) {
+        this.logFile = logFile;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public static AuditVerifier forAuditLog() {
+        return new AuditVerifier(Paths.get(AuditService.getLogFile()));
+    }
+
+    /**
+     * Verifies the log and, if it is clean, records how far it got
+     */
+    public Report verify() {
+        long start = System.nanoTime();
+        Report report = new Report();
+        report.previous = lastVerified(logFile);
+        if (!Files.exists(logFile)) {
+            return finish(report, start);
+        }
+
+        if (!Files.exists(AuditChain.keyFile())) {
+            report.error(0, "the checkpoint key " + AuditChain.keyFile() + " is missing");
+            return finish(report, start);
+        }
+        byte[] key;
+        try {
+            key = AuditChain.loadKey();
+        } catch (IOException | IllegalArgumentException e) {
+            report.error(0, "cannot read the checkpoint key " + AuditChain.keyFile() + ": " + e.getMessage());
+            return finish(report, start);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            long size = Files.size(logFile);
+            report.bytes = size;
+            int ranges = (int) Math.max(1, Math.min(parallelism * 4L, size / MIN_RANGE_BYTES));
+            List<Future<Report>> results = new ArrayList<>();
+            for (int i = 0; i < ranges; i++) {
+                long from = size * i / ranges;
+                long to = i == ranges - 1 ? Long.MAX_VALUE : size * (i + 1) / ranges;
+                // Each worker gets its own Mac; they are not thread-safe
+                results.add(pool.submit(() -> verifyRange(from, to, AuditChain.newMac(key), report.previous)));
+            }
+            for (Future<Report> result : results) {
+                report.merge(result.get());
+            }
+            Position previous = report.previous;
+            if (previous != null && previous.offset > 0 && !report.anchorFound) {
+                report.error(previous.offset, "the checkpoint verified on " + previous.verifiedAt
+                        + " is gone; the log was truncated or rewritten");
+            }
+        } catch (IOException e) {
+            report.error(0, "cannot read: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.error(0, "verification interrupted");
+        } catch (ExecutionException e) {
+            report.error(0, "verification failed: " + e.getCause().getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+        finish(report, start);
+        if (report.isClean() && report.signedThrough > 0) {
+            saveLastVerified(report);
+        }
+        return report;
+    }
+
+    private static Report finish(Report report, long startNanos) {
+        report.seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        return report;
+    }
+
+    /**
+     * Verifies the segments that start in [from, to): from the first
+     * checkpoint at or after from (or the start of the file) through the
+     * first checkpoint at or after to, or the end of the file
+     */
+    private Report verifyRange(long from, long to, Mac mac, Position anchor) throws IOException {
+        Report report = new Report();
+        MessageDigest sha256 = AuditChain.newDigest();
+        byte[] computed = new byte[32];
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            LineReader reader = new LineReader(channel, from);
+            byte[] head = AuditChain.GENESIS;
+            boolean verifying = from == 0;
+            boolean chainStarted = false;
+            long segmentRecords = 0;
+            while (reader.next()) {
+                byte[] line = reader.line;
+                int length = reader.length;
+                long offset = reader.lineStart;
+                if (length == 0) {
+                    continue;
+                }
+                boolean checkpoint = startsWith(line, length, TEXT_OFFSET, CHECKPOINT_PREFIX);
+                if (!verifying) {
+                    if (offset >= to) {
+                        break;
+                    }
+                    if (checkpoint) {
+                        byte[] checkpointHead = AuditChain.decode(AuditChain.field(
+                                new String(line, 0, length, StandardCharsets.UTF_8),
+                                AuditChain.HEAD_FIELD, AuditChain.MAC_FIELD));
+                        // A bad one is reported by the worker whose range ends with it
+                        head = checkpointHead != null ? checkpointHead : AuditChain.GENESIS;
+                        verifying = true;
+                        chainStarted = true;
+                    }
+                    continue;
+                }
+
+                if (checkpoint) {
+                    String text = new String(line, 0, length, StandardCharsets.UTF_8);
+                    if (checkCheckpoint(text, offset, head, segmentRecords, mac, report)) {
+                        report.checkpoints++;
+                        report.signedThrough = reader.lineEnd;
+                        report.signedHead = AuditChain.encode(head);
+                        if (anchor != null && anchor.offset == reader.lineEnd && report.signedHead.equals(anchor.head)) {
+                            report.anchorFound = true;
+                        }
+                    }
+                    byte[] checkpointHead = AuditChain.decode(AuditChain.field(text, AuditChain.HEAD_FIELD,
+                            AuditChain.MAC_FIELD));
+                    if (checkpointHead != null) {
+                        head = checkpointHead;
+                    }
+                    segmentRecords = 0;
+                    chainStarted = true;
+                    if (offset >= to) {
+                        return report;
+                    }
+                    continue;
+                }
+
+                int marker = length - HASH_CHARS - CHAIN_MARKER.length;
+                if (marker < 0 || !startsWith(line, length, marker, CHAIN_MARKER)) {
+                    if (chainStarted) {
+                        report.error(offset, "line has no chain hash: " + preview(line, length));
+                    } else {
+                        report.legacyLines++;
+                    }
+                    continue;
+                }
+                chainStarted = true;
+                sha256.update(head);
+                sha256.update(line, 0, marker);
+                try {
+                    sha256.digest(computed, 0, computed.length);
+                } catch (DigestException e) {
+                    throw new IllegalStateException(e);
+                }
+                byte[] stored = AuditChain.decode(new String(line, marker + CHAIN_MARKER.length, HASH_CHARS,
+                        StandardCharsets.US_ASCII));
+                report.records++;
+                segmentRecords++;
+                if (stored == null || !Arrays.equals(stored, computed)) {
+                    report.error(offset, "chain broken (line edited, inserted or a line before it removed): "
+                            + preview(line, length));
+                    head = stored != null ? stored : computed.clone();
+                } else {
+                    head = computed.clone();
+                }
+            }
+            if (verifying) {
+                report.unsignedRecords += segmentRecords;
+            }
+        }
+        return report;
+    }
+
+    private static boolean checkCheckpoint(String text, long offset, byte[] head, long records, Mac mac,
+                                           Report report) {
+        int macAt = text.lastIndexOf(AuditChain.MAC_FIELD);
+        String count = AuditChain.field(text, AuditChain.RECORDS_FIELD, AuditChain.HEAD_FIELD);
+        byte[] checkpointHead = AuditChain.decode(AuditChain.field(text, AuditChain.HEAD_FIELD, AuditChain.MAC_FIELD));
+        if (macAt < 0 || count == null || checkpointHead == null) {
+            report.error(offset, "malformed checkpoint");
+            return false;
+        }
+        String expected = AuditChain.encode(mac.doFinal(text.substring(0, macAt).getBytes(StandardCharsets.UTF_8)));
+        if (!expected.equals(text.substring(macAt + AuditChain.MAC_FIELD.length()).trim())) {
+            report.error(offset, "checkpoint signature does not match (forged or edited checkpoint)");
+            return false;
+        }
+        boolean valid = true;
+        if (!Arrays.equals(checkpointHead, head)) {
+            report.error(offset, "checkpoint hash does not match the records before it");
+            valid = false;
+        }
+        long signedRecords;
+        try {
+            signedRecords = Long.parseLong(count.trim());
+        } catch (NumberFormatException e) {
+            signedRecords = -1;
+        }
+        if (signedRecords != records) {
+            report.error(offset, "checkpoint covers " + count + " records but " + records
+                    + " precede it (records or a checkpoint removed)");
+            valid = false;
+        }
+        return valid;
+    }
+
+    private static boolean startsWith(byte[] line, int length, int at, byte[] prefix) {
+        if (at < 0 || at + prefix.length > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (line[at + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String preview(byte[] line, int length) {
+        String text = new String(line, 0, Math.min(length, 100), StandardCharsets.UTF_8);
+        return length > 100 ? text + "..." : text;
+    }
+
+    /**
+     * Reads whole lines from a start offset; the first line is the one
+     * beginning at or after it. Line bytes exclude the line terminator.
+     */
+    private static final class LineReader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private long bufferStart;
+        private int position;
+        private int limit;
+        byte[] line = new byte[1024];
+        int length;
+        long lineStart;
+        long lineEnd;
+
+        LineReader(FileChannel channel, long start) throws IOException {
+            this.channel = channel;
+            bufferStart = start == 0 ? 0 : start - 1;
+            if (start > 0) {
+                // Skip to the end of the line that holds the byte before start
+                fill();
+                skipPartialLine();
+            }
+        }
+
+        private void skipPartialLine() throws IOException {
+            while (true) {
+                for (; position < limit; position++) {
+                    if (buffer.get(position) == '\n') {
+                        position++;
+                        return;
+                    }
+                }
+                if (!fill()) {
+                    return;
+                }
+            }
+        }
+
+        private boolean fill() throws IOException {
+            bufferStart += position;
+            buffer.clear();
+            int read = channel.read(buffer, bufferStart);
+            position = 0;
+            limit = Math.max(0, read);
+            return read > 0;
+        }
+
+        boolean next() throws IOException {
+            if (position >= limit && !fill()) {
+                return false;
+            }
+            lineStart = bufferStart + position;
+            length = 0;
+            byte[] data = buffer.array();
+            while (true) {
+                int end = position;
+                while (end < limit && data[end] != '\n') {
+                    end++;
+                }
+                append(data, position, end - position);
+                if (end < limit) {
+                    position = end + 1;
+                    lineEnd = bufferStart + position;
+                    break;
+                }
+                position = limit;
+                if (!fill()) {
+                    lineEnd = bufferStart + position;
+                    break;
+                }
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            return true;
+        }
+
+        private void append(byte[] data, int from, int count) {
+            if (length + count > line.length) {
+                line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+            }
+            System.arraycopy(data, from, line, length, count);
+            length += count;
+        }
+    }
+
+    private static Path positionFile(Path logFile) {
+        return logFile.resolveSibling(logFile.getFileName() + ".verified");
+    }
+
+    /**
+     * Where the last clean verification of this log ended, or null
+     */
+    public static Position lastVerified(Path logFile) {
+        Path file = positionFile(logFile);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return FileStorage.gson().fromJson(reader, Position.class);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️  Could not read " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void saveLastVerified(Report report) {
+        Position position = new Position();
+        position.logFile = logFile.toString();
+        position.offset = report.signedThrough;
+        position.records = report.records;
+        position.checkpoints = report.checkpoints;
+        position.head = report.signedHead;
+        position.verifiedAt = LocalDateTime.now();
+        Path file = positionFile(logFile);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                FileStorage.gson().toJson(position, writer);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("⚠️  Could not save the verified position: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Standalone tool: AuditVerifier [log-file]
+     */
+    public static void main(String[] args) {
+        Path file = args.length > 0 ? Paths.get(args[0]) : Paths.get(AuditService.getLogFile());
+        Report report = new AuditVerifier(file).verify();
+        report.print();
+        System.exit(report.isClean() ? 0 : 1);
+    }
+}
@@ -0,0 +1,151 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Login throughput against the PBKDF2 iteration count.
+ *
+ * Usage:
+ *   java -cp target/classes:gson.jar com.bankapp.AuthBenchmark
+ *        [--iterations=10000,60000,120000,310000] [--threads=8] [--duration=5]
+ *
+ * For each iteration count, --threads callers log in as fast as they can
+ * through the auth pool (size -Dbankapp.auth.threads) while one more thread
+ * keeps making deposits, to show how much a login burst slows them down.
+ * Reports logins per second, login latency including queueing, and the
+ * deposit rate during the burst.
+ */
+public class AuthBenchmark {
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private final int[] iterationCounts;
+    private final int threadCount;
+    private final int durationSeconds;
+
+    public AuthBenchmark(int[] iterationCounts, int threadCount, int durationSeconds) {
+        this.iterationCounts = iterationCounts;
+        this.threadCount = threadCount;
+        this.durationSeconds = durationSeconds;
+    }
+
+    public Map<String, Object> run() throws InterruptedException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("callerThreads", threadCount);
+        report.put("authWorkers", AuthWorkerPool.getThreads());
+        report.put("durationSeconds", durationSeconds);
+        report.put("idleDepositsPerSecond", Math.round(depositsAlone()));
+        List<Map<String, Object>> rounds = new ArrayList<>();
+        for (int iterations : iterationCounts) {
+            rounds.add(measure(iterations));
+        }
+        report.put("rounds", rounds);
+        return report;
+    }
+
+    private Map<String, Object> measure(int iterations) throws InterruptedException {
+        String storedHash = AuthService.hashPassword(PASSWORD, iterations);
+        // Warm-up
+        AuthService.verify(PASSWORD, storedHash, iterations);
+        BankMetrics.get().reset();
+
+        LongAdder logins = new LongAdder();
+        List<LatencyHistogram> histograms = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(threadCount + 1);
+        long deadline = System.nanoTime() + durationSeconds * 1_000_000_000L;
+        long start = System.nanoTime();
+        for (int t = 0; t < threadCount; t++) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histograms.add(histogram);
+            Thread caller = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    long begin = System.nanoTime();
+                    if (!AuthService.verify(PASSWORD, storedHash, iterations).matches()) {
+                        throw new IllegalStateException("login refused");
+                    }
+                    histogram.record((System.nanoTime() - begin) / 1000);
+                    logins.increment();
+                }
+                done.countDown();
+            }, "auth-bench-" + t);
+            caller.start();
+        }
+        LongAdder deposits = new LongAdder();
+        Thread depositor = new Thread(() -> {
+            depositUntil(deadline, deposits);
+            done.countDown();
+        }, "auth-bench-deposits");
+        depositor.start();
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        LatencyHistogram latency = new LatencyHistogram();
+        for (LatencyHistogram histogram : histograms) {
+            latency.merge(histogram);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("iterations", iterations);
+        result.put("hashMillis", BankMetrics.get().getMeanPasswordHashMillis());
+        result.put("loginsPerSecond", Math.round(logins.sum() / seconds * 10) / 10.0);
+        result.put("loginLatency", latency.summaryMicros());
+        result.put("meanQueueWaitMillis", BankMetrics.get().getAuthMeanQueueWaitMillis());
+        result.put("depositsPerSecondDuringLogins", Math.round(deposits.sum() / seconds));
+        return result;
+    }
+
+    private double depositsAlone() {
+        LongAdder deposits = new LongAdder();
+        long start = System.nanoTime();
+        depositUntil(start + Math.min(durationSeconds, 2) * 1_000_000_000L, deposits);
+        return deposits.sum() / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Posts deposits until the deadline, moving to a fresh account every 10000
+     * so the history does not fill the heap
+     */
+    private static void depositUntil(long deadline, LongAdder deposits) {
+        String hash = AuthService.legacyHash(PASSWORD);
+        while (System.nanoTime() < deadline) {
+            Account account = Account.withPasswordHash("0000000001", "Benchmark", hash, "1234");
+            for (int i = 0; i < 10_000 && System.nanoTime() < deadline; i++) {
+                account.post("DEPOSIT", 1.0, LocalDateTime.now());
+                deposits.increment();
+            }
+        }
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] counts = option(args, "iterations", "10000,60000,120000,310000").split(",");
+        int[] iterations = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            iterations[i] = Integer.parseInt(counts[i].trim());
+        }
+        int threads = Integer.parseInt(option(args, "threads", "8"));
+        int duration = Integer.parseInt(option(args, "duration", "5"));
+
+        System.err.println("Benchmarking logins: " + threads + " callers, "
+                + AuthWorkerPool.getThreads() + " auth worker(s), " + duration + "s per iteration count...");
+        Map<String, Object> report = new AuthBenchmark(iterations, threads, duration).run();
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        System.out.println(gson.toJson(report));
+    }
+}
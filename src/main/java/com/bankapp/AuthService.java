@@ -1,26 +1,181 @@
 package com.bankapp;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.util.Base64;
 
+/**
+ * Password and PIN checks.
+ *
+ * Passwords are stored as "pbkdf2-sha256$iterations$salt$hash" (Base64
+ * salt and hash), with -Dbankapp.auth.iterations (default 120000) for new
+ * hashes. Hashes from older versions are a bare Base64 SHA-256 digest; they
+ * still verify, and a successful login replaces them, or a PBKDF2 hash with
+ * fewer iterations than configured, with a fresh one. Verification runs on
+ * AuthWorkerPool so that a burst of logins cannot take every thread.
+ */
 public class AuthService {
-    private static final String ADMIN_PASSWORD_HASH = hashPassword("admin123");
+    static final String PBKDF2_PREFIX = "pbkdf2-sha256";
+    static final int ITERATIONS = Integer.getInteger("bankapp.auth.iterations", 120_000);
+    // Guards against a stored hash that would keep a worker busy for minutes
+    private static final int MAX_ITERATIONS = 10_000_000;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
 
-    public static String hashPassword(String password) {
+    // Neither is thread-safe and both are costly to look up, so each thread keeps its own
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hash = md.digest(password.getBytes());
-            return Base64.getEncoder().encodeToString(hash);
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
-            System.err.println("Error hashing password: " + e.getMessage());
-            return null;
+            throw new IllegalStateException(e);
+        }
+    });
+    private static final ThreadLocal<SecretKeyFactory> PBKDF2 = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    // Hashed on first use rather than when the class loads
+    private static final class AdminPassword {
+        static final String HASH = hashPassword("admin123");
+    }
+
+    /**
+     * Outcome of a password check
+     */
+    public static final class Verification {
+        static final Verification BUSY = new Verification(false, null, true);
+        static final Verification WRONG = new Verification(false, null, false);
+
+        private final boolean matches;
+        private final String upgradedHash;
+        private final boolean busy;
+
+        Verification(boolean matches, String upgradedHash, boolean busy) {
+            this.matches = matches;
+            this.upgradedHash = upgradedHash;
+            this.busy = busy;
+        }
+
+        public boolean matches() {
+            return matches;
         }
+
+        /**
+         * A new hash of the same password to store in place of an outdated one, or null
+         */
+        public String getUpgradedHash() {
+            return upgradedHash;
+        }
+
+        /**
+         * True if the password was not checked because too many checks were queued
+         */
+        public boolean isBusy() {
+            return busy;
+        }
+    }
+
+    public static String hashPassword(String password) {
+        return hashPassword(password, ITERATIONS);
+    }
+
+    static String hashPassword(String password, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PBKDF2_PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    /**
+     * The pre-PBKDF2 format: Base64 SHA-256 of the password
+     */
+    static String legacyHash(String password) {
+        // Platform charset, as those hashes were made with
+        byte[] hash = SHA_256.get().digest(password.getBytes());
+        return Base64.getEncoder().encodeToString(hash);
     }
 
     public static boolean verifyPassword(String inputPassword, String storedHash) {
-        String inputHash = hashPassword(inputPassword);
-        return inputHash != null && inputHash.equals(storedHash);
+        return verify(inputPassword, storedHash).matches();
+    }
+
+    /**
+     * Checks a password on the authentication pool, waiting for the result
+     */
+    public static Verification verify(String inputPassword, String storedHash) {
+        return verify(inputPassword, storedHash, ITERATIONS);
+    }
+
+    /**
+     * As verify(), upgrading hashes that have fewer than targetIterations
+     */
+    static Verification verify(String inputPassword, String storedHash, int targetIterations) {
+        if (inputPassword == null || storedHash == null) {
+            return Verification.WRONG;
+        }
+        Verification result = AuthWorkerPool.run(() -> check(inputPassword, storedHash, targetIterations));
+        return result == null ? Verification.BUSY : result;
+    }
+
+    /**
+     * Checks a password on the calling thread
+     */
+    static Verification check(String inputPassword, String storedHash, int targetIterations) {
+        boolean matches;
+        if (storedHash.startsWith(PBKDF2_PREFIX + "$")) {
+            String[] parts = storedHash.split("\\$");
+            if (parts.length != 4) {
+                return Verification.WRONG;
+            }
+            int iterations;
+            byte[] salt;
+            byte[] expected;
+            try {
+                iterations = Integer.parseInt(parts[1]);
+                salt = Base64.getDecoder().decode(parts[2]);
+                expected = Base64.getDecoder().decode(parts[3]);
+            } catch (IllegalArgumentException e) {
+                return Verification.WRONG;
+            }
+            if (iterations < 1 || iterations > MAX_ITERATIONS) {
+                return Verification.WRONG;
+            }
+            matches = MessageDigest.isEqual(pbkdf2(inputPassword, salt, iterations), expected);
+            if (matches && iterations < targetIterations) {
+                return new Verification(true, hashPassword(inputPassword, targetIterations), false);
+            }
+        } else {
+            matches = MessageDigest.isEqual(legacyHash(inputPassword).getBytes(StandardCharsets.US_ASCII),
+                    storedHash.getBytes(StandardCharsets.US_ASCII));
+            if (matches) {
+                return new Verification(true, hashPassword(inputPassword, targetIterations), false);
+            }
+        }
+        return matches ? new Verification(true, null, false) : Verification.WRONG;
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        long start = System.nanoTime();
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return PBKDF2.get().generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 failed: " + e.getMessage(), e);
+        } finally {
+            spec.clearPassword();
+            BankMetrics.recordPasswordHash(start);
+        }
     }
 
     public static boolean verifyPin(String inputPin, String storedPin) {
@@ -39,11 +194,41 @@ public class AuthService {
         return true;
     }
 
+    /**
+     * True if the stored hash is a PBKDF2 hash string or a legacy Base64 SHA-256 digest
+     */
+    public static boolean isWellFormedHash(String storedHash) {
+        return hashBytes(storedHash) != null;
+    }
+
+    /**
+     * The 32 hash bytes of a stored hash in either format, or null if it is malformed
+     */
+    static byte[] hashBytes(String storedHash) {
+        if (storedHash == null) {
+            return null;
+        }
+        String encoded = storedHash;
+        if (storedHash.startsWith(PBKDF2_PREFIX + "$")) {
+            String[] parts = storedHash.split("\\$");
+            if (parts.length != 4 || !parts[1].matches("\\d{1,9}")) {
+                return null;
+            }
+            encoded = parts[3];
+        }
+        try {
+            byte[] hash = Base64.getDecoder().decode(encoded);
+            return hash.length == 32 ? hash : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     public static boolean authenticateAdmin(String password) {
-        return verifyPassword(password, ADMIN_PASSWORD_HASH);
+        return verifyPassword(password, AdminPassword.HASH);
     }
 
     public static String getAdminPasswordHint() {
         return "Default admin password: admin123";
     }
-}
\ No newline at end of file
+}
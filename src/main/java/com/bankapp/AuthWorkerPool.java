@@ -0,0 +1,106 @@
+package com.bankapp;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool for password checks. A PBKDF2 check costs milliseconds of
+ * CPU by design, so they run on -Dbankapp.auth.threads workers (default half
+ * the cores) instead of the caller's thread: a burst of logins queues here
+ * and leaves the other cores to deposits and withdrawals.
+ *
+ * At most -Dbankapp.auth.queue (default 1024) checks wait; beyond that, or
+ * after -Dbankapp.auth.timeoutMillis (default 10000), a check is refused
+ * and the login fails as busy. Queue wait and hashing time are reported
+ * through BankMetrics.
+ */
+final class AuthWorkerPool {
+    private static final int THREADS = Integer.getInteger("bankapp.auth.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int QUEUE = Integer.getInteger("bankapp.auth.queue", 1024);
+    private static final long TIMEOUT_MILLIS = Long.getLong("bankapp.auth.timeoutMillis", 10_000);
+
+    private static final AtomicInteger WORKER_NUMBER = new AtomicInteger();
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS,
+            0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE), runnable -> {
+                Thread thread = new Worker(runnable, "auth-worker-" + WORKER_NUMBER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private static final class Worker extends Thread {
+        Worker(Runnable runnable, String name) {
+            super(runnable, name);
+        }
+    }
+
+    private AuthWorkerPool() {
+    }
+
+    /**
+     * Runs the task on a worker and waits for it; null if it was refused or
+     * timed out. Called from a worker, it runs inline.
+     */
+    static <T> T run(Callable<T> task) {
+        if (Thread.currentThread() instanceof Worker) {
+            return call(task);
+        }
+        long queuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = EXECUTOR.submit(() -> {
+                BankMetrics.recordAuthQueueWait(queuedAt);
+                return task.call();
+            });
+        } catch (RejectedExecutionException e) {
+            BankMetrics.recordAuthRejected();
+            return null;
+        }
+        try {
+            return future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            BankMetrics.recordAuthRejected();
+            return null;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    static int getThreads() {
+        return THREADS;
+    }
+
+    static int getQueueDepth() {
+        return EXECUTOR.getQueue().size();
+    }
+
+    static int getActiveCount() {
+        return EXECUTOR.getActiveCount();
+    }
+
+    private static <T> T call(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,783 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Online backups of the account data, the other data files and the audit
+ * log, taken while the bank keeps running.
+ *
+ * Accounts come from a consistent snapshot, not from bank_data.json, so a
+ * save in progress does not matter. Each backup is one zip in
+ * -Dbankapp.backup.dir (default backups) with a manifest listing the SHA-256
+ * of every account and file, and of every entry in the zip; a .sha256 file
+ * next to it covers the zip as a whole.
+ *
+ * An incremental backup names the newest backup as its base and stores only
+ * accounts whose JSON changed and files whose content changed. Append-only
+ * files (the audit log, history archives) store just the bytes appended
+ * since. Within one run, accounts whose version has not moved since the last
+ * backup are not even serialized.
+ *
+ * Reads and writes are paced to -Dbankapp.backup.mbPerSecond (default 32),
+ * so a backup of a large bank does not starve customer operations of disk
+ * bandwidth. Restore verifies the whole chain of backups and every restored
+ * account and file against the manifest before replacing anything.
+ */
+public class BackupManager {
+    static final String FULL = "FULL";
+    static final String INCREMENTAL = "INCREMENTAL";
+    private static final String ACCOUNTS_ENTRY = "accounts.json";
+    private static final String MANIFEST_ENTRY = "manifest.json";
+    private static final String FILES_PREFIX = "files/";
+    private static final DateTimeFormatter ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final Gson gson = FileStorage.gsonBuilder().create();
+    private static final Gson prettyGson = FileStorage.gsonBuilder()
+            .setPrettyPrinting()
+            .create();
+
+    /**
+     * Contents of manifest.json
+     */
+    static final class Manifest {
+        String id;
+        String type;
+        String base;
+        LocalDateTime createdAt;
+        // SHA-256 of every account's JSON at the time of the backup
+        Map<String, String> accounts = new LinkedHashMap<>();
+        // Accounts stored in this zip; the others are unchanged since the base
+        List<String> included = new ArrayList<>();
+        List<FileEntry> files = new ArrayList<>();
+        // SHA-256 of every other entry in the zip
+        Map<String, String> entries = new LinkedHashMap<>();
+    }
+
+    /**
+     * A file as of the backup. FULL stores it whole, APPEND stores the bytes
+     * from offset on (the rest is the base's copy), UNCHANGED stores nothing.
+     */
+    static final class FileEntry {
+        String path;
+        long size;
+        String sha256;
+        String mode;
+        long offset;
+    }
+
+    /**
+     * Outcome of a backup, for printing
+     */
+    public static final class Result {
+        private final Path file;
+        private final String type;
+        private final int accounts;
+        private final int accountsStored;
+        private final int files;
+        private final long bytes;
+        private final long millis;
+
+        Result(Path file, String type, int accounts, int accountsStored, int files, long bytes, long millis) {
+            this.file = file;
+            this.type = type;
+            this.accounts = accounts;
+            this.accountsStored = accountsStored;
+            this.files = files;
+            this.bytes = bytes;
+            this.millis = millis;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        @Override
+        public String toString() {
+            return type.toLowerCase() + " backup " + file + ": " + accountsStored + " of " + accounts
+                    + " accounts and " + files + " file(s) stored, " + bytes / 1024 + " KB in " + millis + " ms";
+        }
+    }
+
+    /**
+     * Sleeps as needed to keep the byte rate at or under the limit
+     */
+    private static final class Throttle {
+        private final long bytesPerSecond;
+        private final long start = System.nanoTime();
+        private long bytes;
+
+        Throttle(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        void pace(long count) throws IOException {
+            if (bytesPerSecond <= 0) {
+                return;
+            }
+            bytes += count;
+            long dueNanos = bytes * 1_000_000_000L / bytesPerSecond;
+            long aheadNanos = dueNanos - (System.nanoTime() - start);
+            if (aheadNanos > 1_000_000) {
+                try {
+                    Thread.sleep(aheadNanos / 1_000_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Backup interrupted");
+                }
+            }
+        }
+    }
+
+    private final Path directory;
+    private final long bytesPerSecond;
+    // Hash and version stamp of each account as of the last backup in this run
+    private final Map<String, String> lastHashes = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastStamps = new ConcurrentHashMap<>();
+    private String lastBackupId;
+
+    public BackupManager() {
+        this(Paths.get(System.getProperty("bankapp.backup.dir", "backups")),
+                Long.getLong("bankapp.backup.mbPerSecond", 32) * 1024 * 1024);
+    }
+
+    public BackupManager(Path directory, long bytesPerSecond) {
+        this.directory = directory;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Backup files in this manager's directory, oldest first
+     */
+    public List<Path> listBackups() {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("backup-")
+                            && file.getFileName().toString().endsWith(".zip"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            System.err.println("❌ Error listing backups: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Takes a backup; an incremental one becomes full if there is no backup
+     * to build on. Returns null if it failed.
+     */
+    public synchronized Result backup(Bank bank, boolean incremental) {
+        long start = System.nanoTime();
+        Throttle throttle = new Throttle(bytesPerSecond);
+        Manifest base = null;
+        if (incremental) {
+            List<Path> existing = listBackups();
+            if (!existing.isEmpty()) {
+                try {
+                    base = readManifest(existing.get(existing.size() - 1));
+                } catch (IOException | JsonParseException e) {
+                    System.err.println("⚠️  Could not read the latest backup (" + e.getMessage()
+                            + "); taking a full backup instead.");
+                }
+            }
+            if (base == null) {
+                System.out.println("ℹ️  No earlier backup to build on; taking a full backup.");
+            }
+        }
+
+        Manifest manifest = new Manifest();
+        manifest.type = base == null ? FULL : INCREMENTAL;
+        manifest.base = base == null ? null : base.id;
+        manifest.createdAt = LocalDateTime.now();
+        manifest.id = "backup-" + manifest.createdAt.format(ID_FORMAT) + (base == null ? "-full" : "-incr");
+        // Stamps only say "unchanged" relative to a backup this run took
+        boolean stampsValid = base != null && base.id.equals(lastBackupId);
+
+        Path file = directory.resolve(manifest.id + ".zip");
+        Path temp = directory.resolve(manifest.id + ".zip.tmp");
+        Map<String, Long> stamps = new HashMap<>();
+        try {
+            Files.createDirectories(directory);
+            try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(temp))) {
+                writeAccounts(bank, zip, manifest, base, stampsValid, stamps, throttle);
+                for (Path source : filesToBackUp()) {
+                    writeFile(source, zip, manifest, base, throttle);
+                }
+                zip.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+                zip.write(prettyGson.toJson(manifest).getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.write(checksumFile(file), (sha256(file, throttle) + "  " + file.getFileName() + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // best effort
+            }
+            System.err.println("❌ Backup failed: " + e.getMessage());
+            return null;
+        }
+
+        lastHashes.clear();
+        lastHashes.putAll(manifest.accounts);
+        lastStamps.clear();
+        lastStamps.putAll(stamps);
+        lastBackupId = manifest.id;
+        int filesStored = 0;
+        for (FileEntry entry : manifest.files) {
+            if (!"UNCHANGED".equals(entry.mode)) {
+                filesStored++;
+            }
+        }
+        long bytes;
+        try {
+            bytes = Files.size(file);
+        } catch (IOException e) {
+            bytes = 0;
+        }
+        return new Result(file, manifest.type, manifest.accounts.size(), manifest.included.size(), filesStored,
+                bytes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void writeAccounts(Bank bank, ZipOutputStream zip, Manifest manifest, Manifest base,
+                               boolean stampsValid, Map<String, Long> stamps, Throttle throttle) throws IOException {
+        zip.putNextEntry(new ZipEntry(ACCOUNTS_ENTRY));
+        MessageDigest entryDigest = newDigest();
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(new DigestingStream(zip, entryDigest),
+                StandardCharsets.UTF_8));
+        writer.beginObject();
+        IOException[] failure = new IOException[1];
+        bank.forEachState(state -> {
+            if (failure[0] != null) {
+                return;
+            }
+            String accountNumber = state.getAccountNumber();
+            long stamp = state.getVersion().stamp;
+            stamps.put(accountNumber, stamp);
+            String previous = base == null ? null : base.accounts.get(accountNumber);
+            if (stampsValid && previous != null && Long.valueOf(stamp).equals(lastStamps.get(accountNumber))
+                    && previous.equals(lastHashes.get(accountNumber))) {
+                manifest.accounts.put(accountNumber, previous);
+                return;
+            }
+            String json = gson.toJson(state.toAccount(), Account.class);
+            String hash = hex(newDigest().digest(json.getBytes(StandardCharsets.UTF_8)));
+            manifest.accounts.put(accountNumber, hash);
+            if (hash.equals(previous)) {
+                return;
+            }
+            manifest.included.add(accountNumber);
+            try {
+                writer.name(accountNumber);
+                writer.jsonValue(json);
+                throttle.pace(json.length());
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        writer.endObject();
+        writer.flush();
+        zip.closeEntry();
+        manifest.entries.put(ACCOUNTS_ENTRY, hex(entryDigest.digest()));
+    }
+
+    /**
+     * Data files worth keeping, plus the audit log. Files derived from the
+     * accounts (bank_data.json, its index, the off-heap table, the account
+     * store) are rebuilt from them instead. The audit checkpoint key is left
+     * out: whoever can read a backup could otherwise re-sign an edited log.
+     */
+    private static List<Path> filesToBackUp() throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path data = Paths.get(FileStorage.DATA_DIRECTORY);
+        if (Files.isDirectory(data)) {
+            Path store = Paths.get(DiskAccountStore.defaultDirectory());
+            Path auditKey = AuditChain.keyFile().toAbsolutePath().normalize();
+            try (Stream<Path> walk = Files.walk(data)) {
+                walk.filter(Files::isRegularFile)
+                        .filter(path -> !path.startsWith(store))
+                        .filter(path -> !path.toAbsolutePath().normalize().equals(auditKey))
+                        .filter(path -> {
+                            String name = path.getFileName().toString();
+                            return !name.startsWith("bank_data.json") && !name.endsWith(".tmp")
+                                    && !name.endsWith(".table") && !name.contains(".pre-restore");
+                        })
+                        .sorted()
+                        .forEach(files::add);
+            }
+        }
+        Path auditLog = Paths.get(AuditService.getLogFile());
+        if (Files.isRegularFile(auditLog)) {
+            files.add(auditLog);
+        }
+        return files;
+    }
+
+    /**
+     * Stores one file, whole, as the bytes appended since the base, or not
+     * at all if it is unchanged. Only the size seen at the start is read, so
+     * a file being appended to is captured up to that point.
+     */
+    private void writeFile(Path source, ZipOutputStream zip, Manifest manifest, Manifest base, Throttle throttle)
+            throws IOException {
+        String path = backupPath(source);
+        FileEntry previous = base == null ? null : findFile(base, path);
+        FileEntry entry = new FileEntry();
+        entry.path = path;
+        entry.size = Files.size(source);
+
+        MessageDigest whole = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(source)) {
+            // The prefix the base already has, if the file only grew
+            long prefix = previous != null && previous.size <= entry.size ? previous.size : -1;
+            if (prefix >= 0) {
+                copy(in, null, whole, null, prefix, buffer, throttle);
+                if (!hex(cloneDigest(whole)).equals(previous.sha256)) {
+                    prefix = -1;
+                }
+            }
+            if (prefix == entry.size) {
+                entry.sha256 = previous.sha256;
+                entry.mode = "UNCHANGED";
+                manifest.files.add(entry);
+                return;
+            }
+            String name = FILES_PREFIX + path;
+            zip.putNextEntry(new ZipEntry(name));
+            MessageDigest stored = newDigest();
+            if (prefix >= 0) {
+                entry.mode = "APPEND";
+                entry.offset = prefix;
+                copy(in, zip, whole, stored, entry.size - prefix, buffer, throttle);
+            } else {
+                entry.mode = "FULL";
+                whole.reset();
+                try (InputStream again = Files.newInputStream(source)) {
+                    copy(again, zip, whole, stored, entry.size, buffer, throttle);
+                }
+            }
+            zip.closeEntry();
+            entry.sha256 = hex(whole.digest());
+            manifest.entries.put(name, hex(stored.digest()));
+            manifest.files.add(entry);
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, MessageDigest whole, MessageDigest stored,
+                             long length, byte[] buffer, Throttle throttle) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new IOException("file shrank while being backed up");
+            }
+            whole.update(buffer, 0, read);
+            if (out != null) {
+                out.write(buffer, 0, read);
+                stored.update(buffer, 0, read);
+            }
+            remaining -= read;
+            throttle.pace(read);
+        }
+    }
+
+    /**
+     * Path of a file inside the backup: relative to the working directory when it is below it
+     */
+    private static String backupPath(Path source) {
+        Path absolute = source.toAbsolutePath().normalize();
+        Path base = Paths.get("").toAbsolutePath();
+        Path relative = absolute.startsWith(base) ? base.relativize(absolute) : Paths.get("logs", absolute.getFileName().toString());
+        return relative.toString().replace('\\', '/');
+    }
+
+    private static FileEntry findFile(Manifest manifest, String path) {
+        for (FileEntry entry : manifest.files) {
+            if (entry.path.equals(path)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    // ---- verify and restore ----
+
+    /**
+     * Checks a backup and every backup it builds on: the zip's .sha256 file,
+     * every entry against the manifest, and that the chain ends in a full
+     * backup. Returns the problems found; empty if it is sound.
+     */
+    public List<String> verify(Path backup) {
+        List<String> problems = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        Path current = backup;
+        while (current != null) {
+            Manifest manifest;
+            try {
+                verifyChecksumFile(current, problems);
+                manifest = readManifest(current);
+                verifyEntries(current, manifest, problems);
+            } catch (IOException | JsonParseException e) {
+                problems.add(current.getFileName() + ": " + e.getMessage());
+                return problems;
+            }
+            if (!seen.add(manifest.id)) {
+                problems.add(current.getFileName() + ": backup chain loops back to " + manifest.id);
+                return problems;
+            }
+            if (FULL.equals(manifest.type)) {
+                return problems;
+            }
+            if (manifest.base == null) {
+                problems.add(current.getFileName() + ": incremental backup without a base");
+                return problems;
+            }
+            current = current.resolveSibling(manifest.base + ".zip");
+            if (!Files.exists(current)) {
+                problems.add("base backup " + current.getFileName() + " is missing");
+                return problems;
+            }
+        }
+        return problems;
+    }
+
+    private void verifyChecksumFile(Path backup, List<String> problems) throws IOException {
+        Path checksum = checksumFile(backup);
+        if (!Files.exists(checksum)) {
+            problems.add(backup.getFileName() + ": no .sha256 file");
+            return;
+        }
+        String expected = new String(Files.readAllBytes(checksum), StandardCharsets.UTF_8).trim().split("\\s+")[0];
+        if (!expected.equals(sha256(backup, new Throttle(bytesPerSecond)))) {
+            problems.add(backup.getFileName() + ": file checksum does not match its .sha256 file");
+        }
+    }
+
+    private void verifyEntries(Path backup, Manifest manifest, List<String> problems) throws IOException {
+        Throttle throttle = new Throttle(bytesPerSecond);
+        try (ZipFile zip = new ZipFile(backup.toFile())) {
+            for (Map.Entry<String, String> expected : manifest.entries.entrySet()) {
+                ZipEntry entry = zip.getEntry(expected.getKey());
+                if (entry == null) {
+                    problems.add(backup.getFileName() + ": entry " + expected.getKey() + " is missing");
+                    continue;
+                }
+                MessageDigest digest = newDigest();
+                try (InputStream in = zip.getInputStream(entry)) {
+                    byte[] buffer = new byte[64 * 1024];
+                    int read;
+                    while ((read = in.read(buffer)) >= 0) {
+                        digest.update(buffer, 0, read);
+                        throttle.pace(read);
+                    }
+                }
+                if (!hex(digest.digest()).equals(expected.getValue())) {
+                    problems.add(backup.getFileName() + ": entry " + expected.getKey() + " is corrupt");
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores the bank's data from a backup: verifies the chain, rebuilds
+     * every account and file and checks each against the manifest, and only
+     * then writes them. Files it replaces are kept with a .pre-restore-<time>
+     * suffix. Run it with the bank stopped. Returns false if nothing was
+     * restored.
+     */
+    public boolean restore(Path backup) {
+        List<String> problems = verify(backup);
+        if (!problems.isEmpty()) {
+            System.out.println("❌ Backup failed verification; nothing was restored:");
+            problems.forEach(problem -> System.out.println("   " + problem));
+            return false;
+        }
+        try {
+            List<Path> chain = new ArrayList<>();
+            List<Manifest> manifests = new ArrayList<>();
+            for (Path current = backup; current != null; ) {
+                Manifest manifest = readManifest(current);
+                chain.add(current);
+                manifests.add(manifest);
+                current = FULL.equals(manifest.type) ? null : current.resolveSibling(manifest.base + ".zip");
+            }
+            Manifest target = manifests.get(0);
+
+            Map<String, Account> accounts = restoreAccounts(chain, manifests);
+            if (accounts == null) {
+                return false;
+            }
+            String suffix = ".pre-restore-" + LocalDateTime.now().format(ID_FORMAT);
+            Map<Path, Path> files = new LinkedHashMap<>();
+            for (FileEntry entry : target.files) {
+                Path rebuilt = rebuildFile(entry.path, chain, manifests);
+                if (!sha256(rebuilt, new Throttle(0)).equals(entry.sha256)) {
+                    Files.deleteIfExists(rebuilt);
+                    System.out.println("❌ Restored " + entry.path + " does not match the backup; nothing was restored.");
+                    return false;
+                }
+                files.put(Paths.get(entry.path), rebuilt);
+            }
+
+            Path dataFile = Paths.get(FileStorage.dataFilePath());
+            Files.createDirectories(dataFile.getParent());
+            Path dataTemp = Paths.get(FileStorage.dataFilePath() + ".tmp");
+            try (Writer out = Files.newBufferedWriter(dataTemp, StandardCharsets.UTF_8);
+                 JsonWriter writer = FileStorage.gson().newJsonWriter(out)) {
+                writer.beginObject();
+                for (Map.Entry<String, Account> account : accounts.entrySet()) {
+                    writer.name(account.getKey());
+                    FileStorage.gson().toJson(account.getValue(), Account.class, writer);
+                }
+                writer.endObject();
+            }
+            setAside(dataFile, suffix);
+            setAside(Paths.get(FileStorage.dataFilePath() + ".idx"), suffix);
+            setAside(Paths.get(DiskAccountStore.defaultDirectory()), suffix);
+            Files.move(dataTemp, dataFile, StandardCopyOption.ATOMIC_MOVE);
+            for (Map.Entry<Path, Path> file : files.entrySet()) {
+                Path destination = file.getKey();
+                if (destination.getParent() != null) {
+                    Files.createDirectories(destination.getParent());
+                }
+                setAside(destination, suffix);
+                Files.move(file.getValue(), destination);
+            }
+            // A restored audit log is older than the one last verified
+            setAside(Paths.get(AuditService.getLogFile() + ".verified"), suffix);
+            System.out.println("✅ Restored " + accounts.size() + " account(s) and " + files.size()
+                    + " file(s) from " + target.id + " (" + target.createdAt + ").");
+            System.out.println("   Replaced files were kept with the suffix " + suffix + ".");
+            return true;
+        } catch (IOException | JsonParseException e) {
+            System.out.println("❌ Restore failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Every account of the newest manifest, each read from the newest
+     * backup in the chain that stores it and checked against its hash
+     */
+    private Map<String, Account> restoreAccounts(List<Path> chain, List<Manifest> manifests) throws IOException {
+        Manifest target = manifests.get(0);
+        Map<String, Integer> source = new HashMap<>();
+        for (String accountNumber : target.accounts.keySet()) {
+            for (int i = 0; i < manifests.size(); i++) {
+                if (manifests.get(i).included.contains(accountNumber)) {
+                    source.put(accountNumber, i);
+                    break;
+                }
+            }
+        }
+        Map<String, Account> restored = new LinkedHashMap<>();
+        for (int i = 0; i < chain.size(); i++) {
+            try (ZipFile zip = new ZipFile(chain.get(i).toFile());
+                 JsonReader reader = new JsonReader(new InputStreamReader(
+                         zip.getInputStream(zip.getEntry(ACCOUNTS_ENTRY)), StandardCharsets.UTF_8))) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String accountNumber = reader.nextName();
+                    Integer from = source.get(accountNumber);
+                    if (from == null || from != i) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    Account account = gson.fromJson(reader, Account.class);
+                    String hash = hex(newDigest().digest(gson.toJson(account, Account.class)
+                            .getBytes(StandardCharsets.UTF_8)));
+                    if (!hash.equals(target.accounts.get(accountNumber))) {
+                        System.out.println("❌ Account " + accountNumber + " in " + chain.get(i).getFileName()
+                                + " does not match the backup; nothing was restored.");
+                        return null;
+                    }
+                    restored.put(accountNumber, account);
+                }
+                reader.endObject();
+            }
+        }
+        for (String accountNumber : target.accounts.keySet()) {
+            if (!restored.containsKey(accountNumber)) {
+                System.out.println("❌ Account " + accountNumber + " is missing from the backup chain; nothing was restored.");
+                return null;
+            }
+        }
+        // Back in the order of the newest manifest
+        Map<String, Account> ordered = new LinkedHashMap<>();
+        for (String accountNumber : target.accounts.keySet()) {
+            ordered.put(accountNumber, restored.get(accountNumber));
+        }
+        return ordered;
+    }
+
+    /**
+     * Reassembles a file from the chain into a temporary file: the pieces
+     * stored since the last full copy, oldest first
+     */
+    private Path rebuildFile(String path, List<Path> chain, List<Manifest> manifests) throws IOException {
+        List<Integer> pieces = new ArrayList<>();
+        for (int i = 0; i < manifests.size(); i++) {
+            FileEntry entry = findFile(manifests.get(i), path);
+            if (entry == null) {
+                throw new IOException(path + " is missing from " + manifests.get(i).id);
+            }
+            if (!"UNCHANGED".equals(entry.mode)) {
+                pieces.add(i);
+            }
+            if (FULL.equals(entry.mode)) {
+                break;
+            }
+        }
+        Path temp = Files.createTempFile("bankapp-restore", ".part");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            for (int p = pieces.size() - 1; p >= 0; p--) {
+                int i = pieces.get(p);
+                try (ZipFile zip = new ZipFile(chain.get(i).toFile())) {
+                    ZipEntry entry = zip.getEntry(FILES_PREFIX + path);
+                    if (entry == null) {
+                        throw new IOException(path + " is missing from " + chain.get(i).getFileName());
+                    }
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        in.transferTo(out);
+                    }
+                }
+            }
+        }
+        return temp;
+    }
+
+    private static void setAside(Path path, String suffix) throws IOException {
+        if (Files.exists(path)) {
+            Files.move(path, path.resolveSibling(path.getFileName() + suffix));
+        }
+    }
+
+    static Manifest readManifest(Path backup) throws IOException {
+        try (ZipFile zip = new ZipFile(backup.toFile())) {
+            ZipEntry entry = zip.getEntry(MANIFEST_ENTRY);
+            if (entry == null) {
+                throw new IOException("no manifest");
+            }
+            try (InputStreamReader reader = new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8)) {
+                Manifest manifest = gson.fromJson(reader, Manifest.class);
+                if (manifest == null || manifest.id == null || manifest.accounts == null || manifest.files == null) {
+                    throw new IOException("incomplete manifest");
+                }
+                return manifest;
+            }
+        }
+    }
+
+    private static Path checksumFile(Path backup) {
+        return backup.resolveSibling(backup.getFileName() + ".sha256");
+    }
+
+    private static String sha256(Path file, Throttle throttle) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                throttle.pace(read);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] cloneDigest(MessageDigest digest) {
+        try {
+            return ((MessageDigest) digest.clone()).digest();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Passes writes through to the zip while hashing them; closing it does not close the zip
+     */
+    private static final class DigestingStream extends OutputStream {
+        private final OutputStream out;
+        private final MessageDigest digest;
+
+        DigestingStream(OutputStream out, MessageDigest digest) {
+            this.out = out;
+            this.digest = digest;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            digest.update((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            digest.update(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -1,135 +1,1129 @@
 package com.bankapp;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class Bank {
-    private Map<String, Account> accounts;
+    public static final String TRANSFER_OUT = "TRANSFER_OUT";
+    public static final String TRANSFER_IN = "TRANSFER_IN";
+
+    public enum TransferOutcome {
+        COMPLETED, INVALID, ACCOUNT_NOT_FOUND, ACCOUNT_LOCKED, INSUFFICIENT_FUNDS, READ_ONLY
+    }
+
+    private NumericAccountMap accounts;
+    // Accounts still on disk when started with loadLazily(); null otherwise
+    private volatile LazyAccountIndex lazyIndex;
+    // Read: materializing an account. Write: swapping the index or capturing a save.
+    private final ReadWriteLock lazyLock = new ReentrantReadWriteLock();
+    private final Object saveLock = new Object();
+    // Bounded working set over an on-disk store when opened with openStore(); null otherwise
+    private volatile AccountCache cache;
+    private String storeDirectory;
+    // Memory-mapped mirror of balances and status when attached; null otherwise
+    private volatile OffHeapAccountTable offHeapTable;
+    private AccountChangeListener offHeapListener;
+    private final IdempotencyCache idempotency = new IdempotencyCache();
+    // Velocity rules in front of deposits and withdrawals, and the operations they hold
+    private volatile RiskEngine risk = new RiskEngine();
+    private final BackupManager backups = new BackupManager();
+    // Built on first use by getAnalytics()
+    private volatile BankAnalytics analytics;
+    private final Object analyticsLock = new Object();
+    // Accounts in hot-account mode, and the thread that folds their buffered credits in
+    private final Map<String, Account> hotAccounts = new ConcurrentHashMap<>();
+    private ScheduledExecutorService hotFolder;
+    // Set while this bank is a replication follower
+    private volatile boolean readOnly;
+    // Generated account numbers must pass this; a partition only accepts numbers it owns
+    private volatile Predicate<String> accountNumberFilter = accountNumber -> true;
 
     public Bank() {
-        this.accounts = new HashMap<>();
+        this.accounts = new NumericAccountMap();
+    }
+
+    /**
+     * Returns false if the data file exists but is unreadable; the bank is then left empty
+     */
+    public boolean loadFromFile() {
+        Map<String, Account> loaded = FileStorage.loadFromFile();
+        if (loaded == null) {
+            return false;
+        }
+        this.accounts = new NumericAccountMap(loaded);
+        idempotency.load();
+        risk.loadHolds();
+        return true;
+    }
+
+    /**
+     * Starts from the given accounts instead of the data file, e.g. a trace's snapshot
+     */
+    void loadAccounts(Map<String, Account> loaded) {
+        this.accounts = new NumericAccountMap(loaded);
+    }
+
+    /**
+     * Loads only the account index; each account and its history is read from
+     * the data file on first access. Returns false if the file cannot be indexed.
+     */
+    public boolean loadLazily() {
+        long start = System.nanoTime();
+        LazyAccountIndex index;
+        try {
+            index = LazyAccountIndex.open(Paths.get(FileStorage.dataFilePath()));
+        } catch (IOException e) {
+            System.err.println("❌ Error indexing data file: " + e.getMessage());
+            return false;
+        }
+        this.accounts = new NumericAccountMap();
+        idempotency.load();
+        risk.loadHolds();
+        if (index == null) {
+            System.out.println("ℹ️  No existing data file found. Starting fresh.");
+            return true;
+        }
+        this.lazyIndex = index;
+        System.out.println("✅ Account index ready. " + index.size() + " account(s) found in "
+                + String.format("%.1f", (System.nanoTime() - start) / 1_000_000.0) + " ms"
+                + (index.isLoadedFromIndexFile() ? "." : " (rebuilt from data file)."));
+        return true;
+    }
+
+    /**
+     * Keeps accounts in an on-disk store with at most cacheBytes of them in
+     * memory. An empty store is first filled from the data file, if there is one.
+     */
+    public boolean openStore(String directory, long cacheBytes) {
+        DiskAccountStore store;
+        try {
+            store = DiskAccountStore.open(directory);
+        } catch (IOException e) {
+            System.err.println("❌ Error opening account store: " + e.getMessage());
+            return false;
+        }
+        AccountCache opened = new AccountCache(store, cacheBytes);
+        if (store.size() == 0 && FileStorage.dataFileExists() && !importDataFile(opened)) {
+            try {
+                opened.close();
+            } catch (IOException e) {
+                System.err.println("⚠️  Could not close account store: " + e.getMessage());
+            }
+            return false;
+        }
+        this.accounts = new NumericAccountMap();
+        this.cache = opened;
+        this.storeDirectory = directory;
+        idempotency.load();
+        risk.loadHolds();
+        System.out.println("✅ Account store opened. " + store.size() + " account(s) found; cache limit "
+                + (cacheBytes / (1024 * 1024)) + " MB.");
+        return true;
+    }
+
+    /**
+     * Copies bank_data.json into the store one account at a time
+     */
+    private static boolean importDataFile(AccountCache target) {
+        LazyAccountIndex index = null;
+        try {
+            index = LazyAccountIndex.open(Paths.get(FileStorage.dataFilePath()));
+            for (String accountNumber : index.accountNumbers()) {
+                target.create(index.load(accountNumber));
+            }
+            target.flush();
+            System.out.println("✅ Imported " + index.size() + " account(s) from " + FileStorage.dataFilePath());
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("❌ Error importing data file into account store: " + e.getMessage());
+            return false;
+        } finally {
+            if (index != null) {
+                index.close();
+            }
+        }
+    }
+
+    /**
+     * Mirrors every account into the off-heap table and keeps it current from
+     * then on. The data file wins over whatever the table held before. A table
+     * already attached is detached first.
+     */
+    public synchronized boolean attachOffHeapTable(String file) {
+        OffHeapAccountTable table;
+        try {
+            table = OffHeapAccountTable.open(file);
+        } catch (IOException e) {
+            System.err.println("❌ Error opening off-heap account table: " + e.getMessage());
+            return false;
+        }
+        detachOffHeapTable();
+        AccountChangeListener listener = ownChanges(table);
+        Account.addChangeListener(listener);
+        int repaired = table.reconcile(allAccounts());
+        table.force();
+        this.offHeapListener = listener;
+        this.offHeapTable = table;
+        System.out.println("✅ Off-heap account table ready: " + table.size() + " account(s) in " + file
+                + (repaired == 0 ? "." : "; " + repaired + " slot(s) brought up to date."));
+        return true;
+    }
+
+    /**
+     * Stops mirroring into the off-heap table, if one is attached, and closes it
+     */
+    public synchronized void detachOffHeapTable() {
+        OffHeapAccountTable table = offHeapTable;
+        if (table == null) {
+            return;
+        }
+        Account.removeChangeListener(offHeapListener);
+        offHeapListener = null;
+        offHeapTable = null;
+        table.close();
+    }
+
+    /**
+     * Passes on only changes to this bank's accounts. Listeners registered
+     * with Account hear every bank in the JVM, scratch and benchmark banks
+     * included.
+     */
+    AccountChangeListener ownChanges(AccountChangeListener listener) {
+        return (account, version) -> {
+            if (owns(account)) {
+                listener.accountChanged(account, version);
+            }
+        };
     }
 
-    public void loadFromFile() {
-        this.accounts = FileStorage.loadFromFile();
+    /**
+     * Whether this instance is the bank's copy of its account, rather than one
+     * belonging to another bank in the same JVM. Takes no lock.
+     */
+    boolean owns(Account account) {
+        AccountCache store = cache;
+        if (store != null) {
+            return store.holds(account);
+        }
+        return accounts.get(account.getAccountNumber()) == account;
     }
 
     public void saveToFile() {
-        FileStorage.saveToFile(this.accounts);
+        settleHotAccounts();
+        OffHeapAccountTable table = offHeapTable;
+        if (table != null) {
+            table.force();
+        }
+        // Keys go first: a key saved without its operation is detected on replay, the reverse is not
+        idempotency.save();
+        AccountCache store = cache;
+        if (store != null) {
+            long start = BankMetrics.start();
+            try {
+                store.flush();
+                BankMetrics.recordSave(start, store.storeBytes());
+                System.out.println("✅ Data saved successfully to " + storeDirectory);
+            } catch (IOException e) {
+                System.err.println("❌ Error saving data to account store: " + e.getMessage());
+            }
+            return;
+        }
+        if (lazyIndex == null) {
+            try (BankSnapshot snapshot = snapshot()) {
+                FileStorage.saveSnapshot(snapshot);
+            }
+            return;
+        }
+
+        synchronized (saveLock) {
+            BankSnapshot snapshot;
+            LazyAccountIndex source;
+            List<LazyAccountIndex.Entry> unloaded;
+            lazyLock.writeLock().lock();
+            try {
+                // Nothing can move from the index into the map while both sides are captured
+                snapshot = BankSnapshot.capture(accounts.values());
+                source = lazyIndex;
+                unloaded = new ArrayList<>(source.entries());
+            } finally {
+                lazyLock.writeLock().unlock();
+            }
+
+            try (BankSnapshot captured = snapshot) {
+                LazyAccountIndex next = FileStorage.saveSnapshot(captured, source, unloaded);
+                if (next == null) {
+                    return;
+                }
+                lazyLock.writeLock().lock();
+                try {
+                    for (String accountNumber : next.accountNumbers()) {
+                        if (accounts.containsKey(accountNumber)) {
+                            next.remove(accountNumber);
+                        }
+                    }
+                    lazyIndex = next;
+                } finally {
+                    lazyLock.writeLock().unlock();
+                }
+                source.close();
+            }
+        }
     }
 
-    public String createAccount(String customerName, String accountNumber, String password, String pin) {
-        if (accountNumber == null || accountNumber.trim().isEmpty()) {
-            accountNumber = generateAccountNumber();
+    /**
+     * Moves history outside the hot window of every account in memory to the
+     * archive tier. Returns the number of entries moved; save afterwards.
+     */
+    public long archiveHistory() {
+        if (!HistoryArchive.isEnabled()) {
+            return 0;
+        }
+        LocalDateTime cutoff = HistoryArchive.hotCutoff();
+        int maxHot = HistoryArchive.hotEntries();
+        LongAdder moved = new LongAdder();
+        AccountCache store = cache;
+        Collection<Account> loaded = store == null ? accounts.values() : store.residentAccounts();
+        try {
+            loaded.parallelStream().forEach(account -> {
+                try {
+                    moved.add(account.archiveHistory(cutoff, maxHot));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            System.err.println("❌ Error archiving transaction history: " + e.getCause().getMessage());
+        }
+        try {
+            HistoryArchive.sync();
+        } catch (IOException e) {
+            System.err.println("❌ Error syncing transaction archive: " + e.getMessage());
+        }
+        if (moved.sum() > 0) {
+            System.out.println("ℹ️  Archived " + moved.sum() + " transaction(s) older than "
+                    + cutoff.toLocalDate() + ".");
+        }
+        return moved.sum();
+    }
+
+    /**
+     * Consistent point-in-time view of all accounts; close it when done
+     */
+    public BankSnapshot snapshot() {
+        // Every deposit completed before the snapshot is in it
+        settleHotAccounts();
+        return BankSnapshot.capture(allAccounts());
+    }
+
+    /**
+     * Puts an account in or out of hot-account mode. A hot account takes
+     * deposits into striped buffers without locking, folded into its
+     * balance and history every -Dbankapp.hot.foldMillis (default 100) and
+     * before any read or debit, so heavy deposit traffic to one account
+     * scales with cores. Hot deposits are still screened by the velocity
+     * rules, checked and counted in one step; one a rule stops takes the
+     * normal locked path.
+     */
+    public boolean setHotAccount(String accountNumber, boolean hot) {
+        Account account = lookup(accountNumber);
+        if (account == null) {
+            System.out.println("❌ Account not found: " + accountNumber);
+            return false;
+        }
+        account.setHot(hot);
+        if (hot) {
+            hotAccounts.put(accountNumber, account);
+            startHotFolder();
         } else {
-            accountNumber = accountNumber.trim();
-            if (accounts.containsKey(accountNumber)) {
-                System.out.println("❌ Account number already exists. Please choose a different number.");
+            hotAccounts.remove(accountNumber);
+        }
+        return true;
+    }
+
+    /**
+     * Applies -Dbankapp.hot.accounts, a comma-separated list of account numbers
+     */
+    public void applyHotAccounts() {
+        String configured = System.getProperty("bankapp.hot.accounts", "").trim();
+        if (configured.isEmpty()) {
+            return;
+        }
+        for (String accountNumber : configured.split(",")) {
+            if (setHotAccount(accountNumber.trim(), true)) {
+                System.out.println("ℹ️  Account " + accountNumber.trim() + " is in hot-account mode.");
+            }
+        }
+    }
+
+    public List<String> getHotAccounts() {
+        return new ArrayList<>(hotAccounts.keySet());
+    }
+
+    private synchronized void startHotFolder() {
+        if (hotFolder != null) {
+            return;
+        }
+        long foldMillis = Math.max(1, Long.getLong("bankapp.hot.foldMillis", 100));
+        hotFolder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-account-fold");
+            thread.setDaemon(true);
+            return thread;
+        });
+        hotFolder.scheduleWithFixedDelay(this::settleHotAccounts, foldMillis, foldMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void settleHotAccounts() {
+        for (Account account : hotAccounts.values()) {
+            account.settle();
+        }
+    }
+
+    /**
+     * Online backups; kept here so incremental backups in one run can skip
+     * accounts that have not changed since the last one
+     */
+    public BackupManager getBackups() {
+        return backups;
+    }
+
+    /**
+     * Incrementally maintained admin analytics. The first call builds them
+     * from a snapshot of all accounts, in parallel; in lazy mode that reads
+     * every account.
+     */
+    public BankAnalytics getAnalytics() {
+        BankAnalytics current = analytics;
+        if (current != null) {
+            return current;
+        }
+        synchronized (analyticsLock) {
+            if (analytics == null) {
+                long start = System.nanoTime();
+                BankAnalytics built = new BankAnalytics();
+                // Listening first: an account changed during the build is reported by the change, not the snapshot
+                Account.addChangeListener(ownChanges(built));
+                if (cache == null) {
+                    try (BankSnapshot snapshot = snapshot()) {
+                        snapshot.getAccounts().parallelStream().forEach(built::track);
+                    }
+                } else {
+                    forEachState(built::track);
+                }
+                built.setBuildMillis((System.nanoTime() - start) / 1_000_000);
+                analytics = built;
+            }
+            return analytics;
+        }
+    }
+
+    /**
+     * Visits every account's state as of one moment and returns how many were
+     * visited. With an account store it is a scan that reads uncached
+     * accounts without caching them, one account at a time: an empty
+     * snapshot fixes the moment, and accounts that change during the scan
+     * stay in memory until it ends, so their older version is still there
+     * when the scan reaches them.
+     */
+    int forEachState(Consumer<BankSnapshot.AccountState> visitor) {
+        AccountCache store = cache;
+        if (store == null) {
+            try (BankSnapshot snapshot = snapshot()) {
+                snapshot.getAccounts().forEach(visitor);
+                return snapshot.size();
+            }
+        }
+        settleHotAccounts();
+        int visited = 0;
+        // Recording first: a change after the snapshot's stamp is then always caught
+        try (AccountCache.Scan scan = store.openScan();
+             BankSnapshot moment = BankSnapshot.capture(Collections.emptyList())) {
+            for (String accountNumber : store.accountNumbers()) {
+                Account account = scan.changed(accountNumber);
+                if (account == null) {
+                    account = store.peek(accountNumber);
+                }
+                BankSnapshot.AccountState state = account == null ? null : moment.stateOf(account);
+                if (state != null) {
+                    visitor.accept(state);
+                    visited++;
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * The account, reading it from the data file first if it has not been loaded yet
+     */
+    private Account lookup(String accountNumber) {
+        AccountCache store = cache;
+        if (store != null) {
+            try {
+                return store.get(accountNumber);
+            } catch (UncheckedIOException e) {
+                System.err.println("❌ Error loading account " + accountNumber + ": " + e.getMessage());
                 return null;
             }
         }
 
-        if (!AuthService.isValidPin(pin)) {
-            System.out.println("❌ PIN must be exactly 4 digits.");
+        Account account = accounts.get(accountNumber);
+        if (account != null || lazyIndex == null) {
+            return account;
+        }
+
+        lazyLock.readLock().lock();
+        try {
+            LazyAccountIndex index = lazyIndex;
+            if (!index.contains(accountNumber)) {
+                return accounts.get(accountNumber);
+            }
+            // Loaded outside the map's writer lock so parallel materialization stays parallel
+            Account loaded = index.load(accountNumber);
+            Account raced = accounts.putIfAbsent(accountNumber, loaded);
+            if (raced != null) {
+                return raced;
+            }
+            index.remove(accountNumber);
+            return loaded;
+        } catch (UncheckedIOException e) {
+            System.err.println("❌ Error loading account " + accountNumber + ": " + e.getMessage());
             return null;
+        } finally {
+            lazyLock.readLock().unlock();
         }
+    }
 
-        Account account = new Account(accountNumber, customerName, password, pin);
-        accounts.put(accountNumber, account);
+    public String createAccount(String customerName, String accountNumber, String password, String pin) {
+        long start = BankMetrics.start();
+        try {
+            if (rejectWrite()) {
+                return null;
+            }
+            if (accountNumber == null || accountNumber.trim().isEmpty()) {
+                accountNumber = generateAccountNumber();
+            } else {
+                accountNumber = accountNumber.trim();
+                if (accountExists(accountNumber)) {
+                    System.out.println("❌ Account number already exists. Please choose a different number.");
+                    return null;
+                }
+            }
 
-        System.out.println("\n✅ Account created successfully!");
-        System.out.println("Account Number: " + accountNumber);
-        System.out.println("Customer Name: " + customerName);
-        System.out.println("Initial Balance: $0.00");
-        System.out.println("⚠️  Keep your password and PIN safe!");
+            if (!AuthService.isValidPin(pin)) {
+                System.out.println("❌ PIN must be exactly 4 digits.");
+                return null;
+            }
 
-        return accountNumber;
+            Account account = new Account(accountNumber, customerName, password, pin);
+            if (!register(account)) {
+                return null;
+            }
+
+            System.out.println("\n✅ Account created successfully!");
+            System.out.println("Account Number: " + accountNumber);
+            System.out.println("Customer Name: " + customerName);
+            System.out.println("Initial Balance: $0.00");
+            System.out.println("⚠️  Keep your password and PIN safe!");
+
+            return accountNumber;
+        } finally {
+            BankMetrics.recordOperation(BankMetrics.Operation.CREATE_ACCOUNT, start);
+        }
     }
 
     public boolean deposit(String accountNumber, double amount) {
-        Account account = accounts.get(accountNumber);
+        return applyDeposit(accountNumber, amount, null);
+    }
+
+    private boolean applyDeposit(String accountNumber, double amount, String requestKey) {
+        long start = BankMetrics.start();
+        try {
+            if (rejectWrite()) {
+                return false;
+            }
+            Account account = lookup(accountNumber);
+
+            if (account == null) {
+                System.out.println("❌ Account not found: " + accountNumber);
+                return false;
+            }
+
+            // Hot accounts take deposits without the monitor; reading the new balance would take it again.
+            // They are screened and counted in one step; if a rule fires, the monitor path below acts on it.
+            // A keyed deposit goes through the monitor so its key is booked with it.
+            if (requestKey == null && amount > 0 && account.isHot()
+                    && risk.admit(accountNumber, RiskEngine.DEPOSIT, amount, System.currentTimeMillis()) == null) {
+                if (!account.creditHot(amount)) {
+                    // Hot mode was turned off meanwhile; the deposit is already screened and counted
+                    account.deposit(amount);
+                }
+                System.out.println("✅ Deposit successful!");
+                System.out.println("Amount deposited: $" + String.format("%.2f", amount));
+                return true;
+            }
+
+            boolean deposited;
+            synchronized (account) {
+                if (!screen(account, RiskEngine.DEPOSIT, amount, requestKey)) {
+                    return false;
+                }
+                deposited = account.deposit(amount, requestKey);
+                if (deposited) {
+                    risk.record(accountNumber, RiskEngine.DEPOSIT, amount, System.currentTimeMillis());
+                }
+            }
+
+            if (deposited) {
+                System.out.println("✅ Deposit successful!");
+                System.out.println("Amount deposited: $" + String.format("%.2f", amount));
+                System.out.println("New balance: $" + String.format("%.2f", account.getBalance()));
+                return true;
+            }
 
-        if (account == null) {
-            System.out.println("❌ Account not found: " + accountNumber);
             return false;
+        } finally {
+            BankMetrics.recordOperation(BankMetrics.Operation.DEPOSIT, start);
         }
+    }
 
-        if (account.deposit(amount)) {
-            System.out.println("✅ Deposit successful!");
-            System.out.println("Amount deposited: $" + String.format("%.2f", amount));
-            System.out.println("New balance: $" + String.format("%.2f", account.getBalance()));
-            return true;
+    /**
+     * Deposit that is applied at most once per idempotency key; a retry with
+     * the same key returns the original result
+     */
+    public boolean deposit(String accountNumber, double amount, String idempotencyKey) {
+        return idempotent(idempotencyKey, "DEPOSIT", accountNumber, amount,
+                () -> applyDeposit(accountNumber, amount, idempotencyKey));
+    }
+
+    public boolean withdraw(String accountNumber, double amount, String pin) {
+        return applyWithdraw(accountNumber, amount, pin, null);
+    }
+
+    private boolean applyWithdraw(String accountNumber, double amount, String pin, String requestKey) {
+        long start = BankMetrics.start();
+        try {
+            if (rejectWrite()) {
+                return false;
+            }
+            Account account = lookup(accountNumber);
+
+            if (account == null) {
+                System.out.println("❌ Account not found: " + accountNumber);
+                return false;
+            }
+
+            if (account.isLocked()) {
+                System.out.println("❌ Account is locked. Please contact admin.");
+                AuditService.logWithdrawFailure(accountNumber, "Account locked");
+                return false;
+            }
+            // Checked here rather than left to Account so wrong PINs count towards the risk rules
+            if (!AuthService.verifyPin(pin, account.getPin())) {
+                System.out.println("❌ Invalid PIN.");
+                recordWrongPin(accountNumber);
+                return false;
+            }
+            risk.recordCorrectPin(accountNumber);
+
+            boolean withdrawn;
+            synchronized (account) {
+                double reserved = risk.reservedFor(accountNumber);
+                if (reserved > 0 && amount > account.getBalance() - reserved) {
+                    System.out.println("❌ Insufficient balance: $" + String.format("%.2f", reserved)
+                            + " is reserved for held withdrawals.");
+                    AuditService.logWithdrawFailure(accountNumber, "Insufficient available balance");
+                    return false;
+                }
+                if (!screen(account, RiskEngine.WITHDRAW, amount, requestKey)) {
+                    return false;
+                }
+                withdrawn = account.withdraw(amount, pin, requestKey);
+                if (withdrawn) {
+                    risk.record(accountNumber, RiskEngine.WITHDRAW, amount, System.currentTimeMillis());
+                }
+            }
+
+            if (withdrawn) {
+                System.out.println("✅ Withdrawal successful!");
+                System.out.println("Amount withdrawn: $" + String.format("%.2f", amount));
+                System.out.println("New balance: $" + String.format("%.2f", account.getBalance()));
+                return true;
+            }
+
+            return false;
+        } finally {
+            BankMetrics.recordOperation(BankMetrics.Operation.WITHDRAW, start);
         }
+    }
+
+    /**
+     * Withdrawal that is applied at most once per idempotency key
+     */
+    public boolean withdraw(String accountNumber, double amount, String pin, String idempotencyKey) {
+        return idempotent(idempotencyKey, "WITHDRAW", accountNumber, amount,
+                () -> applyWithdraw(accountNumber, amount, pin, idempotencyKey));
+    }
+
+    /**
+     * Moves money between two accounts without a PIN, for standing orders and
+     * other system-initiated transfers. Both accounts are locked, in account
+     * number order, for the whole transfer.
+     */
+    public TransferOutcome transfer(String fromAccount, String toAccount, double amount, LocalDateTime when) {
+        return applyTransfer(fromAccount, toAccount, amount, when, null);
+    }
+
+    private TransferOutcome applyTransfer(String fromAccount, String toAccount, double amount, LocalDateTime when,
+                                          String requestKey) {
+        long start = BankMetrics.start();
+        try {
+            if (rejectWrite()) {
+                return TransferOutcome.READ_ONLY;
+            }
+            if (amount <= 0 || fromAccount.equals(toAccount)) {
+                return TransferOutcome.INVALID;
+            }
+            Account source = lookup(fromAccount);
+            Account target = lookup(toAccount);
+            if (source == null || target == null) {
+                AuditService.logTransferFailure(fromAccount, toAccount, "Account not found");
+                return TransferOutcome.ACCOUNT_NOT_FOUND;
+            }
+            Account first = fromAccount.compareTo(toAccount) < 0 ? source : target;
+            Account second = first == source ? target : source;
+            synchronized (first) {
+                synchronized (second) {
+                    if (source.isLocked() || target.isLocked()) {
+                        AuditService.logTransferFailure(fromAccount, toAccount, "Account locked");
+                        return TransferOutcome.ACCOUNT_LOCKED;
+                    }
+                    if (amount > availableBalance(source)) {
+                        AuditService.logTransferFailure(fromAccount, toAccount, "Insufficient balance");
+                        return TransferOutcome.INSUFFICIENT_FUNDS;
+                    }
+                    // One commit, so no snapshot sees the debit without the credit
+                    Account.commitTogether(() -> {
+                        source.post(TRANSFER_OUT, amount, when, requestKey);
+                        target.post(TRANSFER_IN, amount, when, requestKey);
+                    });
+                }
+            }
+            AuditService.logTransferSuccess(fromAccount, toAccount, amount);
+            return TransferOutcome.COMPLETED;
+        } finally {
+            BankMetrics.recordOperation(BankMetrics.Operation.TRANSFER, start);
+        }
+    }
+
+    /**
+     * Transfer that is applied at most once per idempotency key; true if it completed
+     */
+    public boolean transfer(String fromAccount, String toAccount, double amount, LocalDateTime when,
+                            String idempotencyKey) {
+        return idempotent(idempotencyKey, "TRANSFER", fromAccount, amount,
+                () -> applyTransfer(fromAccount, toAccount, amount, when, idempotencyKey) == TransferOutcome.COMPLETED);
+    }
+
+    /**
+     * Books one side of a transfer whose other side is in another partition,
+     * at most once per idempotency key. A debit is refused rather than capped
+     * when the available balance does not cover it, unless the funds were
+     * already set aside when the transfer was prepared.
+     */
+    boolean postTransferLeg(String accountNumber, String type, double amount, LocalDateTime when,
+                            String idempotencyKey, boolean reserved) {
+        return idempotent(idempotencyKey, type, accountNumber, amount, () -> {
+            if (rejectWrite()) {
+                return false;
+            }
+            Account account = lookup(accountNumber);
+            if (account == null) {
+                return false;
+            }
+            synchronized (account) {
+                if (!reserved && Transaction.isDebitType(type) && amount > availableBalance(account)) {
+                    return false;
+                }
+                account.post(type, amount, when, idempotencyKey);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Amount of the account's balance set aside for its held withdrawals
+     */
+    double reservedFor(String accountNumber) {
+        return risk.reservedFor(accountNumber);
+    }
+
+    /**
+     * Balance less what held withdrawals have reserved; call while holding the account's monitor
+     */
+    private double availableBalance(Account account) {
+        return account.getBalance() - risk.reservedFor(account.getAccountNumber());
+    }
 
+    /**
+     * Runs the risk rules for a deposit or withdrawal; false if a rule held,
+     * rejected or locked it. Call while holding the account's monitor.
+     */
+    private boolean screen(Account account, String type, double amount, String requestKey) {
+        if (amount <= 0) {
+            return true;
+        }
+        String accountNumber = account.getAccountNumber();
+        RiskEngine.Rule rule = risk.evaluate(accountNumber, type, amount, System.currentTimeMillis());
+        if (rule == null) {
+            return true;
+        }
+        String operation = RiskEngine.DEPOSIT.equals(type) ? "Deposit" : "Withdrawal";
+        RiskEngine.Action action = rule.getAction();
+        if (action == RiskEngine.Action.HOLD) {
+            RiskEngine.Hold hold = risk.hold(accountNumber, type, amount, rule, requestKey);
+            if (hold != null) {
+                risk.saveHolds();
+                System.out.println("⚠️  " + operation + " of $" + String.format("%.2f", amount)
+                        + " is held for review (reference " + hold.getId() + ").");
+                AuditService.logRiskDecision(accountNumber, type, amount, rule.getName(), action.name());
+                BankMetrics.recordRiskDecision(action);
+                return false;
+            }
+            // The review queue is full
+            action = RiskEngine.Action.REJECT;
+        }
+        if (action == RiskEngine.Action.LOCK) {
+            account.lock();
+            System.out.println("❌ " + operation + " declined and account locked by a security check. Please contact admin.");
+        } else {
+            System.out.println("❌ " + operation + " declined by a security check (" + rule.getName() + ").");
+        }
+        AuditService.logRiskDecision(accountNumber, type, amount, rule.getName(), action.name());
+        BankMetrics.recordRiskDecision(action);
         return false;
     }
 
-    public boolean withdraw(String accountNumber, double amount, String pin) {
-        Account account = accounts.get(accountNumber);
+    /**
+     * Audits a wrong PIN and counts it towards the account's wrong-PIN
+     * streak, locking the account if a rule says so
+     */
+    public void recordWrongPin(String accountNumber) {
+        AuditService.logWrongPin(accountNumber);
+        RiskEngine.Rule rule = risk.recordFailedPin(accountNumber);
+        if (rule == null || rule.getAction() != RiskEngine.Action.LOCK || readOnly) {
+            return;
+        }
+        Account account = lookup(accountNumber);
+        if (account != null && !account.isLocked()) {
+            account.lock();
+            System.out.println("❌ Too many wrong PINs: the account is locked. Please contact admin.");
+            AuditService.logRiskDecision(accountNumber, RiskEngine.FAILED_PIN, 0, rule.getName(),
+                    RiskEngine.Action.LOCK.name());
+            BankMetrics.recordRiskDecision(RiskEngine.Action.LOCK);
+        }
+    }
+
+    /**
+     * Operations held by the risk rules, oldest first
+     */
+    public List<RiskEngine.Hold> getHeldTransactions() {
+        return risk.getHolds();
+    }
+
+    public int getHeldTransactionCount() {
+        return risk.getHoldCount();
+    }
+
+    public List<RiskEngine.Rule> getRiskRules() {
+        return risk.getRules();
+    }
+
+    /**
+     * Replaces the risk rules, e.g. with none for load tests
+     */
+    void setRiskEngine(RiskEngine engine) {
+        this.risk = engine;
+    }
 
+    /**
+     * Applies a held operation without running the rules again; a held
+     * withdrawal's PIN was checked when it was held. The hold is removed
+     * even if the operation can no longer be applied.
+     */
+    public boolean releaseHold(long id) {
+        if (rejectWrite()) {
+            return false;
+        }
+        RiskEngine.Hold hold = risk.removeHold(id);
+        if (hold == null) {
+            System.out.println("❌ No held transaction with reference " + id + ".");
+            return false;
+        }
+        risk.saveHolds();
+        Account account = lookup(hold.getAccountNumber());
         if (account == null) {
-            System.out.println("❌ Account not found: " + accountNumber);
+            System.out.println("❌ Account not found: " + hold.getAccountNumber());
             return false;
         }
+        boolean applied;
+        synchronized (account) {
+            applied = RiskEngine.DEPOSIT.equals(hold.getType())
+                    ? account.deposit(hold.getAmount(), hold.getRequestKey())
+                    : account.withdraw(hold.getAmount(), account.getPin(), hold.getRequestKey());
+            if (applied) {
+                risk.record(hold.getAccountNumber(), hold.getType(), hold.getAmount(), System.currentTimeMillis());
+            }
+        }
+        if (applied) {
+            System.out.println("✅ Released: " + hold.getType() + " of $" + String.format("%.2f", hold.getAmount())
+                    + " on account " + hold.getAccountNumber() + ". New balance: $"
+                    + String.format("%.2f", account.getBalance()));
+        }
+        return applied;
+    }
 
-        if (account.withdraw(amount, pin)) {
-            System.out.println("✅ Withdrawal successful!");
-            System.out.println("Amount withdrawn: $" + String.format("%.2f", amount));
-            System.out.println("New balance: $" + String.format("%.2f", account.getBalance()));
-            return true;
+    /**
+     * Drops a held operation without applying it
+     */
+    public boolean declineHold(long id) {
+        if (rejectWrite()) {
+            return false;
         }
+        RiskEngine.Hold hold = risk.removeHold(id);
+        if (hold == null) {
+            System.out.println("❌ No held transaction with reference " + id + ".");
+            return false;
+        }
+        risk.saveHolds();
+        System.out.println("✅ Declined: " + hold.getType() + " of $" + String.format("%.2f", hold.getAmount())
+                + " on account " + hold.getAccountNumber() + ".");
+        return true;
+    }
 
-        return false;
+    private boolean idempotent(String key, String operation, String accountNumber, double amount,
+                               BooleanSupplier action) {
+        if (key == null) {
+            return action.getAsBoolean();
+        }
+        while (true) {
+            IdempotencyCache.Entry entry = idempotency.claim(key, operation, accountNumber, amount);
+            if (!entry.isDone()) {
+                boolean result;
+                try {
+                    result = action.getAsBoolean();
+                } catch (RuntimeException e) {
+                    idempotency.forget(entry);
+                    entry.complete(false);
+                    throw e;
+                }
+                entry.complete(result);
+                return result;
+            }
+            if (!entry.matches(operation, accountNumber, amount)) {
+                System.out.println("❌ Request key " + key + " was already used for a different request.");
+                return false;
+            }
+            if (isApplied(entry)) {
+                System.out.println("ℹ️  Duplicate request " + key + " ignored; it was applied.");
+                return true;
+            }
+            if (entry.isRestored() && entry.getResult()) {
+                // Its operation was lost with the unsaved account data: apply the retry
+                idempotency.forget(entry);
+                continue;
+            }
+            RiskEngine.Hold hold = risk.holdFor(key);
+            if (hold != null) {
+                System.out.println("ℹ️  Duplicate request " + key + ": still held for review (reference "
+                        + hold.getId() + ").");
+                return false;
+            }
+            System.out.println("ℹ️  Duplicate request " + key + " ignored; returning the original result.");
+            return entry.getResult();
+        }
+    }
+
+    /**
+     * True if the entry's operation, or its released hold, is booked in the account's history
+     */
+    private boolean isApplied(IdempotencyCache.Entry entry) {
+        Account account = lookup(entry.getAccountNumber());
+        if (account == null) {
+            return false;
+        }
+        // A minute of slack for transactions dated by a clock read just before the key was claimed
+        LocalDateTime since = LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getCreatedAt()),
+                ZoneId.systemDefault()).minusMinutes(1);
+        return account.hasRequestKey(entry.getKey(), since);
     }
 
     public void checkBalance(String accountNumber) {
-        Account account = accounts.get(accountNumber);
+        long start = BankMetrics.start();
+        try {
+            Account account = lookup(accountNumber);
 
-        if (account == null) {
-            System.out.println("❌ Account not found: " + accountNumber);
-            return;
+            if (account == null) {
+                System.out.println("❌ Account not found: " + accountNumber);
+                return;
+            }
+
+            System.out.println("\n" + "=".repeat(50));
+            System.out.println("Account Number: " + account.getAccountNumber());
+            System.out.println("Customer Name: " + account.getCustomerName());
+            System.out.println("Current Balance: $" + String.format("%.2f", balanceOf(account)));
+            System.out.println("Total Transactions: " + account.getTransactionCount());
+            System.out.println("=".repeat(50));
+        } finally {
+            BankMetrics.recordOperation(BankMetrics.Operation.CHECK_BALANCE, start);
         }
+    }
 
-        System.out.println("\n" + "=".repeat(50));
-        System.out.println("Account Number: " + account.getAccountNumber());
-        System.out.println("Customer Name: " + account.getCustomerName());
-        System.out.println("Current Balance: $" + String.format("%.2f", account.getBalance()));
-        System.out.println("Total Transactions: " + account.getTransactions().size());
-        System.out.println("=".repeat(50));
+    /**
+     * Reads the balance from the off-heap table when one is attached. A hot
+     * account is settled first, since the table only sees folded credits.
+     */
+    private double balanceOf(Account account) {
+        OffHeapAccountTable table = offHeapTable;
+        if (account.isHot()) {
+            account.settle();
+        }
+        int slot = table == null ? -1 : table.slotOf(account.getAccountNumber());
+        return slot < 0 ? account.getBalance() : table.balance(slot);
     }
 
     public void viewTransactions(String accountNumber) {
-        Account account = accounts.get(accountNumber);
+        long start = BankMetrics.start();
+        try {
+            Account account = lookup(accountNumber);
 
-        if (account == null) {
-            System.out.println("❌ Account not found: " + accountNumber);
-            return;
+            if (account == null) {
+                System.out.println("❌ Account not found: " + accountNumber);
+                return;
+            }
+
+            account.displayTransactions();
+        } finally {
+            BankMetrics.recordOperation(BankMetrics.Operation.VIEW_TRANSACTIONS, start);
+        }
+    }
+
+    /**
+     * Adds a new account unless the number is taken; prints the reason on failure
+     */
+    private boolean register(Account account) {
+        boolean added;
+        AccountCache store = cache;
+        if (store == null) {
+            added = accounts.putIfAbsent(account.getAccountNumber(), account) == null;
+        } else {
+            try {
+                added = store.create(account);
+            } catch (IOException e) {
+                System.out.println("❌ Could not store the new account: " + e.getMessage());
+                return false;
+            }
+        }
+        if (!added) {
+            System.out.println("❌ Account number already exists. Please choose a different number.");
+            return false;
+        }
+        account.announce();
+        return true;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    private boolean rejectWrite() {
+        if (readOnly) {
+            System.out.println("❌ This is a read-only replica. Changes must be made on the primary.");
         }
+        return readOnly;
+    }
 
-        account.displayTransactions();
+    /**
+     * Applies a replicated account record, creating the account if this bank
+     * does not have it yet. Returns false if the record does not connect to
+     * the account's history.
+     */
+    boolean applyReplicated(ReplicationRecord record) {
+        Account account = lookup(record.accountNumber);
+        if (account == null) {
+            Account created = Account.replica(record.accountNumber);
+            AccountCache store = cache;
+            try {
+                if (store != null) {
+                    store.create(created);
+                } else {
+                    accounts.putIfAbsent(created.getAccountNumber(), created);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            account = lookup(record.accountNumber);
+        }
+        return account.applyReplicated(record);
     }
 
     public boolean accountExists(String accountNumber) {
-        return accounts.containsKey(accountNumber);
+        AccountCache store = cache;
+        if (store != null) {
+            return store.contains(accountNumber);
+        }
+        LazyAccountIndex index = lazyIndex;
+        return accounts.containsKey(accountNumber) || (index != null && index.contains(accountNumber));
     }
 
     public int getTotalAccounts() {
-        return accounts.size();
+        AccountCache store = cache;
+        if (store != null) {
+            return store.size();
+        }
+        LazyAccountIndex index = lazyIndex;
+        return accounts.size() + (index == null ? 0 : index.size());
     }
 
     private String generateAccountNumber() {
         String accountNumber;
         do {
             accountNumber = String.format("%010d",
-                    (int)(Math.random() * 10000000000L));
-        } while (accounts.containsKey(accountNumber));
+                    (long) (Math.random() * 10000000000L));
+        } while (accountExists(accountNumber) || !accountNumberFilter.test(accountNumber));
 
         return accountNumber;
     }
 
+    void setAccountNumberFilter(Predicate<String> accountNumberFilter) {
+        this.accountNumberFilter = accountNumberFilter;
+    }
+
     public void displayAllAccounts() {
-        if (accounts.isEmpty()) {
+        if (getTotalAccounts() == 0) {
             System.out.println("No accounts in the system.");
             return;
         }
@@ -138,92 +1132,166 @@ public class Bank {
         System.out.println("All Accounts in the System");
         System.out.println("=".repeat(70));
 
-        for (Account account : accounts.values()) {
-            System.out.println(account);
-        }
+        int count = forEachState(account ->
+                System.out.println(String.format("Account[%s] - %s - Balance: $%.2f - Transactions: %d",
+                        account.getAccountNumber(), account.getCustomerName(),
+                        account.getBalance(), account.getTransactionCount())));
 
         System.out.println("=".repeat(70));
-        System.out.println("Total Accounts: " + accounts.size());
+        System.out.println("Total Accounts: " + count);
     }
 
     public Account authenticateUser(String accountNumber, String password) {
-        Account account = accounts.get(accountNumber);
+        long start = BankMetrics.start();
+        try {
+            Account account = lookup(accountNumber);
 
-        if (account == null) {
-            AuditService.logLoginFailure(accountNumber, "Account not found");
-            return null;
-        }
+            if (account == null) {
+                AuditService.logLoginFailure(accountNumber, "Account not found");
+                BankMetrics.recordLogin(false);
+                return null;
+            }
 
-        if (account.isLocked()) {
-            System.out.println("❌ Account is locked. Please contact admin.");
-            AuditService.logLoginFailure(accountNumber, "Account locked");
-            return null;
-        }
+            if (account.isLocked()) {
+                System.out.println("❌ Account is locked. Please contact admin.");
+                AuditService.logLoginFailure(accountNumber, "Account locked");
+                BankMetrics.recordLogin(false);
+                return null;
+            }
 
-        if (!AuthService.verifyPassword(password, account.getPasswordHash())) {
-            AuditService.logWrongPassword(accountNumber);
-            return null;
+            // Only the interactive login can take the new credentials
+            if (account.isCredentialResetRequired()) {
+                System.out.println("❌ A new password and PIN must be set first. Please log in at the bank console.");
+                AuditService.logLoginFailure(accountNumber, "Credential reset required");
+                BankMetrics.recordLogin(false);
+                return null;
+            }
+
+            if (!checkPassword(account, password)) {
+                BankMetrics.recordLogin(false);
+                return null;
+            }
+
+            AuditService.logLoginSuccess(accountNumber);
+            BankMetrics.recordLogin(true);
+            return account;
+        } finally {
+            BankMetrics.recordOperation(BankMetrics.Operation.AUTHENTICATE, start);
         }
+    }
 
-        AuditService.logLoginSuccess(accountNumber);
-        return account;
+    /**
+     * Checks the password on the auth pool, auditing a failure, and replaces
+     * an outdated hash after a successful check
+     */
+    private boolean checkPassword(Account account, String password) {
+        AuthService.Verification verification = AuthService.verify(password, account.getPasswordHash());
+        if (verification.isBusy()) {
+            System.out.println("❌ Too many sign-ins in progress. Please try again shortly.");
+            AuditService.logLoginFailure(account.getAccountNumber(), "Authentication busy");
+            return false;
+        }
+        if (!verification.matches()) {
+            AuditService.logWrongPassword(account.getAccountNumber());
+            return false;
+        }
+        if (verification.getUpgradedHash() != null && !readOnly) {
+            account.setPasswordHash(verification.getUpgradedHash());
+        }
+        return true;
     }
 
     public boolean lockAccount(String accountNumber) {
-        Account account = accounts.get(accountNumber);
-        if (account != null) {
-            account.lock();
-            return true;
+        long start = BankMetrics.start();
+        try {
+            if (rejectWrite()) {
+                return false;
+            }
+            Account account = lookup(accountNumber);
+            if (account != null) {
+                account.lock();
+                return true;
+            }
+            return false;
+        } finally {
+            BankMetrics.recordOperation(BankMetrics.Operation.LOCK_ACCOUNT, start);
         }
-        return false;
     }
 
     public boolean unlockAccount(String accountNumber) {
-        Account account = accounts.get(accountNumber);
-        if (account != null) {
-            account.unlock();
-            return true;
+        long start = BankMetrics.start();
+        try {
+            if (rejectWrite()) {
+                return false;
+            }
+            Account account = lookup(accountNumber);
+            if (account != null) {
+                account.unlock();
+                return true;
+            }
+            return false;
+        } finally {
+            BankMetrics.recordOperation(BankMetrics.Operation.UNLOCK_ACCOUNT, start);
         }
-        return false;
+    }
+
+    /**
+     * Locks the account until an admin unlocks it, then requires a new
+     * password and PIN at its next login; false if it already was
+     */
+    public boolean requireCredentialReset(String accountNumber) {
+        if (rejectWrite()) {
+            return false;
+        }
+        Account account = lookup(accountNumber);
+        return account != null && account.requireCredentialReset();
     }
 
     public double getTotalBankBalance() {
-        double total = 0.0;
-        for (Account account : accounts.values()) {
-            total += account.getBalance();
+        long start = BankMetrics.start();
+        try {
+            double[] total = new double[1];
+            forEachState(account -> total[0] += account.getBalance());
+            return total[0];
+        } finally {
+            BankMetrics.recordOperation(BankMetrics.Operation.TOTAL_BALANCE, start);
         }
-        return total;
     }
 
     public void displayAllAccountsAdmin() {
-        if (accounts.isEmpty()) {
-            System.out.println("No accounts in the system.");
-            return;
-        }
+        long start = BankMetrics.start();
+        try {
+            if (getTotalAccounts() == 0) {
+                System.out.println("No accounts in the system.");
+                return;
+            }
 
-        System.out.println("\n" + "=".repeat(90));
-        System.out.println("All Accounts in the System");
-        System.out.println("=".repeat(90));
-        System.out.println(String.format("%-15s | %-20s | %-12s | %-10s | %s",
-                "Account No", "Customer Name", "Balance", "Status", "Transactions"));
-        System.out.println("-".repeat(90));
+            System.out.println("\n" + "=".repeat(90));
+            System.out.println("All Accounts in the System");
+            System.out.println("=".repeat(90));
+            System.out.println(String.format("%-15s | %-20s | %-12s | %-10s | %s",
+                    "Account No", "Customer Name", "Balance", "Status", "Transactions"));
+            System.out.println("-".repeat(90));
 
-        for (Account account : accounts.values()) {
-            String status = account.isLocked() ? "🔒 LOCKED" : "✅ ACTIVE";
-            System.out.println(String.format("%-15s | %-20s | $%-11.2f | %-10s | %d",
-                    account.getAccountNumber(),
-                    account.getCustomerName(),
-                    account.getBalance(),
-                    status,
-                    account.getTransactions().size()));
-        }
+            int count = forEachState(account -> {
+                String status = account.isLocked() ? "🔒 LOCKED" : "✅ ACTIVE";
+                System.out.println(String.format("%-15s | %-20s | $%-11.2f | %-10s | %d",
+                        account.getAccountNumber(),
+                        account.getCustomerName(),
+                        account.getBalance(),
+                        status,
+                        account.getTransactionCount()));
+            });
 
-        System.out.println("=".repeat(90));
-        System.out.println("Total Accounts: " + accounts.size());
+            System.out.println("=".repeat(90));
+            System.out.println("Total Accounts: " + count);
+        } finally {
+            BankMetrics.recordOperation(BankMetrics.Operation.LIST_ACCOUNTS, start);
+        }
     }
 
     public void displayAccountDetailsAdmin(String accountNumber) {
-        Account account = accounts.get(accountNumber);
+        Account account = lookup(accountNumber);
 
         if (account == null) {
             System.out.println("❌ Account not found: " + accountNumber);
@@ -237,25 +1305,77 @@ public class Bank {
         System.out.println("Customer Name: " + account.getCustomerName());
         System.out.println("Balance: $" + String.format("%.2f", account.getBalance()));
         System.out.println("Status: " + (account.isLocked() ? "🔒 LOCKED" : "✅ ACTIVE"));
-        System.out.println("Total Transactions: " + account.getTransactions().size());
+        System.out.println("Total Transactions: " + account.getTransactionCount());
         System.out.println("=".repeat(60));
     }
 
     public Account getAccount(String accountNumber) {
-        return accounts.get(accountNumber);
+        return lookup(accountNumber);
+    }
+
+    /**
+     * Every account; in lazy mode this loads the remaining ones in parallel first
+     */
+    Iterable<Account> allAccounts() {
+        AccountCache store = cache;
+        if (store != null) {
+            // Streams through the cache, so only the working set stays in memory
+            List<String> numbers = store.accountNumbers();
+            return () -> numbers.stream().map(this::lookup).filter(Objects::nonNull).iterator();
+        }
+        LazyAccountIndex index = lazyIndex;
+        if (index != null && index.size() > 0) {
+            index.accountNumbers().parallelStream().forEach(this::lookup);
+        }
+        return accounts.values();
+    }
+
+    /**
+     * Every account number; with an account store this loads no accounts, so
+     * a batch job can look them up one at a time through the cache
+     */
+    List<String> accountNumbers() {
+        AccountCache store = cache;
+        if (store != null) {
+            return store.accountNumbers();
+        }
+        List<String> numbers = new ArrayList<>();
+        for (Account account : allAccounts()) {
+            numbers.add(account.getAccountNumber());
+        }
+        return numbers;
+    }
+
+    /**
+     * Accounts currently in memory, without loading anything
+     */
+    Iterable<Account> loadedAccounts() {
+        AccountCache store = cache;
+        return store == null ? accounts.values() : store.residentAccounts();
+    }
+
+    AccountCache cache() {
+        return cache;
     }
 
     /**
      * Authenticate user with migration support
      */
     public Account authenticateUserWithMigration(String accountNumber) {
-        Account account = accounts.get(accountNumber);
+        Account account = lookup(accountNumber);
 
         if (account == null) {
             System.out.println("❌ Account not found: " + accountNumber);
             return null;
         }
 
+        // Before migration, which would otherwise let anyone at the console set credentials on a locked account
+        if (account.isLocked()) {
+            System.out.println("❌ Account is locked. Please contact admin.");
+            AuditService.logLoginFailure(accountNumber, "Account locked");
+            return null;
+        }
+
         // Check if account needs migration
         if (AccountMigrationHelper.needsMigration(account)) {
             System.out.println("\n⚠️  This account needs to be upgraded.");
@@ -271,22 +1391,27 @@ public class Bank {
             }
         }
 
-        // Normal authentication with password
-        String password = InputUtil.readString("Enter password: ");
-
-        if (account.isLocked()) {
-            System.out.println("❌ Account is locked. Please contact admin.");
-            AuditService.logLoginFailure(accountNumber, "Account locked");
+        // A forced reset: the current password proves who is asking, then new credentials are required
+        if (account.isCredentialResetRequired()) {
+            String password = InputUtil.readString("Enter password: ");
+            if (!checkPassword(account, password)) {
+                System.out.println("❌ Invalid password.");
+                return null;
+            }
+            if (AccountMigrationHelper.resetCredentials(account)) {
+                this.saveToFile();
+                AuditService.logCredentialReset(accountNumber);
+                System.out.println("\n✅ You can now login with your new credentials.");
+            }
             return null;
         }
 
-        if (!AuthService.verifyPassword(password, account.getPasswordHash())) {
-            AuditService.logWrongPassword(accountNumber);
+        // Normal authentication with password, through authenticateUser so it is timed and traced
+        String password = InputUtil.readString("Enter password: ");
+        Account authenticated = authenticateUser(accountNumber, password);
+        if (authenticated == null && !account.isLocked()) {
             System.out.println("❌ Invalid password.");
-            return null;
         }
-
-        AuditService.logLoginSuccess(accountNumber);
-        return account;
+        return authenticated;
     }
 }
\ No newline at end of file
@@ -0,0 +1,388 @@
+package com.bankapp;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admin analytics kept up to date on every account change instead of being
+ * computed by scanning all accounts:
+ *
+ * - a balance histogram with 1-2-5 log buckets from $1 to $10M,
+ * - deposit and withdrawal counts and volume per hour over the last
+ *   -Dbankapp.analytics.hours (default 48), in a ring of hourly slots,
+ * - accounts by the day of their last transaction, for dormancy counts.
+ *
+ * Every query costs O(buckets), whatever the number of accounts. Per
+ * account only its balance, history length and last active day are kept.
+ * Built from a snapshot of all accounts, in parallel, when first requested;
+ * from then on it listens to account changes.
+ */
+public class BankAnalytics implements AccountChangeListener {
+    static final int HOURS = Math.max(1, Integer.getInteger("bankapp.analytics.hours", 48));
+    private static final double[] BOUNDS = balanceBounds();
+    private static final long NEVER = Long.MIN_VALUE;
+
+    /**
+     * Accounts whose balance is in [lower, upper)
+     */
+    public static final class BalanceBucket {
+        private final double lower;
+        private final double upper;
+        private final long accounts;
+        private final double total;
+
+        BalanceBucket(double lower, double upper, long accounts, double total) {
+            this.lower = lower;
+            this.upper = upper;
+            this.accounts = accounts;
+            this.total = total;
+        }
+
+        /**
+         * Negative infinity for the first bucket
+         */
+        public double getLower() {
+            return lower;
+        }
+
+        /**
+         * Positive infinity for the last bucket
+         */
+        public double getUpper() {
+            return upper;
+        }
+
+        public long getAccounts() {
+            return accounts;
+        }
+
+        public double getTotal() {
+            return total;
+        }
+    }
+
+    /**
+     * Deposits and withdrawals booked in one clock hour
+     */
+    public static final class HourActivity {
+        private final LocalDateTime hour;
+        private final long deposits;
+        private final double depositVolume;
+        private final long withdrawals;
+        private final double withdrawalVolume;
+
+        HourActivity(LocalDateTime hour, long deposits, double depositVolume, long withdrawals,
+                     double withdrawalVolume) {
+            this.hour = hour;
+            this.deposits = deposits;
+            this.depositVolume = depositVolume;
+            this.withdrawals = withdrawals;
+            this.withdrawalVolume = withdrawalVolume;
+        }
+
+        public LocalDateTime getHour() {
+            return hour;
+        }
+
+        public long getDeposits() {
+            return deposits;
+        }
+
+        public double getDepositVolume() {
+            return depositVolume;
+        }
+
+        public long getWithdrawals() {
+            return withdrawals;
+        }
+
+        public double getWithdrawalVolume() {
+            return withdrawalVolume;
+        }
+    }
+
+    /**
+     * What is remembered per account; -1 transactions until first seen
+     */
+    private static final class Tracked {
+        int transactions = -1;
+        int bucket;
+        long cents;
+        long lastActiveDay = NEVER;
+    }
+
+    private final Map<String, Tracked> accounts = new ConcurrentHashMap<>();
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BOUNDS.length + 1);
+    private final LongAdder[] bucketCents = new LongAdder[BOUNDS.length + 1];
+    // Hourly ring: slot h % HOURS holds hour h (hours since the epoch) if slotHours says so
+    private final long[] slotHours = new long[HOURS];
+    private final long[] depositCounts = new long[HOURS];
+    private final long[] depositCents = new long[HOURS];
+    private final long[] withdrawalCounts = new long[HOURS];
+    private final long[] withdrawalCents = new long[HOURS];
+    private final Object[] slotLocks = new Object[HOURS];
+    // Accounts by epoch day of their last transaction
+    private final ConcurrentSkipListMap<Long, LongAdder> lastActiveDays = new ConcurrentSkipListMap<>();
+    private final LongAdder neverActive = new LongAdder();
+    private volatile long buildMillis;
+
+    BankAnalytics() {
+        for (int i = 0; i < bucketCents.length; i++) {
+            bucketCents[i] = new LongAdder();
+        }
+        for (int slot = 0; slot < HOURS; slot++) {
+            slotHours[slot] = -1;
+            slotLocks[slot] = new Object();
+        }
+    }
+
+    private static double[] balanceBounds() {
+        List<Double> bounds = new ArrayList<>();
+        for (double decade = 1; decade < 10_000_000; decade *= 10) {
+            bounds.add(decade);
+            bounds.add(decade * 2);
+            bounds.add(decade * 5);
+        }
+        bounds.add(10_000_000.0);
+        double[] result = new double[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static int bucketOf(double balance) {
+        int low = 0;
+        int high = BOUNDS.length;
+        // First bound above the balance
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (BOUNDS[middle] <= balance) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long hourOf(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 3600;
+    }
+
+    @Override
+    public void accountChanged(Account account, AccountVersion version) {
+        List<Transaction> history = account.getTransactions();
+        update(account.getAccountNumber(), version.balance, version.archivedCount + version.transactionCount,
+                history == null ? Collections.emptyList() : history, version.archivedThrough, false);
+    }
+
+    /**
+     * Adds an account as of a snapshot, unless a change has already reported it
+     */
+    void track(BankSnapshot.AccountState state) {
+        update(state.getAccountNumber(), state.getBalance(), state.getTransactionCount(),
+                state.getTransactions(), state.getArchivedThrough(), true);
+    }
+
+    void setBuildMillis(long buildMillis) {
+        this.buildMillis = buildMillis;
+    }
+
+    /**
+     * How long the initial build took
+     */
+    public long getBuildMillis() {
+        return buildMillis;
+    }
+
+    /**
+     * history is the account's in-memory history, newest last; the entries
+     * beyond those already counted are the new ones
+     */
+    private void update(String accountNumber, double balance, int transactions, List<Transaction> history,
+                        LocalDateTime archivedThrough, boolean onlyIfNew) {
+        Tracked tracked = accounts.computeIfAbsent(accountNumber, key -> new Tracked());
+        synchronized (tracked) {
+            boolean isNew = tracked.transactions < 0;
+            if (onlyIfNew && !isNew) {
+                return;
+            }
+            long cents = Math.round(balance * 100);
+            int bucket = bucketOf(balance);
+            if (isNew) {
+                bucketCounts.incrementAndGet(bucket);
+                bucketCents[bucket].add(cents);
+            } else if (cents != tracked.cents) {
+                if (bucket != tracked.bucket) {
+                    bucketCounts.decrementAndGet(tracked.bucket);
+                    bucketCounts.incrementAndGet(bucket);
+                }
+                bucketCents[tracked.bucket].add(-tracked.cents);
+                bucketCents[bucket].add(cents);
+            }
+            tracked.bucket = bucket;
+            tracked.cents = cents;
+
+            long lastActive = tracked.lastActiveDay;
+            int added = isNew ? transactions : transactions - tracked.transactions;
+            if (added > 0) {
+                for (int i = history.size() - 1; i >= Math.max(0, history.size() - added); i--) {
+                    Transaction transaction = history.get(i);
+                    if (transaction.getDateTime() == null) {
+                        continue;
+                    }
+                    recordActivity(transaction);
+                    lastActive = Math.max(lastActive, transaction.getDateTime().toLocalDate().toEpochDay());
+                }
+                if (lastActive == NEVER && archivedThrough != null) {
+                    lastActive = archivedThrough.toLocalDate().toEpochDay();
+                }
+            }
+            moveLastActive(tracked.lastActiveDay, lastActive, isNew);
+            tracked.lastActiveDay = lastActive;
+            tracked.transactions = transactions;
+        }
+    }
+
+    private void moveLastActive(long from, long to, boolean isNew) {
+        if (!isNew && from == to) {
+            return;
+        }
+        if (!isNew) {
+            if (from == NEVER) {
+                neverActive.decrement();
+            } else {
+                lastActiveDays.get(from).decrement();
+            }
+        }
+        if (to == NEVER) {
+            neverActive.increment();
+        } else {
+            lastActiveDays.computeIfAbsent(to, day -> new LongAdder()).increment();
+        }
+    }
+
+    private void recordActivity(Transaction transaction) {
+        boolean deposit = "DEPOSIT".equals(transaction.getType());
+        if (!deposit && !"WITHDRAW".equals(transaction.getType())) {
+            return;
+        }
+        long hour = hourOf(transaction.getDateTime());
+        if (hour <= hourOf(LocalDateTime.now()) - HOURS) {
+            return;
+        }
+        int slot = (int) Math.floorMod(hour, (long) HOURS);
+        long cents = Math.round(transaction.getAmount() * 100);
+        synchronized (slotLocks[slot]) {
+            if (slotHours[slot] > hour) {
+                return;
+            }
+            if (slotHours[slot] < hour) {
+                slotHours[slot] = hour;
+                depositCounts[slot] = 0;
+                depositCents[slot] = 0;
+                withdrawalCounts[slot] = 0;
+                withdrawalCents[slot] = 0;
+            }
+            if (deposit) {
+                depositCounts[slot]++;
+                depositCents[slot] += cents;
+            } else {
+                withdrawalCounts[slot]++;
+                withdrawalCents[slot] += cents;
+            }
+        }
+    }
+
+    public long getAccountCount() {
+        return accounts.size();
+    }
+
+    /**
+     * All balance buckets, lowest first, including empty ones
+     */
+    public List<BalanceBucket> getBalanceHistogram() {
+        List<BalanceBucket> buckets = new ArrayList<>(BOUNDS.length + 1);
+        for (int i = 0; i <= BOUNDS.length; i++) {
+            buckets.add(new BalanceBucket(i == 0 ? Double.NEGATIVE_INFINITY : BOUNDS[i - 1],
+                    i == BOUNDS.length ? Double.POSITIVE_INFINITY : BOUNDS[i],
+                    bucketCounts.get(i), bucketCents[i].sum() / 100.0));
+        }
+        return buckets;
+    }
+
+    /**
+     * The largest bucket boundary at or below the amount, which is what
+     * countBalanceBelow() answers for; 0 below the first boundary
+     */
+    public static double boundaryAtOrBelow(double amount) {
+        int bucket = bucketOf(amount);
+        return bucket == 0 ? 0 : BOUNDS[bucket - 1];
+    }
+
+    /**
+     * Accounts with a balance below boundaryAtOrBelow(amount); exact when the
+     * amount is itself a boundary (1, 2, 5, 10, 20, 50, 100, ...)
+     */
+    public long countBalanceBelow(double amount) {
+        int buckets = bucketOf(amount);
+        long count = 0;
+        for (int i = 0; i < buckets; i++) {
+            count += bucketCounts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * The last hours clock hours up to the current one, oldest first; at
+     * most -Dbankapp.analytics.hours are kept
+     */
+    public List<HourActivity> getHourlyActivity(int hours) {
+        LocalDateTime currentHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        long current = hourOf(currentHour);
+        int count = Math.max(1, Math.min(hours, HOURS));
+        List<HourActivity> activity = new ArrayList<>(count);
+        for (long hour = current - count + 1; hour <= current; hour++) {
+            int slot = (int) Math.floorMod(hour, (long) HOURS);
+            LocalDateTime start = currentHour.minusHours(current - hour);
+            synchronized (slotLocks[slot]) {
+                if (slotHours[slot] == hour) {
+                    activity.add(new HourActivity(start, depositCounts[slot], depositCents[slot] / 100.0,
+                            withdrawalCounts[slot], withdrawalCents[slot] / 100.0));
+                } else {
+                    activity.add(new HourActivity(start, 0, 0, 0, 0));
+                }
+            }
+        }
+        return activity;
+    }
+
+    /**
+     * Accounts with no transaction in the last days days, including those that never had one
+     */
+    public long countDormant(int days) {
+        long cutoff = LocalDateTime.now().toLocalDate().toEpochDay() - days;
+        long count = neverActive.sum();
+        for (LongAdder accountsOnDay : lastActiveDays.headMap(cutoff, false).values()) {
+            count += accountsOnDay.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Accounts that have never had a transaction
+     */
+    public long countNeverActive() {
+        return neverActive.sum();
+    }
+}
@@ -0,0 +1,606 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Low-overhead runtime counters for the bank, published as a platform MXBean.
+ * Recording is a couple of striped LongAdder updates, so it is safe to call
+ * from the deposit/withdraw path. Set -Dbankapp.metrics=false to compile it out.
+ */
+public class BankMetrics implements BankMetricsMXBean {
+    public static final String OBJECT_NAME = "com.bankapp:type=BankMetrics";
+    private static final boolean ENABLED =
+            !"false".equalsIgnoreCase(System.getProperty("bankapp.metrics"));
+
+    // Rough per-object sizes for a 64-bit JVM with compressed oops
+    private static final long ACCOUNT_BASE_BYTES = 40 + 24 + 16;
+    private static final long STRING_BASE_BYTES = 40;
+    private static final long TRANSACTION_BYTES = 32 + 24 + 24 + 24 + 8;
+
+    public enum Operation {
+        CREATE_ACCOUNT, DEPOSIT, WITHDRAW, CHECK_BALANCE, VIEW_TRANSACTIONS,
+        AUTHENTICATE, LOCK_ACCOUNT, UNLOCK_ACCOUNT, TOTAL_BALANCE, LIST_ACCOUNTS, TRANSFER
+    }
+
+    private static final class Timer {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+        }
+    }
+
+    private static final BankMetrics INSTANCE = new BankMetrics();
+
+    private final Map<Operation, Timer> operations = new EnumMap<>(Operation.class);
+    private final LongAdder loginSuccess = new LongAdder();
+    private final LongAdder loginFailure = new LongAdder();
+    private final Timer saves = new Timer();
+    private final AtomicLong lastSaveNanos = new AtomicLong();
+    private final AtomicLong lastSaveBytes = new AtomicLong();
+    private final Timer loads = new Timer();
+    private final AtomicLong lastLoadNanos = new AtomicLong();
+    private final AtomicLong lastLoadBytes = new AtomicLong();
+    private final LongAdder auditEvents = new LongAdder();
+    private final LongAdder auditFailures = new LongAdder();
+    private final AtomicInteger auditInFlight = new AtomicInteger();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder cacheEvictions = new LongAdder();
+    private final LongAdder cacheWriteBacks = new LongAdder();
+    private final Timer passwordHashes = new Timer();
+    private final Timer authQueueWaits = new Timer();
+    private final LongAdder authRejected = new LongAdder();
+    private final Timer riskChecks = new Timer();
+    private final Map<RiskEngine.Action, LongAdder> riskDecisions = new EnumMap<>(RiskEngine.Action.class);
+
+    private volatile Bank bank;
+    private ScheduledExecutorService dumpScheduler;
+    private String dumpPath;
+
+    private BankMetrics() {
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new Timer());
+        }
+        for (RiskEngine.Action action : RiskEngine.Action.values()) {
+            riskDecisions.put(action, new LongAdder());
+        }
+    }
+
+    public static BankMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a start timestamp for recordOperation, or 0 when metrics are off
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    public static void recordOperation(Operation operation, long startNanos) {
+        if (ENABLED) {
+            INSTANCE.operations.get(operation).record(System.nanoTime() - startNanos);
+        }
+    }
+
+    public static void recordLogin(boolean success) {
+        if (ENABLED) {
+            (success ? INSTANCE.loginSuccess : INSTANCE.loginFailure).increment();
+        }
+    }
+
+    public static void recordSave(long startNanos, long bytes) {
+        if (ENABLED) {
+            long nanos = System.nanoTime() - startNanos;
+            INSTANCE.saves.record(nanos);
+            INSTANCE.lastSaveNanos.set(nanos);
+            INSTANCE.lastSaveBytes.set(bytes);
+        }
+    }
+
+    public static void recordLoad(long startNanos, long bytes) {
+        if (ENABLED) {
+            long nanos = System.nanoTime() - startNanos;
+            INSTANCE.loads.record(nanos);
+            INSTANCE.lastLoadNanos.set(nanos);
+            INSTANCE.lastLoadBytes.set(bytes);
+        }
+    }
+
+    /**
+     * Brackets an audit write so the number of writers waiting on the log
+     * file shows up as queue depth.
+     */
+    public static void auditWriteStarted() {
+        if (ENABLED) {
+            INSTANCE.auditInFlight.incrementAndGet();
+        }
+    }
+
+    public static void auditWriteFinished(boolean success) {
+        if (ENABLED) {
+            INSTANCE.auditInFlight.decrementAndGet();
+            (success ? INSTANCE.auditEvents : INSTANCE.auditFailures).increment();
+        }
+    }
+
+    public static void recordCacheHit() {
+        if (ENABLED) {
+            INSTANCE.cacheHits.increment();
+        }
+    }
+
+    public static void recordCacheMiss() {
+        if (ENABLED) {
+            INSTANCE.cacheMisses.increment();
+        }
+    }
+
+    public static void recordCacheEviction() {
+        if (ENABLED) {
+            INSTANCE.cacheEvictions.increment();
+        }
+    }
+
+    /**
+     * An evicted account had changed and was written to the store first
+     */
+    public static void recordCacheWriteBack() {
+        if (ENABLED) {
+            INSTANCE.cacheWriteBacks.increment();
+        }
+    }
+
+    /**
+     * One PBKDF2 computation, started at startNanos (System.nanoTime)
+     */
+    public static void recordPasswordHash(long startNanos) {
+        if (ENABLED) {
+            INSTANCE.passwordHashes.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * A password check left the auth queue; queuedNanos is when it was submitted
+     */
+    public static void recordAuthQueueWait(long queuedNanos) {
+        if (ENABLED) {
+            INSTANCE.authQueueWaits.record(System.nanoTime() - queuedNanos);
+        }
+    }
+
+    /**
+     * A password check was refused because the auth queue was full or it timed out
+     */
+    public static void recordAuthRejected() {
+        if (ENABLED) {
+            INSTANCE.authRejected.increment();
+        }
+    }
+
+    /**
+     * One risk rule evaluation, started at startNanos
+     */
+    public static void recordRiskCheck(long startNanos) {
+        if (ENABLED) {
+            INSTANCE.riskChecks.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * An operation was held, rejected or led to a lock by a risk rule
+     */
+    public static void recordRiskDecision(RiskEngine.Action action) {
+        if (ENABLED) {
+            INSTANCE.riskDecisions.get(action).increment();
+        }
+    }
+
+    /**
+     * Rough heap footprint of one account and its in-memory history
+     */
+    static long estimateAccountBytes(Account account) {
+        long bytes = ACCOUNT_BASE_BYTES + 48; // plus the map entry
+        bytes += stringBytes(account.getAccountNumber()) * 2; // value and map key
+        bytes += stringBytes(account.getCustomerName());
+        bytes += stringBytes(account.getPasswordHash());
+        bytes += stringBytes(account.getPin());
+        List<Transaction> transactions = account.getTransactions();
+        bytes += (transactions == null ? 0 : transactions.size()) * (TRANSACTION_BYTES + 4);
+        return bytes;
+    }
+
+    /**
+     * Registers the MXBean with the platform MBean server and remembers the
+     * bank whose accounts are reported.
+     */
+    public static void register(Bank bank) {
+        INSTANCE.bank = bank;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️  Could not register metrics MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Appends one JSON line of metrics to the given file every interval.
+     */
+    public static synchronized void startPeriodicDump(String path, long intervalSeconds) {
+        if (INSTANCE.dumpScheduler != null) {
+            return;
+        }
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> dumpTo(path), intervalSeconds, intervalSeconds,
+                TimeUnit.SECONDS);
+        INSTANCE.dumpScheduler = scheduler;
+        INSTANCE.dumpPath = path;
+    }
+
+    /**
+     * Stops the periodic dump, writing one final line so short sessions are covered too
+     */
+    public static synchronized void stopPeriodicDump() {
+        if (INSTANCE.dumpScheduler != null) {
+            INSTANCE.dumpScheduler.shutdownNow();
+            INSTANCE.dumpScheduler = null;
+            dumpTo(INSTANCE.dumpPath);
+        }
+    }
+
+    public static void dumpTo(String path) {
+        String line = new Gson().toJson(INSTANCE.toMap()) + System.lineSeparator();
+        try {
+            Files.write(Paths.get(path), line.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Failed to write metrics dump: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("timestamp", LocalDateTime.now().toString());
+        map.put("operationCounts", getOperationCounts());
+        map.put("operationMeanLatencyMicros", getOperationMeanLatencyMicros());
+        map.put("operationMaxLatencyMicros", getOperationMaxLatencyMicros());
+        map.put("loginSuccess", getLoginSuccessCount());
+        map.put("loginFailure", getLoginFailureCount());
+        map.put("saveCount", getSaveCount());
+        map.put("lastSaveMillis", getLastSaveMillis());
+        map.put("lastSaveBytes", getLastSaveBytes());
+        map.put("loadCount", getLoadCount());
+        map.put("lastLoadMillis", getLastLoadMillis());
+        map.put("lastLoadBytes", getLastLoadBytes());
+        map.put("auditEventsWritten", getAuditEventsWritten());
+        map.put("auditWriteFailures", getAuditWriteFailures());
+        map.put("auditQueueDepth", getAuditQueueDepth());
+        map.put("accountCount", getAccountCount());
+        map.put("estimatedAccountHeapBytes", getEstimatedAccountHeapBytes());
+        map.put("cacheHits", getCacheHits());
+        map.put("cacheMisses", getCacheMisses());
+        map.put("cacheHitRate", getCacheHitRate());
+        map.put("cacheEvictions", getCacheEvictions());
+        map.put("cacheWriteBacks", getCacheWriteBacks());
+        map.put("cacheResidentAccounts", getCacheResidentAccounts());
+        map.put("cacheResidentBytes", getCacheResidentBytes());
+        map.put("authQueueDepth", getAuthQueueDepth());
+        map.put("authActiveWorkers", getAuthActiveWorkers());
+        map.put("authMeanQueueWaitMillis", getAuthMeanQueueWaitMillis());
+        map.put("authMaxQueueWaitMillis", getAuthMaxQueueWaitMillis());
+        map.put("authRejected", getAuthRejectedCount());
+        map.put("passwordHashCount", getPasswordHashCount());
+        map.put("meanPasswordHashMillis", getMeanPasswordHashMillis());
+        map.put("riskCheckCount", getRiskCheckCount());
+        map.put("riskCheckMeanNanos", getRiskCheckMeanNanos());
+        map.put("riskCheckMaxNanos", getRiskCheckMaxNanos());
+        map.put("riskDecisions", getRiskDecisionCounts());
+        map.put("riskPendingHolds", getRiskPendingHolds());
+        return map;
+    }
+
+    private static double micros(long nanos) {
+        return Math.round(nanos / 10.0) / 100.0;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Map.Entry<Operation, Timer> entry : operations.entrySet()) {
+            counts.put(entry.getKey().name(), entry.getValue().count.sum());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getOperationMeanLatencyMicros() {
+        Map<String, Double> means = new LinkedHashMap<>();
+        for (Map.Entry<Operation, Timer> entry : operations.entrySet()) {
+            long count = entry.getValue().count.sum();
+            means.put(entry.getKey().name(),
+                    count == 0 ? 0.0 : micros(entry.getValue().totalNanos.sum() / count));
+        }
+        return means;
+    }
+
+    @Override
+    public Map<String, Double> getOperationMaxLatencyMicros() {
+        Map<String, Double> maxima = new LinkedHashMap<>();
+        for (Map.Entry<Operation, Timer> entry : operations.entrySet()) {
+            maxima.put(entry.getKey().name(), micros(entry.getValue().maxNanos.get()));
+        }
+        return maxima;
+    }
+
+    @Override
+    public long getLoginSuccessCount() {
+        return loginSuccess.sum();
+    }
+
+    @Override
+    public long getLoginFailureCount() {
+        return loginFailure.sum();
+    }
+
+    @Override
+    public double getLoginFailureRate() {
+        long failures = loginFailure.sum();
+        long total = failures + loginSuccess.sum();
+        return total == 0 ? 0.0 : (double) failures / total;
+    }
+
+    @Override
+    public long getSaveCount() {
+        return saves.count.sum();
+    }
+
+    @Override
+    public double getLastSaveMillis() {
+        return millis(lastSaveNanos.get());
+    }
+
+    @Override
+    public double getMeanSaveMillis() {
+        long count = saves.count.sum();
+        return count == 0 ? 0.0 : millis(saves.totalNanos.sum() / count);
+    }
+
+    @Override
+    public long getLastSaveBytes() {
+        return lastSaveBytes.get();
+    }
+
+    @Override
+    public long getLoadCount() {
+        return loads.count.sum();
+    }
+
+    @Override
+    public double getLastLoadMillis() {
+        return millis(lastLoadNanos.get());
+    }
+
+    @Override
+    public long getLastLoadBytes() {
+        return lastLoadBytes.get();
+    }
+
+    @Override
+    public long getAuditEventsWritten() {
+        return auditEvents.sum();
+    }
+
+    @Override
+    public long getAuditWriteFailures() {
+        return auditFailures.sum();
+    }
+
+    @Override
+    public int getAuditQueueDepth() {
+        return auditInFlight.get();
+    }
+
+    @Override
+    public int getAccountCount() {
+        Bank current = bank;
+        return current == null ? 0 : current.getTotalAccounts();
+    }
+
+    /**
+     * Walks all loaded accounts, so only call from management tooling, not per
+     * operation. Accounts not yet read in lazy mode take no heap and are not counted.
+     */
+    @Override
+    public long getEstimatedAccountHeapBytes() {
+        Bank current = bank;
+        if (current == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (Account account : current.loadedAccounts()) {
+            bytes += estimateAccountBytes(account);
+        }
+        return bytes;
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        long hits = cacheHits.sum();
+        long total = hits + cacheMisses.sum();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public long getCacheEvictions() {
+        return cacheEvictions.sum();
+    }
+
+    @Override
+    public long getCacheWriteBacks() {
+        return cacheWriteBacks.sum();
+    }
+
+    @Override
+    public int getCacheResidentAccounts() {
+        Bank current = bank;
+        AccountCache cache = current == null ? null : current.cache();
+        return cache == null ? 0 : cache.getResidentCount();
+    }
+
+    @Override
+    public long getCacheResidentBytes() {
+        Bank current = bank;
+        AccountCache cache = current == null ? null : current.cache();
+        return cache == null ? 0 : cache.getResidentBytes();
+    }
+
+    @Override
+    public int getAuthQueueDepth() {
+        return AuthWorkerPool.getQueueDepth();
+    }
+
+    @Override
+    public int getAuthActiveWorkers() {
+        return AuthWorkerPool.getActiveCount();
+    }
+
+    @Override
+    public double getAuthMeanQueueWaitMillis() {
+        long count = authQueueWaits.count.sum();
+        return count == 0 ? 0.0 : millis(authQueueWaits.totalNanos.sum() / count);
+    }
+
+    @Override
+    public double getAuthMaxQueueWaitMillis() {
+        return millis(authQueueWaits.maxNanos.get());
+    }
+
+    @Override
+    public long getAuthRejectedCount() {
+        return authRejected.sum();
+    }
+
+    @Override
+    public long getPasswordHashCount() {
+        return passwordHashes.count.sum();
+    }
+
+    @Override
+    public double getMeanPasswordHashMillis() {
+        long count = passwordHashes.count.sum();
+        return count == 0 ? 0.0 : millis(passwordHashes.totalNanos.sum() / count);
+    }
+
+    @Override
+    public long getRiskCheckCount() {
+        return riskChecks.count.sum();
+    }
+
+    @Override
+    public long getRiskCheckMeanNanos() {
+        long count = riskChecks.count.sum();
+        return count == 0 ? 0 : riskChecks.totalNanos.sum() / count;
+    }
+
+    @Override
+    public long getRiskCheckMaxNanos() {
+        return riskChecks.maxNanos.get();
+    }
+
+    @Override
+    public Map<String, Long> getRiskDecisionCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Map.Entry<RiskEngine.Action, LongAdder> entry : riskDecisions.entrySet()) {
+            counts.put(entry.getKey().name(), entry.getValue().sum());
+        }
+        return counts;
+    }
+
+    @Override
+    public int getRiskPendingHolds() {
+        Bank current = bank;
+        return current == null ? 0 : current.getHeldTransactionCount();
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : STRING_BASE_BYTES + ((value.length() + 7) / 8) * 8;
+    }
+
+    @Override
+    public void reset() {
+        for (Timer timer : operations.values()) {
+            timer.reset();
+        }
+        loginSuccess.reset();
+        loginFailure.reset();
+        saves.reset();
+        loads.reset();
+        auditEvents.reset();
+        auditFailures.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        cacheEvictions.reset();
+        cacheWriteBacks.reset();
+        passwordHashes.reset();
+        authQueueWaits.reset();
+        authRejected.reset();
+        riskChecks.reset();
+        for (LongAdder decisions : riskDecisions.values()) {
+            decisions.reset();
+        }
+    }
+}
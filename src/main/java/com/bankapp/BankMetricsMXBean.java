@@ -0,0 +1,85 @@
+package com.bankapp;
+
+import java.util.Map;
+
+/**
+ * Management interface published as com.bankapp:type=BankMetrics
+ */
+public interface BankMetricsMXBean {
+
+    Map<String, Long> getOperationCounts();
+
+    Map<String, Double> getOperationMeanLatencyMicros();
+
+    Map<String, Double> getOperationMaxLatencyMicros();
+
+    long getLoginSuccessCount();
+
+    long getLoginFailureCount();
+
+    double getLoginFailureRate();
+
+    long getSaveCount();
+
+    double getLastSaveMillis();
+
+    double getMeanSaveMillis();
+
+    long getLastSaveBytes();
+
+    long getLoadCount();
+
+    double getLastLoadMillis();
+
+    long getLastLoadBytes();
+
+    long getAuditEventsWritten();
+
+    long getAuditWriteFailures();
+
+    int getAuditQueueDepth();
+
+    int getAccountCount();
+
+    long getEstimatedAccountHeapBytes();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    double getCacheHitRate();
+
+    long getCacheEvictions();
+
+    long getCacheWriteBacks();
+
+    int getCacheResidentAccounts();
+
+    long getCacheResidentBytes();
+
+    int getAuthQueueDepth();
+
+    int getAuthActiveWorkers();
+
+    double getAuthMeanQueueWaitMillis();
+
+    double getAuthMaxQueueWaitMillis();
+
+    long getAuthRejectedCount();
+
+    long getPasswordHashCount();
+
+    double getMeanPasswordHashMillis();
+
+    long getRiskCheckCount();
+
+    long getRiskCheckMeanNanos();
+
+    long getRiskCheckMaxNanos();
+
+    Map<String, Long> getRiskDecisionCounts();
+
+    int getRiskPendingHolds();
+
+    void reset();
+}
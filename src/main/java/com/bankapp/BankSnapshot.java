@@ -0,0 +1,198 @@
+package com.bankapp;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable, consistent view of all accounts at one moment (MVCC).
+ *
+ * Every account mutation installs a new AccountVersion stamped from a global
+ * clock. A snapshot just reads the clock and, for each account, picks the
+ * newest version with a stamp at or below it, so writers never wait for
+ * readers and totals are never torn. Both legs of a transfer share one stamp
+ * (Account.commitTogether), so a transfer is seen whole or not at all.
+ * Snapshots must be closed so old versions can be released.
+ */
+public class BankSnapshot implements AutoCloseable {
+    private static final AtomicLong CLOCK = new AtomicLong(AccountVersion.BASELINE_STAMP);
+    private static final TreeMap<Long, Integer> OPEN_SNAPSHOTS = new TreeMap<>();
+    private static volatile long oldestActiveStamp = Long.MAX_VALUE;
+
+    private final long stamp;
+    private final long watermark;
+    private final List<AccountState> accounts;
+    private boolean closed;
+
+    /**
+     * One account as of the snapshot
+     */
+    public static final class AccountState {
+        private final Account account;
+        private final String accountNumber;
+        private final AccountVersion version;
+
+        private AccountState(Account account, AccountVersion version) {
+            this.account = account;
+            this.accountNumber = account.getAccountNumber();
+            this.version = version;
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        public String getCustomerName() {
+            return version.customerName;
+        }
+
+        public double getBalance() {
+            return version.balance;
+        }
+
+        public boolean isLocked() {
+            return version.locked;
+        }
+
+        public boolean isCredentialResetRequired() {
+            return version.credentialResetRequired;
+        }
+
+        public String getPasswordHash() {
+            return version.passwordHash;
+        }
+
+        public String getPin() {
+            return version.pin;
+        }
+
+        /**
+         * Full history size, including archived entries
+         */
+        public int getTransactionCount() {
+            return version.archivedCount + version.transactionCount;
+        }
+
+        public int getArchivedCount() {
+            return version.archivedCount;
+        }
+
+        public double getArchivedNet() {
+            return version.archivedNet;
+        }
+
+        public LocalDateTime getArchivedThrough() {
+            return version.archivedThrough;
+        }
+
+        /**
+         * In-memory history as of the snapshot; history is append-only, so this is a prefix copy
+         */
+        public List<Transaction> getTransactions() {
+            return account.copyTransactions(version.archivedCount, version.transactionCount);
+        }
+
+        AccountVersion getVersion() {
+            return version;
+        }
+
+        /**
+         * Detached Account carrying this state, e.g. for serialization
+         */
+        public Account toAccount() {
+            return Account.fromSnapshot(this);
+        }
+    }
+
+    private BankSnapshot(long stamp, long watermark, List<AccountState> accounts) {
+        this.stamp = stamp;
+        this.watermark = watermark;
+        this.accounts = accounts;
+    }
+
+    static long nextStamp() {
+        return CLOCK.incrementAndGet();
+    }
+
+    static long oldestActiveStamp() {
+        return oldestActiveStamp;
+    }
+
+    public static BankSnapshot capture(Iterable<Account> source) {
+        long watermark;
+        long stamp;
+        synchronized (OPEN_SNAPSHOTS) {
+            // Publish a conservative watermark before reading the stamp, so no
+            // writer can trim a version this snapshot is about to need.
+            watermark = CLOCK.get();
+            OPEN_SNAPSHOTS.merge(watermark, 1, Integer::sum);
+            oldestActiveStamp = OPEN_SNAPSHOTS.firstKey();
+            stamp = CLOCK.get();
+        }
+
+        List<AccountState> states = new ArrayList<>();
+        for (Account account : source) {
+            AccountVersion version = account.currentVersion().visibleAt(stamp);
+            if (version != null) {
+                states.add(new AccountState(account, version));
+            }
+        }
+        return new BankSnapshot(stamp, watermark, Collections.unmodifiableList(states));
+    }
+
+    /**
+     * Current state of a single account, outside any snapshot
+     */
+    static AccountState currentState(Account account) {
+        return new AccountState(account, account.currentVersion());
+    }
+
+    /**
+     * State of an account as of this snapshot, for accounts that are not in
+     * it (e.g. read from an account store during a scan); null if the
+     * account did not exist yet
+     */
+    AccountState stateOf(Account account) {
+        AccountVersion version = account.currentVersion().visibleAt(stamp);
+        return version == null ? null : new AccountState(account, version);
+    }
+
+    public long getStamp() {
+        return stamp;
+    }
+
+    public List<AccountState> getAccounts() {
+        return accounts;
+    }
+
+    public int size() {
+        return accounts.size();
+    }
+
+    public boolean isEmpty() {
+        return accounts.isEmpty();
+    }
+
+    public double getTotalBalance() {
+        double total = 0.0;
+        for (AccountState state : accounts) {
+            total += state.getBalance();
+        }
+        return total;
+    }
+
+    @Override
+    public void close() {
+        synchronized (OPEN_SNAPSHOTS) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            OPEN_SNAPSHOTS.computeIfPresent(watermark, (key, count) -> count == 1 ? null : count - 1);
+            oldestActiveStamp = OPEN_SNAPSHOTS.isEmpty() ? Long.MAX_VALUE : OPEN_SNAPSHOTS.firstKey();
+        }
+    }
+}
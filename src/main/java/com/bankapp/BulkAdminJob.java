@@ -0,0 +1,215 @@
+package com.bankapp;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * An admin action applied to every account a selection picks: accounts with
+ * a recent burst of wrong PINs, accounts in a balance range, or the account
+ * numbers listed in a file.
+ *
+ * preview() is the dry run: how many accounts are selected and how many the
+ * action would change. apply() changes them in parallel, writes one audit
+ * event per changed account plus a summary as a single batch, and saves once.
+ */
+public class BulkAdminJob {
+    public enum Action {
+        LOCK("ACCOUNT_LOCK", "already locked"),
+        UNLOCK("ACCOUNT_UNLOCK", "already unlocked"),
+        FORCE_RESET("CREDENTIAL_RESET", "already locked for a reset");
+
+        private final String auditAction;
+        private final String unchanged;
+
+        Action(String auditAction, String unchanged) {
+            this.auditAction = auditAction;
+            this.unchanged = unchanged;
+        }
+    }
+
+    private static final int SAMPLE_SIZE = 5;
+
+    private final Bank bank;
+    private final Action action;
+    private final String selection;
+    private final List<String> targets;
+    private final List<String> unknown;
+
+    private BulkAdminJob(Bank bank, Action action, String selection, List<String> targets, List<String> unknown) {
+        this.bank = bank;
+        this.action = action;
+        this.selection = selection;
+        this.targets = targets;
+        this.unknown = unknown;
+    }
+
+    /**
+     * Accounts with at least minimumWrongPins WRONG_PIN audit events in the last minutes
+     */
+    public static BulkAdminJob byWrongPins(Bank bank, Action action, int minimumWrongPins, int minutes)
+            throws IOException {
+        Map<String, Integer> counts = AuditService.countRecentEvents("WRONG_PIN",
+                LocalDateTime.now().minusMinutes(minutes));
+        List<String> targets = new ArrayList<>();
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            if (count.getValue() >= minimumWrongPins && bank.accountExists(count.getKey())) {
+                targets.add(count.getKey());
+            }
+        }
+        Collections.sort(targets);
+        return new BulkAdminJob(bank, action,
+                "WrongPins>=" + minimumWrongPins + "/" + minutes + "min", targets, Collections.emptyList());
+    }
+
+    /**
+     * Accounts whose balance is at least min and below max
+     */
+    public static BulkAdminJob byBalance(Bank bank, Action action, double min, double max) {
+        List<String> targets = new ArrayList<>();
+        bank.forEachState(state -> {
+            if (state.getBalance() >= min && state.getBalance() < max) {
+                targets.add(state.getAccountNumber());
+            }
+        });
+        Collections.sort(targets);
+        return new BulkAdminJob(bank, action,
+                String.format("Balance[%.2f,%.2f)", min, max), targets, Collections.emptyList());
+    }
+
+    /**
+     * The account numbers in a file, one per line; blank lines and lines starting with # are skipped
+     */
+    public static BulkAdminJob byFile(Bank bank, Action action, Path file) throws IOException {
+        Set<String> numbers = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String number = line.trim();
+            if (!number.isEmpty() && !number.startsWith("#")) {
+                numbers.add(number);
+            }
+        }
+        List<String> targets = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        for (String number : numbers) {
+            (bank.accountExists(number) ? targets : unknown).add(number);
+        }
+        return new BulkAdminJob(bank, action, "File=" + file.getFileName(), targets, unknown);
+    }
+
+    public int getSelectedCount() {
+        return targets.size();
+    }
+
+    /**
+     * Dry run: counts what apply() would change, without changing anything
+     */
+    public Preview preview() {
+        int changes = 0;
+        List<String> sample = new ArrayList<>();
+        for (String number : targets) {
+            Account account = bank.getAccount(number);
+            if (account != null && wouldChange(account)) {
+                changes++;
+                if (sample.size() < SAMPLE_SIZE) {
+                    sample.add(number);
+                }
+            }
+        }
+        return new Preview(changes, sample);
+    }
+
+    /**
+     * Applies the action to every selected account; returns how many it changed
+     */
+    public int apply(String adminUser) {
+        if (bank.isReadOnly()) {
+            System.out.println("❌ This is a read-only replica. Changes must be made on the primary.");
+            return 0;
+        }
+        long start = System.nanoTime();
+        Queue<String> changed = new ConcurrentLinkedQueue<>();
+        targets.parallelStream().forEach(number -> {
+            if (applyTo(number)) {
+                changed.add(number);
+            }
+        });
+        List<String> changedAccounts = new ArrayList<>(changed);
+        Collections.sort(changedAccounts);
+        if (!changedAccounts.isEmpty()) {
+            bank.saveToFile();
+        }
+        String bulkId = Long.toString(System.currentTimeMillis(), 36);
+        AuditService.logBulkOperation(bulkId, action.auditAction, adminUser, selection, targets.size(),
+                changedAccounts);
+        System.out.println("✅ " + action + ": " + changedAccounts.size() + " of " + targets.size()
+                + " selected account(s) changed in " + (System.nanoTime() - start) / 1_000_000 + " ms (bulk "
+                + bulkId + ").");
+        return changedAccounts.size();
+    }
+
+    private boolean wouldChange(Account account) {
+        switch (action) {
+            case LOCK:
+                return !account.isLocked();
+            case UNLOCK:
+                return account.isLocked();
+            default:
+                return !account.isLocked() || !account.isCredentialResetRequired();
+        }
+    }
+
+    private boolean applyTo(String number) {
+        Account account = bank.getAccount(number);
+        if (account == null || !wouldChange(account)) {
+            return false;
+        }
+        switch (action) {
+            case LOCK:
+                return bank.lockAccount(number);
+            case UNLOCK:
+                return bank.unlockAccount(number);
+            default:
+                return bank.requireCredentialReset(number);
+        }
+    }
+
+    /**
+     * What a dry run found
+     */
+    public final class Preview {
+        private final int changes;
+        private final List<String> sample;
+
+        private Preview(int changes, List<String> sample) {
+            this.changes = changes;
+            this.sample = sample;
+        }
+
+        public int getChanges() {
+            return changes;
+        }
+
+        public void print() {
+            System.out.println("ℹ️  Dry run - " + selection + ": " + targets.size() + " account(s) selected, "
+                    + changes + " would change, " + (targets.size() - changes) + " " + action.unchanged + ".");
+            if (!sample.isEmpty()) {
+                System.out.println("   For example: " + String.join(", ", sample)
+                        + (changes > sample.size() ? ", ..." : ""));
+            }
+            if (!unknown.isEmpty()) {
+                System.out.println("⚠️  " + unknown.size() + " listed number(s) are not accounts and are skipped, e.g. "
+                        + String.join(", ", unknown.subList(0, Math.min(SAMPLE_SIZE, unknown.size()))) + ".");
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.bankapp;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * One committed change to an account, as published by ChangeFeed.
+ *
+ * type is ACCOUNT_OPENED, ACCOUNT_LOCKED, ACCOUNT_UNLOCKED,
+ * CREDENTIALS_CHANGED, or the type of a posted transaction (DEPOSIT,
+ * WITHDRAW, TRANSFER_IN, TRANSFER_OUT, INTEREST, FEE, ...), which also
+ * carries its amount. balance is the account's balance right after the
+ * change. seq numbers the events of a feed from 1, increasing by one except
+ * across events lost in a crash.
+ */
+public final class ChangeEvent {
+    public static final String ACCOUNT_OPENED = "ACCOUNT_OPENED";
+    public static final String ACCOUNT_LOCKED = "ACCOUNT_LOCKED";
+    public static final String ACCOUNT_UNLOCKED = "ACCOUNT_UNLOCKED";
+    public static final String CREDENTIALS_CHANGED = "CREDENTIALS_CHANGED";
+
+    private long seq;
+    private final String type;
+    private final String account;
+    private final Double amount;
+    private final double balance;
+    private final LocalDateTime dateTime;
+
+    ChangeEvent(String type, String account, Double amount, double balance, LocalDateTime dateTime) {
+        this.type = type;
+        this.account = account;
+        this.amount = amount;
+        this.balance = balance;
+        this.dateTime = dateTime;
+    }
+
+    /**
+     * Set once, by the feed writer, before the event is published
+     */
+    void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    /**
+     * The transaction amount, or null for events that are not transactions
+     */
+    public Double getAmount() {
+        return amount;
+    }
+
+    public double getBalance() {
+        return balance;
+    }
+
+    public LocalDateTime getDateTime() {
+        return dateTime;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + seq + " " + type + " " + account + (amount == null ? "" : " $" + String.format("%.2f", amount))
+                + " balance $" + String.format("%.2f", balance);
+    }
+
+    /**
+     * Gson adapter for one event, written as reflective binding would write
+     * it; see Account.JsonAdapter
+     */
+    static final class JsonAdapter extends TypeAdapter<ChangeEvent> {
+        private final LocalDateTimeAdapter dateTimeAdapter = new LocalDateTimeAdapter();
+
+        @Override
+        public void write(JsonWriter out, ChangeEvent event) throws IOException {
+            if (event == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("seq").value(event.seq);
+            out.name("type").value(event.type);
+            out.name("account").value(event.account);
+            if (event.amount != null) {
+                out.name("amount").value(event.amount);
+            }
+            out.name("balance").value(event.balance);
+            out.name("dateTime");
+            dateTimeAdapter.write(out, event.dateTime);
+            out.endObject();
+        }
+
+        @Override
+        public ChangeEvent read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            long seq = 0;
+            String type = null;
+            String account = null;
+            Double amount = null;
+            double balance = 0;
+            LocalDateTime dateTime = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "seq":
+                        seq = in.nextLong();
+                        break;
+                    case "type":
+                        type = Account.JsonAdapter.readString(in);
+                        break;
+                    case "account":
+                        account = Account.JsonAdapter.readString(in);
+                        break;
+                    case "amount":
+                        amount = in.nextDouble();
+                        break;
+                    case "balance":
+                        balance = in.nextDouble();
+                        break;
+                    case "dateTime":
+                        dateTime = dateTimeAdapter.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            ChangeEvent event = new ChangeEvent(type, account, amount, balance, dateTime);
+            event.seq = seq;
+            return event;
+        }
+    }
+}
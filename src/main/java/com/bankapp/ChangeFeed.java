@@ -0,0 +1,601 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * Change-data-capture feed: every committed account change becomes a
+ * numbered ChangeEvent, appended as a JSON line to the feed file and
+ * published to in-process subscribers (--cdc[=file], default
+ * data/cdc/changes.jsonl).
+ *
+ * The change listener runs on the thread that made the change, under the
+ * account's monitor. It only compares the new version with what the feed
+ * last saw of the account and queues the resulting events, so the order of
+ * one account's events is the order of its changes. A single writer thread
+ * numbers the queued events, appends them to the file in one write per
+ * batch, forces the file and only then publishes them, so no consumer can
+ * commit an offset the file could lose in a crash. After a write it waits
+ * a millisecond for the next batch to gather, and is only woken by a change
+ * once it has gone to sleep with nothing queued.
+ *
+ * Subscribers use the java.util.concurrent.Flow API. Each subscription
+ * pulls events at its own pace: recent ones come from an in-memory ring of
+ * -Dbankapp.cdc.ring (default 65536), older ones from the file, so a slow
+ * subscriber never holds up the writer or the bank. A named consumer
+ * resumes after the offset it last committed, stored in
+ * file.offsets/consumer.offset; ChangeFeedTail does the same for
+ * consumers in other processes. ChangeFeedTail can read events before they
+ * are forced, so if a crash loses events some consumer has committed, the
+ * feed resumes numbering after that consumer's offset rather than reuse
+ * sequence numbers it has already seen.
+ *
+ * Start the feed before the bank serves operations; changes made before
+ * that are not in it.
+ */
+public class ChangeFeed implements AccountChangeListener, Flow.Publisher<ChangeEvent>, AutoCloseable {
+    public static final String DEFAULT_PATH = FileStorage.DATA_DIRECTORY + "/cdc/changes.jsonl";
+
+    private static final int RING = Integer.getInteger("bankapp.cdc.ring", 65_536);
+    private static final int MAX_BATCH = 4096;
+    private static final long LINGER_NANOS = 1_000_000;
+    private static final Pattern CONSUMER_NAME = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
+
+    private final Path file;
+    private final FileChannel out;
+    private final Gson gson = FileStorage.gsonBuilder().create();
+    // What the feed last saw of each account; only touched under that account's monitor
+    private final Map<String, Seen> seen = new ConcurrentHashMap<>();
+    private final Queue<ChangeEvent> pending = new ConcurrentLinkedQueue<>();
+    private final ChangeEvent[] ring = new ChangeEvent[RING];
+    private final List<FeedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ExecutorService delivery = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "cdc-deliver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Thread writer;
+    // This listener filtered to the bank's own accounts; the one registered with Account
+    private final AccountChangeListener changes;
+    private volatile boolean writerIdle;
+    private volatile long committedSeq;
+    // Numbering resumes above this; see start()
+    private final long seqFloor;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    /**
+     * What the feed last saw of an account
+     */
+    private static final class Seen {
+        int total;
+        boolean locked;
+        int credentials;
+
+        Seen(int total, boolean locked, int credentials) {
+            this.total = total;
+            this.locked = locked;
+            this.credentials = credentials;
+        }
+    }
+
+    private ChangeFeed(Bank bank, Path file, FileChannel out, long lastSeq, long seqFloor) {
+        this.changes = bank.ownChanges(this);
+        this.file = file;
+        this.out = out;
+        this.committedSeq = lastSeq;
+        this.seqFloor = seqFloor;
+        this.writer = new Thread(this::writeLoop, "cdc-writer");
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Opens (or creates) the feed file and starts capturing the bank's changes
+     */
+    public static ChangeFeed start(Bank bank, Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        long lastSeq = recover(file);
+        long seqFloor = Math.max(lastSeq, highestOffset(file));
+        if (seqFloor > lastSeq) {
+            System.out.println("⚠️  Change feed ends at event " + lastSeq + " but a consumer committed " + seqFloor
+                    + "; events in between were lost and numbering resumes after " + seqFloor + ".");
+        }
+        FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        ChangeFeed feed = new ChangeFeed(bank, file, out, lastSeq, seqFloor);
+        bank.forEachState(state -> feed.seen.put(state.getAccountNumber(), new Seen(
+                state.getArchivedCount() + state.getTransactionCount(), state.isLocked(),
+                Objects.hash(state.getPasswordHash(), state.getPin()))));
+        feed.writer.start();
+        Account.addChangeListener(feed.changes);
+        return feed;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * The sequence number of the last event written to the file
+     */
+    public long getCommittedSeq() {
+        return committedSeq;
+    }
+
+    @Override
+    public void accountChanged(Account account, AccountVersion version) {
+        String accountNumber = account.getAccountNumber();
+        int total = version.archivedCount + version.transactionCount;
+        int credentials = Objects.hash(version.passwordHash, version.pin);
+        Seen before = seen.get(accountNumber);
+        if (before == null) {
+            seen.put(accountNumber, new Seen(total, version.locked, credentials));
+            queue(new ChangeEvent(ChangeEvent.ACCOUNT_OPENED, accountNumber, null,
+                    balanceBefore(account, version, version.archivedCount), LocalDateTime.now()));
+            queueTransactions(account, version, version.archivedCount);
+            if (version.locked) {
+                queue(new ChangeEvent(ChangeEvent.ACCOUNT_LOCKED, accountNumber, null, version.balance,
+                        LocalDateTime.now()));
+            }
+            return;
+        }
+        if (total > before.total) {
+            queueTransactions(account, version, Math.max(before.total, version.archivedCount));
+        }
+        before.total = total;
+        if (version.locked != before.locked) {
+            before.locked = version.locked;
+            queue(new ChangeEvent(version.locked ? ChangeEvent.ACCOUNT_LOCKED : ChangeEvent.ACCOUNT_UNLOCKED,
+                    accountNumber, null, version.balance, LocalDateTime.now()));
+        }
+        if (credentials != before.credentials) {
+            before.credentials = credentials;
+            queue(new ChangeEvent(ChangeEvent.CREDENTIALS_CHANGED, accountNumber, null, version.balance,
+                    LocalDateTime.now()));
+        }
+    }
+
+    /**
+     * Queues the transactions from position first (counting archived ones) to the end of the version,
+     * each with the balance right after it
+     */
+    private void queueTransactions(Account account, AccountVersion version, int first) {
+        List<Transaction> hot = account.getTransactions();
+        if (hot == null) {
+            return;
+        }
+        double balance = balanceBefore(account, version, first);
+        for (int i = first - version.archivedCount; i < version.transactionCount; i++) {
+            Transaction transaction = hot.get(i);
+            if (transaction != null) {
+                balance += transaction.getSignedAmount();
+                queue(new ChangeEvent(transaction.getType(), account.getAccountNumber(), transaction.getAmount(),
+                        balance, transaction.getDateTime()));
+            }
+        }
+    }
+
+    /**
+     * The balance before the transaction at position first: the version's
+     * balance with the later transactions taken back out
+     */
+    private static double balanceBefore(Account account, AccountVersion version, int first) {
+        List<Transaction> hot = account.getTransactions();
+        double balance = version.balance;
+        if (hot == null) {
+            return balance;
+        }
+        for (int i = version.transactionCount - 1; i >= first - version.archivedCount; i--) {
+            Transaction transaction = hot.get(i);
+            if (transaction != null) {
+                balance -= transaction.getSignedAmount();
+            }
+        }
+        return balance;
+    }
+
+    private void queue(ChangeEvent event) {
+        pending.add(event);
+        if (writerIdle) {
+            writerIdle = false;
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void writeLoop() {
+        List<ChangeEvent> batch = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            ChangeEvent event;
+            while (batch.size() < MAX_BATCH && (event = pending.poll()) != null) {
+                batch.add(event);
+            }
+            if (batch.isEmpty()) {
+                if (closed) {
+                    return;
+                }
+                writerIdle = true;
+                if (pending.isEmpty() && !closed) {
+                    LockSupport.park(this);
+                }
+                writerIdle = false;
+                continue;
+            }
+            long seq = Math.max(committedSeq, seqFloor);
+            text.setLength(0);
+            for (ChangeEvent next : batch) {
+                next.setSeq(++seq);
+                gson.toJson(next, ChangeEvent.class, text);
+                text.append('\n');
+            }
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    out.write(bytes);
+                }
+                out.force(false);
+            } catch (IOException e) {
+                System.err.println("❌ Change feed stopped: " + e.getMessage());
+                failure = e;
+                Account.removeChangeListener(changes);
+                closed = true;
+                signalSubscribers();
+                return;
+            }
+            for (ChangeEvent next : batch) {
+                ring[(int) (next.getSeq() % RING)] = next;
+            }
+            committedSeq = seq;
+            boolean full = batch.size() == MAX_BATCH;
+            batch.clear();
+            signalSubscribers();
+            if (!full && !closed) {
+                // Lets the next batch gather without the bank's threads waking the writer for each event
+                LockSupport.parkNanos(this, LINGER_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Stops capturing, writes whatever is queued and completes the subscriptions once they have it all
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        Account.removeChangeListener(changes);
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+            out.force(false);
+            out.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("❌ Error closing change feed: " + e.getMessage());
+        }
+        signalSubscribers();
+        delivery.shutdown();
+    }
+
+    /**
+     * Delivers events as they are committed, starting with the next one
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ChangeEvent> subscriber) {
+        subscribe(subscriber, null, committedSeq + 1);
+    }
+
+    /**
+     * Delivers events from just after the consumer's committed offset, or from the
+     * start of the feed for a new consumer; commit progress with commitOffset()
+     */
+    public void subscribe(String consumer, Flow.Subscriber<? super ChangeEvent> subscriber) throws IOException {
+        subscribe(subscriber, consumer, readOffset(file, consumer) + 1);
+    }
+
+    private void subscribe(Flow.Subscriber<? super ChangeEvent> subscriber, String consumer, long from) {
+        Objects.requireNonNull(subscriber);
+        FeedSubscription subscription = new FeedSubscription(subscriber, consumer, from);
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        // The subscription starts with its drain count at 1, so nothing is delivered during onSubscribe
+        subscription.resume();
+    }
+
+    /**
+     * Records that the consumer has processed every event up to seq
+     */
+    public void commitOffset(String consumer, long seq) throws IOException {
+        writeOffset(file, consumer, seq);
+    }
+
+    private void signalSubscribers() {
+        for (FeedSubscription subscription : subscriptions) {
+            subscription.schedule();
+        }
+    }
+
+    /**
+     * Delivers committed events to one subscriber, only as many as it has requested
+     */
+    private final class FeedSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ChangeEvent> subscriber;
+        private final String consumer;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger(1);
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException badRequest;
+        private long next;
+        // Catching up from the file: the reader and the seq of the next line it returns
+        private BufferedReader reader;
+        private long readerSeq;
+
+        FeedSubscription(Flow.Subscriber<? super ChangeEvent> subscriber, String consumer, long from) {
+            this.subscriber = subscriber;
+            this.consumer = consumer;
+            this.next = Math.max(1, from);
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // Signalled from the drain, so it cannot overlap an onNext
+                badRequest = new IllegalArgumentException("request(" + n + "): demand must be positive");
+                schedule();
+                return;
+            }
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            schedule();
+        }
+
+        void schedule() {
+            if (work.getAndIncrement() == 0) {
+                execute();
+            }
+        }
+
+        /**
+         * Runs the drain that was held back while onSubscribe ran
+         */
+        void resume() {
+            execute();
+        }
+
+        private void execute() {
+            try {
+                delivery.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // The feed closed; drain on this thread instead
+                drain();
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                if (cancelled) {
+                    closeReader();
+                    return;
+                }
+                if (badRequest != null) {
+                    fail(badRequest);
+                    return;
+                }
+                try {
+                    while (!cancelled && demand.get() > 0 && next <= committedSeq) {
+                        ChangeEvent event = eventAt(next);
+                        next = event.getSeq() + 1;
+                        demand.decrementAndGet();
+                        subscriber.onNext(event);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // Includes a subscriber that throws from onNext, which has broken the contract
+                    fail(e);
+                    return;
+                }
+                if (closed && !cancelled && (next > committedSeq || failure != null)) {
+                    cancelled = true;
+                    subscriptions.remove(this);
+                    closeReader();
+                    if (failure != null) {
+                        subscriber.onError(failure);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                missed = work.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void fail(Exception e) {
+            cancelled = true;
+            subscriptions.remove(this);
+            closeReader();
+            subscriber.onError(e);
+        }
+
+        /**
+         * The event from the ring if it is still there, otherwise from the
+         * file; past a gap left by a crash, the first event after it
+         */
+        private ChangeEvent eventAt(long seq) throws IOException {
+            ChangeEvent event = ring[(int) (seq % RING)];
+            if (event != null && event.getSeq() == seq) {
+                closeReader();
+                return event;
+            }
+            if (reader == null || readerSeq > seq) {
+                closeReader();
+                reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+                readerSeq = 1;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ChangeEvent read = gson.fromJson(line, ChangeEvent.class);
+                readerSeq = read.getSeq() + 1;
+                if (read.getSeq() >= seq) {
+                    return read;
+                }
+            }
+            throw new IOException("event " + seq + " is missing from " + file
+                    + (consumer == null ? "" : " (consumer " + consumer + ")"));
+        }
+
+        private void closeReader() {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                    // read-only
+                }
+                reader = null;
+            }
+        }
+    }
+
+    /**
+     * The seq of the last complete event in the file, cutting off a line left half-written by a crash
+     */
+    private static long recover(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "rw")) {
+            long length = in.length();
+            long end = length;
+            // Find the last newline; anything after it is a torn write
+            while (end > 0) {
+                in.seek(end - 1);
+                if (in.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end < length) {
+                System.out.println("⚠️  Change feed: dropping " + (length - end) + " byte(s) of an incomplete event.");
+                in.setLength(end);
+            }
+            if (end == 0) {
+                return 0;
+            }
+            long start = end - 1;
+            while (start > 0) {
+                in.seek(start - 1);
+                if (in.read() == '\n') {
+                    break;
+                }
+                start--;
+            }
+            byte[] line = new byte[(int) (end - 1 - start)];
+            in.seek(start);
+            in.readFully(line);
+            try {
+                return FileStorage.gson().fromJson(new String(line, StandardCharsets.UTF_8), ChangeEvent.class)
+                        .getSeq();
+            } catch (JsonParseException e) {
+                throw new IOException("the last event in " + file + " is not valid: " + e.getMessage());
+            }
+        }
+    }
+
+    private static Path offsetFile(Path feed, String consumer) {
+        if (consumer == null || !CONSUMER_NAME.matcher(consumer).matches()) {
+            throw new IllegalArgumentException("consumer names are 1-64 letters, digits, '.', '_' or '-'");
+        }
+        return feed.resolveSibling(feed.getFileName() + ".offsets").resolve(consumer + ".offset");
+    }
+
+    /**
+     * The highest offset any consumer of the feed has committed, 0 if none has
+     */
+    private static long highestOffset(Path feed) throws IOException {
+        Path offsets = feed.resolveSibling(feed.getFileName() + ".offsets");
+        if (!Files.isDirectory(offsets)) {
+            return 0;
+        }
+        long highest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(offsets, "*.offset")) {
+            for (Path offset : files) {
+                String name = offset.getFileName().toString();
+                highest = Math.max(highest, readOffset(feed, name.substring(0, name.length() - ".offset".length())));
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * The last seq the consumer committed, 0 if it never has
+     */
+    static long readOffset(Path feed, String consumer) throws IOException {
+        Path offset = offsetFile(feed, consumer);
+        if (!Files.exists(offset)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(offset), StandardCharsets.UTF_8).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("unreadable offset in " + offset);
+        }
+    }
+
+    /**
+     * Stores the consumer's offset, replacing the old one atomically
+     */
+    static void writeOffset(Path feed, String consumer, long seq) throws IOException {
+        Path offset = offsetFile(feed, consumer);
+        Files.createDirectories(offset.getParent());
+        Path temp = offset.resolveSibling(offset.getFileName() + ".tmp");
+        Files.write(temp, Long.toString(seq).getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, offset, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Path defaultPath() {
+        return Paths.get(DEFAULT_PATH);
+    }
+}
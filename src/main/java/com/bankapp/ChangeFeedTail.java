@@ -0,0 +1,119 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Reads a change feed from another process, for consumers such as a
+ * reporting warehouse or a notification service.
+ *
+ * Usage:
+ *   java -cp target/classes:gson.jar com.bankapp.ChangeFeedTail --consumer=warehouse
+ *        [--feed=data/cdc/changes.jsonl] [--follow]
+ *
+ * Prints every event after the consumer's stored offset to stdout, one JSON
+ * line each, and stores the new offset once a batch has been written out.
+ * A consumer killed mid-batch gets that batch again, so consumers should
+ * treat seq as the idempotency key. --follow keeps waiting for new events.
+ */
+public class ChangeFeedTail {
+    private static final long POLL_MILLIS = 200;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path feed = Paths.get(option(args, "feed", ChangeFeed.DEFAULT_PATH));
+        String consumer = option(args, "consumer", null);
+        if (consumer == null) {
+            System.err.println("Usage: ChangeFeedTail --consumer=name [--feed=file] [--follow]");
+            System.exit(2);
+        }
+        boolean follow = hasFlag(args, "follow");
+        Gson gson = FileStorage.gson();
+        PrintStream out = System.out;
+
+        long offset = ChangeFeed.readOffset(feed, consumer);
+        long start = offset;
+        long position = 0;
+        byte[] block = new byte[64 * 1024];
+        byte[] carry = new byte[0];
+        while (true) {
+            int read = 0;
+            if (Files.exists(feed)) {
+                try (RandomAccessFile in = new RandomAccessFile(feed.toFile(), "r")) {
+                    in.seek(position);
+                    read = Math.max(0, in.read(block));
+                }
+            }
+            if (read == 0) {
+                if (!follow) {
+                    break;
+                }
+                Thread.sleep(POLL_MILLIS);
+                continue;
+            }
+            position += read;
+            byte[] data = Arrays.copyOf(carry, carry.length + read);
+            System.arraycopy(block, 0, data, carry.length, read);
+            int lineStart = 0;
+            long last = offset;
+            for (int i = 0; i < data.length; i++) {
+                if (data[i] != '\n') {
+                    continue;
+                }
+                String line = new String(data, lineStart, i - lineStart, StandardCharsets.UTF_8);
+                lineStart = i + 1;
+                long seq;
+                try {
+                    seq = gson.fromJson(line, ChangeEvent.class).getSeq();
+                } catch (JsonParseException e) {
+                    System.err.println("❌ Unreadable event in " + feed + ": " + line);
+                    System.exit(1);
+                    return;
+                }
+                if (seq > last) {
+                    out.println(line);
+                    last = seq;
+                }
+            }
+            // A line still being written stays for the next read
+            carry = Arrays.copyOfRange(data, lineStart, data.length);
+            if (last > offset) {
+                out.flush();
+                if (out.checkError()) {
+                    System.err.println("❌ Could not write events; offset left at " + offset + ".");
+                    System.exit(1);
+                }
+                ChangeFeed.writeOffset(feed, consumer, last);
+                offset = last;
+            }
+        }
+        System.err.println("ℹ️  " + consumer + ": " + (offset - start) + " new event(s), offset " + offset + ".");
+    }
+
+    private static boolean hasFlag(String[] args, String name) {
+        for (String arg : args) {
+            if (arg.equals("--" + name) || arg.startsWith("--" + name + "=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String option(String[] args, String name, String fallback) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return fallback;
+    }
+}
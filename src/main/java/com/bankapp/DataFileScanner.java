@@ -0,0 +1,148 @@
+package com.bankapp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Splits bank_data.json into its top-level members without parsing it.
+ *
+ * FileStorage writes the file with Gson pretty printing, where every account
+ * key starts a line indented by exactly two spaces; nested fields are indented
+ * further and strings never contain raw newlines. So "\n  \"" marks a member
+ * boundary, and the file can be cut into chunks that are scanned in parallel.
+ */
+final class DataFileScanner {
+    private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final byte[] MEMBER_PREFIX = {'\n', ' ', ' ', '"'};
+
+    private DataFileScanner() {
+    }
+
+    /**
+     * File offsets of the opening quote of every top-level key, in file order.
+     * Returns null if the file is not in the pretty-printed layout.
+     */
+    static long[] findMemberOffsets(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        if (!hasPrettyLayout(channel, size)) {
+            return null;
+        }
+
+        int chunks = (int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, chunks)));
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+                long start = (long) i * CHUNK_SIZE;
+                long end = Math.min(size, start + CHUNK_SIZE);
+                results.add(pool.submit(() -> scanChunk(channel, start, end, size)));
+            }
+
+            long[][] parts = new long[chunks][];
+            int total = 0;
+            for (int i = 0; i < chunks; i++) {
+                parts[i] = results.get(i).get();
+                total += parts[i].length;
+            }
+            long[] offsets = new long[total];
+            int position = 0;
+            for (long[] part : parts) {
+                System.arraycopy(part, 0, offsets, position, part.length);
+                position += part.length;
+            }
+            return offsets;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning data file", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to scan data file: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * End offset (exclusive) of member i: up to the next member, or the end of the file
+     */
+    static long memberEnd(long[] offsets, int index, long fileSize) {
+        return index + 1 < offsets.length ? offsets[index + 1] : fileSize;
+    }
+
+    /**
+     * Turns one member's raw bytes ("key": {...},) into a standalone JSON object
+     * {"key": {...}} by dropping the separator or the root's closing brace.
+     */
+    static String memberAsObject(byte[] bytes, int offset, int length, boolean last) {
+        int end = offset + length;
+        while (end > offset && Character.isWhitespace(bytes[end - 1])) {
+            end--;
+        }
+        if (last && end > offset && bytes[end - 1] == '}') {
+            end--;
+            while (end > offset && Character.isWhitespace(bytes[end - 1])) {
+                end--;
+            }
+        }
+        if (end > offset && bytes[end - 1] == ',') {
+            end--;
+        }
+        return "{" + new String(bytes, offset, end - offset, StandardCharsets.UTF_8) + "}";
+    }
+
+    static byte[] read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static boolean hasPrettyLayout(FileChannel channel, long size) throws IOException {
+        byte[] head = read(channel, 0, (int) Math.min(size, 64));
+        int i = 0;
+        while (i < head.length && Character.isWhitespace(head[i])) {
+            i++;
+        }
+        if (i >= head.length || head[i] != '{') {
+            return false;
+        }
+        i++;
+        while (i < head.length && (head[i] == ' ' || head[i] == '\r')) {
+            i++;
+        }
+        // "{}" (no accounts) or "{\n" followed by members
+        return i < head.length && (head[i] == '}' || head[i] == '\n');
+    }
+
+    private static long[] scanChunk(FileChannel channel, long start, long end, long size) throws IOException {
+        int overlap = MEMBER_PREFIX.length - 1;
+        int length = (int) (Math.min(size, end + overlap) - start);
+        byte[] bytes = read(channel, start, length);
+        int limit = (int) (end - start);
+
+        long[] found = new long[16];
+        int count = 0;
+        for (int i = 0; i < limit; i++) {
+            if (bytes[i] == '\n' && i + overlap < bytes.length
+                    && bytes[i + 1] == ' ' && bytes[i + 2] == ' ' && bytes[i + 3] == '"') {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = start + i + 3;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+}
@@ -0,0 +1,438 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Keyed on-disk account store, so the number of accounts is bounded by disk
+ * rather than heap.
+ *
+ * accounts-<generation>.log is append-only; each record is
+ * [int length][short key length][key][account JSON]. accounts.slots is a
+ * memory-mapped open-addressing hash table of 16-byte slots
+ * [long key hash][long record offset + 1] with linear probing, doubled when
+ * 70% full. Updates append a new record; its offset is kept in memory until
+ * flush() has forced the log, and only then is the slot repointed and the
+ * header's count and live bytes updated with it. The slots therefore never
+ * point at data that is not on disk, and the header always matches them.
+ *
+ * When dead records take up more than half of the log, live records are
+ * copied to the next generation's log and a new slots file is built beside
+ * it; renaming that slots file over the old one is the commit point, so a
+ * crash leaves either the old or the new pair.
+ * Not thread-safe on its own: AccountCache serializes access.
+ */
+public class DiskAccountStore implements AutoCloseable {
+    private static final int MAGIC = 0x42415354; // "BAST"
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 16;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    // Keeps the slot file under the 2 GB limit of a single mapping
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final long COMPACT_MIN_BYTES = 64L * 1024 * 1024;
+    // Bounds the offsets held in memory between flushes
+    private static final int MAX_UNFORCED = 64 * 1024;
+    private static final Gson gson = FileStorage.gsonBuilder().create();
+
+    private final Path directory;
+    private FileChannel log;
+    private FileChannel slotChannel;
+    private MappedByteBuffer slots;
+    private int capacity;
+    private int count;
+    private int generation;
+    private long liveBytes;
+    // Latest record of each account written since the last flush, not yet in the slots
+    private final Map<String, Long> unforced = new HashMap<>();
+    private int unforcedNew;
+
+    private DiskAccountStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the store in the given directory, creating it if needed
+     */
+    public static DiskAccountStore open(String directory) throws IOException {
+        DiskAccountStore store = new DiskAccountStore(Paths.get(directory));
+        Files.createDirectories(store.directory);
+        if (Files.exists(store.slotsPath()) && Files.size(store.slotsPath()) > HEADER_BYTES) {
+            store.mapSlots(store.slotsPath());
+            if (store.slots.getInt(0) != MAGIC) {
+                store.slotChannel.close();
+                throw new IOException("not an account store: " + store.slotsPath());
+            }
+            store.capacity = store.slots.getInt(4);
+            store.count = store.slots.getInt(8);
+            store.generation = store.slots.getInt(12);
+            store.liveBytes = store.slots.getLong(16);
+        } else {
+            store.createSlots(store.slotsPath(), INITIAL_CAPACITY);
+        }
+        store.log = FileChannel.open(store.logPath(store.generation), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Leftover of a compaction that crashed before its commit
+        Files.deleteIfExists(store.logPath(store.generation + 1));
+        return store;
+    }
+
+    public int size() {
+        return count + unforcedNew;
+    }
+
+    public long logBytes() throws IOException {
+        return log.size();
+    }
+
+    public boolean contains(String accountNumber) {
+        return unforced.containsKey(accountNumber) || findSlot(accountNumber) >= 0;
+    }
+
+    /**
+     * Reads an account, or returns null if it is not stored
+     */
+    public Account read(String accountNumber) {
+        Long offset = unforced.get(accountNumber);
+        if (offset == null) {
+            int slot = findSlot(accountNumber);
+            if (slot < 0) {
+                return null;
+            }
+            offset = slotOffset(slot);
+        }
+        try {
+            return readRecord(offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read account " + accountNumber, e);
+        }
+    }
+
+    /**
+     * Writes the account's current state as a new record; it is visible to
+     * reads at once and durable after the next flush()
+     */
+    public void write(Account account) throws IOException {
+        byte[] key = account.getAccountNumber().getBytes(StandardCharsets.UTF_8);
+        byte[] json;
+        synchronized (account) {
+            json = gson.toJson(account).getBytes(StandardCharsets.UTF_8);
+        }
+        ByteBuffer record = ByteBuffer.allocate(4 + 2 + key.length + json.length);
+        record.putInt(2 + key.length + json.length);
+        record.putShort((short) key.length);
+        record.put(key);
+        record.put(json);
+        record.flip();
+
+        boolean added = !unforced.containsKey(account.getAccountNumber())
+                && findSlot(account.getAccountNumber()) < 0;
+        if (added && (size() + 1) * 10L > MAX_CAPACITY * 7L) {
+            throw new IOException("account store is full (" + size() + " accounts)");
+        }
+
+        long offset = log.size();
+        while (record.hasRemaining()) {
+            log.write(record, offset + record.position());
+        }
+        unforced.put(account.getAccountNumber(), offset);
+        if (added) {
+            unforcedNew++;
+        }
+        if (unforced.size() >= MAX_UNFORCED) {
+            flush();
+        }
+    }
+
+    /**
+     * Visits every stored account number
+     */
+    public void forEachKey(Consumer<String> consumer) {
+        for (int slot = 0; slot < capacity; slot++) {
+            long stored = slots.getLong(slotPosition(slot) + 8);
+            if (stored != 0) {
+                try {
+                    consumer.accept(readKey(stored - 1));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        for (String accountNumber : unforced.keySet()) {
+            if (findSlot(accountNumber) < 0) {
+                consumer.accept(accountNumber);
+            }
+        }
+    }
+
+    /**
+     * Makes every write so far durable, then compacts the log if it is mostly dead records
+     */
+    public void flush() throws IOException {
+        log.force(false);
+        applyUnforced();
+        writeHeader();
+        slots.force();
+        long size = log.size();
+        if (size > COMPACT_MIN_BYTES && liveBytes * 2 < size) {
+            compact();
+        }
+    }
+
+    /**
+     * Points the slots at records written since the last flush; the log must already be forced
+     */
+    private void applyUnforced() throws IOException {
+        Iterator<Map.Entry<String, Long>> pending = unforced.entrySet().iterator();
+        while (pending.hasNext()) {
+            Map.Entry<String, Long> entry = pending.next();
+            long hash = hash(entry.getKey());
+            int slot = findSlot(entry.getKey(), hash);
+            if (slot < 0 && (count + 1) * 10L > capacity * 7L) {
+                resize(capacity * 2);
+            }
+            if (slot >= 0) {
+                liveBytes -= recordLength(slotOffset(slot));
+            } else {
+                slot = freeSlot(hash);
+                count++;
+                unforcedNew--;
+            }
+            setSlot(slot, hash, entry.getValue());
+            liveBytes += recordLength(entry.getValue());
+            pending.remove();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (slots != null) {
+                flush();
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️  Could not flush account store: " + e.getMessage());
+        }
+        try {
+            log.close();
+            if (slotChannel != null) {
+                slotChannel.close();
+            }
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+
+    private void compact() throws IOException {
+        int nextGeneration = generation + 1;
+        Path compactedSlots = directory.resolve("accounts.slots.compact");
+        MappedByteBuffer current = slots;
+        FileChannel currentChannel = slotChannel;
+        long copied = 0;
+        try (FileChannel target = FileChannel.open(logPath(nextGeneration), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            createSlots(compactedSlots, capacity);
+            for (int slot = 0; slot < capacity; slot++) {
+                long stored = current.getLong(slotPosition(slot) + 8);
+                if (stored == 0) {
+                    continue;
+                }
+                int length = recordLength(stored - 1);
+                ByteBuffer record = ByteBuffer.allocate(length);
+                readFully(record, stored - 1);
+                record.flip();
+                long offset = copied;
+                while (record.hasRemaining()) {
+                    copied += target.write(record, copied);
+                }
+                setSlot(slot, current.getLong(slotPosition(slot)), offset);
+            }
+            target.force(false);
+        } catch (IOException e) {
+            // Keep using the current generation; the partial files are removed on the next open
+            slots = current;
+            slotChannel = currentChannel;
+            throw e;
+        }
+        generation = nextGeneration;
+        liveBytes = copied;
+        writeHeader();
+        slots.force();
+        slotChannel.close();
+        currentChannel.close();
+        Files.move(compactedSlots, slotsPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        mapSlots(slotsPath());
+
+        log.close();
+        Files.deleteIfExists(logPath(generation - 1));
+        log = FileChannel.open(logPath(generation), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void resize(int newCapacity) throws IOException {
+        MappedByteBuffer old = slots;
+        int oldCapacity = capacity;
+        Path resized = directory.resolve("accounts.slots.resize");
+        FileChannel oldChannel = slotChannel;
+
+        createSlots(resized, newCapacity);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int position = HEADER_BYTES + slot * SLOT_BYTES;
+            long stored = old.getLong(position + 8);
+            if (stored != 0) {
+                long hash = old.getLong(position);
+                setSlot(freeSlot(hash), hash, stored - 1);
+            }
+        }
+        writeHeader();
+        slots.force();
+        slotChannel.close();
+        oldChannel.close();
+        Files.move(resized, slotsPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        mapSlots(slotsPath());
+    }
+
+    private void createSlots(Path path, int newCapacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(1), HEADER_BYTES + (long) newCapacity * SLOT_BYTES - 1);
+        }
+        mapSlots(path);
+        capacity = newCapacity;
+        writeHeader();
+    }
+
+    private void mapSlots(Path path) throws IOException {
+        slotChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        slots = slotChannel.map(FileChannel.MapMode.READ_WRITE, 0, slotChannel.size());
+    }
+
+    private void writeHeader() {
+        slots.putInt(0, MAGIC);
+        slots.putInt(4, capacity);
+        slots.putInt(8, count);
+        slots.putInt(12, generation);
+        slots.putLong(16, liveBytes);
+    }
+
+    private int findSlot(String accountNumber) {
+        return findSlot(accountNumber, hash(accountNumber));
+    }
+
+    /**
+     * Slot holding the key, or -1; hash matches are confirmed against the stored key
+     */
+    private int findSlot(String accountNumber, long hash) {
+        int mask = capacity - 1;
+        for (int slot = (int) (hash & mask); ; slot = (slot + 1) & mask) {
+            int position = slotPosition(slot);
+            long stored = slots.getLong(position + 8);
+            if (stored == 0) {
+                return -1;
+            }
+            try {
+                if (slots.getLong(position) == hash && readKey(stored - 1).equals(accountNumber)) {
+                    return slot;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private int freeSlot(long hash) {
+        int mask = capacity - 1;
+        int slot = (int) (hash & mask);
+        while (slots.getLong(slotPosition(slot) + 8) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void setSlot(int slot, long hash, long offset) {
+        slots.putLong(slotPosition(slot), hash);
+        slots.putLong(slotPosition(slot) + 8, offset + 1);
+    }
+
+    private long slotOffset(int slot) {
+        return slots.getLong(slotPosition(slot) + 8) - 1;
+    }
+
+    private static int slotPosition(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private int recordLength(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(length, offset);
+        return 4 + length.getInt(0);
+    }
+
+    private String readKey(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(6);
+        readFully(header, offset);
+        ByteBuffer key = ByteBuffer.allocate(header.getShort(4));
+        readFully(key, offset + 6);
+        return new String(key.array(), StandardCharsets.UTF_8);
+    }
+
+    private Account readRecord(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(6);
+        readFully(header, offset);
+        int length = header.getInt(0);
+        int keyLength = header.getShort(4);
+        ByteBuffer json = ByteBuffer.allocate(length - 2 - keyLength);
+        readFully(json, offset + 6 + keyLength);
+        return gson.fromJson(new String(json.array(), StandardCharsets.UTF_8), Account.class);
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("account store log is truncated at " + offset);
+            }
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a with a final mix, so linear probing sees well-spread low bits
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private Path logPath(int logGeneration) {
+        return directory.resolve("accounts-" + logGeneration + ".log");
+    }
+
+    private Path slotsPath() {
+        return directory.resolve("accounts.slots");
+    }
+
+    static String defaultDirectory() {
+        return FileStorage.DATA_DIRECTORY + File.separator + "store";
+    }
+}
@@ -0,0 +1,316 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End-of-day batch: accrues daily interest on every account and charges the
+ * monthly maintenance fee on the last day of the month.
+ *
+ * Accounts are split into hash partitions that run in parallel on a fork-join
+ * pool. Every amount is computed from the balance at the business-date cutoff,
+ * so customer activity after midnight is never counted twice. Each finished
+ * partition writes its postings to data/eod/<date>/partition-N.postings; after a
+ * crash those files are replayed instead of recomputed, and postings already
+ * present on an account (same type and timestamp) are never applied again.
+ */
+public class EndOfDayJob {
+    public static final String INTEREST = "INTEREST";
+    public static final String FEE = "FEE";
+
+    private static final String EOD_DIRECTORY = FileStorage.DATA_DIRECTORY + "/eod";
+    private static final double ANNUAL_INTEREST_RATE =
+            Double.parseDouble(System.getProperty("bankapp.eod.interestRate", "0.02"));
+    private static final double MAINTENANCE_FEE =
+            Double.parseDouble(System.getProperty("bankapp.eod.maintenanceFee", "2.00"));
+    private static final double MINIMUM_BALANCE =
+            Double.parseDouble(System.getProperty("bankapp.eod.minimumBalance", "100.00"));
+
+    private final Bank bank;
+    private final LocalDate businessDate;
+    private int partitions;
+    private final File directory;
+    private final Gson gson = new Gson();
+
+    private final LongAdder accountsProcessed = new LongAdder();
+    private final LongAdder accountsSkipped = new LongAdder();
+    private final LongAdder partitionsReplayed = new LongAdder();
+    private final LongAdder postingsReplayed = new LongAdder();
+    private final DoubleAdder interestTotal = new DoubleAdder();
+    private final DoubleAdder feeTotal = new DoubleAdder();
+
+    /**
+     * One line of a partition postings file
+     */
+    private static class Posting {
+        String account;
+        String type;
+        double amount;
+
+        Posting(String account, String type, double amount) {
+            this.account = account;
+            this.type = type;
+            this.amount = amount;
+        }
+    }
+
+    public EndOfDayJob(Bank bank, LocalDate businessDate) {
+        this(bank, businessDate, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public EndOfDayJob(Bank bank, LocalDate businessDate, int partitions) {
+        this.bank = bank;
+        this.businessDate = businessDate;
+        this.partitions = Math.max(1, partitions);
+        this.directory = new File(EOD_DIRECTORY, businessDate.toString());
+    }
+
+    /**
+     * Timestamp given to every posting of this run; also the idempotency marker
+     */
+    LocalDateTime postingTime() {
+        return businessDate.atTime(LocalTime.of(23, 59, 59));
+    }
+
+    private LocalDateTime cutoff() {
+        return businessDate.plusDays(1).atStartOfDay();
+    }
+
+    private boolean isMonthEnd() {
+        return businessDate.plusDays(1).getDayOfMonth() == 1;
+    }
+
+    private File completedMarker() {
+        return new File(directory, "COMPLETED");
+    }
+
+    private File partitionFile(int partition) {
+        return new File(directory, "partition-" + partition + ".postings");
+    }
+
+    public static int partitionOf(String accountNumber, int partitions) {
+        return Math.floorMod(accountNumber.hashCode(), partitions);
+    }
+
+    public boolean run() {
+        if (cutoff().isAfter(LocalDateTime.now())) {
+            System.out.println("❌ Business date " + businessDate + " has not ended yet.");
+            return false;
+        }
+        if (completedMarker().exists()) {
+            System.out.println("ℹ️  End-of-day for " + businessDate + " already completed.");
+            return true;
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            System.out.println("❌ Cannot create " + directory);
+            return false;
+        }
+        if (!pinPartitionCount()) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        // Numbers, not accounts: with an account store only the cache's working set stays in memory
+        List<List<String>> buckets = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (String accountNumber : bank.accountNumbers()) {
+            buckets.get(partitionOf(accountNumber, partitions)).add(accountNumber);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            pool.invoke(new PartitionTask(buckets, 0, partitions));
+        } catch (UncheckedIOException e) {
+            System.out.println("❌ End-of-day failed: " + e.getCause().getMessage());
+            System.out.println("   Re-run to resume; finished partitions will not be recomputed.");
+            return false;
+        } finally {
+            pool.shutdown();
+        }
+
+        bank.archiveHistory();
+        bank.saveToFile();
+        try {
+            Files.write(completedMarker().toPath(), LocalDateTime.now().toString().getBytes());
+        } catch (IOException e) {
+            System.err.println("⚠️  Could not write completion marker: " + e.getMessage());
+        }
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        AuditService.logEndOfDay(businessDate.toString(), accountsProcessed.sum(),
+                interestTotal.sum(), feeTotal.sum());
+
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("End-of-Day Processing - " + businessDate);
+        System.out.println("=".repeat(60));
+        System.out.println("Accounts processed: " + accountsProcessed.sum());
+        System.out.println("Accounts skipped (already posted): " + accountsSkipped.sum());
+        System.out.println("Partitions: " + partitions + " (" + partitionsReplayed.sum() + " resumed, "
+                + postingsReplayed.sum() + " postings re-applied)");
+        System.out.println("Interest accrued: $" + String.format("%.2f", interestTotal.sum()));
+        System.out.println("Fees charged: $" + String.format("%.2f", feeTotal.sum()));
+        System.out.println("Elapsed: " + String.format("%.3f", seconds) + "s");
+        System.out.println("=".repeat(60));
+        return true;
+    }
+
+    /**
+     * A resumed run must use the same partitioning as the interrupted one
+     */
+    private boolean pinPartitionCount() {
+        File file = new File(directory, "PARTITIONS");
+        try {
+            if (file.exists()) {
+                partitions = Integer.parseInt(new String(Files.readAllBytes(file.toPath())).trim());
+            } else {
+                Files.write(file.toPath(), String.valueOf(partitions).getBytes());
+            }
+            return true;
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("❌ Cannot read partition count from " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private class PartitionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<List<String>> buckets;
+        private final int from;
+        private final int to;
+
+        PartitionTask(List<List<String>> buckets, int from, int to) {
+            this.buckets = buckets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                processPartition(from, buckets.get(from));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PartitionTask(buckets, from, middle),
+                    new PartitionTask(buckets, middle, to));
+        }
+    }
+
+    private void processPartition(int partition, List<String> accountNumbers) {
+        File file = partitionFile(partition);
+        if (file.exists()) {
+            replayPartition(file);
+            partitionsReplayed.increment();
+            return;
+        }
+
+        LocalDateTime postingTime = postingTime();
+        LocalDateTime cutoff = cutoff();
+        double dailyRate = ANNUAL_INTEREST_RATE / businessDate.lengthOfYear();
+        boolean monthEnd = isMonthEnd();
+        List<Posting> postings = new ArrayList<>();
+
+        for (String accountNumber : accountNumbers) {
+            Account account = bank.getAccount(accountNumber);
+            if (account == null) {
+                continue;
+            }
+            synchronized (account) {
+                if (account.hasPosting(INTEREST, postingTime) || account.hasPosting(FEE, postingTime)) {
+                    accountsSkipped.increment();
+                    continue;
+                }
+                double balance = account.balanceAt(cutoff);
+                double interest = Math.floor(balance * dailyRate * 100.0) / 100.0;
+                if (interest > 0) {
+                    account.post(INTEREST, interest, postingTime);
+                    postings.add(new Posting(account.getAccountNumber(), INTEREST, interest));
+                    interestTotal.add(interest);
+                }
+                if (monthEnd && balance < MINIMUM_BALANCE) {
+                    double fee = account.post(FEE, MAINTENANCE_FEE, postingTime);
+                    if (fee > 0) {
+                        postings.add(new Posting(account.getAccountNumber(), FEE, fee));
+                        feeTotal.add(fee);
+                    }
+                }
+            }
+            accountsProcessed.increment();
+        }
+
+        writePostings(file, postings);
+    }
+
+    private void writePostings(File file, List<Posting> postings) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(temp))) {
+            for (Posting posting : postings) {
+                writer.write(gson.toJson(posting));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Re-applies a finished partition's postings to accounts that don't have them yet
+     */
+    private void replayPartition(File file) {
+        LocalDateTime postingTime = postingTime();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Posting posting = gson.fromJson(line, Posting.class);
+                Account account = bank.getAccount(posting.account);
+                if (account == null) {
+                    continue;
+                }
+                synchronized (account) {
+                    if (account.hasPosting(posting.type, postingTime)) {
+                        accountsSkipped.increment();
+                        continue;
+                    }
+                    account.post(posting.type, posting.amount, postingTime);
+                }
+                if (INTEREST.equals(posting.type)) {
+                    interestTotal.add(posting.amount);
+                } else {
+                    feeTotal.add(posting.amount);
+                }
+                postingsReplayed.increment();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
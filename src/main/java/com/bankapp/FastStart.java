@@ -0,0 +1,176 @@
+package com.bankapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shortens the time from JVM start to the first served operation.
+ *
+ * warmUp() drives the hot paths - account JSON, deposits, withdrawals,
+ * transfers, snapshots and audit writes - on a scratch bank, so they are
+ * compiled before the first real request (Main --warm-up[=iterations]).
+ *
+ * Run as a program it is either the training run for the class-data-sharing
+ * archive the fast-start Maven profile builds, or one timed start-up for
+ * StartupBenchmark:
+ *   java -cp ... com.bankapp.FastStart --train
+ *   java -cp ... com.bankapp.FastStart --first-operation=account [--ops=2000] [--warm-up[=iterations]]
+ *
+ * Both work on data/ in the current directory, so run them somewhere scratch.
+ */
+public class FastStart {
+    static final int DEFAULT_WARM_UP_ITERATIONS = 3000;
+    static final String FIRST_OPERATION_MARKER = "FIRST_OPERATION";
+    static final String OPERATIONS_MARKER = "OPERATIONS_MS=";
+
+    private static final int WARM_UP_HASH_ITERATIONS = 1000;
+    private static final String PASSWORD = "warm-up password";
+    private static final String PIN = "1234";
+
+    /**
+     * Exercises the hot paths on a throwaway bank; returns how long it took in ms.
+     * Nothing is printed, written to the audit log or saved.
+     */
+    public static long warmUp(int iterations) {
+        long start = System.nanoTime();
+        PrintStream console = System.out;
+        String auditLog = AuditService.getLogFile();
+        File scratchAudit = null;
+        try {
+            scratchAudit = File.createTempFile("warm-up-audit", ".log");
+            AuditService.setLogFile(scratchAudit.getPath());
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+            // A full-strength hash costs hundreds of ms; a light one compiles the same PBKDF2 code
+            String passwordHash = AuthService.hashPassword(PASSWORD, WARM_UP_HASH_ITERATIONS);
+            AuthService.verify(PASSWORD, passwordHash, WARM_UP_HASH_ITERATIONS);
+            String from = "0000000001";
+            String to = "0000000002";
+            Map<String, Account> accounts = new HashMap<>();
+            accounts.put(from, Account.withPasswordHash(from, "Warm-up A", passwordHash, PIN));
+            accounts.put(to, Account.withPasswordHash(to, "Warm-up B", passwordHash, PIN));
+            Bank scratch = new Bank();
+            scratch.setRiskEngine(new RiskEngine(Collections.emptyList()));
+            scratch.loadAccounts(accounts);
+            scratch.deposit(from, 1_000_000);
+
+            Account template = Account.withPasswordHash("0000000000", "Warm-up", "-", PIN);
+            for (int i = 0; i < 50; i++) {
+                template.addTransaction(new Transaction("DEPOSIT", 10, LocalDateTime.now()));
+            }
+            for (int i = 0; i < iterations; i++) {
+                scratch.deposit(to, 1.0);
+                scratch.withdraw(to, 0.5, PIN);
+                scratch.transfer(from, to, 0.25, LocalDateTime.now());
+                if (i % 100 == 0) {
+                    scratch.checkBalance(from);
+                    String json = FileStorage.gson().toJson(template, Account.class);
+                    FileStorage.gson().fromJson(json, Account.class);
+                }
+                if (i % 1000 == 0) {
+                    try (BankSnapshot snapshot = scratch.snapshot()) {
+                        snapshot.getTotalBalance();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            console.println("⚠️  Warm-up skipped: " + e.getMessage());
+        } finally {
+            System.setOut(console);
+            AuditService.setLogFile(auditLog);
+            if (scratchAudit != null) {
+                scratchAudit.delete();
+            }
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    public static void main(String[] args) {
+        if (hasFlag(args, "train")) {
+            train();
+            return;
+        }
+        String account = option(args, "first-operation", null);
+        if (account == null) {
+            System.err.println("Usage: FastStart --train | --first-operation=account [--ops=n] [--warm-up[=n]]");
+            System.exit(2);
+        }
+        System.exit(firstOperation(args, account) ? 0 : 1);
+    }
+
+    /**
+     * The training workload: starts the bank the way Main does from a data
+     * file, takes a backup, then runs the warm-up, so the archive holds the
+     * classes of a real start and of the operations that follow it.
+     */
+    private static void train() {
+        AuditService.setLogFile("logs/audit.log");
+        Bank seed = new Bank();
+        seed.setRiskEngine(new RiskEngine(Collections.emptyList()));
+        for (int i = 0; i < 50; i++) {
+            String number = seed.createAccount("Training " + i, String.format("9%09d", i), PASSWORD, PIN);
+            seed.deposit(number, 100 + i);
+        }
+        seed.saveToFile();
+        Main.main(new String[]{"--backup"});
+        warmUp(2000);
+    }
+
+    /**
+     * Loads data/bank_data.json, deposits into account and prints the marker
+     * StartupBenchmark times; then times --ops more operations.
+     */
+    private static boolean firstOperation(String[] args, String account) {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            if (hasFlag(args, "warm-up")) {
+                String iterations = option(args, "warm-up", null);
+                warmUp(iterations == null ? DEFAULT_WARM_UP_ITERATIONS : Integer.parseInt(iterations));
+            }
+            Bank bank = new Bank();
+            bank.setRiskEngine(new RiskEngine(Collections.emptyList()));
+            if (!bank.loadFromFile() || !bank.deposit(account, 1.0)) {
+                return false;
+            }
+            console.println(FIRST_OPERATION_MARKER);
+            console.flush();
+
+            int ops = Integer.parseInt(option(args, "ops", "2000"));
+            long start = System.nanoTime();
+            for (int i = 0; i < ops; i++) {
+                bank.deposit(account, 1.0);
+                bank.withdraw(account, 0.5, PIN);
+            }
+            console.println(OPERATIONS_MARKER + (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    private static boolean hasFlag(String[] args, String name) {
+        for (String arg : args) {
+            if (arg.equals("--" + name) || arg.startsWith("--" + name + "=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String option(String[] args, String name, String fallback) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return fallback;
+    }
+}
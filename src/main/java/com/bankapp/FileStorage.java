@@ -3,35 +3,45 @@ package com.bankapp;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class FileStorage {
-    private static final String DATA_DIRECTORY = "data";
+    static final String DATA_DIRECTORY = "data";
     private static final String DATA_FILE = DATA_DIRECTORY + "/bank_data.json";
-    private static final Gson gson = new GsonBuilder()
+    // -Dbankapp.json.reflective=true binds Account, Transaction and ChangeEvent by reflection, as before the adapters
+    private static final boolean REFLECTIVE_JSON = Boolean.getBoolean("bankapp.json.reflective");
+    private static final Gson gson = gsonBuilder()
             .setPrettyPrinting()
-            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .create();
 
-    public static void saveToFile(Map<String, Account> accounts) {
+    public static synchronized void saveToFile(Map<String, Account> accounts) {
         try {
             File directory = new File(DATA_DIRECTORY);
             if (!directory.exists()) {
                 directory.mkdirs();
             }
 
+            long start = BankMetrics.start();
             String json = gson.toJson(accounts);
 
             try (FileWriter writer = new FileWriter(DATA_FILE)) {
                 writer.write(json);
             }
+            BankMetrics.recordSave(start, new File(DATA_FILE).length());
 
             System.out.println("✅ Data saved successfully to " + DATA_FILE);
         } catch (IOException e) {
@@ -39,6 +49,131 @@ public class FileStorage {
         }
     }
 
+    /**
+     * Streams a consistent snapshot to disk one account at a time, writing to a
+     * temporary file first so a crash never leaves a half-written data file.
+     * Customer operations keep running while this is in progress.
+     */
+    public static synchronized void saveSnapshot(BankSnapshot snapshot) {
+        saveSnapshot(snapshot, null, Collections.emptyList());
+    }
+
+    /**
+     * Same as saveSnapshot(snapshot), plus accounts that were never loaded from
+     * the current data file; their JSON is copied over unparsed. Also writes the
+     * account index used for lazy startup. Returns an index over the new file
+     * for the unloaded accounts, or null if the save failed or nothing was unloaded.
+     */
+    static synchronized LazyAccountIndex saveSnapshot(BankSnapshot snapshot, LazyAccountIndex source,
+                                                      List<LazyAccountIndex.Entry> unloaded) {
+        File directory = new File(DATA_DIRECTORY);
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+
+        long start = BankMetrics.start();
+        File temp = new File(DATA_FILE + ".tmp");
+        List<LazyAccountIndex.Entry> written = new ArrayList<>(snapshot.size() + unloaded.size());
+        List<LazyAccountIndex.Entry> copied = new ArrayList<>(unloaded.size());
+        try {
+            CountingOutputStream counter = new CountingOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)));
+            try (Writer out = new OutputStreamWriter(counter, StandardCharsets.UTF_8);
+                 JsonWriter writer = gson.newJsonWriter(out)) {
+                writer.beginObject();
+                for (BankSnapshot.AccountState state : snapshot.getAccounts()) {
+                    long offset = memberOffset(writer, counter, written.isEmpty());
+                    writer.name(state.getAccountNumber());
+                    gson.toJson(state.toAccount(), Account.class, writer);
+                    writer.flush();
+                    written.add(new LazyAccountIndex.Entry(state.getAccountNumber(), offset,
+                            (int) (counter.count - offset)));
+                }
+                for (LazyAccountIndex.Entry entry : unloaded) {
+                    long offset = memberOffset(writer, counter, written.isEmpty());
+                    writer.name(entry.accountNumber);
+                    writer.jsonValue(source.readRawValue(entry));
+                    writer.flush();
+                    LazyAccountIndex.Entry moved = new LazyAccountIndex.Entry(entry.accountNumber, offset,
+                            (int) (counter.count - offset));
+                    written.add(moved);
+                    copied.add(moved);
+                }
+                writer.endObject();
+            }
+            Path dataFile = Paths.get(DATA_FILE);
+            Files.move(temp.toPath(), dataFile,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            BankMetrics.recordSave(start, new File(DATA_FILE).length());
+            LazyAccountIndex.writeIndexFile(dataFile, written);
+
+            System.out.println("✅ Data saved successfully to " + DATA_FILE);
+            return source == null ? null : LazyAccountIndex.forWrittenFile(dataFile, copied);
+        } catch (IOException e) {
+            temp.delete();
+            System.err.println("❌ Error saving data to file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * File offset of the next member's key quote: the pretty printer emits
+     * "\n  \"" before the first key and ",\n  \"" before the others.
+     */
+    private static long memberOffset(JsonWriter writer, CountingOutputStream counter, boolean first)
+            throws IOException {
+        writer.flush();
+        return counter.count + (first ? 3 : 4);
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    static Gson gson() {
+        return gson;
+    }
+
+    /**
+     * Gson settings for account data: ISO dates, and the hand-written
+     * Account, Transaction and ChangeEvent adapters so nothing is bound by
+     * reflection
+     */
+    static GsonBuilder gsonBuilder() {
+        GsonBuilder builder = new GsonBuilder()
+                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter());
+        if (!REFLECTIVE_JSON) {
+            builder.registerTypeAdapter(Account.class, new Account.JsonAdapter())
+                    .registerTypeAdapter(Transaction.class, new Transaction.JsonAdapter())
+                    .registerTypeAdapter(ChangeEvent.class, new ChangeEvent.JsonAdapter());
+        }
+        return builder;
+    }
+
+    static String dataFilePath() {
+        return DATA_FILE;
+    }
+
+    /**
+     * Returns the stored accounts, an empty map if there is no data file yet,
+     * or null if the file exists but cannot be read or parsed.
+     */
     public static Map<String, Account> loadFromFile() {
         File file = new File(DATA_FILE);
 
@@ -48,10 +183,13 @@ public class FileStorage {
         }
 
         try {
-            String json = new String(Files.readAllBytes(Paths.get(DATA_FILE)));
+            long start = BankMetrics.start();
+            byte[] bytes = Files.readAllBytes(Paths.get(DATA_FILE));
+            String json = new String(bytes);
 
             Type type = new TypeToken<HashMap<String, Account>>(){}.getType();
             Map<String, Account> accounts = gson.fromJson(json, type);
+            BankMetrics.recordLoad(start, bytes.length);
 
             if (accounts == null) {
                 return new HashMap<>();
@@ -62,10 +200,10 @@ public class FileStorage {
             return accounts;
         } catch (IOException e) {
             System.err.println("❌ Error reading data file: " + e.getMessage());
-            return new HashMap<>();
+            return null;
         } catch (Exception e) {
             System.err.println("❌ Error parsing data file: " + e.getMessage());
-            return new HashMap<>();
+            return null;
         }
     }
 
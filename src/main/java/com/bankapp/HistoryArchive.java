@@ -0,0 +1,349 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold tier of the transaction history: data/archive/<yyyy-MM>.arc holds
+ * gzip blocks of transactions appended per account, and <yyyy-MM>.idx has one
+ * line per block (account, first ordinal, count, offset, length, dates).
+ *
+ * Accounts keep only a hot window in memory: entries older than
+ * bankapp.history.hotDays days (default 90), or beyond the newest
+ * bankapp.history.hotEntries entries (default 1000), are moved here by
+ * end-of-day runs, and at startup with --archive-history.
+ * -Dbankapp.history.archive=false turns tiering off.
+ *
+ * A block is identified by the account and the ordinal of its first entry;
+ * if a crash leaves a block the data file never referenced, archiving the
+ * same entries again writes a block with the same ordinal that replaces it.
+ */
+public class HistoryArchive {
+    private static final String ARCHIVE_DIRECTORY = FileStorage.DATA_DIRECTORY + "/archive";
+    private static final Gson gson = FileStorage.gsonBuilder().create();
+    private static final Type TRANSACTION_LIST = new TypeToken<List<Transaction>>(){}.getType();
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("bankapp.history.archive", "true"));
+    private static final int HOT_DAYS = Integer.getInteger("bankapp.history.hotDays", 90);
+    private static final int HOT_ENTRIES = Integer.getInteger("bankapp.history.hotEntries", 1000);
+
+    // Parsed .idx files, refreshed when the file grows
+    private static final Map<YearMonth, MonthIndex> INDEXES = new ConcurrentHashMap<>();
+    private static final Map<YearMonth, Object> MONTH_LOCKS = new ConcurrentHashMap<>();
+    // Months appended to since the last sync()
+    private static final Set<YearMonth> UNSYNCED = ConcurrentHashMap.newKeySet();
+
+    /**
+     * One gzip block of an account's transactions within a month file
+     */
+    static final class Block {
+        final String accountNumber;
+        final int firstOrdinal;
+        final int count;
+        final long offset;
+        final int length;
+        final LocalDateTime first;
+        final LocalDateTime last;
+
+        Block(String accountNumber, int firstOrdinal, int count, long offset, int length,
+              LocalDateTime first, LocalDateTime last) {
+            this.accountNumber = accountNumber;
+            this.firstOrdinal = firstOrdinal;
+            this.count = count;
+            this.offset = offset;
+            this.length = length;
+            this.first = first;
+            this.last = last;
+        }
+
+        String toLine() {
+            return accountNumber + "\t" + firstOrdinal + "\t" + count + "\t" + offset + "\t"
+                    + length + "\t" + first + "\t" + last;
+        }
+
+        static Block parse(String line) {
+            String[] parts = line.split("\t");
+            if (parts.length != 7) {
+                return null;
+            }
+            try {
+                return new Block(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                        Long.parseLong(parts[3]), Integer.parseInt(parts[4]),
+                        LocalDateTime.parse(parts[5]), LocalDateTime.parse(parts[6]));
+            } catch (RuntimeException e) {
+                return null; // torn last line after a crash
+            }
+        }
+    }
+
+    private static final class MonthIndex {
+        final long indexLength;
+        final Map<String, List<Block>> blocks;
+
+        MonthIndex(long indexLength, Map<String, List<Block>> blocks) {
+            this.indexLength = indexLength;
+            this.blocks = blocks;
+        }
+    }
+
+    private HistoryArchive() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Entries dated before this stay in the archive tier
+     */
+    static LocalDateTime hotCutoff() {
+        return LocalDateTime.now().minusDays(HOT_DAYS);
+    }
+
+    static int hotEntries() {
+        return HOT_ENTRIES;
+    }
+
+    /**
+     * Appends an account's oldest entries, one block per calendar month.
+     * firstOrdinal is the position of entries.get(0) in the full history.
+     */
+    static void append(String accountNumber, int firstOrdinal, List<Transaction> entries) throws IOException {
+        int start = 0;
+        while (start < entries.size()) {
+            YearMonth month = YearMonth.from(entries.get(start).getDateTime());
+            int end = start + 1;
+            while (end < entries.size() && YearMonth.from(entries.get(end).getDateTime()).equals(month)) {
+                end++;
+            }
+            appendBlock(month, accountNumber, firstOrdinal + start, entries.subList(start, end));
+            start = end;
+        }
+    }
+
+    private static void appendBlock(YearMonth month, String accountNumber, int firstOrdinal,
+                                    List<Transaction> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            gson.toJson(entries, TRANSACTION_LIST, writer);
+        }
+        LocalDateTime first = entries.get(0).getDateTime();
+        LocalDateTime last = first;
+        for (Transaction entry : entries) {
+            if (entry.getDateTime().isBefore(first)) {
+                first = entry.getDateTime();
+            }
+            if (entry.getDateTime().isAfter(last)) {
+                last = entry.getDateTime();
+            }
+        }
+
+        File directory = new File(ARCHIVE_DIRECTORY);
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        synchronized (monitorFor(month)) {
+            long offset;
+            // Data first, then the index line, so the index never points past the data
+            try (FileChannel channel = FileChannel.open(archiveFile(month).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                offset = channel.size();
+                channel.write(ByteBuffer.wrap(bytes.toByteArray()));
+            }
+            Block block = new Block(accountNumber, firstOrdinal, entries.size(), offset, bytes.size(), first, last);
+            try (FileOutputStream out = new FileOutputStream(indexFile(month), true)) {
+                out.write((block.toLine() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            UNSYNCED.add(month);
+        }
+    }
+
+    /**
+     * Forces appended blocks to disk; call before saving a data file that refers to them
+     */
+    static void sync() throws IOException {
+        for (YearMonth month : new ArrayList<>(UNSYNCED)) {
+            synchronized (monitorFor(month)) {
+                for (File file : new File[] {archiveFile(month), indexFile(month)}) {
+                    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                        channel.force(true);
+                    }
+                }
+                UNSYNCED.remove(month);
+            }
+        }
+    }
+
+    /**
+     * Archived entries with ordinals in [from, to), oldest first; reads every month file
+     */
+    static List<Transaction> read(String accountNumber, int from, int to) {
+        List<Transaction> result = new ArrayList<>(Math.max(0, to - from));
+        for (Block block : blocksFor(accountNumber, months(), to)) {
+            if (block.firstOrdinal + block.count <= from || block.firstOrdinal >= to) {
+                continue;
+            }
+            List<Transaction> entries = readBlock(block);
+            int skip = Math.max(0, from - block.firstOrdinal);
+            int take = Math.min(entries.size(), to - block.firstOrdinal);
+            result.addAll(entries.subList(skip, take));
+        }
+        return result;
+    }
+
+    /**
+     * Archived entries dated in [from, to); only the month files in that range are opened
+     */
+    static List<Transaction> readBetween(String accountNumber, int archivedCount,
+                                         LocalDateTime from, LocalDateTime to) {
+        List<YearMonth> months = new ArrayList<>();
+        for (YearMonth month : months()) {
+            if (!month.isBefore(YearMonth.from(from)) && month.atDay(1).atStartOfDay().isBefore(to)) {
+                months.add(month);
+            }
+        }
+        List<Transaction> result = new ArrayList<>();
+        for (Block block : blocksFor(accountNumber, months, archivedCount)) {
+            if (block.last.isBefore(from) || !block.first.isBefore(to)) {
+                continue;
+            }
+            for (Transaction entry : readBlock(block)) {
+                if (!entry.getDateTime().isBefore(from) && entry.getDateTime().isBefore(to)) {
+                    result.add(entry);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Streams the whole archived history to the consumer one block at a time
+     */
+    static void forEach(String accountNumber, int archivedCount, Consumer<Transaction> consumer) {
+        for (Block block : blocksFor(accountNumber, months(), archivedCount)) {
+            int take = Math.min(block.count, archivedCount - block.firstOrdinal);
+            List<Transaction> entries = readBlock(block);
+            for (int i = 0; i < take && i < entries.size(); i++) {
+                consumer.accept(entries.get(i));
+            }
+        }
+    }
+
+    /**
+     * The account's blocks in these months with ordinals below the limit, in
+     * ordinal order; a later block with the same first ordinal replaces an earlier one.
+     */
+    private static List<Block> blocksFor(String accountNumber, List<YearMonth> months, int ordinalLimit) {
+        TreeMap<Integer, Block> byOrdinal = new TreeMap<>();
+        for (YearMonth month : months) {
+            for (Block block : monthIndex(month).blocks.getOrDefault(accountNumber, Collections.emptyList())) {
+                if (block.firstOrdinal < ordinalLimit) {
+                    byOrdinal.put(block.firstOrdinal, block);
+                }
+            }
+        }
+        return new ArrayList<>(byOrdinal.values());
+    }
+
+    private static List<Transaction> readBlock(Block block) {
+        YearMonth month = YearMonth.from(block.first);
+        try (FileChannel channel = FileChannel.open(archiveFile(month).toPath(), StandardOpenOption.READ)) {
+            byte[] bytes = DataFileScanner.read(channel, block.offset, block.length);
+            try (Reader reader = new InputStreamReader(
+                    new GZIPInputStream(new ByteArrayInputStream(bytes)), StandardCharsets.UTF_8)) {
+                List<Transaction> entries = gson.fromJson(reader, TRANSACTION_LIST);
+                return entries == null ? Collections.emptyList() : entries;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read archive block of account " + block.accountNumber
+                    + " in " + month, e);
+        }
+    }
+
+    private static MonthIndex monthIndex(YearMonth month) {
+        File file = indexFile(month);
+        long length = file.length();
+        MonthIndex cached = INDEXES.get(month);
+        if (cached != null && cached.indexLength == length) {
+            return cached;
+        }
+        synchronized (monitorFor(month)) {
+            Map<String, List<Block>> blocks = new ConcurrentHashMap<>();
+            try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Block block = Block.parse(line);
+                    if (block != null) {
+                        blocks.computeIfAbsent(block.accountNumber, key -> new ArrayList<>()).add(block);
+                    }
+                }
+            } catch (IOException e) {
+                // no index yet for this month
+            }
+            MonthIndex index = new MonthIndex(length, blocks);
+            INDEXES.put(month, index);
+            return index;
+        }
+    }
+
+    private static List<YearMonth> months() {
+        String[] names = new File(ARCHIVE_DIRECTORY).list((dir, name) -> name.endsWith(".idx"));
+        if (names == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(names);
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : names) {
+            try {
+                months.add(YearMonth.parse(name.substring(0, name.length() - 4)));
+            } catch (RuntimeException ignored) {
+                // not an archive index
+            }
+        }
+        return months;
+    }
+
+    private static Object monitorFor(YearMonth month) {
+        return MONTH_LOCKS.computeIfAbsent(month, key -> new Object());
+    }
+
+    private static File archiveFile(YearMonth month) {
+        return new File(ARCHIVE_DIRECTORY, month + ".arc");
+    }
+
+    private static File indexFile(YearMonth month) {
+        return new File(ARCHIVE_DIRECTORY, month + ".idx");
+    }
+}
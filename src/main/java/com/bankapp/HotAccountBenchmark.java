@@ -0,0 +1,122 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deposit throughput on one account, with and without hot-account mode.
+ *
+ * Usage:
+ *   java -cp target/classes:gson.jar com.bankapp.HotAccountBenchmark
+ *        [--threads=1,2,4,8] [--duration=5]
+ *
+ * For each thread count, every thread deposits $1 into the same account
+ * through Bank.deposit as fast as it can, first on a normal account and
+ * then on a hot one. Reports deposits per second and checks that the
+ * final balance and history length match the deposits made.
+ */
+public class HotAccountBenchmark {
+    private final int[] threadCounts;
+    private final int durationSeconds;
+
+    public HotAccountBenchmark(int[] threadCounts, int durationSeconds) {
+        this.threadCounts = threadCounts;
+        this.durationSeconds = durationSeconds;
+    }
+
+    public Map<String, Object> run() throws InterruptedException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("cores", Runtime.getRuntime().availableProcessors());
+        report.put("durationSeconds", durationSeconds);
+        List<Map<String, Object>> rounds = new ArrayList<>();
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (int threads : threadCounts) {
+                Map<String, Object> round = new LinkedHashMap<>();
+                round.put("threads", threads);
+                round.put("normalDepositsPerSecond", measure(threads, false));
+                round.put("hotDepositsPerSecond", measure(threads, true));
+                rounds.add(round);
+            }
+        } finally {
+            System.setOut(console);
+        }
+        report.put("rounds", rounds);
+        return report;
+    }
+
+    private long measure(int threadCount, boolean hot) throws InterruptedException {
+        Bank bank = new Bank();
+        bank.setRiskEngine(new RiskEngine(Collections.emptyList()));
+        String accountNumber = bank.createAccount("Merchant Collections", null, "benchmark-pw", "1234");
+        if (hot) {
+            bank.setHotAccount(accountNumber, true);
+        }
+        LongAdder deposits = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threadCount);
+        long deadline = System.nanoTime() + durationSeconds * 1_000_000_000L;
+        long start = System.nanoTime();
+        for (int t = 0; t < threadCount; t++) {
+            Thread depositor = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    if (bank.deposit(accountNumber, 1.0)) {
+                        deposits.increment();
+                    }
+                }
+                done.countDown();
+            }, "hot-bench-" + t);
+            depositor.start();
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Account account = bank.getAccount(accountNumber);
+        if (account.getBalance() != deposits.sum() || account.getTransactionCount() != deposits.sum()) {
+            throw new IllegalStateException("balance " + account.getBalance() + " and " + account.getTransactionCount()
+                    + " transactions after " + deposits.sum() + " deposits");
+        }
+        if (hot) {
+            bank.setHotAccount(accountNumber, false);
+        }
+        return Math.round(deposits.sum() / seconds);
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] counts = option(args, "threads", "1,2,4,8").split(",");
+        int[] threads = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            threads[i] = Integer.parseInt(counts[i].trim());
+        }
+        int duration = Integer.parseInt(option(args, "duration", "5"));
+
+        File audit = File.createTempFile("hot-bench-audit", ".log");
+        audit.deleteOnExit();
+        AuditService.setLogFile(audit.getPath());
+        System.err.println("Benchmarking deposits to one account: " + duration + "s per run...");
+        Map<String, Object> report = new HotAccountBenchmark(threads, duration).run();
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        System.out.println(gson.toJson(report));
+    }
+}
@@ -0,0 +1,123 @@
+package com.bankapp;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Striped credit buffers for a hot account, so concurrent deposits do not
+ * queue on the account monitor.
+ *
+ * Each thread credits the stripe its identity hashes to, under that
+ * stripe's own lock, in the style of LongAdder cells. A stripe holds the
+ * pending deposits themselves rather than a running sum, so folding them
+ * into the account adds exactly the amounts an unstriped account would,
+ * in timestamp order. Once closed, credits are refused and the caller
+ * takes the normal path.
+ */
+final class HotBalanceCells {
+    private static final int STRIPES = stripeCount();
+
+    /**
+     * One cell; the padding keeps neighbouring stripes off the same cache line
+     */
+    @SuppressWarnings("unused")
+    private static final class Stripe {
+        long p1, p2, p3, p4, p5, p6, p7;
+        List<Transaction> pending = new ArrayList<>();
+        volatile int size;
+        boolean closed;
+        long q1, q2, q3, q4, q5, q6, q7;
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    HotBalanceCells() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private static int stripeCount() {
+        int wanted = Math.min(64, Runtime.getRuntime().availableProcessors() * 2);
+        int count = 1;
+        while (count < wanted) {
+            count <<= 1;
+        }
+        return count;
+    }
+
+    private Stripe stripeForCurrentThread() {
+        int hash = System.identityHashCode(Thread.currentThread());
+        hash ^= hash >>> 16;
+        return stripes[hash & (STRIPES - 1)];
+    }
+
+    /**
+     * Buffers a credit; false if the cells have been closed
+     */
+    boolean credit(Transaction transaction) {
+        Stripe stripe = stripeForCurrentThread();
+        synchronized (stripe) {
+            if (stripe.closed) {
+                return false;
+            }
+            stripe.pending.add(transaction);
+            stripe.size = stripe.pending.size();
+            return true;
+        }
+    }
+
+    /**
+     * Whether any stripe holds credits, without locking; a credit that is
+     * still being added may be missed
+     */
+    boolean hasPending() {
+        for (Stripe stripe : stripes) {
+            if (stripe.size > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes every buffered credit out of the stripes, oldest first
+     */
+    List<Transaction> drain() {
+        List<Transaction> all = null;
+        for (Stripe stripe : stripes) {
+            List<Transaction> taken;
+            synchronized (stripe) {
+                if (stripe.size == 0) {
+                    continue;
+                }
+                taken = stripe.pending;
+                stripe.pending = new ArrayList<>();
+                stripe.size = 0;
+            }
+            if (all == null) {
+                all = taken;
+            } else {
+                all.addAll(taken);
+            }
+        }
+        if (all == null) {
+            return new ArrayList<>();
+        }
+        // Stable, so each thread's credits keep their order when timestamps tie
+        all.sort(Comparator.comparing(Transaction::getDateTime));
+        return all;
+    }
+
+    /**
+     * Refuses further credits; drain() afterwards collects the last of them
+     */
+    void close() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.closed = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Recently seen idempotency keys and the results of the operations they
+ * identified, so a retried deposit or withdrawal is answered instead of applied
+ * again.
+ *
+ * Keys expire after a fixed time-to-live (-Dbankapp.idempotency.ttlSeconds,
+ * default one day) and at most -Dbankapp.idempotency.maxKeys (default 100000)
+ * are kept, oldest dropped first. Since every key lives equally long,
+ * insertion order is expiry order and a FIFO queue is all the bookkeeping
+ * needed: expired keys are dropped from its head as new ones arrive.
+ *
+ * Keys are saved to data/idempotency.json before the account data. The
+ * operation itself books its transaction under the key, so whether it was
+ * applied is saved atomically with the balance; Bank looks the key up in the
+ * account's history to tell a lost operation, or a released hold, from one
+ * that still stands.
+ */
+public class IdempotencyCache {
+    private static final String KEY_FILE = FileStorage.DATA_DIRECTORY + "/idempotency.json";
+    private static final Gson gson = new GsonBuilder().create();
+    private static final Type ENTRY_LIST = new TypeToken<List<Entry>>(){}.getType();
+
+    private final long ttlMillis;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> byAge = new ConcurrentLinkedQueue<>();
+
+    /**
+     * One operation; the thread that claimed the key completes it, concurrent
+     * retries wait for that
+     */
+    public static final class Entry {
+        private final String key;
+        private final String operation;
+        private final String accountNumber;
+        private final double amount;
+        private final long createdAt;
+        private final long expiresAt;
+        private volatile Boolean result;
+        private transient boolean restored;
+
+        Entry(String key, String operation, String accountNumber, double amount, long createdAt, long expiresAt) {
+            this.key = key;
+            this.operation = operation;
+            this.accountNumber = accountNumber;
+            this.amount = amount;
+            this.createdAt = createdAt;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public boolean isDone() {
+            return result != null;
+        }
+
+        public boolean getResult() {
+            return Boolean.TRUE.equals(result);
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        public boolean isRestored() {
+            return restored;
+        }
+
+        /**
+         * When the key was first used, in epoch milliseconds
+         */
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        boolean matches(String operation, String accountNumber, double amount) {
+            return this.operation.equals(operation) && this.accountNumber.equals(accountNumber)
+                    && this.amount == amount;
+        }
+
+        synchronized void complete(boolean result) {
+            this.result = result;
+            notifyAll();
+        }
+
+        synchronized void awaitResult() {
+            boolean interrupted = false;
+            while (result == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public IdempotencyCache() {
+        this(Long.getLong("bankapp.idempotency.ttlSeconds", 24 * 60 * 60) * 1000,
+                Integer.getInteger("bankapp.idempotency.maxKeys", 100_000));
+    }
+
+    public IdempotencyCache(long ttlMillis, int maxKeys) {
+        this.ttlMillis = ttlMillis;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * The entry for the key. If it is not done, the caller was the first to
+     * use the key and must perform the operation and complete() the entry;
+     * otherwise it holds the earlier result.
+     */
+    public Entry claim(String key, String operation, String accountNumber, double amount) {
+        long now = System.currentTimeMillis();
+        expire(now);
+        Entry created = new Entry(key, operation, accountNumber, amount, now, now + ttlMillis);
+        while (true) {
+            Entry existing = entries.putIfAbsent(key, created);
+            if (existing == null) {
+                byAge.add(created);
+                return created;
+            }
+            if (existing.expiresAt > now) {
+                existing.awaitResult();
+                return existing;
+            }
+            entries.remove(key, existing);
+        }
+    }
+
+    /**
+     * Drops an entry whose operation turned out not to have been applied
+     */
+    public void forget(Entry entry) {
+        if (entries.remove(entry.key, entry)) {
+            byAge.remove(entry);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Loads saved keys that have not expired yet; a missing or unreadable file leaves the cache empty
+     */
+    public void load() {
+        Path file = Paths.get(KEY_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        List<Entry> saved;
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            saved = gson.fromJson(reader, ENTRY_LIST);
+        } catch (IOException | JsonParseException e) {
+            System.err.println("⚠️  Could not read idempotency keys; retries of earlier requests will not be recognized: "
+                    + e.getMessage());
+            return;
+        }
+        if (saved == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Entry entry : saved) {
+            if (entry.expiresAt > now && entry.result != null) {
+                entry.restored = true;
+                if (entries.putIfAbsent(entry.key, entry) == null) {
+                    byAge.add(entry);
+                }
+            }
+        }
+        expire(now);
+    }
+
+    /**
+     * Writes the completed, unexpired keys; called before the account data is saved
+     */
+    public void save() {
+        long now = System.currentTimeMillis();
+        expire(now);
+        List<Entry> completed = new ArrayList<>(entries.size());
+        for (Entry entry : byAge) {
+            if (entry.result != null && entry.expiresAt > now && entries.get(entry.key) == entry) {
+                completed.add(entry);
+            }
+        }
+        Path file = Paths.get(KEY_FILE);
+        Path temp = Paths.get(KEY_FILE + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(completed, ENTRY_LIST, writer);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("❌ Error saving idempotency keys: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drops expired keys and, beyond maxKeys, the oldest ones
+     */
+    private void expire(long now) {
+        Entry oldest;
+        while ((oldest = byAge.peek()) != null
+                && (oldest.expiresAt <= now || entries.size() > maxKeys)) {
+            if (byAge.remove(oldest)) {
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+}
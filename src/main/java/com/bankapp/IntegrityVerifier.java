@@ -0,0 +1,408 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+
+import java.io.BufferedReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks bank_data.json without loading it into a Bank and produces a
+ * reconciliation report.
+ *
+ * Per account: the key matches accountNumber, no number appears twice, the
+ * balance equals the replayed transaction history and never goes negative,
+ * transactions are well-formed, and PIN/password fields are either valid or
+ * missing as a whole (a legacy account awaiting migration).
+ *
+ * The file is split into members with DataFileScanner and verified in
+ * parallel batches of about 8 MB; files that are not pretty-printed are
+ * streamed instead and only the checks run in parallel.
+ */
+public class IntegrityVerifier {
+    private static final int BATCH_BYTES = 8 * 1024 * 1024;
+    private static final int STREAM_BATCH_ACCOUNTS = 1000;
+    private static final int MAX_LISTED_ISSUES = 200;
+    private static final double TOLERANCE = 0.005;
+
+    private final Path dataFile;
+    private final int parallelism;
+    private final Gson gson = FileStorage.gson();
+    private final Set<String> seenNumbers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Result of a verification run; partial reports from workers are merged
+     */
+    public static class Report {
+        long accounts;
+        long transactions;
+        long accountsNeedingMigration;
+        long errorCount;
+        long warningCount;
+        long bytes;
+        double totalBalance;
+        double totalReplayed;
+        double seconds;
+        boolean parsed = true;
+        final List<String> errors = new ArrayList<>();
+        final List<String> warnings = new ArrayList<>();
+
+        void error(String account, String message) {
+            errorCount++;
+            if (errors.size() < MAX_LISTED_ISSUES) {
+                errors.add(account + ": " + message);
+            }
+        }
+
+        void warning(String account, String message) {
+            warningCount++;
+            if (warnings.size() < MAX_LISTED_ISSUES) {
+                warnings.add(account + ": " + message);
+            }
+        }
+
+        void merge(Report other) {
+            accounts += other.accounts;
+            transactions += other.transactions;
+            accountsNeedingMigration += other.accountsNeedingMigration;
+            totalBalance += other.totalBalance;
+            totalReplayed += other.totalReplayed;
+            parsed &= other.parsed;
+            errorCount += other.errorCount;
+            warningCount += other.warningCount;
+            for (String issue : other.errors) {
+                if (errors.size() < MAX_LISTED_ISSUES) {
+                    errors.add(issue);
+                }
+            }
+            for (String issue : other.warnings) {
+                if (warnings.size() < MAX_LISTED_ISSUES) {
+                    warnings.add(issue);
+                }
+            }
+        }
+
+        public boolean isClean() {
+            return parsed && errorCount == 0;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("clean", isClean());
+            map.put("parsed", parsed);
+            map.put("accounts", accounts);
+            map.put("transactions", transactions);
+            map.put("accountsNeedingMigration", accountsNeedingMigration);
+            map.put("totalBalance", Math.round(totalBalance * 100.0) / 100.0);
+            map.put("totalReplayedBalance", Math.round(totalReplayed * 100.0) / 100.0);
+            map.put("errorCount", errorCount);
+            map.put("warningCount", warningCount);
+            map.put("bytes", bytes);
+            map.put("seconds", Math.round(seconds * 1000.0) / 1000.0);
+            map.put("errors", errors);
+            map.put("warnings", warnings);
+            return map;
+        }
+
+        public void print() {
+            System.out.println("\n" + "=".repeat(70));
+            System.out.println("Data File Reconciliation Report");
+            System.out.println("=".repeat(70));
+            System.out.println("Accounts: " + accounts + "   Transactions: " + transactions);
+            System.out.println("Total balance (stored):   $" + String.format("%.2f", totalBalance));
+            System.out.println("Total balance (replayed): $" + String.format("%.2f", totalReplayed));
+            System.out.println("Accounts needing migration: " + accountsNeedingMigration);
+            System.out.println("Errors: " + errorCount + "   Warnings: " + warningCount);
+            System.out.println(String.format("Scanned %.1f MB in %.3fs", bytes / 1048576.0, seconds));
+            for (String issue : errors) {
+                System.out.println("❌ " + issue);
+            }
+            for (String issue : warnings) {
+                System.out.println("⚠️  " + issue);
+            }
+            if (errorCount > errors.size() || warningCount > warnings.size()) {
+                System.out.println("(only the first " + MAX_LISTED_ISSUES + " issues of each kind are listed)");
+            }
+            System.out.println(isClean() ? "✅ Data file is consistent." : "❌ Data file is NOT consistent.");
+            System.out.println("=".repeat(70));
+        }
+    }
+
+    public IntegrityVerifier(Path dataFile) {
+        this(dataFile, Runtime.getRuntime().availableProcessors());
+    }
+
+    public IntegrityVerifier(Path dataFile, int parallelism) {
+        this.dataFile = dataFile;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public static IntegrityVerifier forDataFile() {
+        return new IntegrityVerifier(Paths.get(FileStorage.dataFilePath()));
+    }
+
+    public Report verify() {
+        long start = System.nanoTime();
+        Report report = new Report();
+        if (!Files.exists(dataFile)) {
+            return finish(report, start);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            report.bytes = channel.size();
+            long[] offsets = DataFileScanner.findMemberOffsets(channel, parallelism);
+            if (offsets != null && !hasValidHeader(channel, offsets)) {
+                report.parsed = false;
+                report.error("file", "unexpected content before the first account");
+                return finish(report, start);
+            }
+            List<Future<Report>> results = offsets != null
+                    ? submitBatches(pool, channel, offsets)
+                    : streamAndSubmit(pool, report);
+            for (Future<Report> result : results) {
+                report.merge(result.get());
+            }
+        } catch (IOException e) {
+            report.parsed = false;
+            report.error("file", "cannot read: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.parsed = false;
+            report.error("file", "verification interrupted");
+        } catch (ExecutionException e) {
+            report.parsed = false;
+            report.error("file", "verification failed: " + e.getCause().getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+        return finish(report, start);
+    }
+
+    private static Report finish(Report report, long startNanos) {
+        report.seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        return report;
+    }
+
+    /**
+     * Only "{" may precede the first member; with no members the file must be "{}"
+     */
+    private static boolean hasValidHeader(FileChannel channel, long[] offsets) throws IOException {
+        long end = offsets.length > 0 ? offsets[0] : channel.size();
+        if (end > 4096) {
+            return false;
+        }
+        String head = new String(DataFileScanner.read(channel, 0, (int) end), StandardCharsets.UTF_8).trim();
+        return offsets.length > 0 ? head.equals("{") : head.replaceAll("\\s", "").equals("{}");
+    }
+
+    private List<Future<Report>> submitBatches(ExecutorService pool, FileChannel channel, long[] offsets)
+            throws IOException {
+        long fileSize = channel.size();
+        List<Future<Report>> results = new ArrayList<>();
+        int first = 0;
+        while (first < offsets.length) {
+            int last = first;
+            while (last + 1 < offsets.length
+                    && DataFileScanner.memberEnd(offsets, last + 1, fileSize) - offsets[first] <= BATCH_BYTES) {
+                last++;
+            }
+            int from = first;
+            int to = last;
+            results.add(pool.submit(() -> verifyBatch(channel, offsets, from, to, fileSize)));
+            first = last + 1;
+        }
+        return results;
+    }
+
+    private Report verifyBatch(FileChannel channel, long[] offsets, int from, int to, long fileSize)
+            throws IOException {
+        Report report = new Report();
+        long base = offsets[from];
+        long end = DataFileScanner.memberEnd(offsets, to, fileSize);
+        byte[] bytes = DataFileScanner.read(channel, base, (int) (end - base));
+        for (int i = from; i <= to; i++) {
+            int offset = (int) (offsets[i] - base);
+            int length = (int) (DataFileScanner.memberEnd(offsets, i, fileSize) - offsets[i]);
+            String member = DataFileScanner.memberAsObject(bytes, offset, length, i == offsets.length - 1);
+            try (JsonReader reader = new JsonReader(new StringReader(member))) {
+                reader.beginObject();
+                String key = reader.nextName();
+                Account account = gson.fromJson(reader, Account.class);
+                checkAccount(key, account, report);
+            } catch (Exception e) {
+                report.parsed = false;
+                report.error("offset " + offsets[i], "unparseable account: " + e.getMessage());
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Fallback for files that are not pretty-printed: parse sequentially, check in parallel
+     */
+    private List<Future<Report>> streamAndSubmit(ExecutorService pool, Report report) {
+        List<Future<Report>> results = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(dataFile, StandardCharsets.UTF_8);
+             JsonReader reader = new JsonReader(in)) {
+            reader.beginObject();
+            List<Object[]> batch = new ArrayList<>();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                Account account = gson.fromJson(reader, Account.class);
+                batch.add(new Object[]{key, account});
+                if (batch.size() == STREAM_BATCH_ACCOUNTS) {
+                    results.add(submitChecks(pool, batch));
+                    batch = new ArrayList<>();
+                }
+            }
+            reader.endObject();
+            if (!batch.isEmpty()) {
+                results.add(submitChecks(pool, batch));
+            }
+        } catch (Exception e) {
+            report.parsed = false;
+            report.error("file", "parse error: " + e.getMessage());
+        }
+        return results;
+    }
+
+    private Future<Report> submitChecks(ExecutorService pool, List<Object[]> batch) {
+        return pool.submit(() -> {
+            Report report = new Report();
+            for (Object[] entry : batch) {
+                checkAccount((String) entry[0], (Account) entry[1], report);
+            }
+            return report;
+        });
+    }
+
+    void checkAccount(String key, Account account, Report report) {
+        if (account == null) {
+            report.error(key, "account entry is null");
+            return;
+        }
+        report.accounts++;
+        if (!seenNumbers.add(key)) {
+            report.error(key, "duplicate account number");
+        }
+        if (account.getAccountNumber() == null || !account.getAccountNumber().equals(key)) {
+            report.error(key, "stored accountNumber '" + account.getAccountNumber() + "' does not match key");
+        }
+        if (account.getCustomerName() == null || account.getCustomerName().trim().isEmpty()) {
+            report.warning(key, "missing customer name");
+        }
+
+        double balance = account.getBalance();
+        report.totalBalance += balance;
+        if (balance < -TOLERANCE) {
+            report.error(key, String.format("negative balance $%.2f", balance));
+        }
+
+        List<Transaction> transactions = account.getTransactions();
+        // Archived entries are folded into archivedNet; replay continues from there
+        double replayed = account.getArchivedNet();
+        report.transactions += account.getArchivedCount();
+        if (transactions == null) {
+            report.error(key, "missing transaction list");
+        } else {
+            report.transactions += transactions.size();
+            boolean reportedNegative = false;
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction transaction = transactions.get(i);
+                if (transaction == null || transaction.getType() == null || transaction.getDateTime() == null) {
+                    report.error(key, "malformed transaction #" + (i + 1));
+                    continue;
+                }
+                if (!(transaction.getAmount() > 0)) {
+                    report.error(key, "non-positive amount in transaction #" + (i + 1));
+                }
+                replayed += transaction.getSignedAmount();
+                if (replayed < -TOLERANCE && !reportedNegative) {
+                    report.error(key, "history goes negative at transaction #" + (i + 1));
+                    reportedNegative = true;
+                }
+            }
+        }
+        report.totalReplayed += replayed;
+        if (Math.abs(replayed - balance) > TOLERANCE) {
+            report.error(key, String.format("balance $%.2f does not match replayed history $%.2f",
+                    balance, replayed));
+        }
+
+        checkCredentials(key, account, report);
+    }
+
+    private void checkCredentials(String key, Account account, Report report) {
+        if (AccountMigrationHelper.needsMigration(account)) {
+            report.accountsNeedingMigration++;
+            boolean hasHash = account.getPasswordHash() != null && !account.getPasswordHash().isEmpty();
+            boolean hasPin = account.getPin() != null && !account.getPin().isEmpty();
+            if (hasHash != hasPin) {
+                report.error(key, "only one of password hash and PIN is set");
+            } else {
+                report.warning(key, "legacy account without credentials (needs migration)");
+            }
+            return;
+        }
+        if (!AuthService.isValidPin(account.getPin())) {
+            report.error(key, "PIN is not 4 digits");
+        }
+        if (!AuthService.isWellFormedHash(account.getPasswordHash())) {
+            report.error(key, "password hash is malformed");
+        }
+    }
+
+    public static void writeJson(Report report, String path) {
+        Gson pretty = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        try (FileWriter writer = new FileWriter(path)) {
+            writer.write(pretty.toJson(report.toMap()));
+        } catch (IOException e) {
+            System.err.println("❌ Error writing report: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Standalone tool: IntegrityVerifier [data-file] [--report=path]
+     */
+    public static void main(String[] args) {
+        String file = FileStorage.dataFilePath();
+        String reportPath = null;
+        for (String arg : args) {
+            if (arg.startsWith("--report=")) {
+                reportPath = arg.substring("--report=".length());
+            } else {
+                file = arg;
+            }
+        }
+        Report report = new IntegrityVerifier(Paths.get(file)).verify();
+        report.print();
+        if (reportPath != null) {
+            writeJson(report, reportPath);
+        }
+        System.exit(report.isClean() ? 0 : 1);
+    }
+}
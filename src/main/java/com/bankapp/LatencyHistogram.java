@@ -0,0 +1,123 @@
+package com.bankapp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Log-linear latency histogram (HdrHistogram style).
+ * Values below 128 are counted exactly; above that every power of two is split
+ * into 64 linear sub-buckets, so any recorded value is off by less than 1.6%.
+ * Not thread-safe: keep one per thread and merge() them for reporting.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_COUNT = SUB_COUNT / 2;
+    private static final int BUCKETS = (64 - SUB_BITS) * HALF_COUNT + SUB_COUNT;
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0.0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Returns the value at the given percentile (0-100), reported as the
+     * highest value that falls into the same bucket.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(percentile / 100.0 * totalCount);
+        if (target < 1) {
+            target = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueAt(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Summary in microseconds for values recorded in nanoseconds.
+     */
+    public Map<String, Object> summaryMicros() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", totalCount);
+        summary.put("mean", round(getMean() / 1000.0));
+        summary.put("p50", round(getValueAtPercentile(50.0) / 1000.0));
+        summary.put("p90", round(getValueAtPercentile(90.0) / 1000.0));
+        summary.put("p99", round(getValueAtPercentile(99.0) / 1000.0));
+        summary.put("p99.9", round(getValueAtPercentile(99.9) / 1000.0));
+        summary.put("max", round(max / 1000.0));
+        return summary;
+    }
+
+    static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS + 1;
+        int subBucket = (int) (value >>> magnitude);
+        return magnitude * HALF_COUNT + subBucket;
+    }
+
+    private static long highestValueAt(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int magnitude = (index - HALF_COUNT) / HALF_COUNT;
+        long subBucket = index - (long) magnitude * HALF_COUNT;
+        return ((subBucket + 1) << magnitude) - 1;
+    }
+}
@@ -0,0 +1,298 @@
+package com.bankapp;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Account number -> location of the account inside bank_data.json, so a Bank
+ * can start without deserializing any history.
+ *
+ * FileStorage writes the index next to the data file (bank_data.json.idx) on
+ * every save; loading it costs O(accounts) regardless of history size. If it
+ * is missing or stale the index is rebuilt by scanning the data file in
+ * parallel chunks.
+ */
+public class LazyAccountIndex {
+    private static final int MAGIC = 0x42414958; // "BAIX"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_PROBE_BYTES = 512;
+
+    /**
+     * Byte range of one member ("key": {...}) in the data file
+     */
+    static final class Entry {
+        final String accountNumber;
+        final long offset;
+        final int length;
+
+        Entry(String accountNumber, long offset, int length) {
+            this.accountNumber = accountNumber;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final FileChannel channel;
+    private final Map<String, Entry> entries;
+    private final boolean loadedFromIndexFile;
+
+    private LazyAccountIndex(FileChannel channel, Map<String, Entry> entries, boolean fromIndexFile) {
+        this.channel = channel;
+        this.entries = entries;
+        this.loadedFromIndexFile = fromIndexFile;
+    }
+
+    static Path indexFileFor(Path dataFile) {
+        return Paths.get(dataFile.toString() + ".idx");
+    }
+
+    /**
+     * Opens the index for a data file, or returns null if the file does not exist.
+     * Throws if the data file cannot be split into accounts.
+     */
+    public static LazyAccountIndex open(Path dataFile) throws IOException {
+        if (!Files.exists(dataFile)) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ);
+        try {
+            Map<String, Entry> entries = readIndexFile(dataFile);
+            boolean fromIndexFile = entries != null;
+            if (entries == null) {
+                entries = scan(channel);
+            }
+            return new LazyAccountIndex(channel, entries, fromIndexFile);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Wraps entries that were just written by FileStorage
+     */
+    static LazyAccountIndex forWrittenFile(Path dataFile, Collection<Entry> written) throws IOException {
+        Map<String, Entry> entries = new ConcurrentHashMap<>();
+        for (Entry entry : written) {
+            entries.put(entry.accountNumber, entry);
+        }
+        return new LazyAccountIndex(FileChannel.open(dataFile, StandardOpenOption.READ), entries, true);
+    }
+
+    public boolean isLoadedFromIndexFile() {
+        return loadedFromIndexFile;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean contains(String accountNumber) {
+        return entries.containsKey(accountNumber);
+    }
+
+    Entry get(String accountNumber) {
+        return entries.get(accountNumber);
+    }
+
+    Collection<Entry> entries() {
+        return entries.values();
+    }
+
+    void remove(String accountNumber) {
+        entries.remove(accountNumber);
+    }
+
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+
+    /**
+     * Deserializes one account with its full history
+     */
+    public Account load(String accountNumber) {
+        Entry entry = entries.get(accountNumber);
+        if (entry == null) {
+            return null;
+        }
+        try (JsonReader reader = new JsonReader(new StringReader("{" + readMember(entry) + "}"))) {
+            reader.beginObject();
+            reader.nextName();
+            return FileStorage.gson().fromJson(reader, Account.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load account " + accountNumber, e);
+        }
+    }
+
+    /**
+     * The member's raw text: "key": {...}
+     */
+    String readMember(Entry entry) throws IOException {
+        return new String(DataFileScanner.read(channel, entry.offset, entry.length), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The raw JSON value of a member, for copying unchanged accounts into a new file
+     */
+    String readRawValue(Entry entry) throws IOException {
+        String member = readMember(entry);
+        int i = 1;
+        while (i < member.length() && member.charAt(i) != '"') {
+            i += member.charAt(i) == '\\' ? 2 : 1;
+        }
+        int colon = member.indexOf(':', i);
+        return member.substring(colon + 1).trim();
+    }
+
+    static void writeIndexFile(Path dataFile, Collection<Entry> entries) {
+        Path indexFile = indexFileFor(dataFile);
+        File temp = new File(indexFile + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(Files.size(dataFile));
+                out.writeLong(Files.getLastModifiedTime(dataFile).toMillis());
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    out.writeUTF(entry.accountNumber);
+                    out.writeLong(entry.offset);
+                    out.writeInt(entry.length);
+                }
+            }
+            Files.move(temp.toPath(), indexFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            temp.delete();
+            System.err.println("⚠️  Could not write account index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns null if the index file is missing or does not match the data file
+     */
+    private static Map<String, Entry> readIndexFile(Path dataFile) {
+        File indexFile = indexFileFor(dataFile).toFile();
+        if (!indexFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+                    || in.readLong() != Files.size(dataFile)
+                    || in.readLong() != Files.getLastModifiedTime(dataFile).toMillis()) {
+                return null;
+            }
+            int count = in.readInt();
+            Map<String, Entry> entries = new ConcurrentHashMap<>(Math.max(16, count * 4 / 3 + 1));
+            for (int i = 0; i < count; i++) {
+                String number = in.readUTF();
+                entries.put(number, new Entry(number, in.readLong(), in.readInt()));
+            }
+            return entries;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Rebuilds the index from the data file: member boundaries come from a
+     * parallel chunk scan, account numbers from the first bytes of each member.
+     */
+    private static Map<String, Entry> scan(FileChannel channel) throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long[] offsets = DataFileScanner.findMemberOffsets(channel, parallelism);
+        if (offsets == null) {
+            throw new IOException("data file is not in the expected pretty-printed layout");
+        }
+        long fileSize = channel.size();
+        Map<String, Entry> entries = new ConcurrentHashMap<>(Math.max(16, offsets.length * 4 / 3 + 1));
+        try {
+            IntStream.range(0, offsets.length).parallel().forEach(i -> {
+                try {
+                    Entry entry = readEntry(channel, offsets, i, fileSize);
+                    if (entries.putIfAbsent(entry.accountNumber, entry) != null) {
+                        throw new IOException("duplicate account number " + entry.accountNumber);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return entries;
+    }
+
+    private static Entry readEntry(FileChannel channel, long[] offsets, int index, long fileSize)
+            throws IOException {
+        long start = offsets[index];
+        long end = DataFileScanner.memberEnd(offsets, index, fileSize);
+        int length = trimmedLength(channel, start, end, index == offsets.length - 1);
+
+        byte[] head = DataFileScanner.read(channel, start, Math.min(length, HEADER_PROBE_BYTES));
+        String text = new String(head, StandardCharsets.UTF_8);
+        try (JsonReader reader = new JsonReader(new StringReader("{" + text))) {
+            reader.beginObject();
+            return new Entry(reader.nextName(), start, length);
+        } catch (IOException | IllegalStateException e) {
+            throw new IOException("Cannot read account header at offset " + start + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Length of the member without the trailing separator (or the root's closing brace)
+     */
+    private static int trimmedLength(FileChannel channel, long start, long end, boolean last) throws IOException {
+        int probe = (int) Math.min(end - start, 64);
+        byte[] tail = DataFileScanner.read(channel, end - probe, probe);
+        int cut = tail.length;
+        while (cut > 0 && Character.isWhitespace(tail[cut - 1])) {
+            cut--;
+        }
+        if (last && cut > 0 && tail[cut - 1] == '}') {
+            cut--;
+            while (cut > 0 && Character.isWhitespace(tail[cut - 1])) {
+                cut--;
+            }
+        }
+        if (cut > 0 && tail[cut - 1] == ',') {
+            cut--;
+        }
+        return (int) (end - probe + cut - start);
+    }
+
+    /**
+     * Account numbers not yet materialized
+     */
+    List<String> accountNumbers() {
+        return new ArrayList<>(entries.keySet());
+    }
+}
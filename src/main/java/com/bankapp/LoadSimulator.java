@@ -0,0 +1,598 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Workload simulator: seeds accounts and drives a configurable operation mix
+ * against a Bank from several threads, then prints a JSON report.
+ *
+ * Usage:
+ *   java -cp target/classes:gson.jar com.bankapp.LoadSimulator
+ *        [--accounts=1000] [--threads=4] [--duration=30] [--warmup=5]
+ *        [--rate=0] [--mix=login=15,deposit=30,withdraw=25,wrongpin=5,balance=15,history=10]
+ *        [--seed=42] [--report=load-report.json] [--audit-log=path] [--trace=path] [--cdc=path]
+ *
+ * --rate is the total target ops/sec across all threads (0 = as fast as possible).
+ * In fixed-rate mode latency is measured from the intended start time, so
+ * stalls are not hidden by the load generator backing off.
+ * --trace records the run, from just after seeding, for TraceReplayer.
+ * --cdc publishes the run's changes to a feed file, with one in-process
+ * subscriber reading them in batches, and reports whether it saw them all.
+ */
+public class LoadSimulator {
+    private static final String[] OPERATIONS =
+            {"login", "deposit", "withdraw", "wrongpin", "balance", "history"};
+    private static final String DEFAULT_MIX =
+            "login=15,deposit=30,withdraw=25,wrongpin=5,balance=15,history=10";
+    // Shared by every account, so seeding hashes one password instead of one per account
+    private static final String PASSWORD = "load-pw";
+
+    private final int accountCount;
+    private final int threadCount;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final double rate;
+    private final long seed;
+    private final int[] mixWeights = new int[OPERATIONS.length];
+    private final String mixSpec;
+
+    private Bank bank;
+    private Path tracePath;
+    private Path changeFeedPath;
+    private String[] accountNumbers;
+    private LongAdder[] expectedNet;
+    private final List<Long> gcPauses = new ArrayList<>();
+
+    public LoadSimulator(int accountCount, int threadCount, int durationSeconds,
+                         int warmupSeconds, double rate, String mix, long seed) {
+        this.accountCount = accountCount;
+        this.threadCount = threadCount;
+        this.durationSeconds = durationSeconds;
+        this.warmupSeconds = warmupSeconds;
+        this.rate = rate;
+        this.seed = seed;
+        this.mixSpec = mix;
+        parseMix(mix);
+    }
+
+    private void parseMix(String mix) {
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + part);
+            }
+            int index = operationIndex(kv[0].trim());
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown operation in mix: " + kv[0]);
+            }
+            mixWeights[index] = Integer.parseInt(kv[1].trim());
+        }
+        int total = 0;
+        for (int weight : mixWeights) {
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Operation mix must have a positive total weight");
+        }
+    }
+
+    private static int operationIndex(String name) {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            if (OPERATIONS[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String pinFor(int index) {
+        return String.format("%04d", index % 10000);
+    }
+
+    private static String wrongPinFor(int index) {
+        return String.format("%04d", (index + 1) % 10000);
+    }
+
+    /**
+     * Records the simulated operations to a trace file
+     */
+    public void setTracePath(Path tracePath) {
+        this.tracePath = tracePath;
+    }
+
+    /**
+     * Publishes the simulated changes to a change feed file
+     */
+    public void setChangeFeedPath(Path changeFeedPath) {
+        this.changeFeedPath = changeFeedPath;
+    }
+
+    /**
+     * Requests events in batches and checks their sequence numbers have no gaps
+     */
+    private static class FeedCounter implements Flow.Subscriber<ChangeEvent> {
+        private static final int BATCH = 256;
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private Flow.Subscription subscription;
+        private int outstanding;
+        private long lastSeq = -1;
+        private long delivered;
+        private long gaps;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            outstanding = BATCH;
+            subscription.request(BATCH);
+        }
+
+        @Override
+        public void onNext(ChangeEvent event) {
+            if (lastSeq >= 0 && event.getSeq() != lastSeq + 1) {
+                gaps++;
+            }
+            lastSeq = event.getSeq();
+            delivered++;
+            if (--outstanding == 0) {
+                outstanding = BATCH;
+                subscription.request(BATCH);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    private void seedAccounts() {
+        bank = tracePath == null ? new Bank() : new TracingBank();
+        // Synthetic traffic would trip the velocity rules within seconds; the checks still run, with no rules
+        bank.setRiskEngine(new RiskEngine(Collections.emptyList()));
+        accountNumbers = new String[accountCount];
+        expectedNet = new LongAdder[accountCount];
+        String passwordHash = AuthService.hashPassword(PASSWORD);
+        Map<String, Account> accounts = new LinkedHashMap<>();
+        for (int i = 0; i < accountCount; i++) {
+            accountNumbers[i] = String.format("%010d", 1_000_000_000L + i);
+            accounts.put(accountNumbers[i], Account.withPasswordHash(accountNumbers[i], "Load Customer " + i,
+                    passwordHash, pinFor(i)));
+            expectedNet[i] = new LongAdder();
+        }
+        bank.loadAccounts(accounts);
+    }
+
+    private class Worker implements Runnable {
+        private final Random random;
+        private final long intervalNanos;
+        private final long warmupEnd;
+        private final long end;
+        private final CountDownLatch done;
+        final LatencyHistogram[] histograms = new LatencyHistogram[OPERATIONS.length];
+        final long[] failures = new long[OPERATIONS.length];
+        private final int totalWeight;
+
+        Worker(int id, long start, CountDownLatch done) {
+            this.random = new Random(seed + id);
+            this.intervalNanos = rate > 0 ? (long) (1_000_000_000L * threadCount / rate) : 0;
+            this.warmupEnd = start + warmupSeconds * 1_000_000_000L;
+            this.end = warmupEnd + durationSeconds * 1_000_000_000L;
+            this.done = done;
+            int sum = 0;
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                histograms[i] = new LatencyHistogram();
+                sum += mixWeights[i];
+            }
+            this.totalWeight = sum;
+        }
+
+        private int pickOperation() {
+            int roll = random.nextInt(totalWeight);
+            for (int i = 0; i < mixWeights.length; i++) {
+                roll -= mixWeights[i];
+                if (roll < 0) {
+                    return i;
+                }
+            }
+            return mixWeights.length - 1;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long intended = System.nanoTime();
+                while (true) {
+                    long now = System.nanoTime();
+                    if (intervalNanos > 0) {
+                        if (intended > now) {
+                            LockSupport.parkNanos(intended - now);
+                        }
+                    } else {
+                        intended = now;
+                    }
+                    if (intended >= end) {
+                        break;
+                    }
+
+                    int op = pickOperation();
+                    boolean ok = execute(op, random.nextInt(accountCount));
+                    long finished = System.nanoTime();
+
+                    if (intended >= warmupEnd) {
+                        histograms[op].record(finished - intended);
+                        if (!ok) {
+                            failures[op]++;
+                        }
+                    }
+                    intended = intervalNanos > 0 ? intended + intervalNanos : finished;
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private boolean execute(int op, int index) {
+            String accountNumber = accountNumbers[index];
+            switch (OPERATIONS[op]) {
+                case "login":
+                    return bank.authenticateUser(accountNumber, PASSWORD) != null;
+                case "deposit": {
+                    long amount = 1 + random.nextInt(500);
+                    boolean ok = bank.deposit(accountNumber, amount);
+                    if (ok) {
+                        expectedNet[index].add(amount);
+                    }
+                    return ok;
+                }
+                case "withdraw": {
+                    long amount = 1 + random.nextInt(300);
+                    boolean ok = bank.withdraw(accountNumber, amount, pinFor(index));
+                    if (ok) {
+                        expectedNet[index].add(-amount);
+                    }
+                    return ok;
+                }
+                case "wrongpin":
+                    // Expected to be rejected; success would be a bug
+                    return !bank.withdraw(accountNumber, 1, wrongPinFor(index));
+                case "balance":
+                    bank.checkBalance(accountNumber);
+                    return true;
+                case "history":
+                    bank.viewTransactions(accountNumber);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private NotificationListener installGcListener() {
+        NotificationListener listener = (Notification notification, Object handback) -> {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION
+                    .equals(notification.getType())) {
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+                        .from((CompositeData) notification.getUserData());
+                synchronized (gcPauses) {
+                    gcPauses.add(info.getGcInfo().getDuration());
+                }
+            }
+        };
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter) {
+                ((NotificationEmitter) gc).addNotificationListener(listener, null, null);
+            }
+        }
+        return listener;
+    }
+
+    private void removeGcListener(NotificationListener listener) {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter) {
+                try {
+                    ((NotificationEmitter) gc).removeNotificationListener(listener);
+                } catch (Exception ignored) {
+                    // listener was never attached to this collector
+                }
+            }
+        }
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, time};
+    }
+
+    public Map<String, Object> run() throws InterruptedException {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            long seedStart = System.nanoTime();
+            seedAccounts();
+            long seedNanos = System.nanoTime() - seedStart;
+            if (tracePath != null && !((TracingBank) bank).startTrace(tracePath)) {
+                throw new IllegalStateException("could not start the trace");
+            }
+            ChangeFeed feed = null;
+            FeedCounter counter = null;
+            long firstSeq = 0;
+            if (changeFeedPath != null) {
+                try {
+                    feed = ChangeFeed.start(bank, changeFeedPath);
+                } catch (IOException e) {
+                    throw new IllegalStateException("could not start the change feed", e);
+                }
+                firstSeq = feed.getCommittedSeq() + 1;
+                counter = new FeedCounter();
+                feed.subscribe(counter);
+            }
+
+            List<Worker> workers = new ArrayList<>();
+            CountDownLatch done = new CountDownLatch(threadCount);
+            long start = System.nanoTime();
+            for (int i = 0; i < threadCount; i++) {
+                workers.add(new Worker(i, start, done));
+            }
+
+            long measureStart = start + warmupSeconds * 1_000_000_000L;
+            for (int i = 0; i < threadCount; i++) {
+                Thread thread = new Thread(workers.get(i), "load-worker-" + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            long untilMeasure = measureStart - System.nanoTime();
+            if (untilMeasure > 0) {
+                Thread.sleep(untilMeasure / 1_000_000L);
+            }
+            NotificationListener gcListener = installGcListener();
+            long[] gcBefore = gcTotals();
+            done.await();
+            long measuredNanos = System.nanoTime() - measureStart;
+            if (tracePath != null) {
+                ((TracingBank) bank).stopTrace();
+            }
+            long[] gcAfter = gcTotals();
+            removeGcListener(gcListener);
+
+            Map<String, Object> report = buildReport(workers, seedNanos, measuredNanos, gcBefore, gcAfter);
+            if (feed != null) {
+                feed.close();
+                report.put("changeFeed", feedReport(feed, counter, firstSeq));
+            }
+            return report;
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    private Map<String, Object> buildReport(List<Worker> workers, long seedNanos, long measuredNanos,
+                                            long[] gcBefore, long[] gcAfter) {
+        Map<String, Object> report = new LinkedHashMap<>();
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("accounts", accountCount);
+        config.put("threads", threadCount);
+        config.put("durationSeconds", durationSeconds);
+        config.put("warmupSeconds", warmupSeconds);
+        config.put("targetRate", rate);
+        config.put("mix", mixSpec);
+        config.put("seed", seed);
+        config.put("javaVersion", System.getProperty("java.version"));
+        config.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("config", config);
+
+        double seconds = measuredNanos / 1_000_000_000.0;
+        report.put("seedSeconds", LatencyHistogram.round(seedNanos / 1_000_000_000.0));
+        report.put("measuredSeconds", LatencyHistogram.round(seconds));
+
+        LatencyHistogram all = new LatencyHistogram();
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            LatencyHistogram merged = new LatencyHistogram();
+            long failures = 0;
+            for (Worker worker : workers) {
+                merged.merge(worker.histograms[op]);
+                failures += worker.failures[op];
+            }
+            all.merge(merged);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("throughputPerSec", LatencyHistogram.round(merged.getTotalCount() / seconds));
+            stats.put("failures", failures);
+            stats.put("latencyMicros", merged.summaryMicros());
+            operations.put(OPERATIONS[op], stats);
+        }
+        report.put("totalOperations", all.getTotalCount());
+        report.put("throughputPerSec", LatencyHistogram.round(all.getTotalCount() / seconds));
+        report.put("latencyMicros", all.summaryMicros());
+        report.put("operations", operations);
+
+        Map<String, Object> gc = new LinkedHashMap<>();
+        gc.put("collections", gcAfter[0] - gcBefore[0]);
+        gc.put("totalTimeMillis", gcAfter[1] - gcBefore[1]);
+        long maxPause = 0;
+        synchronized (gcPauses) {
+            for (long pause : gcPauses) {
+                maxPause = Math.max(maxPause, pause);
+            }
+            gc.put("pausesObserved", gcPauses.size());
+        }
+        gc.put("maxPauseMillis", maxPause);
+        report.put("gc", gc);
+
+        report.put("consistency", checkConsistency());
+        return report;
+    }
+
+    private Map<String, Object> feedReport(ChangeFeed feed, FeedCounter counter, long firstSeq)
+            throws InterruptedException {
+        boolean completed = counter.completed.await(30, TimeUnit.SECONDS);
+        long written = feed.getCommittedSeq() - firstSeq + 1;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("file", feed.getFile().toString());
+        try {
+            report.put("fileBytes", Files.size(feed.getFile()));
+        } catch (IOException e) {
+            report.put("fileBytes", -1);
+        }
+        report.put("eventsWritten", written);
+        report.put("eventsDelivered", counter.delivered);
+        report.put("sequenceGaps", counter.gaps);
+        report.put("subscriberCompleted", completed && counter.error == null);
+        if (counter.error != null) {
+            report.put("subscriberError", counter.error.toString());
+        }
+        report.put("ok", completed && counter.error == null && counter.gaps == 0
+                && counter.delivered == written);
+        return report;
+    }
+
+    /**
+     * Balances must match both what the simulator saw succeed and a replay
+     * of each account's own transaction history.
+     */
+    private Map<String, Object> checkConsistency() {
+        long balanceMismatches = 0;
+        long historyMismatches = 0;
+        double expectedTotal = 0.0;
+        for (int i = 0; i < accountCount; i++) {
+            Account account = bank.getAccount(accountNumbers[i]);
+            double expected = expectedNet[i].sum();
+            expectedTotal += expected;
+
+            double replayed = account.getArchivedNet();
+            for (Transaction transaction : new ArrayList<>(account.getTransactions())) {
+                replayed += transaction.getSignedAmount();
+            }
+            if (Math.abs(account.getBalance() - expected) > 0.005) {
+                balanceMismatches++;
+            }
+            if (Math.abs(account.getBalance() - replayed) > 0.005) {
+                historyMismatches++;
+            }
+        }
+        double actualTotal = bank.getTotalBankBalance();
+
+        Map<String, Object> consistency = new LinkedHashMap<>();
+        consistency.put("accountsChecked", accountCount);
+        consistency.put("balanceMismatches", balanceMismatches);
+        consistency.put("historyMismatches", historyMismatches);
+        consistency.put("expectedTotalBalance", LatencyHistogram.round(expectedTotal));
+        consistency.put("actualTotalBalance", LatencyHistogram.round(actualTotal));
+        consistency.put("ok", balanceMismatches == 0 && historyMismatches == 0
+                && Math.abs(expectedTotal - actualTotal) < 0.005);
+        return consistency;
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int accounts = Integer.parseInt(option(args, "accounts", "1000"));
+        int threads = Integer.parseInt(option(args, "threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int duration = Integer.parseInt(option(args, "duration", "30"));
+        int warmup = Integer.parseInt(option(args, "warmup", "5"));
+        double rate = Double.parseDouble(option(args, "rate", "0"));
+        String mix = option(args, "mix", DEFAULT_MIX);
+        long seed = Long.parseLong(option(args, "seed", "42"));
+        String reportPath = option(args, "report", null);
+        String auditLog = option(args, "audit-log", null);
+        String trace = option(args, "trace", null);
+        String cdc = option(args, "cdc", null);
+
+        File tempAudit = null;
+        if (auditLog == null) {
+            tempAudit = File.createTempFile("loadsim-audit", ".log");
+            auditLog = tempAudit.getPath();
+        }
+        AuditService.setLogFile(auditLog);
+
+        LoadSimulator simulator = new LoadSimulator(accounts, threads, duration, warmup, rate, mix, seed);
+        if (trace != null) {
+            simulator.setTracePath(Paths.get(trace));
+        }
+        if (cdc != null) {
+            simulator.setChangeFeedPath(Paths.get(cdc));
+        }
+        System.err.println("Running load simulation: " + accounts + " accounts, "
+                + threads + " threads, " + duration + "s (+" + warmup + "s warm-up)...");
+        Map<String, Object> report = simulator.run();
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        String json = gson.toJson(report);
+        if (reportPath != null) {
+            try (FileWriter writer = new FileWriter(reportPath)) {
+                writer.write(json);
+                writer.write(System.lineSeparator());
+            } catch (IOException e) {
+                System.err.println("❌ Error writing report: " + e.getMessage());
+            }
+            System.err.println("✅ Report written to " + reportPath);
+        } else {
+            System.out.println(json);
+        }
+
+        if (tempAudit != null) {
+            tempAudit.delete();
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> consistency = (Map<String, Object>) report.get("consistency");
+        if (!Boolean.TRUE.equals(consistency.get("ok"))) {
+            System.err.println("❌ Balance consistency check failed");
+            System.exit(1);
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> changeFeed = (Map<String, Object>) report.get("changeFeed");
+        if (changeFeed != null && !Boolean.TRUE.equals(changeFeed.get("ok"))) {
+            System.err.println("❌ Change feed check failed");
+            System.exit(1);
+        }
+    }
+}
@@ -1,26 +1,143 @@
 package com.bankapp;
 
-import com.google.gson.*;
-import java.lang.reflect.Type;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
-public class LocalDateTimeAdapter implements JsonSerializer<LocalDateTime>,
-        JsonDeserializer<LocalDateTime> {
+/**
+ * Dates as ISO-8601 local date-time text. Streams the value rather than
+ * building a JSON tree for it, and reads and writes the common shape without
+ * going through DateTimeFormatter, which is most of the cost of loading a
+ * large history before the JIT has compiled it, and of writing the change feed.
+ */
+public class LocalDateTimeAdapter extends TypeAdapter<LocalDateTime> {
 
     private static final DateTimeFormatter FORMATTER =
             DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
     @Override
-    public JsonElement serialize(LocalDateTime dateTime, Type type,
-                                 JsonSerializationContext context) {
-        return new JsonPrimitive(dateTime.format(FORMATTER));
+    public void write(JsonWriter out, LocalDateTime dateTime) throws IOException {
+        if (dateTime == null) {
+            out.nullValue();
+            return;
+        }
+        String text = formatCommon(dateTime);
+        out.value(text != null ? text : dateTime.format(FORMATTER));
     }
 
     @Override
-    public LocalDateTime deserialize(JsonElement json, Type type,
-                                     JsonDeserializationContext context)
-            throws JsonParseException {
-        return LocalDateTime.parse(json.getAsString(), FORMATTER);
+    public LocalDateTime read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String text = in.nextString();
+        LocalDateTime parsed = parseCommon(text);
+        return parsed != null ? parsed : LocalDateTime.parse(text, FORMATTER);
+    }
+
+    /**
+     * yyyy-MM-ddTHH:mm[:ss[.fraction]] as the formatter writes it, or null for
+     * anything else, left to the formatter to parse or reject
+     */
+    static LocalDateTime parseCommon(String text) {
+        int length = text.length();
+        if (length < 16 || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+                || text.charAt(13) != ':') {
+            return null;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = 0;
+        int nano = 0;
+        if (length > 16) {
+            if (length < 19 || text.charAt(16) != ':') {
+                return null;
+            }
+            second = digits(text, 17, 2);
+            if (length > 19) {
+                int fractionDigits = length - 20;
+                if (text.charAt(19) != '.' || fractionDigits < 1 || fractionDigits > 9) {
+                    return null;
+                }
+                nano = digits(text, 20, fractionDigits);
+                for (int i = fractionDigits; i < 9; i++) {
+                    nano *= 10;
+                }
+            }
+        }
+        if ((year | month | day | hour | minute | second | nano) < 0) {
+            return null;
+        }
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The text the formatter writes for years 0 to 9999, or null for other
+     * years, left to the formatter
+     */
+    static String formatCommon(LocalDateTime dateTime) {
+        int year = dateTime.getYear();
+        if (year < 0 || year > 9999) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder(29);
+        pad(text, year, 4).append('-');
+        pad(text, dateTime.getMonthValue(), 2).append('-');
+        pad(text, dateTime.getDayOfMonth(), 2).append('T');
+        pad(text, dateTime.getHour(), 2).append(':');
+        pad(text, dateTime.getMinute(), 2).append(':');
+        pad(text, dateTime.getSecond(), 2);
+        int nano = dateTime.getNano();
+        if (nano > 0) {
+            // The shortest fraction that keeps every non-zero digit
+            int fractionDigits = 9;
+            while (nano % 10 == 0) {
+                nano /= 10;
+                fractionDigits--;
+            }
+            pad(text.append('.'), nano, fractionDigits);
+        }
+        return text.toString();
+    }
+
+    private static StringBuilder pad(StringBuilder text, int value, int width) {
+        for (int limit = 10; width > 1; limit *= 10, width--) {
+            if (value < limit) {
+                for (int i = 1; i < width; i++) {
+                    text.append('0');
+                }
+                break;
+            }
+        }
+        return text.append(value);
+    }
+
+    /**
+     * The decimal value of count digits at offset, or -1 if any is not a digit
+     */
+    private static int digits(String text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
     }
-}
\ No newline at end of file
+}
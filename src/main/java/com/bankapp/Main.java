@@ -1,7 +1,22 @@
 package com.bankapp;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
 public class Main {
     private static Bank bank;
+    private static StandingOrderScheduler standingOrders;
+    // The bank when started with --trace, otherwise null
+    private static TracingBank tracingBank;
+    // The feed when started with --cdc, otherwise null
+    private static ChangeFeed changeFeed;
     private static Account loggedInAccount;
     private static boolean running = true;
 
@@ -10,12 +25,578 @@ public class Main {
         System.out.println("    🏦 Welcome to Simple Banking System 🏦");
         System.out.println("=".repeat(60));
 
-        bank = new Bank();
-        bank.loadFromFile();
+        if (!verifyDataFile(args) || !verifyAuditLog(args) || !restoreBackup(args)) {
+            return;
+        }
+
+        if (hasFlag(args, "partitions")) {
+            runPartitioned(args);
+            return;
+        }
+
+        boolean follower = hasFlag(args, "follower");
+        // --trace=file records every operation for TraceReplayer; a follower serves none worth replaying
+        String trace = follower ? null : option(args, "trace");
+        if (trace != null) {
+            tracingBank = new TracingBank();
+            bank = tracingBank;
+        } else {
+            bank = new Bank();
+        }
+        if (follower) {
+            startMetrics(args);
+            if (!followPrimary(option(args, "follower"))) {
+                BankMetrics.stopPeriodicDump();
+                return;
+            }
+        } else {
+            // Before any accounts are loaded, so the scratch bank shares no listeners with the real one
+            if (hasFlag(args, "warm-up")) {
+                String iterations = option(args, "warm-up");
+                // At most nine digits, so the count always fits an int
+                if (iterations != null && !iterations.matches("\\d{1,9}")) {
+                    System.out.println("❌ Usage: --warm-up[=N]");
+                    System.exit(1);
+                }
+                long took = FastStart.warmUp(iterations == null
+                        ? FastStart.DEFAULT_WARM_UP_ITERATIONS : Integer.parseInt(iterations));
+                BankMetrics.get().reset();
+                System.out.println("✅ Warmed up in " + took + " ms.");
+            }
+            if (!loadBank(args)) {
+                System.out.println("❌ Refusing to start: the data file is unreadable or corrupt.");
+                System.out.println("   Run with --verify for a detailed report, or restore from a backup.");
+                System.exit(1);
+            }
+            // --archive-history moves old entries out at startup; end-of-day runs do it regardless
+            if (hasFlag(args, "archive-history") && bank.archiveHistory() > 0) {
+                bank.saveToFile();
+            }
+            bank.applyHotAccounts();
+            // --offheap-table[=path] mirrors balances and status into a memory-mapped file
+            if (hasFlag(args, "offheap-table")) {
+                String table = option(args, "offheap-table");
+                if (!bank.attachOffHeapTable(table == null ? OffHeapAccountTable.defaultPath() : table)) {
+                    System.exit(1);
+                }
+            }
+            if (tracingBank != null && !tracingBank.startTrace(Paths.get(trace))) {
+                System.exit(1);
+            }
+            startChangeFeed(args);
+            startMetrics(args);
+            if (hasFlag(args, "partition-server")) {
+                servePartition(args);
+                return;
+            }
+        }
+
+        standingOrders = StandingOrderScheduler.load(bank);
+        if (standingOrders == null) {
+            System.exit(1);
+        }
+
+        if (!follower && runBatchMode(args)) {
+            stopTrace();
+            stopChangeFeed();
+            BankMetrics.stopPeriodicDump();
+            return;
+        }
+        startReplication(args);
+        // Built now so the first admin query does not wait; with --lazy it would read every account
+        if (!follower && !hasFlag(args, "lazy")) {
+            bank.getAnalytics();
+        }
+
+        // Catches up on payments missed while the bank was down, then keeps paying in the background
+        StandingOrderScheduler.RunSummary missed = standingOrders.runAndSave(LocalDateTime.now());
+        if (missed.getOrders() > 0) {
+            System.out.println("📅 Standing orders caught up: " + missed);
+        }
+        standingOrders.start();
 
+        System.out.println("ℹ️  Ready in " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms.");
         showInitialMenu();
     }
 
+    /**
+     * --store[=dir] keeps accounts in an on-disk store with a bounded cache of
+     * --cache-mb megabytes (default 64); --lazy reads accounts from the data
+     * file on first use; otherwise the whole data file is loaded.
+     */
+    private static boolean loadBank(String[] args) {
+        if (hasFlag(args, "store")) {
+            String directory = option(args, "store");
+            String cacheMb = option(args, "cache-mb");
+            // 1 MB to just under 1 TB, so the byte count cannot overflow
+            if (cacheMb != null && !cacheMb.matches("[1-9]\\d{0,5}")) {
+                System.out.println("❌ Usage: --cache-mb=N (1 to 999999 megabytes)");
+                System.exit(1);
+            }
+            return bank.openStore(directory == null ? DiskAccountStore.defaultDirectory() : directory,
+                    (cacheMb == null ? 64 : Long.parseLong(cacheMb)) * 1024 * 1024);
+        }
+        return hasFlag(args, "lazy") ? bank.loadLazily() : bank.loadFromFile();
+    }
+
+    /**
+     * --replicate=port streams every change to followers connecting on localhost:port
+     */
+    private static void startReplication(String[] args) {
+        String port = option(args, "replicate");
+        if (port == null) {
+            return;
+        }
+        try {
+            ReplicationPrimary primary = ReplicationPrimary.start(bank, Integer.parseInt(port));
+            System.out.println("🔁 Accepting replication followers on localhost:" + primary.getPort());
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("❌ Could not start replication on port " + port + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * --follower=[host:]port runs a read-only replica of that primary. Returns
+     * true if the replica was promoted and should carry on as a primary.
+     */
+    private static boolean followPrimary(String primary) {
+        if (primary == null) {
+            System.out.println("❌ Usage: --follower=[host:]port");
+            System.exit(1);
+        }
+        int colon = primary.lastIndexOf(':');
+        String host = colon < 0 ? "localhost" : primary.substring(0, colon);
+        int port = Integer.parseInt(primary.substring(colon + 1));
+
+        ReplicationFollower replica = ReplicationFollower.start(bank, host, port);
+        System.out.println("🔁 Connecting to primary " + replica.getPrimary() + "...");
+        for (int i = 0; i < 100 && !replica.isCaughtUp(); i++) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        System.out.println("ℹ️  " + replica.status());
+
+        while (true) {
+            displayReplicaMenu(replica);
+            int choice = InputUtil.readInt("Choose option: ");
+            System.out.println();
+
+            switch (choice) {
+                case 1:
+                case 2:
+                    String accountNumber = InputUtil.readString("Enter account number: ");
+                    String password = InputUtil.readString("Enter password: ");
+                    if (bank.authenticateUser(accountNumber, password) == null) {
+                        System.out.println("❌ Login failed.");
+                    } else if (choice == 1) {
+                        bank.checkBalance(accountNumber);
+                    } else {
+                        bank.viewTransactions(accountNumber);
+                    }
+                    break;
+                case 3:
+                    if (AuthService.authenticateAdmin(InputUtil.readString("Enter admin password: "))) {
+                        bank.displayAllAccountsAdmin();
+                        System.out.println("Total Bank Balance: $" + String.format("%.2f", bank.getTotalBankBalance()));
+                    } else {
+                        System.out.println("❌ Invalid admin password.");
+                    }
+                    break;
+                case 4:
+                    System.out.println("ℹ️  " + replica.status());
+                    break;
+                case 5:
+                    if (!AuthService.authenticateAdmin(InputUtil.readString("Enter admin password: "))) {
+                        System.out.println("❌ Invalid admin password.");
+                        break;
+                    }
+                    replica.promote();
+                    System.out.println("✅ Promoted to primary at change " + replica.getAppliedSeq()
+                            + ". Make sure the old primary is stopped.");
+                    bank.saveToFile();
+                    return true;
+                case 6:
+                    replica.close();
+                    System.out.println("👋 Replica stopped.");
+                    return false;
+                default:
+                    System.out.println("❌ Invalid option. Please choose between 1-6.");
+            }
+        }
+    }
+
+    private static void displayReplicaMenu(ReplicationFollower replica) {
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("        🔁 Read-only Replica");
+        System.out.println("   " + replica.status());
+        System.out.println("=".repeat(60));
+        System.out.println("1. Check Balance");
+        System.out.println("2. View Transactions");
+        System.out.println("3. All Accounts (admin)");
+        System.out.println("4. Replication Status");
+        System.out.println("5. Promote to Primary (admin)");
+        System.out.println("6. Exit");
+        System.out.println("=".repeat(60));
+    }
+
+    /**
+     * --partition-server=port --partition=i/N serves partition i of a
+     * partitioned bank until the router stops it
+     */
+    private static void servePartition(String[] args) {
+        String partition = option(args, "partition");
+        String port = option(args, "partition-server");
+        if (partition == null || port == null || !partition.matches("\\d+/\\d+")) {
+            System.out.println("❌ Usage: --partition-server=port --partition=index/count");
+            System.exit(1);
+        }
+        int index = Integer.parseInt(partition.substring(0, partition.indexOf('/')));
+        int count = Integer.parseInt(partition.substring(partition.indexOf('/') + 1));
+        try {
+            PartitionServer server = PartitionServer.start(bank, index, count, Integer.parseInt(port));
+            System.out.println("🧩 Partition " + index + " of " + count + " serving on localhost:" + server.getPort());
+            server.awaitShutdown();
+        } catch (IOException e) {
+            System.out.println("❌ Could not start partition " + index + ": " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        bank.saveToFile();
+        bank.detachOffHeapTable();
+        BankMetrics.stopPeriodicDump();
+    }
+
+    /**
+     * --partitions=N runs the bank as N partition processes behind a router.
+     * --store, --lazy and --cache-mb are passed on to the partitions.
+     */
+    private static void runPartitioned(String[] args) {
+        String partitions = option(args, "partitions");
+        if (partitions == null || !partitions.matches("\\d+") || Integer.parseInt(partitions) < 1) {
+            System.out.println("❌ Usage: --partitions=N");
+            System.exit(1);
+        }
+        List<String> partitionArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--store") || arg.equals("--lazy") || arg.startsWith("--cache-mb=")) {
+                partitionArgs.add(arg);
+            }
+        }
+        System.out.println("🧩 Starting " + partitions + " partition(s)...");
+        try (PartitionRouter router = PartitionRouter.open(Integer.parseInt(partitions), partitionArgs)) {
+            showPartitionedMenu(router);
+        } catch (IOException e) {
+            System.out.println("❌ Could not start the partitions: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void showPartitionedMenu(PartitionRouter router) {
+        while (true) {
+            System.out.println("\n" + "=".repeat(60));
+            System.out.println("   🏦 Simple Banking System (" + router.getPartitionCount() + " partitions)");
+            System.out.println("=".repeat(60));
+            System.out.println("1. Customer Login");
+            System.out.println("2. Create New Account");
+            System.out.println("3. All Accounts (admin)");
+            System.out.println("4. Total Bank Balance (admin)");
+            System.out.println("5. Partition Status");
+            System.out.println("6. Exit");
+            System.out.println("=".repeat(60));
+            int choice = InputUtil.readInt("Choose option: ");
+            System.out.println();
+
+            switch (choice) {
+                case 1:
+                    String accountNumber = InputUtil.readString("Enter account number: ");
+                    String customerName = router.authenticateUser(accountNumber,
+                            InputUtil.readString("Enter password: "));
+                    if (customerName == null) {
+                        System.out.println("❌ Login failed. Please try again.");
+                    } else {
+                        System.out.println("\n✅ Login successful!");
+                        System.out.println("Welcome, " + customerName + "!");
+                        showPartitionedCustomerMenu(router, accountNumber, customerName);
+                    }
+                    break;
+                case 2:
+                    String name = InputUtil.readString("Enter customer name: ");
+                    String password = InputUtil.readString("Create password: ");
+                    String pin = InputUtil.readString("Create 4-digit PIN: ");
+                    if (!AuthService.isValidPin(pin)) {
+                        System.out.println("❌ PIN must be exactly 4 digits!");
+                        break;
+                    }
+                    String requested = InputUtil.readStringAllowEmpty("Account number (Enter to generate): ");
+                    router.createAccount(name, requested, password, pin);
+                    break;
+                case 3:
+                case 4:
+                    if (!AuthService.authenticateAdmin(InputUtil.readString("Enter admin password: "))) {
+                        System.out.println("❌ Invalid admin password.");
+                    } else if (choice == 3) {
+                        router.displayAllAccountsAdmin();
+                    } else {
+                        double total = router.getTotalBankBalance();
+                        if (!Double.isNaN(total)) {
+                            System.out.println("Total Bank Balance: $" + String.format("%.2f", total));
+                        }
+                    }
+                    break;
+                case 5:
+                    router.displayStatus();
+                    break;
+                case 6:
+                    System.out.println("👋 Stopping partitions. Goodbye!");
+                    return;
+                default:
+                    System.out.println("❌ Invalid option. Please choose between 1-6.");
+            }
+        }
+    }
+
+    private static void showPartitionedCustomerMenu(PartitionRouter router, String accountNumber,
+                                                    String customerName) {
+        while (true) {
+            System.out.println("\n" + "=".repeat(60));
+            System.out.println("        Banking Menu - " + customerName);
+            System.out.println("=".repeat(60));
+            System.out.println("1. Deposit");
+            System.out.println("2. Withdraw");
+            System.out.println("3. Transfer");
+            System.out.println("4. Check Balance");
+            System.out.println("5. View Transactions");
+            System.out.println("6. Logout");
+            System.out.println("=".repeat(60));
+            int choice = InputUtil.readInt("Choose option: ");
+            System.out.println();
+
+            switch (choice) {
+                case 1:
+                    router.deposit(accountNumber, InputUtil.readDouble("Enter deposit amount: $"));
+                    break;
+                case 2:
+                    double amount = InputUtil.readDouble("Enter withdrawal amount: $");
+                    router.withdraw(accountNumber, amount, InputUtil.readString("Enter your 4-digit PIN: "));
+                    break;
+                case 3:
+                    String toAccount = InputUtil.readString("Transfer to account: ");
+                    double transferAmount = InputUtil.readDouble("Amount: $");
+                    router.transfer(accountNumber, toAccount, transferAmount,
+                            InputUtil.readString("Enter your 4-digit PIN: "));
+                    break;
+                case 4:
+                    router.checkBalance(accountNumber);
+                    break;
+                case 5:
+                    router.viewTransactions(accountNumber);
+                    break;
+                case 6:
+                    System.out.println("👋 Logged out successfully.");
+                    return;
+                default:
+                    System.out.println("❌ Invalid option. Please choose between 1-6.");
+            }
+        }
+    }
+
+    /**
+     * --verify checks the data file and exits; --verify-on-start refuses to
+     * start the bank unless the check passes. Returns false if main should stop.
+     */
+    private static boolean verifyDataFile(String[] args) {
+        boolean verifyOnly = hasFlag(args, "verify");
+        if (!verifyOnly && !hasFlag(args, "verify-on-start")) {
+            return true;
+        }
+
+        IntegrityVerifier.Report report = IntegrityVerifier.forDataFile().verify();
+        String reportPath = option(args, "report");
+        if (reportPath != null) {
+            IntegrityVerifier.writeJson(report, reportPath);
+        }
+        if (verifyOnly || !report.isClean()) {
+            report.print();
+        }
+        if (!report.isClean()) {
+            System.out.println("❌ Refusing to start: data file failed verification.");
+            System.exit(1);
+        }
+        return !verifyOnly;
+    }
+
+    /**
+     * Non-interactive runs for schedulers: --end-of-day[=YYYY-MM-DD], --statements[=YYYY-MM],
+     * --standing-orders (pays everything due and exits), --backup[=full|incremental].
+     * Returns true if a batch command ran and the menu should be skipped.
+     */
+    private static boolean runBatchMode(String[] args) {
+        if (hasFlag(args, "end-of-day")) {
+            String date = option(args, "end-of-day");
+            LocalDate businessDate;
+            try {
+                businessDate = date == null ? LocalDate.now().minusDays(1) : LocalDate.parse(date);
+            } catch (DateTimeParseException e) {
+                System.out.println("❌ Usage: --end-of-day[=YYYY-MM-DD]");
+                System.exit(1);
+                return true;
+            }
+            if (!new EndOfDayJob(bank, businessDate).run()) {
+                System.exit(1);
+            }
+            return true;
+        }
+        if (hasFlag(args, "statements")) {
+            String month = option(args, "statements");
+            YearMonth statementMonth;
+            try {
+                statementMonth = month == null ? YearMonth.now().minusMonths(1) : YearMonth.parse(month);
+            } catch (DateTimeParseException e) {
+                System.out.println("❌ Usage: --statements[=YYYY-MM]");
+                System.exit(1);
+                return true;
+            }
+            if (!new StatementGenerator(bank, statementMonth).run()) {
+                System.exit(1);
+            }
+            return true;
+        }
+        if (hasFlag(args, "standing-orders")) {
+            System.out.println("📅 Standing orders: " + standingOrders.runAndSave(LocalDateTime.now()));
+            return true;
+        }
+        if (hasFlag(args, "backup")) {
+            String type = option(args, "backup");
+            BackupManager.Result result = bank.getBackups().backup(bank, "incremental".equals(type));
+            if (result == null) {
+                System.exit(1);
+            }
+            AuditService.logBackup(result.getFile().getFileName().toString(), "BATCH");
+            System.out.println("✅ " + result);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * --verify-audit checks the audit log's hash chain and checkpoints and exits
+     */
+    private static boolean verifyAuditLog(String[] args) {
+        if (!hasFlag(args, "verify-audit")) {
+            return true;
+        }
+        AuditVerifier.Report report = AuditVerifier.forAuditLog().verify();
+        report.print();
+        if (!report.isClean()) {
+            System.exit(1);
+        }
+        return false;
+    }
+
+    /**
+     * --verify-backup=file checks a backup and the ones it builds on;
+     * --restore=file restores the data files from it. Both exit when done,
+     * before the bank is loaded. Returns false if main should stop.
+     */
+    private static boolean restoreBackup(String[] args) {
+        String verify = option(args, "verify-backup");
+        if (verify != null) {
+            List<String> problems = new BackupManager().verify(Paths.get(verify));
+            if (!problems.isEmpty()) {
+                System.out.println("❌ " + verify + " failed verification:");
+                problems.forEach(problem -> System.out.println("   " + problem));
+                System.exit(1);
+            }
+            System.out.println("✅ " + verify + " and the backups it builds on are intact.");
+            return false;
+        }
+        String restore = option(args, "restore");
+        if (restore == null) {
+            return true;
+        }
+        if (!new BackupManager().restore(Paths.get(restore))) {
+            System.exit(1);
+        }
+        AuditService.logRestore(Paths.get(restore).getFileName().toString());
+        return false;
+    }
+
+    /**
+     * --metrics-file=path appends a JSON metrics line every
+     * --metrics-interval seconds (default 60)
+     */
+    private static void startMetrics(String[] args) {
+        BankMetrics.register(bank);
+
+        String metricsFile = option(args, "metrics-file");
+        if (metricsFile != null) {
+            String interval = option(args, "metrics-interval");
+            if (interval != null && !interval.matches("[1-9]\\d{0,8}")) {
+                System.out.println("❌ Usage: --metrics-interval=SECONDS (a positive whole number)");
+                System.exit(1);
+            }
+            BankMetrics.startPeriodicDump(metricsFile,
+                    interval == null ? 60 : Long.parseLong(interval));
+            System.out.println("📊 Writing metrics to " + metricsFile);
+        }
+    }
+
+    /**
+     * --cdc[=path] publishes every committed change to a feed file (default
+     * data/cdc/changes.jsonl) that ChangeFeedTail and subscribers read
+     */
+    private static void startChangeFeed(String[] args) {
+        if (!hasFlag(args, "cdc")) {
+            return;
+        }
+        String path = option(args, "cdc");
+        try {
+            changeFeed = ChangeFeed.start(bank, path == null ? ChangeFeed.defaultPath() : Paths.get(path));
+            System.out.println("📡 Publishing changes to " + changeFeed.getFile()
+                    + " (from #" + (changeFeed.getCommittedSeq() + 1) + ")");
+        } catch (IOException e) {
+            System.out.println("❌ Could not open the change feed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void stopChangeFeed() {
+        if (changeFeed != null) {
+            changeFeed.close();
+        }
+    }
+
+    private static void stopTrace() {
+        if (tracingBank != null) {
+            tracingBank.stopTrace();
+        }
+    }
+
+    private static boolean hasFlag(String[] args, String name) {
+        for (String arg : args) {
+            if (arg.equals("--" + name) || arg.startsWith("--" + name + "=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String option(String[] args, String name) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+
     private static void showInitialMenu() {
         while (running) {
             displayInitialMenu();
@@ -140,11 +721,14 @@ public class Main {
                     viewTransactions();
                     break;
                 case 5:
+                    manageStandingOrders();
+                    break;
+                case 6:
                     customerSession = false;
                     logout();
                     break;
                 default:
-                    System.out.println("❌ Invalid option. Please choose between 1-5.");
+                    System.out.println("❌ Invalid option. Please choose between 1-6.");
             }
         }
     }
@@ -157,7 +741,8 @@ public class Main {
         System.out.println("2. Withdraw");
         System.out.println("3. Check Balance");
         System.out.println("4. View Transactions");
-        System.out.println("5. Logout");
+        System.out.println("5. Standing Orders");
+        System.out.println("6. Logout");
         System.out.println("=".repeat(60));
     }
 
@@ -192,6 +777,100 @@ public class Main {
         bank.viewTransactions(loggedInAccount.getAccountNumber());
     }
 
+    private static void manageStandingOrders() {
+        System.out.println("\n--- Standing Orders ---");
+        System.out.println("1. View my standing orders");
+        System.out.println("2. Set up a standing order");
+        System.out.println("3. Cancel a standing order");
+        System.out.println("4. Back");
+        int choice = InputUtil.readInt("Choose option: ");
+
+        switch (choice) {
+            case 1:
+                listStandingOrders();
+                break;
+            case 2:
+                createStandingOrder();
+                break;
+            case 3:
+                long id = InputUtil.readInt("Enter standing order ID: ");
+                if (standingOrders.cancel(id, loggedInAccount.getAccountNumber())) {
+                    standingOrders.save();
+                    System.out.println("✅ Standing order " + id + " cancelled.");
+                } else {
+                    System.out.println("❌ No active standing order " + id + " on your account.");
+                }
+                break;
+            case 4:
+                break;
+            default:
+                System.out.println("❌ Invalid option. Please choose between 1-4.");
+        }
+    }
+
+    private static void listStandingOrders() {
+        List<StandingOrder> orders = standingOrders.ordersFrom(loggedInAccount.getAccountNumber());
+        if (orders.isEmpty()) {
+            System.out.println("ℹ️  You have no standing orders.");
+            return;
+        }
+        System.out.println("\n" + "=".repeat(90));
+        System.out.printf("%-5s %-12s %10s %-8s %-10s %-17s %s%n",
+                "ID", "To", "Amount", "Every", "Status", "Next", "Last result");
+        System.out.println("-".repeat(90));
+        for (StandingOrder order : orders) {
+            LocalDateTime due = order.getDueAt();
+            System.out.printf("%-5d %-12s %10.2f %-8s %-10s %-17s %s%n",
+                    order.getId(), order.getToAccount(), order.getAmount(), order.getFrequency(),
+                    order.getStatus(), due == null ? "-" : due.toString().replace('T', ' '),
+                    order.getLastResult() == null ? "-" : order.getLastResult());
+        }
+        System.out.println("=".repeat(90));
+    }
+
+    private static void createStandingOrder() {
+        String toAccount = InputUtil.readString("Pay to account number: ");
+        if (!bank.accountExists(toAccount) || toAccount.equals(loggedInAccount.getAccountNumber())) {
+            System.out.println("❌ Enter another existing account.");
+            return;
+        }
+        double amount = InputUtil.readDouble("Amount per payment: $");
+        if (amount <= 0) {
+            System.out.println("❌ Amount must be greater than 0.");
+            return;
+        }
+        System.out.println("Frequency: 1. Once  2. Daily  3. Weekly  4. Monthly");
+        int frequency = InputUtil.readInt("Choose frequency: ");
+        if (frequency < 1 || frequency > 4) {
+            System.out.println("❌ Invalid frequency.");
+            return;
+        }
+        LocalDate firstDate;
+        LocalDate endDate;
+        try {
+            String first = InputUtil.readStringAllowEmpty("First payment date (YYYY-MM-DD, empty for today): ");
+            firstDate = first.isEmpty() ? LocalDate.now() : LocalDate.parse(first);
+            String end = InputUtil.readStringAllowEmpty("Last payment date (YYYY-MM-DD, empty for none): ");
+            endDate = end.isEmpty() ? null : LocalDate.parse(end);
+        } catch (DateTimeParseException e) {
+            System.out.println("❌ Dates must look like 2026-01-31.");
+            return;
+        }
+        String pin = InputUtil.readString("Enter your 4-digit PIN to authorize: ");
+        if (!AuthService.verifyPin(pin, loggedInAccount.getPin())) {
+            System.out.println("❌ Invalid PIN.");
+            bank.recordWrongPin(loggedInAccount.getAccountNumber());
+            return;
+        }
+
+        LocalDateTime start = firstDate.equals(LocalDate.now()) ? LocalDateTime.now() : firstDate.atStartOfDay();
+        StandingOrder order = standingOrders.create(loggedInAccount.getAccountNumber(), toAccount, amount,
+                StandingOrder.Frequency.values()[frequency - 1], start, endDate);
+        standingOrders.save();
+        System.out.println("✅ Standing order " + order.getId() + " set up. First payment: "
+                + start.toLocalDate() + ".");
+    }
+
     private static void logout() {
         System.out.println("\n✅ Logged out successfully.");
         loggedInAccount = null;
@@ -199,13 +878,20 @@ public class Main {
 
     private static void exitSystem() {
         System.out.println("\n--- Exiting System ---");
+        standingOrders.stop();
+        stopTrace();
         bank.saveToFile();
+        bank.detachOffHeapTable();
+        standingOrders.save();
+        stopChangeFeed();
+        AuditService.checkpoint();
 
         System.out.println("\n" + "=".repeat(60));
         System.out.println("Thank you for using Simple Banking System!");
         System.out.println("All data has been saved.");
         System.out.println("=".repeat(60));
 
+        BankMetrics.stopPeriodicDump();
         InputUtil.closeScanner();
         running = false;
     }
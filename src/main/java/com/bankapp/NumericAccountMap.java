@@ -0,0 +1,294 @@
+package com.bankapp;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Accounts keyed by account number, stored in an open-addressing table of
+ * primitive longs instead of String-keyed hash entries.
+ *
+ * Ten-digit numeric account numbers (the generated format) are parsed to a
+ * long and kept in parallel key/value arrays with linear probing, so an entry
+ * costs one long and one reference and lookups hash no strings. Any other
+ * account number goes to a ConcurrentHashMap fallback.
+ *
+ * Reads take no lock: a writer stores the value before releasing the key, and
+ * a resize publishes a complete new table through a volatile field. Writers
+ * are serialized on the map. Accounts are never removed.
+ */
+public class NumericAccountMap extends AbstractMap<String, Account> {
+    private static final int NUMERIC_LENGTH = 10;
+    private static final long EMPTY = -1L;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Account[].class);
+
+    private static final class Table {
+        final long[] keys;
+        final Account[] values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Account[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, EMPTY);
+        }
+    }
+
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    private volatile int numericCount;
+    private final ConcurrentHashMap<String, Account> fallback = new ConcurrentHashMap<>();
+    private Set<Map.Entry<String, Account>> entrySet;
+
+    public NumericAccountMap() {
+    }
+
+    public NumericAccountMap(Map<String, Account> accounts) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity * 3L < accounts.size() * 4L) {
+            capacity <<= 1;
+        }
+        table = new Table(capacity);
+        putAll(accounts);
+    }
+
+    /**
+     * The account number as a table key, or EMPTY if it is not a ten-digit number
+     */
+    static long numericKey(String accountNumber) {
+        if (accountNumber.length() != NUMERIC_LENGTH) {
+            return EMPTY;
+        }
+        long key = 0;
+        for (int i = 0; i < NUMERIC_LENGTH; i++) {
+            char c = accountNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return EMPTY;
+            }
+            key = key * 10 + (c - '0');
+        }
+        return key;
+    }
+
+    @Override
+    public Account get(Object accountNumber) {
+        if (!(accountNumber instanceof String)) {
+            return null;
+        }
+        long key = numericKey((String) accountNumber);
+        return key == EMPTY ? fallback.get(accountNumber) : find(table, key);
+    }
+
+    @Override
+    public boolean containsKey(Object accountNumber) {
+        return get(accountNumber) != null;
+    }
+
+    @Override
+    public int size() {
+        return numericCount + fallback.size();
+    }
+
+    @Override
+    public Account put(String accountNumber, Account account) {
+        long key = numericKey(accountNumber);
+        if (key == EMPTY) {
+            return fallback.put(accountNumber, account);
+        }
+        synchronized (this) {
+            return insert(key, account, true);
+        }
+    }
+
+    @Override
+    public Account putIfAbsent(String accountNumber, Account account) {
+        long key = numericKey(accountNumber);
+        if (key == EMPTY) {
+            return fallback.putIfAbsent(accountNumber, account);
+        }
+        Account existing = find(table, key);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (this) {
+            return insert(key, account, false);
+        }
+    }
+
+    /**
+     * Atomic like ConcurrentHashMap's; the function runs while other writers wait
+     */
+    @Override
+    public Account computeIfAbsent(String accountNumber, Function<? super String, ? extends Account> mapping) {
+        long key = numericKey(accountNumber);
+        if (key == EMPTY) {
+            return fallback.computeIfAbsent(accountNumber, mapping);
+        }
+        Account existing = find(table, key);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (this) {
+            existing = find(table, key);
+            if (existing != null) {
+                return existing;
+            }
+            Account created = mapping.apply(accountNumber);
+            if (created != null) {
+                insert(key, created, false);
+            }
+            return created;
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<String, Account>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<String, Account>>() {
+                @Override
+                public Iterator<Map.Entry<String, Account>> iterator() {
+                    return new EntryIterator(table, fallback.entrySet().iterator());
+                }
+
+                @Override
+                public int size() {
+                    return NumericAccountMap.this.size();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private static Account find(Table current, long key) {
+        int index = slot(key, current.mask);
+        while (true) {
+            long probe = (long) KEYS.getAcquire(current.keys, index);
+            if (probe == key) {
+                return (Account) VALUES.getAcquire(current.values, index);
+            }
+            if (probe == EMPTY) {
+                return null;
+            }
+            index = (index + 1) & current.mask;
+        }
+    }
+
+    /**
+     * Caller holds the map's monitor. Returns the previous account, if any.
+     */
+    private Account insert(long key, Account account, boolean replace) {
+        Table current = table;
+        int index = slot(key, current.mask);
+        while (true) {
+            long probe = current.keys[index];
+            if (probe == key) {
+                Account previous = current.values[index];
+                if (replace) {
+                    VALUES.setRelease(current.values, index, account);
+                }
+                return previous;
+            }
+            if (probe == EMPTY) {
+                break;
+            }
+            index = (index + 1) & current.mask;
+        }
+        if ((numericCount + 1) * 4L > current.keys.length * 3L) {
+            current = resize(current);
+            index = slot(key, current.mask);
+            while (current.keys[index] != EMPTY) {
+                index = (index + 1) & current.mask;
+            }
+        }
+        VALUES.setRelease(current.values, index, account);
+        KEYS.setRelease(current.keys, index, key);
+        numericCount++;
+        return null;
+    }
+
+    private Table resize(Table current) {
+        Table grown = new Table(current.keys.length * 2);
+        for (int i = 0; i < current.keys.length; i++) {
+            long key = current.keys[i];
+            if (key != EMPTY) {
+                int index = slot(key, grown.mask);
+                while (grown.keys[index] != EMPTY) {
+                    index = (index + 1) & grown.mask;
+                }
+                grown.keys[index] = key;
+                grown.values[index] = current.values[i];
+            }
+        }
+        table = grown;
+        return grown;
+    }
+
+    static String accountNumber(long key) {
+        char[] digits = new char[NUMERIC_LENGTH];
+        for (int i = NUMERIC_LENGTH - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + key % 10);
+            key /= 10;
+        }
+        return new String(digits);
+    }
+
+    private static int slot(long key, int mask) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+
+    /**
+     * Weakly consistent like ConcurrentHashMap's: walks the table seen when it
+     * was created, then the fallback map
+     */
+    private static final class EntryIterator implements Iterator<Map.Entry<String, Account>> {
+        private final Table snapshot;
+        private final Iterator<Map.Entry<String, Account>> fallback;
+        private int index = -1;
+        private Map.Entry<String, Account> next;
+
+        EntryIterator(Table snapshot, Iterator<Map.Entry<String, Account>> fallback) {
+            this.snapshot = snapshot;
+            this.fallback = fallback;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, Account> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, Account> current = next;
+            advance();
+            return current;
+        }
+
+        private void advance() {
+            while (++index < snapshot.keys.length) {
+                long key = (long) KEYS.getAcquire(snapshot.keys, index);
+                if (key != EMPTY) {
+                    Account account = (Account) VALUES.getAcquire(snapshot.values, index);
+                    next = new SimpleImmutableEntry<>(accountNumber(key), account);
+                    return;
+                }
+            }
+            next = fallback.hasNext() ? fallback.next() : null;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.bankapp;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Balance, status, PIN and password hash of every account in fixed 64-byte
+ * slots of a memory-mapped file, outside the Java heap.
+ *
+ * Slot layout: [0] balance (double bits), [8] flags, [12] PIN (4 ASCII
+ * bytes), [16] password hash (the 32 raw hash bytes), [48] account number
+ * (length byte + up to 15 ASCII bytes). Balance and flags are written in
+ * place through VarHandle views with release semantics, and the flags word is
+ * stored last so a reader that sees IN_USE also sees the rest of the slot.
+ *
+ * The table listens to account changes, so it always holds the latest
+ * committed state and survives restarts; the JSON data file stays the system
+ * of record and reconcile() repairs the table from it at startup.
+ */
+public class OffHeapAccountTable implements AccountChangeListener, AutoCloseable {
+    private static final int MAGIC = 0x42414f54; // "BAOT"
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 64;
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int MAX_SLOTS = (Integer.MAX_VALUE - HEADER_BYTES) / SLOT_BYTES;
+    private static final int MAX_KEY_BYTES = 15;
+
+    private static final int BALANCE = 0;
+    private static final int FLAGS = 8;
+    private static final int PIN = 12;
+    private static final int HASH = 16;
+    private static final int KEY = 48;
+
+    private static final int IN_USE = 1;
+    private static final int LOCKED = 2;
+    private static final int HAS_HASH = 4;
+    private static final int HAS_PIN = 8;
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path path;
+    private final FileChannel channel;
+    private volatile MappedByteBuffer table;
+    private int capacity;
+    // Account number -> slot index; the only per-account heap state
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int nextFree;
+
+    private OffHeapAccountTable(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    public static OffHeapAccountTable open(String file) throws IOException {
+        Path path = Paths.get(file);
+        if (path.getParent() != null) {
+            path.getParent().toFile().mkdirs();
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        OffHeapAccountTable opened = new OffHeapAccountTable(path, channel);
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                opened.map(INITIAL_SLOTS);
+                INTS.setRelease(opened.table, 0, MAGIC);
+            } else {
+                int slotCount = (int) ((channel.size() - HEADER_BYTES) / SLOT_BYTES);
+                opened.map(slotCount);
+                if ((int) INTS.getAcquire(opened.table, 0) != MAGIC) {
+                    throw new IOException("not an account table: " + path);
+                }
+                opened.indexSlots();
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return opened;
+    }
+
+    public static String defaultPath() {
+        return "data/accounts.table";
+    }
+
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    public synchronized int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Slot index of the account, or -1
+     */
+    public synchronized int slotOf(String accountNumber) {
+        Integer slot = slots.get(accountNumber);
+        return slot == null ? -1 : slot;
+    }
+
+    public double balance(int slot) {
+        return Double.longBitsToDouble((long) LONGS.getAcquire(table, offset(slot) + BALANCE));
+    }
+
+    public boolean isLocked(int slot) {
+        return ((int) INTS.getAcquire(table, offset(slot) + FLAGS) & LOCKED) != 0;
+    }
+
+    /**
+     * Compares a PIN with the stored one without touching the heap copy
+     */
+    public boolean pinMatches(int slot, String pin) {
+        int flags = (int) INTS.getAcquire(table, offset(slot) + FLAGS);
+        if ((flags & HAS_PIN) == 0 || pin == null || pin.length() != 4) {
+            return false;
+        }
+        int base = offset(slot) + PIN;
+        for (int i = 0; i < 4; i++) {
+            if (table.get(base + i) != (byte) pin.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void accountChanged(Account account, AccountVersion version) {
+        write(account.getAccountNumber(), version.balance, version.locked, version.pin, version.passwordHash);
+    }
+
+    /**
+     * Makes the table match the bank: writes every account whose slot is
+     * missing or differs, and frees slots of accounts the bank does not have.
+     * Returns the number of slots repaired.
+     */
+    public int reconcile(Iterable<Account> accounts) {
+        int repaired = 0;
+        Set<String> seen = new HashSet<>();
+        for (Account account : accounts) {
+            AccountVersion version = account.currentVersion();
+            String number = account.getAccountNumber();
+            seen.add(number);
+            int slot = slotOf(number);
+            if (slot < 0 || !matches(slot, version)) {
+                write(number, version.balance, version.locked, version.pin, version.passwordHash);
+                repaired++;
+            }
+        }
+        synchronized (this) {
+            for (Map.Entry<String, Integer> entry : new HashMap<>(slots).entrySet()) {
+                if (!seen.contains(entry.getKey())) {
+                    INTS.setRelease(table, offset(entry.getValue()) + FLAGS, 0);
+                    slots.remove(entry.getKey());
+                    repaired++;
+                }
+            }
+            nextFree = 0;
+        }
+        return repaired;
+    }
+
+    public void force() {
+        table.force();
+    }
+
+    @Override
+    public void close() {
+        force();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+
+    private boolean matches(int slot, AccountVersion version) {
+        int flags = (int) INTS.getAcquire(table, offset(slot) + FLAGS);
+        return balance(slot) == version.balance
+                && ((flags & LOCKED) != 0) == version.locked
+                && ((flags & HAS_PIN) != 0 ? pinMatches(slot, version.pin) : !AuthService.isValidPin(version.pin))
+                && hashMatches(slot, flags, version.passwordHash);
+    }
+
+    private boolean hashMatches(int slot, int flags, String passwordHash) {
+        byte[] expected = decodeHash(passwordHash);
+        if (expected == null) {
+            return (flags & HAS_HASH) == 0;
+        }
+        if ((flags & HAS_HASH) == 0) {
+            return false;
+        }
+        int base = offset(slot) + HASH;
+        for (int i = 0; i < expected.length; i++) {
+            if (table.get(base + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void write(String accountNumber, double balance, boolean locked, String pin, String passwordHash) {
+        byte[] key = accountNumber.getBytes(StandardCharsets.US_ASCII);
+        if (key.length > MAX_KEY_BYTES) {
+            return; // only numeric account numbers fit a slot; the heap copy stays authoritative
+        }
+        int slot;
+        try {
+            slot = slotFor(accountNumber, key);
+        } catch (IOException e) {
+            System.err.println("⚠️  Off-heap table could not grow: " + e.getMessage());
+            return;
+        }
+        MappedByteBuffer buffer = table;
+        int base = offset(slot);
+        int flags = IN_USE | (locked ? LOCKED : 0);
+        if (AuthService.isValidPin(pin)) {
+            for (int i = 0; i < 4; i++) {
+                buffer.put(base + PIN + i, (byte) pin.charAt(i));
+            }
+            flags |= HAS_PIN;
+        }
+        byte[] hash = decodeHash(passwordHash);
+        if (hash != null) {
+            for (int i = 0; i < hash.length; i++) {
+                buffer.put(base + HASH + i, hash[i]);
+            }
+            flags |= HAS_HASH;
+        }
+        LONGS.setRelease(buffer, base + BALANCE, Double.doubleToRawLongBits(balance));
+        INTS.setRelease(buffer, base + FLAGS, flags);
+    }
+
+    private synchronized int slotFor(String accountNumber, byte[] key) throws IOException {
+        Integer existing = slots.get(accountNumber);
+        if (existing != null) {
+            return existing;
+        }
+        while (nextFree < capacity && ((int) INTS.getAcquire(table, offset(nextFree) + FLAGS) & IN_USE) != 0) {
+            nextFree++;
+        }
+        if (nextFree == capacity) {
+            if (capacity >= MAX_SLOTS) {
+                throw new IOException("table is full");
+            }
+            map((int) Math.min((long) capacity * 2, MAX_SLOTS));
+        }
+        int slot = nextFree++;
+        int base = offset(slot);
+        table.put(base + KEY, (byte) key.length);
+        for (int i = 0; i < key.length; i++) {
+            table.put(base + KEY + 1 + i, key[i]);
+        }
+        slots.put(accountNumber, slot);
+        return slot;
+    }
+
+    /**
+     * Maps the file with room for the given number of slots; existing slots keep their index
+     */
+    private void map(int slotCount) throws IOException {
+        long size = HEADER_BYTES + (long) slotCount * SLOT_BYTES;
+        table = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        capacity = slotCount;
+    }
+
+    private void indexSlots() {
+        for (int slot = 0; slot < capacity; slot++) {
+            int base = offset(slot);
+            if (((int) INTS.getAcquire(table, base + FLAGS) & IN_USE) != 0) {
+                int length = table.get(base + KEY);
+                byte[] key = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    key[i] = table.get(base + KEY + 1 + i);
+                }
+                slots.put(new String(key, StandardCharsets.US_ASCII), slot);
+            }
+        }
+    }
+
+    private static byte[] decodeHash(String passwordHash) {
+        return AuthService.hashBytes(passwordHash);
+    }
+
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+}
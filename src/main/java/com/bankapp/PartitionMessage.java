@@ -0,0 +1,73 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+
+import java.util.List;
+
+/**
+ * A request from the router to a partition, or a partition's reply, sent as
+ * one line of compact JSON. A request names its operation in op; the reply
+ * carries ok, a message for the user and whatever the operation returns.
+ */
+final class PartitionMessage {
+    static final String CREATE = "CREATE";
+    static final String AUTHENTICATE = "AUTHENTICATE";
+    static final String BALANCE = "BALANCE";
+    static final String TRANSACTIONS = "TRANSACTIONS";
+    static final String DEPOSIT = "DEPOSIT";
+    static final String WITHDRAW = "WITHDRAW";
+    static final String TRANSFER = "TRANSFER";
+    static final String PREPARE = "PREPARE";
+    static final String COMMIT = "COMMIT";
+    static final String ABORT = "ABORT";
+    static final String TOTAL = "TOTAL";
+    static final String LIST = "LIST";
+    static final String STATUS = "STATUS";
+    static final String SHUTDOWN = "SHUTDOWN";
+
+    static final Gson GSON = FileStorage.gsonBuilder().create();
+
+    /**
+     * One row of an account listing
+     */
+    static final class AccountSummary {
+        String accountNumber;
+        String customerName;
+        double balance;
+        boolean locked;
+        int transactionCount;
+    }
+
+    String op;
+    String accountNumber;
+    String toAccount;
+    String customerName;
+    String password;
+    String pin;
+    double amount;
+    // Idempotency key, or the transaction id of a two-phase transfer
+    String key;
+    // Side of a two-phase transfer: Bank.TRANSFER_OUT or Bank.TRANSFER_IN
+    String type;
+
+    boolean ok;
+    String message;
+    double balance;
+    int count;
+    List<AccountSummary> accounts;
+    List<Transaction> transactions;
+
+    static PartitionMessage request(String op, String accountNumber) {
+        PartitionMessage request = new PartitionMessage();
+        request.op = op;
+        request.accountNumber = accountNumber;
+        return request;
+    }
+
+    static PartitionMessage reply(boolean ok, String message) {
+        PartitionMessage reply = new PartitionMessage();
+        reply.ok = ok;
+        reply.message = message;
+        return reply;
+    }
+}
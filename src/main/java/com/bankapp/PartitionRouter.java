@@ -0,0 +1,748 @@
+package com.bankapp;
+
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Front end of a partitioned bank. Accounts are spread over N partitions by
+ * a hash of the account number; each partition is a separate process with
+ * its own Bank and data files (see PartitionServer), and the router sends
+ * every request to the partition that owns the account.
+ *
+ * Partitions listen on localhost, ports -Dbankapp.partition.basePort
+ * (default 7500) upwards. One that is not running yet is started as a
+ * child process in partitions/p&lt;n&gt;/ and stopped again when the router
+ * closes.
+ *
+ * A transfer between partitions runs in two phases: both partitions
+ * prepare (the paying one reserves the money), and only if both agree is it
+ * committed on both; otherwise both abort. Each step is written to
+ * data/partition_transfers.log before it is sent, so a transfer cut short
+ * by a crash is finished (or aborted, if no decision was made) the next
+ * time the router starts. Totals and account listings ask all partitions in
+ * parallel and combine the answers.
+ */
+public class PartitionRouter implements AutoCloseable {
+    private static final int BASE_PORT = Integer.getInteger("bankapp.partition.basePort", 7500);
+    private static final String PARTITION_DIRECTORY = "partitions";
+    private static final long START_TIMEOUT_MILLIS = 30_000;
+
+    private final List<Partition> partitions = new ArrayList<>();
+    private final ExecutorService pool;
+    private final TransferLog transferLog;
+    private final AtomicInteger nextPartition = new AtomicInteger();
+
+    /**
+     * Connection to one partition; calls on it are answered in order
+     */
+    private static final class Partition {
+        final int index;
+        final int port;
+        Process process;
+        private Socket socket;
+        private BufferedReader in;
+        private Writer out;
+
+        Partition(int index, int port) {
+            this.index = index;
+            this.port = port;
+        }
+
+        synchronized boolean connect() {
+            if (socket != null) {
+                return true;
+            }
+            Socket candidate = new Socket();
+            try {
+                candidate.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1000);
+                in = new BufferedReader(new InputStreamReader(candidate.getInputStream(), StandardCharsets.UTF_8));
+                out = new BufferedWriter(new OutputStreamWriter(candidate.getOutputStream(), StandardCharsets.UTF_8));
+                socket = candidate;
+                return true;
+            } catch (IOException e) {
+                try {
+                    candidate.close();
+                } catch (IOException ignored) {
+                    // not connected
+                }
+                return false;
+            }
+        }
+
+        synchronized PartitionMessage call(PartitionMessage request) throws IOException {
+            if (!connect()) {
+                throw new IOException("partition " + index + " is not reachable on port " + port);
+            }
+            try {
+                out.write(PartitionMessage.GSON.toJson(request));
+                out.write('\n');
+                out.flush();
+                String line = in.readLine();
+                if (line == null) {
+                    throw new EOFException("partition " + index + " closed the connection");
+                }
+                return PartitionMessage.GSON.fromJson(line, PartitionMessage.class);
+            } catch (IOException e) {
+                disconnect();
+                throw e;
+            }
+        }
+
+        synchronized void disconnect() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // dropping it anyway
+                }
+                socket = null;
+            }
+        }
+    }
+
+    private PartitionRouter(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            partitions.add(new Partition(i, BASE_PORT + i));
+        }
+        this.pool = Executors.newFixedThreadPool(count, runnable -> {
+            Thread thread = new Thread(runnable, "partition-router");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.transferLog = new TransferLog(Paths.get(FileStorage.DATA_DIRECTORY, "partition_transfers.log"));
+    }
+
+    /**
+     * Partition that owns the account number, out of the given number of partitions
+     */
+    public static int partitionOf(String accountNumber, int partitions) {
+        int hash = accountNumber.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), partitions);
+    }
+
+    /**
+     * Connects to count partitions, starting the ones that are not running
+     * with the given extra arguments, and finishes any transfers left over
+     * from the last run
+     */
+    public static PartitionRouter open(int count, List<String> partitionArgs) throws IOException {
+        if (count < 1) {
+            throw new IllegalArgumentException("at least one partition is needed");
+        }
+        PartitionRouter router = new PartitionRouter(count);
+        try {
+            for (Partition partition : router.partitions) {
+                if (!partition.connect()) {
+                    partition.process = launch(partition, count, partitionArgs);
+                }
+            }
+            long deadline = System.currentTimeMillis() + START_TIMEOUT_MILLIS;
+            for (Partition partition : router.partitions) {
+                while (!partition.connect()) {
+                    if (partition.process != null && !partition.process.isAlive()) {
+                        throw new IOException("partition " + partition.index + " exited; see "
+                                + directoryOf(partition).resolve("partition.log"));
+                    }
+                    if (System.currentTimeMillis() > deadline) {
+                        throw new IOException("partition " + partition.index + " did not start");
+                    }
+                    sleep(100);
+                }
+            }
+        } catch (IOException e) {
+            router.close();
+            throw e;
+        }
+        router.finishPendingTransfers();
+        return router;
+    }
+
+    public int getPartitionCount() {
+        return partitions.size();
+    }
+
+    public String createAccount(String customerName, String accountNumber, String password, String pin) {
+        PartitionMessage request = PartitionMessage.request(PartitionMessage.CREATE, null);
+        Partition partition;
+        if (accountNumber == null || accountNumber.trim().isEmpty()) {
+            // The partition generates a number that hashes to itself
+            partition = partitions.get(Math.floorMod(nextPartition.getAndIncrement(), partitions.size()));
+        } else {
+            request.accountNumber = accountNumber.trim();
+            partition = partitionFor(request.accountNumber);
+        }
+        request.customerName = customerName;
+        request.password = password;
+        request.pin = pin;
+        PartitionMessage reply = call(partition, request);
+        if (reply == null) {
+            return null;
+        }
+        if (!reply.ok) {
+            System.out.println("❌ " + reply.message);
+            return null;
+        }
+        System.out.println("\n✅ Account created successfully!");
+        System.out.println("Account Number: " + reply.accountNumber);
+        System.out.println("Customer Name: " + customerName);
+        System.out.println("Initial Balance: $0.00");
+        System.out.println("⚠️  Keep your password and PIN safe!");
+        return reply.accountNumber;
+    }
+
+    /**
+     * Returns the customer's name if the password is right, otherwise null
+     */
+    public String authenticateUser(String accountNumber, String password) {
+        PartitionMessage request = PartitionMessage.request(PartitionMessage.AUTHENTICATE, accountNumber);
+        request.password = password;
+        PartitionMessage reply = call(partitionFor(accountNumber), request);
+        return reply != null && reply.ok ? reply.customerName : null;
+    }
+
+    public void checkBalance(String accountNumber) {
+        PartitionMessage reply = call(partitionFor(accountNumber),
+                PartitionMessage.request(PartitionMessage.BALANCE, accountNumber));
+        if (reply == null) {
+            return;
+        }
+        if (!reply.ok) {
+            System.out.println("❌ " + reply.message);
+            return;
+        }
+        System.out.println("\n" + "=".repeat(50));
+        System.out.println("Account Number: " + accountNumber);
+        System.out.println("Customer Name: " + reply.customerName);
+        System.out.println("Current Balance: $" + String.format("%.2f", reply.balance));
+        if (reply.amount > 0) {
+            System.out.println("Reserved by transfers in progress: $" + String.format("%.2f", reply.amount));
+        }
+        System.out.println("Total Transactions: " + reply.count);
+        System.out.println("=".repeat(50));
+    }
+
+    public void viewTransactions(String accountNumber) {
+        PartitionMessage reply = call(partitionFor(accountNumber),
+                PartitionMessage.request(PartitionMessage.TRANSACTIONS, accountNumber));
+        if (reply == null) {
+            return;
+        }
+        if (!reply.ok) {
+            System.out.println("❌ " + reply.message);
+            return;
+        }
+        if (reply.transactions.isEmpty() && reply.count == 0) {
+            System.out.println("No transactions found for this account.");
+            return;
+        }
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Transaction History - Account: " + accountNumber);
+        System.out.println("Customer: " + reply.customerName);
+        System.out.println("=".repeat(60));
+        System.out.println(String.format("%-10s | %-10s | %s", "Type", "Amount", "Date & Time"));
+        System.out.println("-".repeat(60));
+        if (reply.count > 0) {
+            System.out.println("ℹ️  " + reply.count + " older transaction(s) are archived on partition "
+                    + partitionFor(accountNumber).index + ".");
+        }
+        for (Transaction transaction : reply.transactions) {
+            System.out.println(transaction);
+        }
+        System.out.println("=".repeat(60));
+    }
+
+    public boolean deposit(String accountNumber, double amount) {
+        PartitionMessage request = PartitionMessage.request(PartitionMessage.DEPOSIT, accountNumber);
+        request.amount = amount;
+        request.key = newKey();
+        return report(call(partitionFor(accountNumber), request), "Deposit", amount);
+    }
+
+    public boolean withdraw(String accountNumber, double amount, String pin) {
+        PartitionMessage request = PartitionMessage.request(PartitionMessage.WITHDRAW, accountNumber);
+        request.amount = amount;
+        request.pin = pin;
+        request.key = newKey();
+        return report(call(partitionFor(accountNumber), request), "Withdrawal", amount);
+    }
+
+    /**
+     * Transfers between any two accounts: in one step when both are in the
+     * same partition, otherwise with the two-phase protocol
+     */
+    public boolean transfer(String fromAccount, String toAccount, double amount, String pin) {
+        if (amount <= 0 || fromAccount.equals(toAccount)) {
+            System.out.println("❌ Enter a positive amount and a different destination account.");
+            return false;
+        }
+        Partition source = partitionFor(fromAccount);
+        Partition target = partitionFor(toAccount);
+        if (source == target) {
+            PartitionMessage request = PartitionMessage.request(PartitionMessage.TRANSFER, fromAccount);
+            request.toAccount = toAccount;
+            request.amount = amount;
+            request.pin = pin;
+            request.key = newKey();
+            return report(call(source, request), "Transfer", amount);
+        }
+
+        finishPendingTransfers();
+        PendingTransfer transfer = new PendingTransfer("2PC-" + UUID.randomUUID(), fromAccount, toAccount, amount);
+        try {
+            transferLog.record(transfer, PendingTransfer.BEGIN);
+        } catch (IOException e) {
+            System.out.println("❌ Transfer not started: cannot write the transfer log: " + e.getMessage());
+            return false;
+        }
+
+        CompletableFuture<PartitionMessage> debit = CompletableFuture.supplyAsync(
+                () -> prepare(source, transfer, fromAccount, Bank.TRANSFER_OUT, pin), pool);
+        CompletableFuture<PartitionMessage> credit = CompletableFuture.supplyAsync(
+                () -> prepare(target, transfer, toAccount, Bank.TRANSFER_IN, null), pool);
+        PartitionMessage debitVote = debit.join();
+        PartitionMessage creditVote = credit.join();
+        boolean commit = debitVote.ok && creditVote.ok;
+
+        try {
+            transferLog.record(transfer, commit ? PendingTransfer.COMMIT : PendingTransfer.ABORT);
+        } catch (IOException e) {
+            // Nothing was decided: the next start aborts it
+            System.out.println("❌ Transfer not completed: cannot write the transfer log: " + e.getMessage());
+            return false;
+        }
+        finish(transfer);
+
+        if (!commit) {
+            String reason = !debitVote.ok ? debitVote.message : creditVote.message;
+            AuditService.logTransferFailure(fromAccount, toAccount, reason);
+            System.out.println("❌ Transfer failed: " + reason);
+            return false;
+        }
+        AuditService.logTransferSuccess(fromAccount, toAccount, amount);
+        System.out.println("✅ Transfer successful!");
+        System.out.println("Amount transferred: $" + String.format("%.2f", amount) + " to " + toAccount);
+        if (transferLog.isPending(transfer.key)) {
+            System.out.println("ℹ️  A partition has not confirmed yet; it will be completed automatically.");
+        }
+        return true;
+    }
+
+    /**
+     * Sum of all partitions' balances, or NaN if a partition did not answer
+     */
+    public double getTotalBankBalance() {
+        List<PartitionMessage> replies = gather(PartitionMessage.TOTAL);
+        if (replies == null) {
+            return Double.NaN;
+        }
+        double total = 0;
+        for (PartitionMessage reply : replies) {
+            total += reply.balance;
+        }
+        return total;
+    }
+
+    public void displayAllAccountsAdmin() {
+        List<PartitionMessage> replies = gather(PartitionMessage.LIST);
+        if (replies == null) {
+            return;
+        }
+        List<PartitionMessage.AccountSummary> accounts = new ArrayList<>();
+        for (PartitionMessage reply : replies) {
+            accounts.addAll(reply.accounts);
+        }
+        if (accounts.isEmpty()) {
+            System.out.println("No accounts in the system.");
+            return;
+        }
+        accounts.sort(Comparator.comparing(summary -> summary.accountNumber));
+
+        System.out.println("\n" + "=".repeat(100));
+        System.out.println("All Accounts in the System");
+        System.out.println("=".repeat(100));
+        System.out.println(String.format("%-15s | %-20s | %-12s | %-10s | %-12s | %s",
+                "Account No", "Customer Name", "Balance", "Status", "Transactions", "Partition"));
+        System.out.println("-".repeat(100));
+        for (PartitionMessage.AccountSummary account : accounts) {
+            String status = account.locked ? "🔒 LOCKED" : "✅ ACTIVE";
+            System.out.println(String.format("%-15s | %-20s | $%-11.2f | %-10s | %-12d | %d",
+                    account.accountNumber,
+                    account.customerName,
+                    account.balance,
+                    status,
+                    account.transactionCount,
+                    partitionOf(account.accountNumber, partitions.size())));
+        }
+        System.out.println("=".repeat(100));
+        System.out.println("Total Accounts: " + accounts.size());
+    }
+
+    public void displayStatus() {
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Partitions: " + partitions.size());
+        System.out.println("-".repeat(60));
+        for (Partition partition : partitions) {
+            PartitionMessage reply;
+            try {
+                reply = partition.call(PartitionMessage.request(PartitionMessage.STATUS, null));
+            } catch (IOException e) {
+                System.out.println(String.format("p%-3d | port %-5d | ❌ unavailable: %s",
+                        partition.index, partition.port, e.getMessage()));
+                continue;
+            }
+            System.out.println(String.format("p%-3d | port %-5d | %6d account(s) | $%-12.2f | %s",
+                    partition.index, partition.port, reply.count, reply.balance, reply.message));
+        }
+        System.out.println("-".repeat(60));
+        System.out.println("Unfinished cross-partition transfers: " + transferLog.pendingCount());
+        System.out.println("=".repeat(60));
+    }
+
+    /**
+     * Stops the partitions this router started; ones it found already running are left alone
+     */
+    @Override
+    public void close() {
+        for (Partition partition : partitions) {
+            if (partition.process != null) {
+                try {
+                    partition.call(PartitionMessage.request(PartitionMessage.SHUTDOWN, null));
+                } catch (IOException ignored) {
+                    // stopped below
+                }
+            }
+            partition.disconnect();
+        }
+        for (Partition partition : partitions) {
+            if (partition.process != null) {
+                try {
+                    if (!partition.process.waitFor(10, TimeUnit.SECONDS)) {
+                        partition.process.destroy();
+                    }
+                } catch (InterruptedException e) {
+                    partition.process.destroy();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        pool.shutdown();
+        transferLog.close();
+    }
+
+    private Partition partitionFor(String accountNumber) {
+        return partitions.get(partitionOf(accountNumber, partitions.size()));
+    }
+
+    private static String newKey() {
+        return "R-" + UUID.randomUUID();
+    }
+
+    private PartitionMessage prepare(Partition partition, PendingTransfer transfer, String accountNumber,
+                                     String type, String pin) {
+        PartitionMessage request = transfer.request(PartitionMessage.PREPARE, accountNumber, type);
+        request.pin = pin;
+        try {
+            return partition.call(request);
+        } catch (IOException e) {
+            return PartitionMessage.reply(false, "Partition " + partition.index + " is unavailable.");
+        }
+    }
+
+    /**
+     * Sends the logged decision to both partitions; the transfer stays
+     * pending until both have confirmed
+     */
+    private void finish(PendingTransfer transfer) {
+        String op = PendingTransfer.COMMIT.equals(transfer.state) ? PartitionMessage.COMMIT : PartitionMessage.ABORT;
+        boolean confirmed = true;
+        PartitionMessage[] legs = {
+                transfer.request(op, transfer.fromAccount, Bank.TRANSFER_OUT),
+                transfer.request(op, transfer.toAccount, Bank.TRANSFER_IN)
+        };
+        for (PartitionMessage leg : legs) {
+            try {
+                confirmed &= partitionFor(leg.accountNumber).call(leg).ok;
+            } catch (IOException e) {
+                confirmed = false;
+            }
+        }
+        if (confirmed) {
+            try {
+                transferLog.record(transfer, PendingTransfer.DONE);
+            } catch (IOException e) {
+                // Repeating the decision later is harmless
+            }
+        }
+    }
+
+    /**
+     * Completes transfers a crash or an unreachable partition left unfinished.
+     * One that never reached a decision is aborted.
+     */
+    private void finishPendingTransfers() {
+        for (PendingTransfer transfer : transferLog.pending()) {
+            if (PendingTransfer.BEGIN.equals(transfer.state)) {
+                try {
+                    transferLog.record(transfer, PendingTransfer.ABORT);
+                } catch (IOException e) {
+                    continue;
+                }
+            }
+            finish(transfer);
+        }
+    }
+
+    /**
+     * Asks every partition at once; null (after printing why) if any of them failed
+     */
+    private List<PartitionMessage> gather(String op) {
+        List<CompletableFuture<PartitionMessage>> futures = new ArrayList<>();
+        for (Partition partition : partitions) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return partition.call(PartitionMessage.request(op, null));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, pool));
+        }
+        List<PartitionMessage> replies = new ArrayList<>();
+        try {
+            for (CompletableFuture<PartitionMessage> future : futures) {
+                replies.add(future.join());
+            }
+        } catch (CompletionException e) {
+            System.out.println("❌ Not all partitions answered: " + e.getCause().getMessage());
+            return null;
+        }
+        return replies;
+    }
+
+    private static PartitionMessage call(Partition partition, PartitionMessage request) {
+        try {
+            return partition.call(request);
+        } catch (IOException e) {
+            System.out.println("❌ Partition " + partition.index + " is unavailable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean report(PartitionMessage reply, String operation, double amount) {
+        if (reply == null) {
+            return false;
+        }
+        if (!reply.ok) {
+            System.out.println("❌ " + operation + " failed: " + reply.message);
+            return false;
+        }
+        System.out.println("✅ " + operation + " successful!");
+        System.out.println("Amount: $" + String.format("%.2f", amount));
+        System.out.println("New balance: $" + String.format("%.2f", reply.balance));
+        return true;
+    }
+
+    private static Path directoryOf(Partition partition) {
+        return Paths.get(PARTITION_DIRECTORY, "p" + partition.index);
+    }
+
+    /**
+     * Runs Main as a partition server in partitions/p&lt;n&gt;/, with the
+     * router's bankapp.* settings and classpath
+     */
+    private static Process launch(Partition partition, int count, List<String> partitionArgs) throws IOException {
+        Path directory = directoryOf(partition);
+        Files.createDirectories(directory);
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("bankapp.")) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        List<String> classPath = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classPath.add(Paths.get(entry).toAbsolutePath().toString());
+        }
+        command.add("-cp");
+        command.add(String.join(File.pathSeparator, classPath));
+        command.add(Main.class.getName());
+        command.add("--partition-server=" + partition.port);
+        command.add("--partition=" + partition.index + "/" + count);
+        command.addAll(partitionArgs);
+        return new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(directory.resolve("partition.log").toFile()))
+                .start();
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while starting partitions", e);
+        }
+    }
+
+    /**
+     * A cross-partition transfer and the last step logged for it
+     */
+    private static final class PendingTransfer {
+        static final String BEGIN = "BEGIN";
+        static final String COMMIT = "COMMIT";
+        static final String ABORT = "ABORT";
+        static final String DONE = "DONE";
+
+        final String key;
+        final String fromAccount;
+        final String toAccount;
+        final double amount;
+        String state;
+
+        PendingTransfer(String key, String fromAccount, String toAccount, double amount) {
+            this.key = key;
+            this.fromAccount = fromAccount;
+            this.toAccount = toAccount;
+            this.amount = amount;
+        }
+
+        PartitionMessage request(String op, String accountNumber, String type) {
+            PartitionMessage request = PartitionMessage.request(op, accountNumber);
+            request.key = key;
+            request.type = type;
+            request.amount = amount;
+            return request;
+        }
+    }
+
+    /**
+     * Append-only coordinator log, one JSON object per line, forced to disk
+     * before the step it records is sent. Finished transfers are dropped when
+     * the log is reopened; a torn last line is skipped.
+     */
+    private static final class TransferLog {
+        private final Map<String, PendingTransfer> pending = new LinkedHashMap<>();
+        private final FileChannel channel;
+
+        TransferLog(Path file) throws IOException {
+            Files.createDirectories(file.getParent());
+            if (Files.exists(file)) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    LogEntry entry;
+                    try {
+                        entry = PartitionMessage.GSON.fromJson(line, LogEntry.class);
+                    } catch (JsonParseException e) {
+                        continue;
+                    }
+                    if (entry == null || entry.key == null || entry.state == null) {
+                        continue;
+                    }
+                    if (PendingTransfer.DONE.equals(entry.state)) {
+                        pending.remove(entry.key);
+                        continue;
+                    }
+                    PendingTransfer transfer = new PendingTransfer(entry.key, entry.fromAccount, entry.toAccount,
+                            entry.amount);
+                    transfer.state = entry.state;
+                    pending.put(transfer.key, transfer);
+                }
+            }
+            // Rewrite with only the unfinished transfers so the log does not grow forever
+            Path temp = Paths.get(file + ".tmp");
+            List<String> lines = new ArrayList<>();
+            for (PendingTransfer transfer : pending.values()) {
+                lines.add(line(transfer, transfer.state));
+            }
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        synchronized void record(PendingTransfer transfer, String state) throws IOException {
+            channel.write(ByteBuffer.wrap((line(transfer, state) + "\n").getBytes(StandardCharsets.UTF_8)));
+            if (!PendingTransfer.DONE.equals(state)) {
+                channel.force(false);
+            }
+            transfer.state = state;
+            if (PendingTransfer.DONE.equals(state)) {
+                pending.remove(transfer.key);
+            } else {
+                pending.put(transfer.key, transfer);
+            }
+        }
+
+        synchronized List<PendingTransfer> pending() {
+            return new ArrayList<>(pending.values());
+        }
+
+        synchronized boolean isPending(String key) {
+            return pending.containsKey(key);
+        }
+
+        synchronized int pendingCount() {
+            return pending.size();
+        }
+
+        synchronized void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // nothing left to write
+            }
+        }
+
+        private static String line(PendingTransfer transfer, String state) {
+            LogEntry entry = new LogEntry();
+            entry.key = transfer.key;
+            entry.state = state;
+            entry.fromAccount = transfer.fromAccount;
+            entry.toAccount = transfer.toAccount;
+            entry.amount = transfer.amount;
+            return PartitionMessage.GSON.toJson(entry);
+        }
+    }
+
+    /**
+     * One line of the transfer log
+     */
+    private static final class LogEntry {
+        String key;
+        String state;
+        String fromAccount;
+        String toAccount;
+        double amount;
+    }
+}
@@ -0,0 +1,491 @@
+package com.bankapp;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * One partition of a partitioned bank: serves the router's requests for the
+ * accounts whose numbers hash to it, against its own Bank and data files.
+ *
+ * For a transfer to or from another partition it takes part in the
+ * router's two-phase protocol. PREPARE checks the account and, for the
+ * paying side, reserves the amount so that later withdrawals cannot spend
+ * it; COMMIT books the transaction and ABORT drops the reservation.
+ * Prepared transfers are kept in data/transfer_holds.json so they survive a
+ * restart, and COMMIT is idempotent, so the router can safely repeat it.
+ */
+public class PartitionServer implements AutoCloseable {
+    private static final String HOLD_FILE = FileStorage.DATA_DIRECTORY + "/transfer_holds.json";
+    private static final Type HOLD_LIST = new TypeToken<List<Hold>>(){}.getType();
+
+    /**
+     * One side of a prepared transfer
+     */
+    static final class Hold {
+        String key;
+        String accountNumber;
+        String type;
+        double amount;
+    }
+
+    private final Bank bank;
+    private final int index;
+    private final int count;
+    private final ServerSocket server;
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+    private final Object holdFileLock = new Object();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean running = true;
+
+    private PartitionServer(Bank bank, int index, int count, ServerSocket server) {
+        this.bank = bank;
+        this.index = index;
+        this.count = count;
+        this.server = server;
+    }
+
+    /**
+     * Serves partition index of count on localhost:port
+     */
+    public static PartitionServer start(Bank bank, int index, int count, int port) throws IOException {
+        ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        PartitionServer partition = new PartitionServer(bank, index, count, server);
+        try {
+            partition.loadHolds();
+        } catch (IOException | JsonParseException e) {
+            server.close();
+            throw new IOException("cannot read " + HOLD_FILE + ": " + e.getMessage(), e);
+        }
+        bank.setAccountNumberFilter(accountNumber -> partition.owns(accountNumber));
+        Thread acceptor = new Thread(partition::acceptRequests, "partition-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return partition;
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Blocks until the router asks this partition to shut down
+     */
+    public void awaitShutdown() throws InterruptedException {
+        stopped.await();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // shutting down anyway
+        }
+        stopped.countDown();
+    }
+
+    private boolean owns(String accountNumber) {
+        return PartitionRouter.partitionOf(accountNumber, count) == index;
+    }
+
+    private void acceptRequests() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                Thread worker = new Thread(() -> serve(socket), "partition-" + socket.getPort());
+                worker.setDaemon(true);
+                worker.start();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("⚠️  Partition " + index + ": could not accept connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket connection = socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while (running && (line = in.readLine()) != null) {
+                PartitionMessage request;
+                try {
+                    request = PartitionMessage.GSON.fromJson(line, PartitionMessage.class);
+                } catch (JsonParseException e) {
+                    request = null;
+                }
+                if (request == null || request.op == null) {
+                    // A bad line gets an error reply; the connection stays usable
+                    send(out, PartitionMessage.reply(false, "Partition " + index + ": invalid request."));
+                    continue;
+                }
+                PartitionMessage reply;
+                try {
+                    reply = handle(request);
+                } catch (RuntimeException e) {
+                    reply = PartitionMessage.reply(false, "Partition " + index + " failed: " + e.getMessage());
+                }
+                send(out, reply);
+                if (PartitionMessage.SHUTDOWN.equals(request.op)) {
+                    close();
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("⚠️  Partition " + index + ": connection closed: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void send(Writer out, PartitionMessage reply) throws IOException {
+        out.write(PartitionMessage.GSON.toJson(reply));
+        out.write('\n');
+        out.flush();
+    }
+
+    PartitionMessage handle(PartitionMessage request) {
+        if (request.accountNumber != null && !owns(request.accountNumber)) {
+            return PartitionMessage.reply(false, "Account " + request.accountNumber
+                    + " does not belong to partition " + index + ".");
+        }
+        switch (request.op) {
+            case PartitionMessage.CREATE:
+                return create(request);
+            case PartitionMessage.AUTHENTICATE:
+                return authenticate(request);
+            case PartitionMessage.BALANCE:
+                return balance(request);
+            case PartitionMessage.TRANSACTIONS:
+                return transactions(request);
+            case PartitionMessage.DEPOSIT:
+                return deposit(request);
+            case PartitionMessage.WITHDRAW:
+                return withdraw(request);
+            case PartitionMessage.TRANSFER:
+                return transfer(request);
+            case PartitionMessage.PREPARE:
+                return prepare(request);
+            case PartitionMessage.COMMIT:
+                return commit(request);
+            case PartitionMessage.ABORT:
+                return abort(request);
+            case PartitionMessage.TOTAL:
+            case PartitionMessage.STATUS:
+                return status();
+            case PartitionMessage.LIST:
+                return list();
+            case PartitionMessage.SHUTDOWN:
+                bank.saveToFile();
+                return PartitionMessage.reply(true, "Partition " + index + " stopped.");
+            default:
+                return PartitionMessage.reply(false, "Unknown request " + request.op);
+        }
+    }
+
+    private PartitionMessage create(PartitionMessage request) {
+        String created = bank.createAccount(request.customerName, request.accountNumber,
+                request.password, request.pin);
+        if (created == null) {
+            return PartitionMessage.reply(false, "Account could not be created.");
+        }
+        bank.saveToFile();
+        PartitionMessage reply = PartitionMessage.reply(true, "Account created.");
+        reply.accountNumber = created;
+        return reply;
+    }
+
+    private PartitionMessage authenticate(PartitionMessage request) {
+        Account existing = bank.getAccount(request.accountNumber);
+        String hashBefore = existing == null ? null : existing.getPasswordHash();
+        Account account = bank.authenticateUser(request.accountNumber, request.password);
+        if (account == null) {
+            return PartitionMessage.reply(false, "Login failed.");
+        }
+        if (!account.getPasswordHash().equals(hashBefore)) {
+            // The login upgraded an outdated password hash
+            bank.saveToFile();
+        }
+        PartitionMessage reply = PartitionMessage.reply(true, null);
+        reply.customerName = account.getCustomerName();
+        return reply;
+    }
+
+    private PartitionMessage balance(PartitionMessage request) {
+        Account account = bank.getAccount(request.accountNumber);
+        if (account == null) {
+            return PartitionMessage.reply(false, "Account not found: " + request.accountNumber);
+        }
+        PartitionMessage reply = PartitionMessage.reply(true, null);
+        synchronized (account) {
+            reply.customerName = account.getCustomerName();
+            reply.balance = account.getBalance();
+            reply.count = account.getTransactionCount();
+            reply.amount = heldFrom(request.accountNumber);
+        }
+        return reply;
+    }
+
+    private PartitionMessage transactions(PartitionMessage request) {
+        Account account = bank.getAccount(request.accountNumber);
+        if (account == null) {
+            return PartitionMessage.reply(false, "Account not found: " + request.accountNumber);
+        }
+        PartitionMessage reply = PartitionMessage.reply(true, null);
+        synchronized (account) {
+            reply.customerName = account.getCustomerName();
+            reply.count = account.getArchivedCount();
+            reply.transactions = new ArrayList<>(account.getTransactions());
+        }
+        return reply;
+    }
+
+    private PartitionMessage deposit(PartitionMessage request) {
+        if (!bank.deposit(request.accountNumber, request.amount, request.key)) {
+            return PartitionMessage.reply(false, "Deposit failed.");
+        }
+        bank.saveToFile();
+        return balance(request);
+    }
+
+    private PartitionMessage withdraw(PartitionMessage request) {
+        Account account = bank.getAccount(request.accountNumber);
+        boolean done;
+        synchronized (lockTarget(account)) {
+            String refusal = refusePayment(account, request.accountNumber, request.amount, request.pin);
+            if (refusal != null) {
+                return PartitionMessage.reply(false, refusal);
+            }
+            done = bank.withdraw(request.accountNumber, request.amount, request.pin, request.key);
+        }
+        if (!done) {
+            return PartitionMessage.reply(false, "Withdrawal failed.");
+        }
+        bank.saveToFile();
+        return balance(request);
+    }
+
+    /**
+     * A transfer between two accounts of this partition, done in one step
+     */
+    private PartitionMessage transfer(PartitionMessage request) {
+        if (request.toAccount == null || !owns(request.toAccount)) {
+            return PartitionMessage.reply(false, "Account " + request.toAccount
+                    + " does not belong to partition " + index + ".");
+        }
+        Account source = bank.getAccount(request.accountNumber);
+        Account target = bank.getAccount(request.toAccount);
+        if (target == null) {
+            return PartitionMessage.reply(false, "Account not found: " + request.toAccount);
+        }
+        boolean done;
+        // Same order as Bank.transfer takes them
+        Object first = request.accountNumber.compareTo(request.toAccount) < 0 ? lockTarget(source) : target;
+        Object second = first == target ? lockTarget(source) : target;
+        synchronized (first) {
+            synchronized (second) {
+                String refusal = refusePayment(source, request.accountNumber, request.amount, request.pin);
+                if (refusal == null && target.isLocked()) {
+                    refusal = "Account " + request.toAccount + " is locked.";
+                }
+                if (refusal != null) {
+                    return PartitionMessage.reply(false, refusal);
+                }
+                done = bank.transfer(request.accountNumber, request.toAccount, request.amount,
+                        LocalDateTime.now(), request.key);
+            }
+        }
+        if (!done) {
+            return PartitionMessage.reply(false, "Transfer failed.");
+        }
+        bank.saveToFile();
+        return balance(request);
+    }
+
+    private PartitionMessage prepare(PartitionMessage request) {
+        Account account = bank.getAccount(request.accountNumber);
+        synchronized (lockTarget(account)) {
+            if (holds.containsKey(request.key)) {
+                return PartitionMessage.reply(true, null);
+            }
+            String refusal;
+            if (Bank.TRANSFER_OUT.equals(request.type)) {
+                refusal = refusePayment(account, request.accountNumber, request.amount, request.pin);
+            } else if (account == null) {
+                refusal = "Account not found: " + request.accountNumber;
+            } else {
+                refusal = account.isLocked() ? "Account " + request.accountNumber + " is locked." : null;
+            }
+            if (refusal != null) {
+                return PartitionMessage.reply(false, refusal);
+            }
+            Hold hold = new Hold();
+            hold.key = request.key;
+            hold.accountNumber = request.accountNumber;
+            hold.type = request.type;
+            hold.amount = request.amount;
+            holds.put(hold.key, hold);
+        }
+        if (!saveHolds()) {
+            holds.remove(request.key);
+            return PartitionMessage.reply(false, "Partition " + index + " could not record the transfer.");
+        }
+        return PartitionMessage.reply(true, null);
+    }
+
+    private PartitionMessage commit(PartitionMessage request) {
+        Account account = bank.getAccount(request.accountNumber);
+        boolean done;
+        synchronized (lockTarget(account)) {
+            // A prepared debit already had its funds set aside by the vote, so it is not checked again
+            boolean prepared = holds.containsKey(request.key);
+            // Posted under a key of its own, so a repeated COMMIT finds the first result
+            done = bank.postTransferLeg(request.accountNumber, request.type, request.amount,
+                    LocalDateTime.now(), request.key + "-" + request.type, prepared);
+        }
+        if (!done) {
+            return PartitionMessage.reply(false, "Partition " + index + " could not book " + request.key + ".");
+        }
+        // The booking is saved before the hold is dropped, so a crash in between is repeated safely
+        bank.saveToFile();
+        if (holds.remove(request.key) != null) {
+            saveHolds();
+        }
+        return PartitionMessage.reply(true, null);
+    }
+
+    private PartitionMessage abort(PartitionMessage request) {
+        if (holds.remove(request.key) != null) {
+            saveHolds();
+        }
+        return PartitionMessage.reply(true, null);
+    }
+
+    private PartitionMessage status() {
+        PartitionMessage reply = PartitionMessage.reply(true, holds.size() + " prepared transfer(s)");
+        reply.balance = bank.getTotalBankBalance();
+        reply.count = bank.getTotalAccounts();
+        return reply;
+    }
+
+    private PartitionMessage list() {
+        PartitionMessage reply = PartitionMessage.reply(true, null);
+        reply.accounts = new ArrayList<>();
+        try (BankSnapshot snapshot = bank.snapshot()) {
+            for (BankSnapshot.AccountState state : snapshot.getAccounts()) {
+                PartitionMessage.AccountSummary summary = new PartitionMessage.AccountSummary();
+                summary.accountNumber = state.getAccountNumber();
+                summary.customerName = state.getCustomerName();
+                summary.balance = state.getBalance();
+                summary.locked = state.isLocked();
+                summary.transactionCount = state.getTransactionCount();
+                reply.accounts.add(summary);
+            }
+        }
+        reply.count = reply.accounts.size();
+        return reply;
+    }
+
+    /**
+     * Why a payment of amount from the account must be refused, or null if it
+     * may go ahead; call while holding the account's monitor
+     */
+    private String refusePayment(Account account, String accountNumber, double amount, String pin) {
+        if (account == null) {
+            return "Account not found: " + accountNumber;
+        }
+        if (account.isLocked()) {
+            return "Account " + accountNumber + " is locked.";
+        }
+        if (!AuthService.verifyPin(pin, account.getPin())) {
+            bank.recordWrongPin(accountNumber);
+            return "Invalid PIN.";
+        }
+        if (amount <= 0) {
+            return "Amount must be greater than 0.";
+        }
+        // Held withdrawals count too: COMMIT books a prepared debit without checking again
+        double held = heldFrom(accountNumber) + bank.reservedFor(accountNumber);
+        if (amount > account.getBalance() - held) {
+            return "Insufficient balance." + (held > 0 ? " $" + String.format("%.2f", held)
+                    + " is reserved by transfers in progress or held withdrawals." : "");
+        }
+        return null;
+    }
+
+    private double heldFrom(String accountNumber) {
+        double held = 0;
+        for (Hold hold : holds.values()) {
+            if (hold.accountNumber.equals(accountNumber) && Bank.TRANSFER_OUT.equals(hold.type)) {
+                held += hold.amount;
+            }
+        }
+        return held;
+    }
+
+    /**
+     * The account's monitor, or a stand-in when it does not exist
+     */
+    private Object lockTarget(Account account) {
+        return account != null ? account : holds;
+    }
+
+    private void loadHolds() throws IOException {
+        Path file = Paths.get(HOLD_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<Hold> saved = PartitionMessage.GSON.fromJson(reader, HOLD_LIST);
+            if (saved != null) {
+                for (Hold hold : saved) {
+                    holds.put(hold.key, hold);
+                }
+            }
+        }
+    }
+
+    private boolean saveHolds() {
+        synchronized (holdFileLock) {
+            Path file = Paths.get(HOLD_FILE);
+            Path temp = Paths.get(HOLD_FILE + ".tmp");
+            try {
+                Files.createDirectories(file.getParent());
+                try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    PartitionMessage.GSON.toJson(new ArrayList<>(holds.values()), HOLD_LIST, writer);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return true;
+            } catch (IOException e) {
+                System.err.println("❌ Error saving transfer holds: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.bankapp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Follower side of replication: keeps a read-only Bank in step with a
+ * primary's change stream and reconnects when the connection drops.
+ *
+ * A record whose stamp is not newer than the state already applied for its
+ * account is stale (it overlapped a snapshot) and is skipped. If a record
+ * shows that history entries are missing, the follower reconnects and asks
+ * for a new snapshot.
+ */
+public class ReplicationFollower implements AutoCloseable {
+    private static final long RECONNECT_MILLIS = 1000;
+
+    private final Bank bank;
+    private final String host;
+    private final int port;
+    // Only touched by the replication thread
+    private final Map<String, Long> appliedStamps = new HashMap<>();
+    private volatile long appliedSeq;
+    private volatile long primaryHeadSeq;
+    private volatile String epoch;
+    private volatile long lagMillis;
+    private volatile boolean connected;
+    private volatile boolean running = true;
+    private volatile boolean caughtUp;
+    private volatile Socket socket;
+    private final Thread thread;
+
+    private ReplicationFollower(Bank bank, String host, int port) {
+        this.bank = bank;
+        this.host = host;
+        this.port = port;
+        this.thread = new Thread(this::run, "replication-follower");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Makes the bank a read-only replica of the primary at host:port
+     */
+    public static ReplicationFollower start(Bank bank, String host, int port) {
+        ReplicationFollower follower = new ReplicationFollower(bank, host, port);
+        bank.setReadOnly(true);
+        follower.thread.start();
+        return follower;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * True once the first snapshot has been applied
+     */
+    public boolean isCaughtUp() {
+        return caughtUp;
+    }
+
+    public long getAppliedSeq() {
+        return appliedSeq;
+    }
+
+    /**
+     * Changes the primary has made that are not applied here yet
+     */
+    public long getLagRecords() {
+        return Math.max(0, primaryHeadSeq - appliedSeq);
+    }
+
+    /**
+     * Time between the newest applied change happening on the primary and it being applied here
+     */
+    public long getLagMillis() {
+        return getLagRecords() == 0 ? 0 : lagMillis;
+    }
+
+    public String getPrimary() {
+        return host + ":" + port;
+    }
+
+    public String status() {
+        if (!connected) {
+            return "disconnected from " + getPrimary() + " (retrying), last change " + appliedSeq;
+        }
+        if (!caughtUp) {
+            return "loading snapshot from " + getPrimary();
+        }
+        return "following " + getPrimary() + ": change " + appliedSeq + ", lag " + getLagRecords()
+                + " change(s) / " + getLagMillis() + " ms";
+    }
+
+    /**
+     * Stops following and makes the bank writable again
+     */
+    public void promote() {
+        close();
+        bank.setReadOnly(false);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+                // closing anyway
+            }
+        }
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try (Socket connection = new Socket()) {
+                connection.connect(new InetSocketAddress(host, port), 5000);
+                socket = connection;
+                connected = true;
+                follow(connection);
+            } catch (IOException e) {
+                if (running && connected) {
+                    System.err.println("\n⚠️  Replication: lost connection to " + getPrimary() + ": " + e.getMessage());
+                }
+            } finally {
+                connected = false;
+                socket = null;
+            }
+            if (running) {
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void follow(Socket connection) throws IOException {
+        Writer out = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8);
+        ReplicationRecord hello = ReplicationRecord.of(ReplicationRecord.HELLO, epoch, appliedSeq, 0);
+        out.write(ReplicationRecord.GSON.toJson(hello));
+        out.write('\n');
+        out.flush();
+
+        BufferedReader in = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while (running && (line = in.readLine()) != null) {
+            ReplicationRecord record = ReplicationRecord.GSON.fromJson(line, ReplicationRecord.class);
+            switch (record.type) {
+                case ReplicationRecord.SNAPSHOT_BEGIN:
+                    // Stamps restart with each run of the primary
+                    appliedStamps.clear();
+                    epoch = record.epoch;
+                    primaryHeadSeq = record.headSeq;
+                    break;
+                case ReplicationRecord.SNAPSHOT_END:
+                    appliedSeq = record.seq;
+                    caughtUp = true;
+                    break;
+                case ReplicationRecord.HEARTBEAT:
+                    primaryHeadSeq = record.headSeq;
+                    break;
+                case ReplicationRecord.ACCOUNT:
+                    if (!apply(record)) {
+                        // Missing history: reconnect and start over from a snapshot
+                        System.err.println("\n⚠️  Replication: gap in account " + record.accountNumber
+                                + "; requesting a new snapshot.");
+                        epoch = null;
+                        appliedSeq = 0;
+                        return;
+                    }
+                    if (record.seq > 0) {
+                        appliedSeq = record.seq;
+                        primaryHeadSeq = Math.max(primaryHeadSeq, record.seq);
+                        lagMillis = Math.max(0, System.currentTimeMillis() - record.sentAt);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private boolean apply(ReplicationRecord record) {
+        Long applied = appliedStamps.get(record.accountNumber);
+        if (applied != null && record.stamp <= applied) {
+            return true;
+        }
+        if (!bank.applyReplicated(record)) {
+            return false;
+        }
+        appliedStamps.put(record.accountNumber, record.stamp);
+        return true;
+    }
+}
@@ -0,0 +1,223 @@
+package com.bankapp;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Primary side of replication: turns every account change into an ordered
+ * change record and streams it to followers connected on a local port.
+ *
+ * Records are numbered and kept in a ring of the most recent
+ * -Dbankapp.replication.backlog (default 100000). A follower that reconnects
+ * within the ring resumes where it stopped; a new follower, or one that fell
+ * further behind, first gets a snapshot of the whole bank and then the
+ * stream from the point where the snapshot was taken. Records are
+ * idempotent, so the overlap between the two does no harm.
+ *
+ * Records are built in the change listener, which runs under the account's
+ * monitor, so the records of one account are always in the order its
+ * changes happened.
+ */
+public class ReplicationPrimary implements AccountChangeListener, AutoCloseable {
+    private static final int BACKLOG = Integer.getInteger("bankapp.replication.backlog", 100_000);
+    private static final long HEARTBEAT_MILLIS = 1000;
+
+    private final Bank bank;
+    // This listener filtered to the bank's own accounts; the one registered with Account
+    private final AccountChangeListener changes;
+    private final ServerSocket server;
+    private final String epoch = UUID.randomUUID().toString();
+    private final ReplicationRecord[] ring = new ReplicationRecord[BACKLOG];
+    private long headSeq;
+    // History size already streamed per account, so each record carries only new entries
+    private final Map<String, Integer> sentTotals = new ConcurrentHashMap<>();
+    private final List<Socket> followers = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+
+    private ReplicationPrimary(Bank bank, ServerSocket server) {
+        this.bank = bank;
+        this.changes = bank.ownChanges(this);
+        this.server = server;
+    }
+
+    /**
+     * Listens for followers on the loopback interface
+     */
+    public static ReplicationPrimary start(Bank bank, int port) throws IOException {
+        ServerSocket server = new ServerSocket(port, 16, InetAddress.getLoopbackAddress());
+        ReplicationPrimary primary = new ReplicationPrimary(bank, server);
+        Account.addChangeListener(primary.changes);
+        Thread acceptor = new Thread(primary::acceptFollowers, "replication-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return primary;
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getFollowerCount() {
+        return followers.size();
+    }
+
+    public synchronized long getHeadSeq() {
+        return headSeq;
+    }
+
+    @Override
+    public void accountChanged(Account account, AccountVersion version) {
+        String accountNumber = account.getAccountNumber();
+        int total = version.archivedCount + version.transactionCount;
+        Integer sent = sentTotals.put(accountNumber, total);
+        int first = Math.max(sent == null ? 0 : Math.min(sent, total), version.archivedCount);
+        List<Transaction> hot = account.getTransactions();
+        List<Transaction> added = hot == null ? new ArrayList<>()
+                : new ArrayList<>(hot.subList(first - version.archivedCount, version.transactionCount));
+        ReplicationRecord record = ReplicationRecord.account(accountNumber, version, first, added);
+        record.sentAt = System.currentTimeMillis();
+        synchronized (this) {
+            record.seq = ++headSeq;
+            record.epoch = epoch;
+            ring[(int) (record.seq % BACKLOG)] = record;
+            notifyAll();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        Account.removeChangeListener(changes);
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // shutting down anyway
+        }
+        for (Socket follower : followers) {
+            try {
+                follower.close();
+            } catch (IOException ignored) {
+                // shutting down anyway
+            }
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private void acceptFollowers() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                followers.add(socket);
+                Thread sender = new Thread(() -> serve(socket), "replication-" + socket.getPort());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("⚠️  Replication: could not accept follower: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket connection = socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line = in.readLine();
+            ReplicationRecord hello = line == null ? null : ReplicationRecord.GSON.fromJson(line, ReplicationRecord.class);
+            if (hello == null || !ReplicationRecord.HELLO.equals(hello.type)) {
+                return;
+            }
+            long next = epoch.equals(hello.epoch) && isBuffered(hello.seq + 1) ? hello.seq + 1 : sendSnapshot(out);
+            while (running) {
+                List<ReplicationRecord> batch = new ArrayList<>();
+                long head;
+                synchronized (this) {
+                    if (headSeq < next) {
+                        wait(HEARTBEAT_MILLIS);
+                    }
+                    head = headSeq;
+                    if (!isBuffered(next)) {
+                        batch = null;
+                    } else {
+                        for (long seq = next; seq <= head; seq++) {
+                            batch.add(ring[(int) (seq % BACKLOG)]);
+                        }
+                    }
+                }
+                if (batch == null) {
+                    // Fell behind the ring: start over from a fresh snapshot
+                    next = sendSnapshot(out);
+                    continue;
+                }
+                for (ReplicationRecord record : batch) {
+                    write(out, record);
+                }
+                next = head + 1;
+                ReplicationRecord heartbeat = ReplicationRecord.of(ReplicationRecord.HEARTBEAT, epoch, 0, head);
+                heartbeat.sentAt = System.currentTimeMillis();
+                write(out, heartbeat);
+                out.flush();
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("⚠️  Replication: follower disconnected: " + e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            followers.remove(socket);
+        }
+    }
+
+    /**
+     * True if the record with this number can still be streamed: it is in
+     * the ring or it is the next one to be written
+     */
+    private synchronized boolean isBuffered(long seq) {
+        return seq >= 1 && seq <= headSeq + 1 && seq > headSeq - BACKLOG;
+    }
+
+    /**
+     * Sends every account as of now; returns the first record number to stream afterwards
+     */
+    private long sendSnapshot(Writer out) throws IOException {
+        long head = getHeadSeq();
+        long now = System.currentTimeMillis();
+        write(out, ReplicationRecord.of(ReplicationRecord.SNAPSHOT_BEGIN, epoch, 0, head));
+        try (BankSnapshot snapshot = bank.snapshot()) {
+            for (BankSnapshot.AccountState state : snapshot.getAccounts()) {
+                ReplicationRecord record = ReplicationRecord.account(state.getAccountNumber(), state.getVersion(),
+                        state.getArchivedCount(), state.getTransactions());
+                record.sentAt = now;
+                write(out, record);
+            }
+        }
+        write(out, ReplicationRecord.of(ReplicationRecord.SNAPSHOT_END, epoch, head, head));
+        out.flush();
+        return head + 1;
+    }
+
+    private static void write(Writer out, ReplicationRecord record) throws IOException {
+        out.write(ReplicationRecord.GSON.toJson(record));
+        out.write('\n');
+    }
+}
@@ -0,0 +1,78 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One line of the replication stream, sent as compact JSON.
+ *
+ * ACCOUNT records carry an account's full state after a change plus the
+ * history entries added since the last record for it, so applying one twice
+ * is harmless and a missing one shows up as a gap in the entry numbering.
+ * SNAPSHOT_BEGIN/SNAPSHOT_END bracket a full copy of the bank (the ACCOUNT
+ * records in between have seq 0), HEARTBEAT tells an idle follower how far
+ * the primary is, and HELLO is the follower's request to start streaming.
+ */
+final class ReplicationRecord {
+    static final String HELLO = "HELLO";
+    static final String SNAPSHOT_BEGIN = "SNAPSHOT_BEGIN";
+    static final String SNAPSHOT_END = "SNAPSHOT_END";
+    static final String ACCOUNT = "ACCOUNT";
+    static final String HEARTBEAT = "HEARTBEAT";
+
+    static final Gson GSON = FileStorage.gsonBuilder().create();
+
+    String type;
+    // Position in the primary's change stream; in HELLO, the last one the follower applied
+    long seq;
+    // Identifies one run of the primary; sequence numbers restart with it
+    String epoch;
+    long headSeq;
+    // When the change happened on the primary (or the heartbeat was sent), for lag
+    long sentAt;
+
+    String accountNumber;
+    String customerName;
+    String passwordHash;
+    String pin;
+    double balance;
+    boolean locked;
+    boolean credentialResetRequired;
+    long stamp;
+    int archivedCount;
+    double archivedNet;
+    LocalDateTime archivedThrough;
+    int firstOrdinal;
+    List<Transaction> transactions;
+
+    static ReplicationRecord of(String type, String epoch, long seq, long headSeq) {
+        ReplicationRecord record = new ReplicationRecord();
+        record.type = type;
+        record.epoch = epoch;
+        record.seq = seq;
+        record.headSeq = headSeq;
+        return record;
+    }
+
+    static ReplicationRecord account(String accountNumber, AccountVersion version, int firstOrdinal,
+                                     List<Transaction> transactions) {
+        ReplicationRecord record = new ReplicationRecord();
+        record.type = ACCOUNT;
+        record.accountNumber = accountNumber;
+        record.customerName = version.customerName;
+        record.passwordHash = version.passwordHash;
+        record.pin = version.pin;
+        record.balance = version.balance;
+        record.locked = version.locked;
+        record.credentialResetRequired = version.credentialResetRequired;
+        record.stamp = version.stamp;
+        record.archivedCount = version.archivedCount;
+        record.archivedNet = version.archivedNet;
+        record.archivedThrough = version.archivedThrough;
+        record.firstOrdinal = firstOrdinal;
+        record.transactions = transactions;
+        return record;
+    }
+}
@@ -0,0 +1,508 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Velocity rules checked in front of every deposit and withdrawal.
+ *
+ * Each account gets a fixed set of VelocityWindow ring buffers, only for the
+ * (type, window) pairs some rule uses, plus a count of consecutive wrong
+ * PINs. Rules are opt-in: they come from -Dbankapp.risk.rules (default
+ * data/risk_rules.json), or -Dbankapp.risk.defaults=true turns on the
+ * built-in set; with neither there are no rules. The file is a JSON list such as
+ *
+ *   [{"name": "withdrawals-per-minute", "type": "WITHDRAW", "measure": "COUNT",
+ *     "window": "MINUTE", "limit": 5, "action": "HOLD"},
+ *    {"name": "failed-pins", "type": "FAILED_PIN", "measure": "STREAK",
+ *     "limit": 3, "action": "LOCK"}]
+ *
+ * A COUNT or AMOUNT rule fires when the operation would take its window past
+ * the limit; a STREAK rule fires when the wrong-PIN streak reaches it. The
+ * most severe rule that fires wins: HOLD queues the operation for an admin,
+ * REJECT refuses it, LOCK refuses it and locks the account.
+ *
+ * Windows live in memory only and start empty after a restart. Held
+ * operations are saved to data/risk_holds.json with the account data. A
+ * held withdrawal reserves its amount, so other debits cannot spend the
+ * money it needs when it is released.
+ */
+public class RiskEngine {
+    private static final String RULES_FILE = FileStorage.DATA_DIRECTORY + "/risk_rules.json";
+    private static final String HOLD_FILE = FileStorage.DATA_DIRECTORY + "/risk_holds.json";
+    private static final int MAX_HOLDS = Integer.getInteger("bankapp.risk.maxHolds", 10_000);
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+            .setPrettyPrinting()
+            .create();
+    private static final Type RULE_LIST = new TypeToken<List<Rule>>(){}.getType();
+    private static final Type HOLD_LIST = new TypeToken<List<Hold>>(){}.getType();
+
+    public static final String DEPOSIT = "DEPOSIT";
+    public static final String WITHDRAW = "WITHDRAW";
+    public static final String FAILED_PIN = "FAILED_PIN";
+
+    /**
+     * What happens to an operation a rule fires on, least severe first
+     */
+    public enum Action {
+        HOLD, REJECT, LOCK
+    }
+
+    public enum Window {
+        // Bucket size and count: the window is their product
+        MINUTE(10_000L, 6), HOUR(5 * 60_000L, 12), DAY(60 * 60_000L, 24);
+
+        private final long bucketMillis;
+        private final int buckets;
+
+        Window(long bucketMillis, int buckets) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = buckets;
+        }
+    }
+
+    public static final class Rule {
+        private String name;
+        private String type;
+        private String measure;
+        private Window window;
+        private double limit;
+        private Action action;
+        // Set when the rules are compiled: the window's index in each profile, and the limit as an integer
+        private transient int slot;
+        private transient boolean countsOperations;
+        private transient long threshold;
+
+        Rule(String name, String type, String measure, Window window, double limit, Action action) {
+            this.name = name;
+            this.type = type;
+            this.measure = measure;
+            this.window = window;
+            this.limit = limit;
+            this.action = action;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + type + " " + measure + (window == null ? "" : " per " + window)
+                    + " limit " + limit + " -> " + action + ")";
+        }
+    }
+
+    /**
+     * An operation waiting for an admin to release or decline it
+     */
+    public static final class Hold {
+        private long id;
+        private String accountNumber;
+        private String type;
+        private double amount;
+        private String rule;
+        private LocalDateTime heldAt;
+        // Idempotency key of the held request, booked with the operation on release
+        private String requestKey;
+
+        Hold(long id, String accountNumber, String type, double amount, String rule, LocalDateTime heldAt,
+             String requestKey) {
+            this.id = id;
+            this.accountNumber = accountNumber;
+            this.type = type;
+            this.amount = amount;
+            this.rule = rule;
+            this.heldAt = heldAt;
+            this.requestKey = requestKey;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        public String getRule() {
+            return rule;
+        }
+
+        public LocalDateTime getHeldAt() {
+            return heldAt;
+        }
+
+        public String getRequestKey() {
+            return requestKey;
+        }
+    }
+
+    /**
+     * Per-account state: one window per slot and the wrong-PIN streak,
+     * guarded by the profile's monitor
+     */
+    private static final class Profile {
+        final VelocityWindow[] windows;
+        int failedPins;
+
+        Profile(VelocityWindow[] windows) {
+            this.windows = windows;
+        }
+    }
+
+    private final Rule[] rules;
+    // Type and window of each slot
+    private final String[] slotTypes;
+    private final Window[] slotWindows;
+    private final Map<String, Profile> profiles = new ConcurrentHashMap<>();
+    private final Map<Long, Hold> holds = new ConcurrentHashMap<>();
+    // Account number -> cents reserved by its held withdrawals
+    private final Map<String, Long> reservedCents = new ConcurrentHashMap<>();
+    private final AtomicLong nextHoldId = new AtomicLong(1);
+
+    public RiskEngine() {
+        this(loadRules());
+    }
+
+    public RiskEngine(List<Rule> rules) {
+        List<String> types = new ArrayList<>();
+        List<Window> windows = new ArrayList<>();
+        for (Rule rule : rules) {
+            rule.countsOperations = !"AMOUNT".equals(rule.measure);
+            rule.threshold = rule.countsOperations ? (long) Math.floor(rule.limit) : Math.round(rule.limit * 100);
+            if (rule.window == null) {
+                continue;
+            }
+            int slot = 0;
+            while (slot < types.size() && !(types.get(slot).equals(rule.type) && windows.get(slot) == rule.window)) {
+                slot++;
+            }
+            if (slot == types.size()) {
+                types.add(rule.type);
+                windows.add(rule.window);
+            }
+            rule.slot = slot;
+        }
+        this.rules = rules.toArray(new Rule[0]);
+        this.slotTypes = types.toArray(new String[0]);
+        this.slotWindows = windows.toArray(new Window[0]);
+    }
+
+    static List<Rule> defaultRules() {
+        return Arrays.asList(
+                new Rule("withdrawals-per-minute", WITHDRAW, "COUNT", Window.MINUTE, 5, Action.HOLD),
+                new Rule("withdrawn-per-hour", WITHDRAW, "AMOUNT", Window.HOUR, 5_000, Action.HOLD),
+                new Rule("withdrawn-per-day", WITHDRAW, "AMOUNT", Window.DAY, 20_000, Action.REJECT),
+                new Rule("deposits-per-minute", DEPOSIT, "COUNT", Window.MINUTE, 10, Action.HOLD),
+                new Rule("deposited-per-day", DEPOSIT, "AMOUNT", Window.DAY, 50_000, Action.HOLD),
+                new Rule("failed-pins", FAILED_PIN, "STREAK", null, 3, Action.LOCK));
+    }
+
+    /**
+     * Rules from -Dbankapp.risk.rules or data/risk_rules.json, the defaults
+     * if that file is invalid; without a file, the defaults only if
+     * -Dbankapp.risk.defaults=true, otherwise none
+     */
+    private static List<Rule> loadRules() {
+        String configured = System.getProperty("bankapp.risk.rules");
+        Path file = Paths.get(configured != null ? configured : RULES_FILE);
+        if (!Files.exists(file)) {
+            if (configured != null) {
+                System.err.println("⚠️  Risk rules file " + file + " not found.");
+            }
+            return Boolean.getBoolean("bankapp.risk.defaults") ? defaultRules() : Collections.emptyList();
+        }
+        List<Rule> loaded;
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            loaded = gson.fromJson(reader, RULE_LIST);
+        } catch (IOException | JsonParseException e) {
+            System.err.println("⚠️  Could not read risk rules from " + file + "; using the defaults: "
+                    + e.getMessage());
+            return defaultRules();
+        }
+        if (loaded == null) {
+            return Collections.emptyList();
+        }
+        for (Rule rule : loaded) {
+            String problem = validate(rule);
+            if (problem != null) {
+                System.err.println("⚠️  Invalid risk rule in " + file + " (" + problem + "); using the defaults.");
+                return defaultRules();
+            }
+        }
+        return loaded;
+    }
+
+    private static String validate(Rule rule) {
+        if (rule == null || rule.name == null || rule.type == null || rule.measure == null || rule.action == null) {
+            return "name, type, measure and action are required";
+        }
+        if (FAILED_PIN.equals(rule.type)) {
+            return "STREAK".equals(rule.measure) ? null : rule.name + ": FAILED_PIN rules measure STREAK";
+        }
+        if (!DEPOSIT.equals(rule.type) && !WITHDRAW.equals(rule.type)) {
+            return rule.name + ": unknown type " + rule.type;
+        }
+        if (!"COUNT".equals(rule.measure) && !"AMOUNT".equals(rule.measure)) {
+            return rule.name + ": unknown measure " + rule.measure;
+        }
+        return rule.window == null ? rule.name + ": window is required" : null;
+    }
+
+    public List<Rule> getRules() {
+        return Collections.unmodifiableList(Arrays.asList(rules));
+    }
+
+    /**
+     * The most severe rule a deposit or withdrawal of amount would break,
+     * or null if it may go ahead. Call while holding the account's monitor,
+     * and record() the operation if it is applied.
+     */
+    public Rule evaluate(String accountNumber, String type, double amount, long nowMillis) {
+        long start = BankMetrics.start();
+        Profile profile = profile(accountNumber);
+        Rule worst;
+        synchronized (profile) {
+            worst = worstRule(profile, type, Math.round(amount * 100), nowMillis);
+        }
+        BankMetrics.recordRiskCheck(start);
+        return worst;
+    }
+
+    /**
+     * evaluate() and, if no rule fires, record(), as one step; for callers
+     * that do not hold the account's monitor, such as hot-account deposits
+     */
+    public Rule admit(String accountNumber, String type, double amount, long nowMillis) {
+        long start = BankMetrics.start();
+        Profile profile = profile(accountNumber);
+        long cents = Math.round(amount * 100);
+        Rule worst;
+        synchronized (profile) {
+            worst = worstRule(profile, type, cents, nowMillis);
+            if (worst == null) {
+                add(profile, type, cents, nowMillis);
+            }
+        }
+        BankMetrics.recordRiskCheck(start);
+        return worst;
+    }
+
+    private Rule worstRule(Profile profile, String type, long cents, long nowMillis) {
+        Rule worst = null;
+        for (Rule rule : rules) {
+            if (rule.window == null || !rule.type.equals(type)) {
+                continue;
+            }
+            VelocityWindow window = profile.windows[rule.slot];
+            boolean fires = rule.countsOperations
+                    ? window.count(nowMillis) + 1 > rule.threshold
+                    : window.cents(nowMillis) + cents > rule.threshold;
+            if (fires && (worst == null || rule.action.compareTo(worst.action) > 0)) {
+                worst = rule;
+            }
+        }
+        return worst;
+    }
+
+    /**
+     * Counts an applied deposit or withdrawal in the account's windows
+     */
+    public void record(String accountNumber, String type, double amount, long nowMillis) {
+        Profile profile = profile(accountNumber);
+        synchronized (profile) {
+            add(profile, type, Math.round(amount * 100), nowMillis);
+        }
+    }
+
+    private void add(Profile profile, String type, long cents, long nowMillis) {
+        for (int slot = 0; slot < slotTypes.length; slot++) {
+            if (slotTypes[slot].equals(type)) {
+                profile.windows[slot].add(nowMillis, cents);
+            }
+        }
+    }
+
+    /**
+     * Counts a wrong PIN; returns the STREAK rule it trips, or null
+     */
+    public Rule recordFailedPin(String accountNumber) {
+        Profile profile = profile(accountNumber);
+        int streak;
+        synchronized (profile) {
+            streak = ++profile.failedPins;
+        }
+        Rule worst = null;
+        for (Rule rule : rules) {
+            if (FAILED_PIN.equals(rule.type) && streak >= rule.threshold
+                    && (worst == null || rule.action.compareTo(worst.action) > 0)) {
+                worst = rule;
+            }
+        }
+        return worst;
+    }
+
+    /**
+     * A correct PIN ends the account's wrong-PIN streak
+     */
+    public void recordCorrectPin(String accountNumber) {
+        Profile profile = profiles.get(accountNumber);
+        if (profile != null) {
+            synchronized (profile) {
+                profile.failedPins = 0;
+            }
+        }
+    }
+
+    private Profile profile(String accountNumber) {
+        Profile profile = profiles.get(accountNumber);
+        if (profile == null) {
+            VelocityWindow[] windows = new VelocityWindow[slotWindows.length];
+            for (int slot = 0; slot < windows.length; slot++) {
+                windows[slot] = new VelocityWindow(slotWindows[slot].bucketMillis, slotWindows[slot].buckets);
+            }
+            profile = profiles.computeIfAbsent(accountNumber, key -> new Profile(windows));
+        }
+        return profile;
+    }
+
+    /**
+     * Queues an operation for review; null if the queue is full
+     */
+    public Hold hold(String accountNumber, String type, double amount, Rule rule, String requestKey) {
+        if (holds.size() >= MAX_HOLDS) {
+            return null;
+        }
+        Hold hold = new Hold(nextHoldId.getAndIncrement(), accountNumber, type, amount, rule.name,
+                LocalDateTime.now(), requestKey);
+        holds.put(hold.id, hold);
+        reserve(hold, 1);
+        return hold;
+    }
+
+    /**
+     * The pending hold of the request with this idempotency key, or null
+     */
+    public Hold holdFor(String requestKey) {
+        for (Hold hold : holds.values()) {
+            if (requestKey.equals(hold.requestKey)) {
+                return hold;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pending holds, oldest first
+     */
+    public List<Hold> getHolds() {
+        List<Hold> pending = new ArrayList<>(holds.values());
+        pending.sort((a, b) -> Long.compare(a.id, b.id));
+        return pending;
+    }
+
+    public int getHoldCount() {
+        return holds.size();
+    }
+
+    /**
+     * Takes a hold off the queue, returning it, or null if there is none with that id
+     */
+    public Hold removeHold(long id) {
+        Hold hold = holds.remove(id);
+        if (hold != null) {
+            reserve(hold, -1);
+        }
+        return hold;
+    }
+
+    /**
+     * Amount of the account's balance set aside for its held withdrawals
+     */
+    public double reservedFor(String accountNumber) {
+        Long cents = reservedCents.get(accountNumber);
+        return cents == null ? 0 : cents / 100.0;
+    }
+
+    private void reserve(Hold hold, int sign) {
+        if (WITHDRAW.equals(hold.type)) {
+            reservedCents.merge(hold.accountNumber, sign * Math.round(hold.amount * 100),
+                    (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    public void saveHolds() {
+        Path file = Paths.get(HOLD_FILE);
+        Path temp = Paths.get(HOLD_FILE + ".tmp");
+        try {
+            if (holds.isEmpty()) {
+                Files.deleteIfExists(file);
+                return;
+            }
+            Files.createDirectories(file.getParent());
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(getHolds(), HOLD_LIST, writer);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("❌ Error saving held transactions: " + e.getMessage());
+        }
+    }
+
+    public void loadHolds() {
+        Path file = Paths.get(HOLD_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        List<Hold> saved;
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            saved = gson.fromJson(reader, HOLD_LIST);
+        } catch (IOException | JsonParseException e) {
+            System.err.println("⚠️  Could not read held transactions: " + e.getMessage());
+            return;
+        }
+        if (saved == null) {
+            return;
+        }
+        for (Hold hold : saved) {
+            if (holds.put(hold.id, hold) == null) {
+                reserve(hold, 1);
+            }
+            nextHoldId.accumulateAndGet(hold.id + 1, Math::max);
+        }
+    }
+}
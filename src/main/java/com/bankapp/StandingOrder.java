@@ -0,0 +1,174 @@
+package com.bankapp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A recurring or future-dated transfer from one account to another.
+ *
+ * Occurrence n runs at start plus n periods, so a monthly order on the 31st
+ * still comes back to the 31st after a short month. runs counts occurrences
+ * that are finished (paid or given up on); the next one is due at
+ * occurrence(runs), or at retryAt while a failed payment is being retried.
+ *
+ * Payments update an order on the scheduler's pool threads while customers
+ * read or cancel it, so its mutable state is guarded by the order's monitor.
+ */
+public class StandingOrder {
+    public enum Frequency {
+        ONCE, DAILY, WEEKLY, MONTHLY;
+
+        LocalDateTime occurrence(LocalDateTime start, int n) {
+            switch (this) {
+                case DAILY:
+                    return start.plusDays(n);
+                case WEEKLY:
+                    return start.plusWeeks(n);
+                case MONTHLY:
+                    return start.plusMonths(n);
+                default:
+                    return start;
+            }
+        }
+    }
+
+    public enum Status {
+        ACTIVE, COMPLETED, CANCELLED
+    }
+
+    private long id;
+    private String fromAccount;
+    private String toAccount;
+    private double amount;
+    private Frequency frequency;
+    private LocalDateTime start;
+    // Last day an occurrence may fall on; null for no end
+    private LocalDate endDate;
+    private volatile Status status;
+    private int runs;
+    private int attempts;
+    private LocalDateTime retryAt;
+    private int paymentsMade;
+    private int paymentsMissed;
+    private LocalDateTime lastRunAt;
+    private String lastResult;
+
+    public StandingOrder(long id, String fromAccount, String toAccount, double amount,
+                         Frequency frequency, LocalDateTime start, LocalDate endDate) {
+        this.id = id;
+        this.fromAccount = fromAccount;
+        this.toAccount = toAccount;
+        this.amount = amount;
+        this.frequency = frequency;
+        this.start = start;
+        this.endDate = endDate;
+        this.status = Status.ACTIVE;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getFromAccount() {
+        return fromAccount;
+    }
+
+    public String getToAccount() {
+        return toAccount;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public synchronized int getPaymentsMade() {
+        return paymentsMade;
+    }
+
+    public synchronized int getPaymentsMissed() {
+        return paymentsMissed;
+    }
+
+    public synchronized LocalDateTime getLastRunAt() {
+        return lastRunAt;
+    }
+
+    public synchronized String getLastResult() {
+        return lastResult;
+    }
+
+    public synchronized int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Scheduled time of the occurrence now owed
+     */
+    public synchronized LocalDateTime getNextOccurrence() {
+        return frequency.occurrence(start, runs);
+    }
+
+    /**
+     * When the scheduler should next look at this order, or null once it is finished
+     */
+    public synchronized LocalDateTime getDueAt() {
+        if (status != Status.ACTIVE) {
+            return null;
+        }
+        return retryAt != null ? retryAt : getNextOccurrence();
+    }
+
+    /**
+     * Idempotency key of the current attempt at the current occurrence
+     */
+    synchronized String paymentKey() {
+        return "SO-" + id + "-" + runs + "-" + attempts;
+    }
+
+    synchronized void cancel() {
+        status = Status.CANCELLED;
+    }
+
+    synchronized void paid(LocalDateTime now) {
+        paymentsMade++;
+        lastResult = "PAID";
+        finishOccurrence(now);
+    }
+
+    /**
+     * Records a failed attempt; the occurrence is retried at retryTime until
+     * maxAttempts is reached and then skipped
+     */
+    synchronized void failed(LocalDateTime now, LocalDateTime retryTime, int maxAttempts) {
+        attempts++;
+        if (attempts < maxAttempts) {
+            retryAt = retryTime;
+            lastRunAt = now;
+            lastResult = "RETRYING";
+            return;
+        }
+        paymentsMissed++;
+        lastResult = "MISSED";
+        finishOccurrence(now);
+    }
+
+    private void finishOccurrence(LocalDateTime now) {
+        runs++;
+        attempts = 0;
+        retryAt = null;
+        lastRunAt = now;
+        // A cancel that raced with the payment stands
+        if (status == Status.ACTIVE && (frequency == Frequency.ONCE
+                || (endDate != null && getNextOccurrence().toLocalDate().isAfter(endDate)))) {
+            status = Status.COMPLETED;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs standing orders when they fall due.
+ *
+ * Orders sit in minute-wide buckets keyed by when they are next due, so a
+ * tick only looks at the buckets up to now and costs nothing when none are
+ * due, however many orders exist. Due orders are paid in parallel batches;
+ * an order that was down for several periods pays every missed occurrence in
+ * the same pass. A failed payment (insufficient funds, locked account) is
+ * retried after -Dbankapp.standingOrders.retryMinutes (default 60), up to
+ * -Dbankapp.standingOrders.maxAttempts (default 3) attempts, and then skipped.
+ *
+ * Each payment goes through Bank's idempotency keys, so if the process stops
+ * after the accounts were saved but before data/standing_orders.json was, the
+ * payment is recognized rather than made twice.
+ */
+public class StandingOrderScheduler {
+    private static final String ORDER_FILE = FileStorage.DATA_DIRECTORY + "/standing_orders.json";
+    private static final Type ORDER_LIST = new TypeToken<List<StandingOrder>>(){}.getType();
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+            .registerTypeAdapter(LocalDate.class,
+                    (JsonSerializer<LocalDate>) (date, type, context) -> new JsonPrimitive(date.toString()))
+            .registerTypeAdapter(LocalDate.class,
+                    (JsonDeserializer<LocalDate>) (json, type, context) -> LocalDate.parse(json.getAsString()))
+            .create();
+
+    private static final long TICK_SECONDS = Long.getLong("bankapp.standingOrders.tickSeconds", 60);
+    private static final long RETRY_MINUTES = Long.getLong("bankapp.standingOrders.retryMinutes", 60);
+    private static final int MAX_ATTEMPTS = Integer.getInteger("bankapp.standingOrders.maxAttempts", 3);
+    private static final int BATCH_SIZE = 256;
+
+    private final Bank bank;
+    private final Map<Long, StandingOrder> orders = new HashMap<>();
+    // Epoch minute -> orders due in that minute; an order whose due time moved is skipped when its old bucket comes up
+    private final NavigableMap<Long, List<StandingOrder>> buckets = new TreeMap<>();
+    // Held while payments run and while saving, so a save never sees an order mid-payment
+    private final Object runLock = new Object();
+    private long nextId = 1;
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Outcome of one run
+     */
+    public static final class RunSummary {
+        final AtomicInteger paid = new AtomicInteger();
+        final AtomicInteger retrying = new AtomicInteger();
+        final AtomicInteger missed = new AtomicInteger();
+        int orders;
+
+        public int getPaid() {
+            return paid.get();
+        }
+
+        public int getRetrying() {
+            return retrying.get();
+        }
+
+        public int getMissed() {
+            return missed.get();
+        }
+
+        public int getOrders() {
+            return orders;
+        }
+
+        boolean isEmpty() {
+            return orders == 0;
+        }
+
+        @Override
+        public String toString() {
+            return getPaid() + " payment(s) made, " + getRetrying() + " to retry, "
+                    + getMissed() + " missed";
+        }
+    }
+
+    private StandingOrderScheduler(Bank bank) {
+        this.bank = bank;
+    }
+
+    /**
+     * Reads data/standing_orders.json; a missing file means no orders yet
+     */
+    public static StandingOrderScheduler load(Bank bank) {
+        StandingOrderScheduler scheduler = new StandingOrderScheduler(bank);
+        Path file = Paths.get(ORDER_FILE);
+        if (!Files.exists(file)) {
+            return scheduler;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<StandingOrder> saved = gson.fromJson(reader, ORDER_LIST);
+            if (saved != null) {
+                for (StandingOrder order : saved) {
+                    scheduler.add(order);
+                }
+            }
+        } catch (IOException | JsonParseException e) {
+            System.err.println("❌ Error reading standing orders: " + e.getMessage());
+            return null;
+        }
+        return scheduler;
+    }
+
+    public synchronized StandingOrder create(String fromAccount, String toAccount, double amount,
+                                             StandingOrder.Frequency frequency, LocalDateTime start,
+                                             LocalDate endDate) {
+        StandingOrder order = new StandingOrder(nextId, fromAccount, toAccount, amount, frequency, start, endDate);
+        add(order);
+        return order;
+    }
+
+    /**
+     * Cancels an order of the given account; false if it has no such active order
+     */
+    public synchronized boolean cancel(long id, String fromAccount) {
+        StandingOrder order = orders.get(id);
+        if (order == null || !order.getFromAccount().equals(fromAccount)
+                || order.getStatus() != StandingOrder.Status.ACTIVE) {
+            return false;
+        }
+        order.cancel();
+        return true;
+    }
+
+    public synchronized List<StandingOrder> ordersFrom(String fromAccount) {
+        List<StandingOrder> result = new ArrayList<>();
+        for (StandingOrder order : orders.values()) {
+            if (order.getFromAccount().equals(fromAccount)) {
+                result.add(order);
+            }
+        }
+        result.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+        return result;
+    }
+
+    public synchronized int size() {
+        return orders.size();
+    }
+
+    /**
+     * Pays everything due up to now, including occurrences missed while the
+     * bank was not running
+     */
+    public RunSummary runDue(LocalDateTime now) {
+        synchronized (runLock) {
+            RunSummary summary = new RunSummary();
+            List<StandingOrder> due = takeDue(now);
+            summary.orders = due.size();
+            if (due.isEmpty()) {
+                return summary;
+            }
+
+            List<List<StandingOrder>> batches = new ArrayList<>();
+            for (int i = 0; i < due.size(); i += BATCH_SIZE) {
+                batches.add(due.subList(i, Math.min(due.size(), i + BATCH_SIZE)));
+            }
+            batches.parallelStream().forEach(batch -> {
+                for (StandingOrder order : batch) {
+                    runOrder(order, now, summary);
+                }
+            });
+
+            synchronized (this) {
+                for (StandingOrder order : due) {
+                    schedule(order);
+                }
+            }
+            return summary;
+        }
+    }
+
+    /**
+     * Writes all orders; call after the accounts are saved
+     */
+    public void save() {
+        synchronized (runLock) {
+            List<StandingOrder> snapshot;
+            synchronized (this) {
+                snapshot = new ArrayList<>(orders.values());
+            }
+            Path file = Paths.get(ORDER_FILE);
+            Path temp = Paths.get(ORDER_FILE + ".tmp");
+            try {
+                Files.createDirectories(file.getParent());
+                try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    gson.toJson(snapshot, ORDER_LIST, writer);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                System.err.println("❌ Error saving standing orders: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Checks for due orders every -Dbankapp.standingOrders.tickSeconds (default 60)
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "standing-orders");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, TICK_SECONDS, TICK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the ticker and waits for a run in progress to finish, so nothing
+     * is paid or saved after the caller's final save
+     */
+    public void stop() {
+        ScheduledExecutorService stopping;
+        synchronized (this) {
+            stopping = ticker;
+            ticker = null;
+        }
+        if (stopping == null) {
+            return;
+        }
+        stopping.shutdown();
+        // Not under this scheduler's monitor: the run being waited for takes it
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (stopping.awaitTermination(10, TimeUnit.SECONDS)) {
+                    break;
+                }
+                System.out.println("ℹ️  Waiting for the standing order run to finish...");
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs due orders and saves if anything happened; returns what ran
+     */
+    public RunSummary runAndSave(LocalDateTime now) {
+        RunSummary summary = runDue(now);
+        if (!summary.isEmpty()) {
+            bank.saveToFile();
+            save();
+        }
+        return summary;
+    }
+
+    private void tick() {
+        try {
+            RunSummary summary = runAndSave(LocalDateTime.now());
+            if (!summary.isEmpty()) {
+                System.out.println("\n📅 Standing orders: " + summary);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("❌ Standing order run failed: " + e.getMessage());
+        }
+    }
+
+    private void runOrder(StandingOrder order, LocalDateTime now, RunSummary summary) {
+        LocalDateTime due = order.getDueAt();
+        while (due != null && !due.isAfter(now)) {
+            boolean paid = bank.transfer(order.getFromAccount(), order.getToAccount(), order.getAmount(),
+                    now, order.paymentKey());
+            if (paid) {
+                order.paid(now);
+                summary.paid.incrementAndGet();
+            } else {
+                int missedBefore = order.getPaymentsMissed();
+                order.failed(now, now.plusMinutes(RETRY_MINUTES), MAX_ATTEMPTS);
+                if (order.getPaymentsMissed() > missedBefore) {
+                    summary.missed.incrementAndGet();
+                } else {
+                    summary.retrying.incrementAndGet();
+                }
+            }
+            due = order.getDueAt();
+        }
+    }
+
+    private synchronized List<StandingOrder> takeDue(LocalDateTime now) {
+        List<StandingOrder> due = new ArrayList<>();
+        NavigableMap<Long, List<StandingOrder>> ready = buckets.headMap(minute(now), true);
+        for (Map.Entry<Long, List<StandingOrder>> bucket : ready.entrySet()) {
+            for (StandingOrder order : bucket.getValue()) {
+                LocalDateTime dueAt = order.getDueAt();
+                if (dueAt != null && minute(dueAt) == bucket.getKey()) {
+                    due.add(order);
+                }
+            }
+        }
+        ready.clear();
+        return due;
+    }
+
+    private void add(StandingOrder order) {
+        orders.put(order.getId(), order);
+        nextId = Math.max(nextId, order.getId() + 1);
+        schedule(order);
+    }
+
+    private void schedule(StandingOrder order) {
+        LocalDateTime dueAt = order.getDueAt();
+        if (dueAt != null) {
+            buckets.computeIfAbsent(minute(dueAt), key -> new ArrayList<>()).add(order);
+        }
+    }
+
+    private static long minute(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+}
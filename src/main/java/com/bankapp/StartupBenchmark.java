@@ -0,0 +1,241 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Time to first operation of a freshly started JVM, with and without the
+ * fast-start measures.
+ *
+ * Usage:
+ *   java -cp target/simple-banking-system-1.0-SNAPSHOT.jar:target/lib/gson-2.10.1.jar
+ *        com.bankapp.StartupBenchmark [--accounts=2000] [--transactions=20] [--runs=5] [--ops=2000]
+ *
+ * Writes a data file of --accounts accounts with --transactions each into a
+ * scratch directory, then starts FastStart --first-operation there --runs
+ * times per configuration: reflective JSON binding, the precomputed type
+ * adapters, the adapters with a class-data-sharing archive, and all of that
+ * plus the warm-up. Reports the median and best time from launching the JVM
+ * to the first completed deposit, and the median time for the --ops
+ * deposit/withdraw pairs after it.
+ *
+ * The archive is built first, from a FastStart --train run. The JVM only maps
+ * archives for a classpath made of jars, so with target/classes on the
+ * classpath the two archive configurations are skipped.
+ */
+public class StartupBenchmark {
+    private final int accountCount;
+    private final int transactionsPerAccount;
+    private final int runs;
+    private final int ops;
+    private final String classPath = System.getProperty("java.class.path");
+    private final String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+    public StartupBenchmark(int accountCount, int transactionsPerAccount, int runs, int ops) {
+        this.accountCount = accountCount;
+        this.transactionsPerAccount = transactionsPerAccount;
+        this.runs = runs;
+        this.ops = ops;
+    }
+
+    public Map<String, Object> run() throws IOException, InterruptedException {
+        Path workDir = Files.createTempDirectory("startup-bench");
+        try {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("accounts", accountCount);
+            report.put("transactionsPerAccount", transactionsPerAccount);
+            report.put("dataFileBytes", writeDataFile(workDir));
+            report.put("runs", runs);
+            report.put("operationsAfterFirst", ops * 2);
+
+            Path archive = workDir.resolve("bankapp.jsa");
+            boolean archived = jarsOnly() && buildArchive(workDir, archive, report);
+
+            String account = accountNumber(0);
+            List<Map<String, Object>> configurations = new ArrayList<>();
+            configurations.add(measure(workDir, "reflective",
+                    Arrays.asList("-Dbankapp.json.reflective=true"), account, false));
+            configurations.add(measure(workDir, "adapters", Collections.emptyList(), account, false));
+            if (archived) {
+                List<String> cds = Arrays.asList("-XX:SharedArchiveFile=" + archive);
+                configurations.add(measure(workDir, "adapters+cds", cds, account, false));
+                configurations.add(measure(workDir, "adapters+cds+warm-up", cds, account, true));
+            } else {
+                configurations.add(measure(workDir, "adapters+warm-up", Collections.emptyList(), account, true));
+            }
+            report.put("configurations", configurations);
+            return report;
+        } finally {
+            deleteTree(workDir);
+        }
+    }
+
+    private Map<String, Object> measure(Path workDir, String name, List<String> jvmOptions, String account,
+                                        boolean warmUp) throws IOException, InterruptedException {
+        long[] firstOperation = new long[runs];
+        long[] operations = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            command.addAll(jvmOptions);
+            command.add("-cp");
+            command.add(classPath);
+            command.add(FastStart.class.getName());
+            command.add("--first-operation=" + account);
+            command.add("--ops=" + ops);
+            if (warmUp) {
+                command.add("--warm-up");
+            }
+            long launched = System.nanoTime();
+            Process process = new ProcessBuilder(command).directory(workDir.toFile())
+                    .redirectErrorStream(true).start();
+            long first = -1;
+            long opsMillis = -1;
+            try (BufferedReader out = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = out.readLine()) != null) {
+                    if (line.equals(FastStart.FIRST_OPERATION_MARKER)) {
+                        first = (System.nanoTime() - launched) / 1_000_000;
+                    } else if (line.startsWith(FastStart.OPERATIONS_MARKER)) {
+                        opsMillis = Long.parseLong(line.substring(FastStart.OPERATIONS_MARKER.length()));
+                    }
+                }
+            }
+            if (process.waitFor() != 0 || first < 0) {
+                throw new IllegalStateException(name + ": the child JVM failed (exit " + process.exitValue() + ")");
+            }
+            firstOperation[run] = first;
+            operations[run] = opsMillis;
+        }
+        Arrays.sort(firstOperation);
+        Arrays.sort(operations);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", name);
+        result.put("jvmOptions", jvmOptions);
+        result.put("firstOperationMedianMs", firstOperation[runs / 2]);
+        result.put("firstOperationBestMs", firstOperation[0]);
+        result.put("operationsMedianMs", operations[runs / 2]);
+        return result;
+    }
+
+    /**
+     * Dumps the classes a training run loads, then archives them
+     */
+    private boolean buildArchive(Path workDir, Path archive, Map<String, Object> report)
+            throws IOException, InterruptedException {
+        Path training = Files.createDirectories(workDir.resolve("training"));
+        Path classList = workDir.resolve("bankapp.classlist");
+        long start = System.nanoTime();
+        boolean built = exec(training, java, "-Xshare:off", "-XX:DumpLoadedClassList=" + classList,
+                "-cp", classPath, FastStart.class.getName(), "--train")
+                && exec(workDir, java, "-Xshare:dump", "-XX:SharedClassListFile=" + classList,
+                "-XX:SharedArchiveFile=" + archive, "-cp", classPath);
+        if (!built) {
+            System.err.println("⚠️  Could not build the class-data-sharing archive; skipping it.");
+            return false;
+        }
+        report.put("archiveBuildMs", (System.nanoTime() - start) / 1_000_000);
+        report.put("archivedClasses", Files.readAllLines(classList).size());
+        report.put("archiveBytes", Files.size(archive));
+        return true;
+    }
+
+    private static boolean exec(Path directory, String... command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).directory(directory.toFile())
+                .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        return process.waitFor() == 0;
+    }
+
+    private boolean jarsOnly() {
+        for (String entry : classPath.split(File.pathSeparator)) {
+            if (!entry.endsWith(".jar") || !new File(entry).isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes data/bank_data.json as FileStorage would; returns its size
+     */
+    private long writeDataFile(Path workDir) throws IOException {
+        Path file = Files.createDirectories(workDir.resolve("data")).resolve("bank_data.json");
+        // Hashing every password for real would take minutes and changes nothing being measured
+        String passwordHash = AuthService.hashPassword("benchmark", 1000);
+        LocalDateTime start = LocalDateTime.now().minusDays(transactionsPerAccount);
+        Gson gson = FileStorage.gson();
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             JsonWriter writer = gson.newJsonWriter(out)) {
+            writer.beginObject();
+            for (int i = 0; i < accountCount; i++) {
+                Account account = Account.withPasswordHash(accountNumber(i), "Customer " + i, passwordHash, "1234");
+                double balance = 0;
+                for (int t = 0; t < transactionsPerAccount; t++) {
+                    account.addTransaction(new Transaction("DEPOSIT", 25, start.plusDays(t)));
+                    balance += 25;
+                }
+                account.setBalance(balance);
+                writer.name(account.getAccountNumber());
+                gson.toJson(account, Account.class, writer);
+            }
+            writer.endObject();
+        }
+        return Files.size(file);
+    }
+
+    private static String accountNumber(int index) {
+        return String.format("7%09d", index);
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int accounts = Integer.parseInt(option(args, "accounts", "2000"));
+        int transactions = Integer.parseInt(option(args, "transactions", "20"));
+        int runs = Integer.parseInt(option(args, "runs", "5"));
+        int ops = Integer.parseInt(option(args, "ops", "2000"));
+        if (runs < 1) {
+            System.err.println("--runs must be at least 1");
+            System.exit(2);
+        }
+
+        Map<String, Object> report = new StartupBenchmark(accounts, transactions, runs, ops).run();
+        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        System.out.println(gson.toJson(report));
+    }
+
+    private static String option(String[] args, String name, String fallback) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return fallback;
+    }
+}
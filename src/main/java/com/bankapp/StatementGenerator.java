@@ -0,0 +1,194 @@
+package com.bankapp;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes one monthly statement file per account to data/statements/<yyyy-MM>/.
+ *
+ * Accounts are processed on a fixed pool with a bounded number of tasks in
+ * flight. Each task only copies the month's transactions and writes them
+ * through a buffered writer, so memory does not grow with history length.
+ * Existing statements are kept, which makes an interrupted run resumable;
+ * accounts without activity in the month get no statement.
+ */
+public class StatementGenerator {
+    private static final String STATEMENT_DIRECTORY = FileStorage.DATA_DIRECTORY + "/statements";
+
+    private final Bank bank;
+    private final YearMonth month;
+    private final int concurrency;
+    private final File directory;
+
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder inactive = new LongAdder();
+    private final LongAdder resumed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public StatementGenerator(Bank bank, YearMonth month) {
+        this(bank, month, Runtime.getRuntime().availableProcessors());
+    }
+
+    public StatementGenerator(Bank bank, YearMonth month, int concurrency) {
+        this.bank = bank;
+        this.month = month;
+        this.concurrency = Math.max(1, concurrency);
+        this.directory = new File(STATEMENT_DIRECTORY, month.toString());
+    }
+
+    public boolean run() {
+        if (!month.isBefore(YearMonth.now())) {
+            System.out.println("❌ Statements can only be generated for completed months.");
+            return false;
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            System.out.println("❌ Cannot create " + directory);
+            return false;
+        }
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        Semaphore inFlight = new Semaphore(concurrency * 4);
+        try {
+            for (Account account : bank.allAccounts()) {
+                inFlight.acquire();
+                pool.execute(() -> {
+                    try {
+                        generate(account);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println("Monthly Statements - " + month);
+        System.out.println("=".repeat(60));
+        System.out.println("Accounts scanned: " + scanned.sum());
+        System.out.println("Statements written: " + written.sum());
+        System.out.println("Already present (resumed): " + resumed.sum());
+        System.out.println("Skipped (no activity): " + inactive.sum());
+        System.out.println("Failed: " + failed.sum());
+        System.out.println("Elapsed: " + String.format("%.3f", seconds) + "s ("
+                + String.format("%.1f", scanned.sum() / Math.max(seconds, 1e-9)) + " accounts/s)");
+        System.out.println("Output: " + directory.getPath());
+        System.out.println("=".repeat(60));
+        return failed.sum() == 0;
+    }
+
+    private void generate(Account account) {
+        scanned.increment();
+        File file = new File(directory, account.getAccountNumber() + ".txt");
+        if (file.exists()) {
+            resumed.increment();
+            return;
+        }
+
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        List<Transaction> transactions;
+        double closing;
+        synchronized (account) {
+            transactions = account.transactionsBetween(from, to);
+            closing = account.balanceAt(to);
+        }
+        if (transactions.isEmpty()) {
+            inactive.increment();
+            return;
+        }
+
+        double net = 0.0;
+        for (Transaction transaction : transactions) {
+            net += transaction.getSignedAmount();
+        }
+        double opening = closing - net;
+
+        File temp = new File(directory, account.getAccountNumber() + ".txt.tmp");
+        try {
+            writeStatement(temp, account, transactions, opening, closing);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            written.increment();
+        } catch (IOException e) {
+            failed.increment();
+            temp.delete();
+            System.err.println("❌ Statement for " + account.getAccountNumber() + " failed: " + e.getMessage());
+        }
+    }
+
+    private void writeStatement(File file, Account account, List<Transaction> transactions,
+                                double opening, double closing) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("=".repeat(72));
+            writer.newLine();
+            writer.write("Simple Banking System - Monthly Statement " + month);
+            writer.newLine();
+            writer.write("=".repeat(72));
+            writer.newLine();
+            writer.write("Account Number: " + account.getAccountNumber());
+            writer.newLine();
+            writer.write("Customer Name: " + account.getCustomerName());
+            writer.newLine();
+            writer.write(String.format("Opening Balance: $%.2f", opening));
+            writer.newLine();
+            writer.write("-".repeat(72));
+            writer.newLine();
+            writer.write(String.format("%-12s | %-12s | %-19s | %s", "Type", "Amount", "Date & Time", "Balance"));
+            writer.newLine();
+            writer.write("-".repeat(72));
+            writer.newLine();
+
+            double running = opening;
+            double credits = 0.0;
+            double debits = 0.0;
+            for (Transaction transaction : transactions) {
+                running += transaction.getSignedAmount();
+                if (transaction.isDebit()) {
+                    debits += transaction.getAmount();
+                } else {
+                    credits += transaction.getAmount();
+                }
+                writer.write(String.format("%-12s | $%-11.2f | %-19s | $%.2f",
+                        transaction.getType(), transaction.getAmount(),
+                        transaction.getFormattedDateTime(), running));
+                writer.newLine();
+            }
+
+            writer.write("-".repeat(72));
+            writer.newLine();
+            writer.write(String.format("Transactions: %d", transactions.size()));
+            writer.newLine();
+            writer.write(String.format("Total Credits: $%.2f", credits));
+            writer.newLine();
+            writer.write(String.format("Total Debits: $%.2f", debits));
+            writer.newLine();
+            writer.write(String.format("Closing Balance: $%.2f", closing));
+            writer.newLine();
+            writer.write("=".repeat(72));
+            writer.newLine();
+        }
+    }
+}
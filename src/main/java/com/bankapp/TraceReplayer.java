@@ -0,0 +1,464 @@
+package com.bankapp;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Re-executes a trace recorded with --trace against a fresh Bank loaded from
+ * the trace's account snapshot, then prints a JSON report.
+ *
+ * Usage:
+ *   java -cp target/classes:gson.jar com.bankapp.TraceReplayer --trace=path
+ *        [--pacing=max|original] [--speed=1.0] [--report=replay-report.json] [--audit-log=path]
+ *
+ * With --pacing=max (the default) operations run one after another in the
+ * order they started, as fast as possible. With --pacing=original every
+ * recorded thread gets a replay thread that starts each operation at its
+ * recorded offset divided by --speed, so concurrency and idle time are
+ * reproduced; latency is then measured from the intended start, as in
+ * LoadSimulator.
+ *
+ * A divergence is a result that differs from the recorded one, or a final
+ * balance that differs from the one at the end of the trace. The replay bank
+ * has no velocity rules and saves nothing, so operations the rules held or
+ * declined when recorded show up as divergences.
+ */
+public class TraceReplayer {
+    private static final int MAX_EXAMPLES = 20;
+    private static final WorkloadTrace.Operation[] OPERATIONS = WorkloadTrace.Operation.values();
+
+    private final Path tracePath;
+    private final boolean originalPacing;
+    private final double speed;
+
+    public TraceReplayer(Path tracePath, boolean originalPacing, double speed) {
+        this.tracePath = tracePath;
+        this.originalPacing = originalPacing;
+        this.speed = speed;
+    }
+
+    /**
+     * Replays one recorded thread's operations, or all of them in start order
+     */
+    private static final class Worker implements Runnable {
+        private final Bank bank;
+        private final AdminService admin;
+        private final List<WorkloadTrace.Record> records;
+        private final long originNanos;
+        private final double speed;
+        private final CountDownLatch done;
+        final LatencyHistogram[] histograms = new LatencyHistogram[OPERATIONS.length];
+        final long[] divergences = new long[OPERATIONS.length];
+        final LatencyHistogram lag = new LatencyHistogram();
+        final List<String> examples = new ArrayList<>();
+
+        Worker(Bank bank, List<WorkloadTrace.Record> records, long originNanos, double speed, CountDownLatch done) {
+            this.bank = bank;
+            this.admin = new AdminService(bank);
+            this.records = records;
+            this.originNanos = originNanos;
+            this.speed = speed;
+            this.done = done;
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (WorkloadTrace.Record record : records) {
+                    long started = System.nanoTime();
+                    if (speed > 0) {
+                        long intended = originNanos + (long) (record.startNanos / speed);
+                        while (started < intended) {
+                            LockSupport.parkNanos(intended - started);
+                            started = System.nanoTime();
+                        }
+                        lag.record(started - intended);
+                        started = intended;
+                    }
+                    Object replayed = execute(bank, admin, record);
+                    int op = record.operation.ordinal();
+                    histograms[op].record(System.nanoTime() - started);
+                    if (!sameResult(record.result, replayed)) {
+                        divergences[op]++;
+                        if (examples.size() < MAX_EXAMPLES) {
+                            examples.add(describe(record) + ": recorded " + record.result + ", replayed " + replayed);
+                        }
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+
+    public Map<String, Object> run() throws IOException, InterruptedException {
+        List<WorkloadTrace.Record> records = new ArrayList<>();
+        Map<String, Double> finalBalances;
+        boolean complete;
+        long recordedAt;
+        Path snapshot;
+        try (WorkloadTrace.Reader reader = WorkloadTrace.Reader.open(tracePath)) {
+            recordedAt = reader.getStartMillis();
+            snapshot = tracePath.resolveSibling(reader.getSnapshotName());
+            String sha256 = sha256(snapshot);
+            if (!sha256.equals(reader.getSnapshotSha256())) {
+                throw new IOException(snapshot + " is not the snapshot this trace was recorded from");
+            }
+            WorkloadTrace.Record record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+            complete = reader.isComplete();
+            finalBalances = reader.getFinalBalances();
+        }
+        // Stable, so one thread's operations keep their order when start times tie
+        records.sort(Comparator.comparingLong(record -> record.startNanos));
+
+        Bank bank = new Bank();
+        bank.setRiskEngine(new RiskEngine(Collections.emptyList()));
+        Map<String, Account> accounts = loadSnapshot(snapshot);
+        bank.loadAccounts(accounts);
+
+        List<Worker> workers = new ArrayList<>();
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long start = System.nanoTime();
+        try {
+            if (originalPacing) {
+                Map<Integer, List<WorkloadTrace.Record>> byThread = new TreeMap<>();
+                for (WorkloadTrace.Record record : records) {
+                    byThread.computeIfAbsent(record.thread, thread -> new ArrayList<>()).add(record);
+                }
+                CountDownLatch done = new CountDownLatch(byThread.size());
+                long origin = System.nanoTime() + 10_000_000L;
+                for (Map.Entry<Integer, List<WorkloadTrace.Record>> thread : byThread.entrySet()) {
+                    Worker worker = new Worker(bank, thread.getValue(), origin, speed, done);
+                    workers.add(worker);
+                    Thread replayThread = new Thread(worker, "trace-replay-" + thread.getKey());
+                    replayThread.setDaemon(true);
+                    replayThread.start();
+                }
+                done.await();
+            } else {
+                Worker worker = new Worker(bank, records, 0, 0, new CountDownLatch(1));
+                workers.add(worker);
+                worker.run();
+            }
+        } finally {
+            System.setOut(console);
+        }
+        long replayNanos = System.nanoTime() - start;
+
+        return buildReport(records, workers, replayNanos, accounts.size(), recordedAt, complete,
+                compareBalances(bank, finalBalances));
+    }
+
+    private Map<String, Object> buildReport(List<WorkloadTrace.Record> records, List<Worker> workers,
+                                            long replayNanos, int snapshotAccounts, long recordedAt,
+                                            boolean complete, Map<String, Object> balances) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("trace", tracePath.toString());
+        report.put("recordedAt", LocalDateTime.ofInstant(Instant.ofEpochMilli(recordedAt), ZoneId.systemDefault())
+                .toString());
+        report.put("snapshotAccounts", snapshotAccounts);
+        report.put("pacing", originalPacing ? "original" : "max");
+        if (originalPacing) {
+            report.put("speed", speed);
+        }
+
+        LatencyHistogram[] recorded = new LatencyHistogram[OPERATIONS.length];
+        LatencyHistogram allRecorded = new LatencyHistogram();
+        long recordedSpan = 0;
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            recorded[i] = new LatencyHistogram();
+        }
+        for (WorkloadTrace.Record record : records) {
+            recorded[record.operation.ordinal()].record(record.durationNanos);
+            allRecorded.record(record.durationNanos);
+            recordedSpan = Math.max(recordedSpan, record.startNanos + record.durationNanos);
+        }
+
+        LatencyHistogram all = new LatencyHistogram();
+        LatencyHistogram lag = new LatencyHistogram();
+        long resultDivergences = 0;
+        List<String> examples = new ArrayList<>();
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            LatencyHistogram merged = new LatencyHistogram();
+            long divergences = 0;
+            for (Worker worker : workers) {
+                merged.merge(worker.histograms[op]);
+                divergences += worker.divergences[op];
+            }
+            if (merged.getTotalCount() == 0) {
+                continue;
+            }
+            all.merge(merged);
+            resultDivergences += divergences;
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", merged.getTotalCount());
+            stats.put("divergences", divergences);
+            stats.put("latencyMicros", merged.summaryMicros());
+            stats.put("recordedLatencyMicros", recorded[op].summaryMicros());
+            operations.put(OPERATIONS[op].name(), stats);
+        }
+        for (Worker worker : workers) {
+            lag.merge(worker.lag);
+            for (String example : worker.examples) {
+                if (examples.size() < MAX_EXAMPLES) {
+                    examples.add(example);
+                }
+            }
+        }
+
+        double replaySeconds = replayNanos / 1_000_000_000.0;
+        double recordedSeconds = recordedSpan / 1_000_000_000.0;
+        report.put("totalOperations", records.size());
+        report.put("recordedSeconds", LatencyHistogram.round(recordedSeconds));
+        report.put("replaySeconds", LatencyHistogram.round(replaySeconds));
+        report.put("recordedThroughputPerSec",
+                recordedSeconds == 0 ? 0 : LatencyHistogram.round(records.size() / recordedSeconds));
+        report.put("throughputPerSec", replaySeconds == 0 ? 0 : LatencyHistogram.round(records.size() / replaySeconds));
+        report.put("latencyMicros", all.summaryMicros());
+        report.put("recordedLatencyMicros", allRecorded.summaryMicros());
+        if (originalPacing) {
+            report.put("scheduleLagMicros", lag.summaryMicros());
+        }
+        report.put("operations", operations);
+
+        Map<String, Object> divergence = new LinkedHashMap<>();
+        divergence.put("traceComplete", complete);
+        divergence.put("resultDivergences", resultDivergences);
+        divergence.putAll(balances);
+        divergence.put("examples", examples);
+        divergence.put("ok", resultDivergences == 0 && Long.valueOf(0).equals(balances.get("balanceMismatches")));
+        report.put("divergence", divergence);
+        return report;
+    }
+
+    /**
+     * Compares the replayed balances with the ones recorded at the end of the trace
+     */
+    private static Map<String, Object> compareBalances(Bank bank, Map<String, Double> finalBalances) {
+        long mismatches = 0;
+        List<String> examples = new ArrayList<>();
+        for (Map.Entry<String, Double> expected : finalBalances.entrySet()) {
+            Account account = bank.getAccount(expected.getKey());
+            double actual = account == null ? Double.NaN : account.getBalance();
+            if (!(Math.abs(actual - expected.getValue()) < 0.005)) {
+                mismatches++;
+                if (examples.size() < MAX_EXAMPLES) {
+                    examples.add(expected.getKey() + ": recorded " + String.format("%.2f", expected.getValue())
+                            + ", replayed " + (account == null ? "no account" : String.format("%.2f", actual)));
+                }
+            }
+        }
+        Map<String, Object> balances = new LinkedHashMap<>();
+        balances.put("balancesChecked", finalBalances.size());
+        balances.put("balanceMismatches", mismatches);
+        balances.put("balanceExamples", examples);
+        return balances;
+    }
+
+    /**
+     * Runs a record against the bank; the result in the form the trace records it
+     */
+    private static Object execute(Bank bank, AdminService admin, WorkloadTrace.Record record) {
+        Object[] arguments = record.arguments;
+        switch (record.operation) {
+            case CREATE_ACCOUNT: {
+                // A generated number is replayed as the number it got, so later records find the account
+                String accountNumber = arguments[1] != null ? record.argument(1) : (String) record.result;
+                return bank.createAccount(record.argument(0), accountNumber, record.argument(2), record.argument(3));
+            }
+            case DEPOSIT:
+                return arguments[2] == null
+                        ? bank.deposit(record.argument(0), record.amount(1))
+                        : bank.deposit(record.argument(0), record.amount(1), record.argument(2));
+            case WITHDRAW:
+                return arguments[3] == null
+                        ? bank.withdraw(record.argument(0), record.amount(1), record.argument(2))
+                        : bank.withdraw(record.argument(0), record.amount(1), record.argument(2), record.argument(3));
+            case TRANSFER: {
+                LocalDateTime when = (LocalDateTime) arguments[3];
+                return arguments[4] == null
+                        ? bank.transfer(record.argument(0), record.argument(1), record.amount(2), when).name()
+                        : (Object) bank.transfer(record.argument(0), record.argument(1), record.amount(2), when,
+                        record.argument(4));
+            }
+            case WRONG_PIN:
+                bank.recordWrongPin(record.argument(0));
+                return null;
+            case RELEASE_HOLD:
+                return bank.releaseHold((Long) arguments[0]);
+            case DECLINE_HOLD:
+                return bank.declineHold((Long) arguments[0]);
+            case CHECK_BALANCE:
+                bank.checkBalance(record.argument(0));
+                return null;
+            case VIEW_TRANSACTIONS:
+                bank.viewTransactions(record.argument(0));
+                return null;
+            case AUTHENTICATE: {
+                Account account = bank.authenticateUser(record.argument(0), record.argument(1));
+                return account == null ? null : account.getAccountNumber();
+            }
+            case LOCK_ACCOUNT:
+                return bank.lockAccount(record.argument(0));
+            case UNLOCK_ACCOUNT:
+                return bank.unlockAccount(record.argument(0));
+            case TOTAL_BALANCE:
+                return bank.getTotalBankBalance();
+            case LIST_ACCOUNTS:
+                bank.displayAllAccounts();
+                return null;
+            case LIST_ACCOUNTS_ADMIN:
+                bank.displayAllAccountsAdmin();
+                return null;
+            case ACCOUNT_DETAILS:
+                bank.displayAccountDetailsAdmin(record.argument(0));
+                return null;
+            case ADMIN_LOGIN:
+                return admin.login(record.argument(0));
+            case ADMIN_LOGOUT:
+                admin.logout();
+                return null;
+            default:
+                throw new IllegalStateException("Cannot replay " + record.operation);
+        }
+    }
+
+    private static boolean sameResult(Object recorded, Object replayed) {
+        if (recorded instanceof Double && replayed instanceof Double) {
+            return Math.abs((Double) recorded - (Double) replayed) < 0.005;
+        }
+        return Objects.equals(recorded, replayed);
+    }
+
+    /**
+     * The operation and the accounts it names; passwords and PINs are left out of the report
+     */
+    private static String describe(WorkloadTrace.Record record) {
+        List<Object> accounts = new ArrayList<>();
+        for (int index : record.operation.accountArguments()) {
+            accounts.add(record.arguments[index]);
+        }
+        if (record.operation == WorkloadTrace.Operation.CREATE_ACCOUNT) {
+            accounts.add(record.arguments[1] != null ? record.arguments[1] : record.result);
+        }
+        return record.operation + accounts.toString() + " at +"
+                + String.format("%.3f", record.startNanos / 1_000_000_000.0) + "s";
+    }
+
+    private static Map<String, Account> loadSnapshot(Path snapshot) throws IOException {
+        Type type = new TypeToken<HashMap<String, Account>>(){}.getType();
+        try (Reader reader = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8)) {
+            Map<String, Account> accounts = FileStorage.gson().fromJson(reader, type);
+            return accounts == null ? new HashMap<>() : accounts;
+        }
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest = AuditChain.newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return BackupManager.hex(digest.digest());
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String trace = option(args, "trace", null);
+        if (trace == null) {
+            System.err.println("Usage: TraceReplayer --trace=path [--pacing=max|original] [--speed=1.0]"
+                    + " [--report=path] [--audit-log=path]");
+            System.exit(2);
+        }
+        String pacing = option(args, "pacing", "max");
+        if (!pacing.equals("max") && !pacing.equals("original")) {
+            throw new IllegalArgumentException("--pacing must be max or original");
+        }
+        double speed = Double.parseDouble(option(args, "speed", "1.0"));
+        if (speed <= 0) {
+            throw new IllegalArgumentException("--speed must be positive");
+        }
+        String reportPath = option(args, "report", null);
+        String auditLog = option(args, "audit-log", null);
+
+        File tempAudit = null;
+        if (auditLog == null) {
+            tempAudit = File.createTempFile("replay-audit", ".log");
+            auditLog = tempAudit.getPath();
+        }
+        AuditService.setLogFile(auditLog);
+
+        System.err.println("Replaying " + trace + " (" + pacing + " pacing)...");
+        Map<String, Object> report = new TraceReplayer(Paths.get(trace), pacing.equals("original"), speed).run();
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        String json = gson.toJson(report);
+        if (reportPath != null) {
+            try (FileWriter writer = new FileWriter(reportPath)) {
+                writer.write(json);
+                writer.write(System.lineSeparator());
+            } catch (IOException e) {
+                System.err.println("❌ Error writing report: " + e.getMessage());
+            }
+            System.err.println("✅ Report written to " + reportPath);
+        } else {
+            System.out.println(json);
+        }
+
+        if (tempAudit != null) {
+            tempAudit.delete();
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> divergence = (Map<String, Object>) report.get("divergence");
+        if (!Boolean.TRUE.equals(divergence.get("ok"))) {
+            System.err.println("❌ The replay diverged from the trace");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.bankapp;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Bank that records every operation it serves, with its inputs, result and
+ * timing, into a WorkloadTrace (--trace=file).
+ *
+ * startTrace() first writes a snapshot of every account next to the trace
+ * (trace.accounts.json), so TraceReplayer can start from the same state.
+ * Operations a recorded operation makes internally, such as the plain
+ * deposit under an idempotent one, are not recorded again. Before
+ * startTrace() and after stopTrace() it is a plain Bank.
+ */
+final class TracingBank extends Bank {
+    static final String SNAPSHOT_SUFFIX = ".accounts.json";
+
+    private volatile WorkloadTrace.Writer trace;
+    private final Set<String> touched = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+    private Thread shutdownHook;
+
+    /**
+     * Snapshots the accounts and starts recording; call before any operations are served
+     */
+    synchronized boolean startTrace(Path file) {
+        if (trace != null) {
+            return true;
+        }
+        Path snapshot = file.resolveSibling(file.getFileName() + SNAPSHOT_SUFFIX);
+        try {
+            String sha256 = writeSnapshot(snapshot);
+            trace = WorkloadTrace.Writer.create(file, snapshot.getFileName().toString(), sha256);
+        } catch (IOException e) {
+            System.err.println("❌ Could not start trace capture: " + e.getMessage());
+            return false;
+        }
+        shutdownHook = new Thread(this::stopTrace, "trace-close");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        System.out.println("🎥 Recording operations to " + file + " (snapshot: " + snapshot.getFileName() + ").");
+        return true;
+    }
+
+    /**
+     * Stops recording and writes the final balances of every account the trace touched
+     */
+    synchronized void stopTrace() {
+        WorkloadTrace.Writer writer = trace;
+        if (writer == null) {
+            return;
+        }
+        trace = null;
+        Map<String, Double> balances = new TreeMap<>();
+        for (String accountNumber : touched) {
+            Account account = getAccount(accountNumber);
+            if (account != null) {
+                balances.put(accountNumber, account.getBalance());
+            }
+        }
+        try {
+            writer.finish(balances);
+            System.out.println("🎥 Trace closed: " + writer.getRecordCount() + " operation(s) recorded.");
+        } catch (IOException e) {
+            System.err.println("❌ Error closing trace: " + e.getMessage());
+        }
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // already shutting down
+            }
+        }
+    }
+
+    /**
+     * Writes every account as bank_data.json would hold it; returns the file's SHA-256
+     */
+    private String writeSnapshot(Path file) throws IOException {
+        MessageDigest sha256 = AuditChain.newDigest();
+        IOException[] failure = new IOException[1];
+        try (OutputStream out = new DigestOutputStream(Files.newOutputStream(file), sha256);
+             JsonWriter writer = FileStorage.gson().newJsonWriter(
+                     new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            forEachState(state -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    writer.name(state.getAccountNumber());
+                    FileStorage.gson().toJson(state.toAccount(), Account.class, writer);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            writer.endObject();
+        }
+        return BackupManager.hex(sha256.digest());
+    }
+
+    /**
+     * Runs an operation, recording it unless it was made by one being recorded
+     */
+    private <T> T traced(WorkloadTrace.Operation operation, Supplier<T> call, Object... arguments) {
+        WorkloadTrace.Writer writer = trace;
+        int[] nesting = depth.get();
+        if (writer == null || nesting[0] > 0) {
+            return call.get();
+        }
+        nesting[0]++;
+        long start = System.nanoTime();
+        T result = null;
+        try {
+            result = call.get();
+            return result;
+        } finally {
+            nesting[0]--;
+            for (int index : operation.accountArguments()) {
+                if (arguments[index] != null) {
+                    touched.add((String) arguments[index]);
+                }
+            }
+            try {
+                writer.record(operation, start, result, arguments);
+            } catch (IOException e) {
+                System.err.println("❌ Trace capture stopped: " + e.getMessage());
+                trace = null;
+            }
+        }
+    }
+
+    /**
+     * Records an AdminService operation when the bank is tracing
+     */
+    static <T> T recordAdmin(Bank bank, WorkloadTrace.Operation operation, Supplier<T> call, Object... arguments) {
+        if (bank instanceof TracingBank) {
+            return ((TracingBank) bank).traced(operation, call, arguments);
+        }
+        return call.get();
+    }
+
+    @Override
+    public String createAccount(String customerName, String accountNumber, String password, String pin) {
+        String created = traced(WorkloadTrace.Operation.CREATE_ACCOUNT,
+                () -> super.createAccount(customerName, accountNumber, password, pin),
+                customerName, accountNumber, password, pin);
+        if (created != null && trace != null) {
+            touched.add(created);
+        }
+        return created;
+    }
+
+    @Override
+    public boolean deposit(String accountNumber, double amount) {
+        return traced(WorkloadTrace.Operation.DEPOSIT, () -> super.deposit(accountNumber, amount),
+                accountNumber, amount, null);
+    }
+
+    @Override
+    public boolean deposit(String accountNumber, double amount, String idempotencyKey) {
+        return traced(WorkloadTrace.Operation.DEPOSIT, () -> super.deposit(accountNumber, amount, idempotencyKey),
+                accountNumber, amount, idempotencyKey);
+    }
+
+    @Override
+    public boolean withdraw(String accountNumber, double amount, String pin) {
+        return traced(WorkloadTrace.Operation.WITHDRAW, () -> super.withdraw(accountNumber, amount, pin),
+                accountNumber, amount, pin, null);
+    }
+
+    @Override
+    public boolean withdraw(String accountNumber, double amount, String pin, String idempotencyKey) {
+        return traced(WorkloadTrace.Operation.WITHDRAW,
+                () -> super.withdraw(accountNumber, amount, pin, idempotencyKey),
+                accountNumber, amount, pin, idempotencyKey);
+    }
+
+    @Override
+    public TransferOutcome transfer(String fromAccount, String toAccount, double amount, LocalDateTime when) {
+        return traced(WorkloadTrace.Operation.TRANSFER, () -> super.transfer(fromAccount, toAccount, amount, when),
+                fromAccount, toAccount, amount, when, null);
+    }
+
+    @Override
+    public boolean transfer(String fromAccount, String toAccount, double amount, LocalDateTime when,
+                            String idempotencyKey) {
+        return traced(WorkloadTrace.Operation.TRANSFER,
+                () -> super.transfer(fromAccount, toAccount, amount, when, idempotencyKey),
+                fromAccount, toAccount, amount, when, idempotencyKey);
+    }
+
+    @Override
+    public void recordWrongPin(String accountNumber) {
+        traced(WorkloadTrace.Operation.WRONG_PIN, () -> {
+            super.recordWrongPin(accountNumber);
+            return null;
+        }, accountNumber);
+    }
+
+    @Override
+    public boolean releaseHold(long id) {
+        return traced(WorkloadTrace.Operation.RELEASE_HOLD, () -> super.releaseHold(id), id);
+    }
+
+    @Override
+    public boolean declineHold(long id) {
+        return traced(WorkloadTrace.Operation.DECLINE_HOLD, () -> super.declineHold(id), id);
+    }
+
+    @Override
+    public void checkBalance(String accountNumber) {
+        traced(WorkloadTrace.Operation.CHECK_BALANCE, () -> {
+            super.checkBalance(accountNumber);
+            return null;
+        }, accountNumber);
+    }
+
+    @Override
+    public void viewTransactions(String accountNumber) {
+        traced(WorkloadTrace.Operation.VIEW_TRANSACTIONS, () -> {
+            super.viewTransactions(accountNumber);
+            return null;
+        }, accountNumber);
+    }
+
+    @Override
+    public Account authenticateUser(String accountNumber, String password) {
+        return traced(WorkloadTrace.Operation.AUTHENTICATE, () -> super.authenticateUser(accountNumber, password),
+                accountNumber, password);
+    }
+
+    @Override
+    public boolean lockAccount(String accountNumber) {
+        return traced(WorkloadTrace.Operation.LOCK_ACCOUNT, () -> super.lockAccount(accountNumber), accountNumber);
+    }
+
+    @Override
+    public boolean unlockAccount(String accountNumber) {
+        return traced(WorkloadTrace.Operation.UNLOCK_ACCOUNT, () -> super.unlockAccount(accountNumber),
+                accountNumber);
+    }
+
+    @Override
+    public double getTotalBankBalance() {
+        return traced(WorkloadTrace.Operation.TOTAL_BALANCE, super::getTotalBankBalance);
+    }
+
+    @Override
+    public void displayAllAccounts() {
+        traced(WorkloadTrace.Operation.LIST_ACCOUNTS, () -> {
+            super.displayAllAccounts();
+            return null;
+        });
+    }
+
+    @Override
+    public void displayAllAccountsAdmin() {
+        traced(WorkloadTrace.Operation.LIST_ACCOUNTS_ADMIN, () -> {
+            super.displayAllAccountsAdmin();
+            return null;
+        });
+    }
+
+    @Override
+    public void displayAccountDetailsAdmin(String accountNumber) {
+        traced(WorkloadTrace.Operation.ACCOUNT_DETAILS, () -> {
+            super.displayAccountDetailsAdmin(accountNumber);
+            return null;
+        }, accountNumber);
+    }
+}
@@ -1,5 +1,11 @@
 package com.bankapp;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
@@ -7,14 +13,43 @@ public class Transaction {
     private String type;
     private double amount;
     private LocalDateTime dateTime;
+    // Idempotency key of the request that booked it, if any
+    private String requestKey;
 
     private static final DateTimeFormatter FORMATTER =
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     public Transaction(String type, double amount) {
+        this(type, amount, LocalDateTime.now());
+    }
+
+    public Transaction(String type, double amount, LocalDateTime dateTime) {
         this.type = type;
         this.amount = amount;
-        this.dateTime = LocalDateTime.now();
+        this.dateTime = dateTime;
+    }
+
+    public Transaction(String type, double amount, LocalDateTime dateTime, String requestKey) {
+        this(type, amount, dateTime);
+        this.requestKey = requestKey;
+    }
+
+    /**
+     * True for transaction types that reduce the balance
+     */
+    public static boolean isDebitType(String type) {
+        return "WITHDRAW".equals(type) || "FEE".equals(type) || "TRANSFER_OUT".equals(type);
+    }
+
+    public boolean isDebit() {
+        return isDebitType(type);
+    }
+
+    /**
+     * Amount with sign applied: negative for debits
+     */
+    public double getSignedAmount() {
+        return isDebit() ? -amount : amount;
     }
 
     public String getType() {
@@ -41,6 +76,10 @@ public class Transaction {
         this.dateTime = dateTime;
     }
 
+    public String getRequestKey() {
+        return requestKey;
+    }
+
     @Override
     public String toString() {
         return String.format("%-10s | $%-10.2f | %s",
@@ -50,4 +89,67 @@ public class Transaction {
     public String getFormattedDateTime() {
         return dateTime.format(FORMATTER);
     }
+
+    /**
+     * Gson adapter for one history entry, written as reflective binding
+     * would write it; see Account.JsonAdapter
+     */
+    static final class JsonAdapter extends TypeAdapter<Transaction> {
+        private final LocalDateTimeAdapter dateTimeAdapter = new LocalDateTimeAdapter();
+
+        @Override
+        public void write(JsonWriter out, Transaction transaction) throws IOException {
+            if (transaction == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("type").value(transaction.type);
+            out.name("amount").value(transaction.amount);
+            out.name("dateTime");
+            dateTimeAdapter.write(out, transaction.dateTime);
+            if (transaction.requestKey != null) {
+                out.name("requestKey").value(transaction.requestKey);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Transaction read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String type = null;
+            double amount = 0;
+            LocalDateTime dateTime = null;
+            String requestKey = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "type":
+                        type = Account.JsonAdapter.readString(in);
+                        break;
+                    case "amount":
+                        amount = in.nextDouble();
+                        break;
+                    case "dateTime":
+                        dateTime = dateTimeAdapter.read(in);
+                        break;
+                    case "requestKey":
+                        requestKey = Account.JsonAdapter.readString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Transaction(type, amount, dateTime, requestKey);
+        }
+    }
 }
\ No newline at end of file
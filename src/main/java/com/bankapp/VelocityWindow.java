@@ -0,0 +1,71 @@
+package com.bankapp;
+
+import java.util.Arrays;
+
+/**
+ * Sliding-window count and amount over a fixed number of time buckets, kept
+ * in two primitive ring buffers. The window covers buckets * bucketMillis;
+ * running totals are adjusted as buckets expire, so reading them is O(1) and
+ * the memory used never grows. Not thread-safe: callers hold the risk
+ * profile's monitor.
+ */
+final class VelocityWindow {
+    private final long bucketMillis;
+    private final int[] counts;
+    private final long[] cents;
+    // Bucket number (time / bucketMillis) of the newest slot
+    private long head;
+    private int count;
+    private long totalCents;
+
+    VelocityWindow(long bucketMillis, int buckets) {
+        this.bucketMillis = bucketMillis;
+        this.counts = new int[buckets];
+        this.cents = new long[buckets];
+    }
+
+    void add(long nowMillis, long amountCents) {
+        int slot = advance(nowMillis);
+        counts[slot]++;
+        cents[slot] += amountCents;
+        count++;
+        totalCents += amountCents;
+    }
+
+    int count(long nowMillis) {
+        advance(nowMillis);
+        return count;
+    }
+
+    long cents(long nowMillis) {
+        advance(nowMillis);
+        return totalCents;
+    }
+
+    /**
+     * Clears the buckets that fell out of the window and returns the slot of
+     * the current one. A clock that steps back counts into the newest bucket.
+     */
+    private int advance(long nowMillis) {
+        long bucket = nowMillis / bucketMillis;
+        int size = counts.length;
+        if (bucket > head) {
+            if (bucket - head >= size) {
+                Arrays.fill(counts, 0);
+                Arrays.fill(cents, 0);
+                count = 0;
+                totalCents = 0;
+            } else {
+                for (long expired = head + 1; expired <= bucket; expired++) {
+                    int slot = (int) (expired % size);
+                    count -= counts[slot];
+                    totalCents -= cents[slot];
+                    counts[slot] = 0;
+                    cents[slot] = 0;
+                }
+            }
+            head = bucket;
+        }
+        return (int) (head % size);
+    }
+}
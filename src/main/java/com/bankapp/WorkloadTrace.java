@@ -0,0 +1,422 @@
+package com.bankapp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Binary trace of the operations a bank served, written by TracingBank and
+ * read by TraceReplayer.
+ *
+ * A trace starts with "BANKTRC1", the wall-clock start in epoch millis and
+ * the file name and SHA-256 of the account snapshot taken when capture
+ * began. Then comes one record per completed operation: the operation, the
+ * calling thread, its start in nanoseconds since capture began, its
+ * duration, its arguments and its result. Numbers are varints and every
+ * argument is tagged with its type, so a record is typically 30-60 bytes.
+ * Records are written as operations complete, so they are not in start
+ * order. A clean stop ends the trace with a marker and the final balance of
+ * every account it touched.
+ *
+ * The trace holds passwords and PINs as entered, so it is created readable
+ * by its owner only.
+ */
+final class WorkloadTrace {
+    private static final byte[] MAGIC = "BANKTRC1".getBytes(StandardCharsets.US_ASCII);
+    private static final int END = 0xFF;
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int DOUBLE = 2;
+    private static final int LONG = 3;
+    private static final int TRUE = 4;
+    private static final int FALSE = 5;
+    private static final int DATE_TIME = 6;
+
+    /**
+     * What can be recorded; the numbers are the arguments that are account numbers
+     */
+    enum Operation {
+        CREATE_ACCOUNT,
+        DEPOSIT(0),
+        WITHDRAW(0),
+        TRANSFER(0, 1),
+        WRONG_PIN(0),
+        RELEASE_HOLD,
+        DECLINE_HOLD,
+        CHECK_BALANCE(0),
+        VIEW_TRANSACTIONS(0),
+        AUTHENTICATE(0),
+        LOCK_ACCOUNT(0),
+        UNLOCK_ACCOUNT(0),
+        TOTAL_BALANCE,
+        LIST_ACCOUNTS,
+        LIST_ACCOUNTS_ADMIN,
+        ACCOUNT_DETAILS(0),
+        ADMIN_LOGIN,
+        ADMIN_LOGOUT;
+
+        private final int[] accountArguments;
+
+        Operation(int... accountArguments) {
+            this.accountArguments = accountArguments;
+        }
+
+        int[] accountArguments() {
+            return accountArguments;
+        }
+    }
+
+    /**
+     * One operation as it was served
+     */
+    static final class Record {
+        final Operation operation;
+        final int thread;
+        final long startNanos;
+        final long durationNanos;
+        final Object[] arguments;
+        final Object result;
+
+        Record(Operation operation, int thread, long startNanos, long durationNanos, Object[] arguments,
+               Object result) {
+            this.operation = operation;
+            this.thread = thread;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.arguments = arguments;
+            this.result = result;
+        }
+
+        String argument(int index) {
+            return (String) arguments[index];
+        }
+
+        double amount(int index) {
+            return (Double) arguments[index];
+        }
+
+        @Override
+        public String toString() {
+            return operation + Arrays.toString(arguments);
+        }
+    }
+
+    private WorkloadTrace() {
+    }
+
+    /**
+     * Appends records to a new trace file. Thread-safe; callers record after
+     * the operation completes.
+     */
+    static final class Writer implements Closeable {
+        private final OutputStream out;
+        private final long originNanos = System.nanoTime();
+        private final AtomicInteger threads = new AtomicInteger();
+        private final ThreadLocal<Integer> threadOrdinal = ThreadLocal.withInitial(threads::getAndIncrement);
+        private long records;
+        private boolean closed;
+
+        private Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        static Writer create(Path file, String snapshotName, String snapshotSha256) throws IOException {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.deleteIfExists(file);
+            try {
+                Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            } catch (UnsupportedOperationException e) {
+                Files.createFile(file);
+            }
+            Writer writer = new Writer(new BufferedOutputStream(
+                    Files.newOutputStream(file, StandardOpenOption.WRITE), 64 * 1024));
+            writer.out.write(MAGIC);
+            writer.writeLong(System.currentTimeMillis());
+            writer.writeString(snapshotName);
+            writer.writeString(snapshotSha256);
+            return writer;
+        }
+
+        /**
+         * Records an operation that started at startNanos (System.nanoTime) and has just completed
+         */
+        synchronized void record(Operation operation, long startNanos, Object result, Object... arguments)
+                throws IOException {
+            if (closed) {
+                return;
+            }
+            long end = System.nanoTime();
+            out.write(operation.ordinal());
+            writeVarLong(threadOrdinal.get());
+            writeVarLong(Math.max(0, startNanos - originNanos));
+            writeVarLong(Math.max(0, end - startNanos));
+            out.write(arguments.length);
+            for (Object argument : arguments) {
+                writeValue(argument);
+            }
+            writeValue(result);
+            records++;
+        }
+
+        synchronized long getRecordCount() {
+            return records;
+        }
+
+        /**
+         * Writes the end marker and the final balances, then closes the file
+         */
+        synchronized void finish(Map<String, Double> balances) throws IOException {
+            if (closed) {
+                return;
+            }
+            try {
+                out.write(END);
+                writeVarLong(balances.size());
+                for (Map.Entry<String, Double> balance : balances.entrySet()) {
+                    writeString(balance.getKey());
+                    writeDouble(balance.getValue());
+                }
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                out.close();
+            }
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.write(NULL);
+            } else if (value instanceof Boolean) {
+                out.write((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Double) {
+                out.write(DOUBLE);
+                writeDouble((Double) value);
+            } else if (value instanceof Long || value instanceof Integer) {
+                long number = ((Number) value).longValue();
+                out.write(LONG);
+                writeVarLong((number << 1) ^ (number >> 63));
+            } else if (value instanceof LocalDateTime) {
+                LocalDateTime dateTime = (LocalDateTime) value;
+                long seconds = dateTime.toEpochSecond(ZoneOffset.UTC);
+                out.write(DATE_TIME);
+                writeVarLong((seconds << 1) ^ (seconds >> 63));
+                writeVarLong(dateTime.getNano());
+            } else if (value instanceof Account) {
+                out.write(STRING);
+                writeString(((Account) value).getAccountNumber());
+            } else if (value instanceof Enum) {
+                out.write(STRING);
+                writeString(((Enum<?>) value).name());
+            } else {
+                out.write(STRING);
+                writeString(value.toString());
+            }
+        }
+
+        private void writeString(String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeDouble(double value) throws IOException {
+            writeLong(Double.doubleToLongBits(value));
+        }
+
+        private void writeLong(long value) throws IOException {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (value >>> shift));
+            }
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+
+    /**
+     * Reads a trace file record by record
+     */
+    static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private final long startMillis;
+        private final String snapshotName;
+        private final String snapshotSha256;
+        private final Map<String, Double> finalBalances = new LinkedHashMap<>();
+        private boolean complete;
+        private boolean truncated;
+
+        private Reader(InputStream in) throws IOException {
+            this.in = new DataInputStream(in);
+            byte[] magic = new byte[MAGIC.length];
+            this.in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("not a bank trace file");
+            }
+            startMillis = this.in.readLong();
+            snapshotName = readString();
+            snapshotSha256 = readString();
+        }
+
+        static Reader open(Path file) throws IOException {
+            InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024);
+            try {
+                return new Reader(in);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        /**
+         * The next record, or null at the end of the trace
+         */
+        Record next() throws IOException {
+            if (complete || truncated) {
+                return null;
+            }
+            int code = in.read();
+            if (code < 0) {
+                truncated = true;
+                return null;
+            }
+            try {
+                if (code == END) {
+                    readFinalBalances();
+                    complete = true;
+                    return null;
+                }
+                Operation[] operations = Operation.values();
+                if (code >= operations.length) {
+                    throw new IOException("unknown operation code " + code);
+                }
+                int thread = (int) readVarLong();
+                long start = readVarLong();
+                long duration = readVarLong();
+                Object[] arguments = new Object[in.readUnsignedByte()];
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = readValue();
+                }
+                return new Record(operations[code], thread, start, duration, arguments, readValue());
+            } catch (EOFException e) {
+                // The recording process stopped mid-record
+                truncated = true;
+                return null;
+            }
+        }
+
+        long getStartMillis() {
+            return startMillis;
+        }
+
+        String getSnapshotName() {
+            return snapshotName;
+        }
+
+        String getSnapshotSha256() {
+            return snapshotSha256;
+        }
+
+        /**
+         * Whether the trace ended with its final balances; only meaningful once next() has returned null
+         */
+        boolean isComplete() {
+            return complete;
+        }
+
+        Map<String, Double> getFinalBalances() {
+            return finalBalances;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private void readFinalBalances() throws IOException {
+            long count = readVarLong();
+            for (long i = 0; i < count; i++) {
+                String accountNumber = readString();
+                finalBalances.put(accountNumber, in.readDouble());
+            }
+        }
+
+        private Object readValue() throws IOException {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case DOUBLE:
+                    return in.readDouble();
+                case LONG: {
+                    long encoded = readVarLong();
+                    return (encoded >>> 1) ^ -(encoded & 1);
+                }
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case DATE_TIME: {
+                    long encoded = readVarLong();
+                    long seconds = (encoded >>> 1) ^ -(encoded & 1);
+                    return LocalDateTime.ofEpochSecond(seconds, (int) readVarLong(), ZoneOffset.UTC);
+                }
+                default:
+                    throw new IOException("unknown value tag " + tag);
+            }
+        }
+
+        private String readString() throws IOException {
+            long length = readVarLong();
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IOException("string of " + length + " bytes");
+            }
+            byte[] bytes = new byte[(int) length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("malformed varint");
+        }
+    }
+}